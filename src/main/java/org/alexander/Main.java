@@ -21,7 +21,8 @@ public class Main {
      * This method performs the following steps:
      * 1. Sets up the modern FlatLaf light look and feel for the entire application.
      * 2. Initializes the {@link DatabaseManager} to prepare file and database access.
-     * 3. Sets up a runtime shutdown hook to handle database saving on exit, based on {@link AppState}.
+     * 3. Starts autosave if configured, and sets up a runtime shutdown hook which waits for any background save
+     *    and then saves or discards the changes on exit, based on {@link AppState}.
      * 4. Creates the main application window ({@link AppFrame}).
      * 5. Initializes the {@link GUIHandler} to populate the frame with UI components.
      * 6. Makes the application window visible to the user.
@@ -38,10 +39,14 @@ public class Main {
         }
 
         DatabaseManager.initialise();
+        DatabaseManager.getSaveScheduler().startConfiguredAutosave();
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            DatabaseManager.getSaveScheduler().close();
             if (AppState.saveDB) {
                 DatabaseManager.save();
+            } else {
+                DatabaseManager.discard();
             }
         }));
 
@@ -0,0 +1,132 @@
+package org.alexander.database;
+
+import org.alexander.logging.CentralLogger;
+
+import javax.swing.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * AsyncDao runs DAO calls on a dedicated database thread and hands their results back on the Swing event dispatch
+ * thread, so a slow query never freezes the GUI.
+ * <p>
+ * Every call runs on the same single thread, in the order it was made, so a refresh requested after a write always
+ * sees the write. Calls made from the database thread itself, e.g. from within another call, run straight away.
+ * A call which throws is logged and its result delivered as null, as the DAOs do when a query fails.
+ * </p>
+ * <pre>{@code
+ * AsyncDao<FoodDaoInterface> foodDao = new AsyncDao<>(new FoodDao());
+ * foodDao.query(FoodDaoInterface::getFoodList, foods -> foods.forEach(listModel::addElement));
+ * }</pre>
+ * @param <D> the DAO interface wrapped
+ * @since 1.1.0
+ */
+public final class AsyncDao<D> {
+    /**
+     * Runs tasks on the Swing event dispatch thread.
+     */
+    public static final Executor EDT = SwingUtilities::invokeLater;
+    private static final CentralLogger logger = CentralLogger.getInstance();
+    private static volatile Thread databaseThread;
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "database");
+        thread.setDaemon(true);
+        databaseThread = thread;
+        return thread;
+    });
+    private final D dao;
+
+    /**
+     * @param dao the DAO to call on the database thread
+     */
+    public AsyncDao(D dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Calls the DAO on the database thread.
+     * @param call the DAO call
+     * @return a future completed on the database thread with the result of the call
+     */
+    public <T> CompletableFuture<T> query(Function<? super D, ? extends T> call) {
+        return supply(() -> call.apply(dao));
+    }
+
+    /**
+     * Calls the DAO on the database thread and passes the result to the event dispatch thread.
+     * @param call the DAO call
+     * @param onResult receives the result, or null if the call threw, on the event dispatch thread
+     */
+    public <T> void query(Function<? super D, ? extends T> call, Consumer<? super T> onResult) {
+        supply(() -> call.apply(dao), onResult);
+    }
+
+    /**
+     * Calls the DAO on the database thread for its side effects.
+     * @param call the DAO call
+     * @param onDone runs on the event dispatch thread once the call has finished, whether or not it threw
+     */
+    public void update(Consumer<? super D> call, Runnable onDone) {
+        run(() -> call.accept(dao), onDone);
+    }
+
+    /**
+     * Runs work spanning several DAOs on the database thread.
+     * @param work the work, returning its result
+     * @return a future completed on the database thread with the result, or null if the work threw
+     */
+    public static <T> CompletableFuture<T> supply(Supplier<? extends T> work) {
+        if (isDatabaseThread()) {
+            return CompletableFuture.completedFuture(call(work));
+        }
+        return CompletableFuture.supplyAsync(() -> call(work), executor);
+    }
+
+    /**
+     * Runs work spanning several DAOs on the database thread and passes its result to the event dispatch thread.
+     * @param work the work, returning its result
+     * @param onResult receives the result, or null if the work threw, on the event dispatch thread, anything it throws
+     *                 is logged
+     */
+    public static <T> void supply(Supplier<? extends T> work, Consumer<? super T> onResult) {
+        AsyncDao.<T>supply(work).thenAcceptAsync(onResult, EDT).exceptionally(e -> {
+            // Nobody holds the future, so this is the only place the exception can be seen
+            logger.logError(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            return null;
+        });
+    }
+
+    /**
+     * Runs work spanning several DAOs on the database thread.
+     * @param work the work
+     * @param onDone runs on the event dispatch thread once the work has finished, whether or not it threw
+     */
+    public static void run(Runnable work, Runnable onDone) {
+        supply(() -> {
+            work.run();
+            return null;
+        }, result -> onDone.run());
+    }
+
+    /**
+     * @return true if the calling thread is the database thread
+     */
+    public static boolean isDatabaseThread() {
+        return Thread.currentThread() == databaseThread;
+    }
+
+    private static <T> T call(Supplier<? extends T> work) {
+        try {
+            return work.get();
+        } catch (RuntimeException e) {
+            logger.logError(e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package org.alexander.database;
+
+import org.alexander.logging.CentralLogger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * BackupStore keeps the retained backups of the saved database as content-addressed page chunks.
+ * <p>
+ * A backup splits the database file into chunks of one SQLite page each and stores every chunk under the SHA-256 of
+ * its content, so a page which did not change since an earlier backup is stored once and shared. Each backup is a
+ * manifest listing its chunks in file order, from which {@link #restore(String, Path)} rebuilds the file. A save
+ * therefore only writes the pages it changed, and ten retained backups cost little more than one.
+ * </p>
+ * <p>
+ * Chunks are stored deflated. Restoring streams each chunk through the inflater and checks it against its hash
+ * before writing it, so a corrupt backup is reported instead of restored.
+ * </p>
+ * <p>
+ * Chunks are written before the manifest referencing them, and the manifest is moved into place last, so a backup
+ * interrupted part way leaves no manifest and only chunks which {@link #prune(int)} later removes.
+ * </p>
+ * @since 1.1.0
+ */
+public class BackupStore {
+    private static final CentralLogger logger = CentralLogger.getInstance();
+    private static final String MANIFEST_HEADER = "FoodTracker backup 1";
+    private static final String MANIFEST_EXTENSION = ".manifest";
+    private static final String CHUNK_EXTENSION = ".z";
+    private static final int DEFAULT_CHUNK_SIZE = 4096;
+    private static final int SQLITE_HEADER_SIZE = 100;
+    private static final byte[] SQLITE_MAGIC = "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII);
+    private final Path chunks;
+    private final Path manifests;
+
+    /**
+     * The outcome of a backup.
+     * @param name the name to restore the backup by
+     * @param chunks the number of chunks the backup is made of
+     * @param chunksWritten the number of chunks which were not already stored
+     * @param bytesWritten the compressed size of the chunks which were not already stored
+     */
+    public record Backup(String name, int chunks, int chunksWritten, long bytesWritten) {}
+
+    /**
+     * @param directory the folder holding the backups, created on the first backup
+     */
+    public BackupStore(Path directory) {
+        this.chunks = directory.resolve("chunks");
+        this.manifests = directory.resolve("manifests");
+    }
+
+    /**
+     * Backs up a database file, storing only the pages no retained backup already holds.
+     * The file must not be written to while it is backed up.
+     * @param database the database file to back up
+     * @param name the name of the backup, an existing backup of the same name is replaced
+     * @return what the backup wrote
+     * @throws IOException if the file could not be read or the backup written
+     */
+    public Backup backup(Path database, String name) throws IOException {
+        Files.createDirectories(chunks);
+        Files.createDirectories(manifests);
+        long length = Files.size(database);
+        int chunkSize = chunkSize(database);
+        List<String> hashes = new ArrayList<>();
+        int chunksWritten = 0;
+        long bytesWritten = 0;
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (InputStream in = Files.newInputStream(database)) {
+            byte[] chunk;
+            while ((chunk = in.readNBytes(chunkSize)).length > 0) {
+                String hash = hash(chunk);
+                hashes.add(hash);
+                Path file = chunkPath(hash);
+                if (!Files.exists(file)) {
+                    bytesWritten += write(file, chunk, deflater);
+                    chunksWritten++;
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        Path manifest = manifestPath(name);
+        Path temp = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(MANIFEST_HEADER);
+            writer.newLine();
+            writer.write(Long.toString(length));
+            writer.newLine();
+            for (String hash : hashes) {
+                writer.write(hash);
+                writer.newLine();
+            }
+        }
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.logInfo("Backup " + name + " wrote " + bytesWritten + " bytes in " + chunksWritten + " of " + hashes.size() + " chunks");
+        return new Backup(name, hashes.size(), chunksWritten, bytesWritten);
+    }
+
+    /**
+     * @param name the name of a backup
+     * @return true if a backup of that name is stored
+     */
+    public boolean contains(String name) {
+        return Files.exists(manifestPath(name));
+    }
+
+    /**
+     * @return the names of the stored backups, newest first
+     * @throws IOException if the backups could not be listed
+     */
+    public List<String> list() throws IOException {
+        if (!Files.isDirectory(manifests)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(manifests)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(file -> file.endsWith(MANIFEST_EXTENSION))
+                    .map(file -> file.substring(0, file.length() - MANIFEST_EXTENSION.length()))
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+        }
+    }
+
+    /**
+     * Rebuilds the database file of a backup.
+     * @param name the name of the backup
+     * @param destination the file to write, replaced only once the whole backup has been restored
+     * @throws IOException if the backup does not exist, a chunk is missing or corrupt or the file could not be written
+     */
+    public void restore(String name, Path destination) throws IOException {
+        Path temp = destination.resolveSibling(destination.getFileName() + ".restore");
+        try (BufferedReader reader = Files.newBufferedReader(manifestPath(name), StandardCharsets.UTF_8);
+             OutputStream out = Files.newOutputStream(temp)) {
+            if (!MANIFEST_HEADER.equals(reader.readLine())) {
+                throw new IOException("Backup " + name + " has an unknown manifest format");
+            }
+            long length = Long.parseLong(reader.readLine());
+            long restored = 0;
+            String hash;
+            while ((hash = reader.readLine()) != null) {
+                byte[] chunk = read(hash);
+                out.write(chunk);
+                restored += chunk.length;
+            }
+            if (restored != length) {
+                throw new IOException("Backup " + name + " restored " + restored + " of " + length + " bytes");
+            }
+        } catch (IOException | NumberFormatException e) {
+            Files.deleteIfExists(temp);
+            throw e instanceof IOException io ? io : new IOException("Backup " + name + " has a corrupt manifest", e);
+        }
+        Files.move(temp, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Deletes all but the newest backups, then every chunk no remaining backup refers to.
+     * @param retain the number of backups to keep
+     * @throws IOException if the backups could not be listed or read
+     */
+    public void prune(int retain) throws IOException {
+        List<String> names = list();
+        for (String name : names.subList(Math.min(retain, names.size()), names.size())) {
+            Files.deleteIfExists(manifestPath(name));
+        }
+        if (!Files.isDirectory(chunks)) {
+            return;
+        }
+        Set<Path> referenced = new HashSet<>();
+        for (String name : list()) {
+            try (Stream<String> lines = Files.lines(manifestPath(name), StandardCharsets.UTF_8)) {
+                lines.skip(2).map(this::chunkPath).forEach(referenced::add);
+            }
+        }
+        List<Path> unreferenced;
+        try (Stream<Path> files = Files.walk(chunks)) {
+            unreferenced = files.filter(Files::isRegularFile)
+                    .filter(file -> !referenced.contains(file))
+                    .toList();
+        }
+        for (Path file : unreferenced) {
+            Files.deleteIfExists(file);
+        }
+        if (!unreferenced.isEmpty()) {
+            logger.logInfo("[Debug] Removed " + unreferenced.size() + " backup chunks no longer referenced.");
+        }
+    }
+
+    /**
+     * @return the page size of an SQLite database, so chunk boundaries line up with pages, or a default for other files
+     */
+    private static int chunkSize(Path database) throws IOException {
+        byte[] header;
+        try (InputStream in = Files.newInputStream(database)) {
+            header = in.readNBytes(SQLITE_HEADER_SIZE);
+        }
+        if (header.length < SQLITE_HEADER_SIZE) {
+            return DEFAULT_CHUNK_SIZE;
+        }
+        for (int i = 0; i < SQLITE_MAGIC.length; i++) {
+            if (header[i] != SQLITE_MAGIC[i]) {
+                return DEFAULT_CHUNK_SIZE;
+            }
+        }
+        // Stored big-endian at offset 16, 1 stands for 65536
+        int pageSize = ((header[16] & 0xFF) << 8) | (header[17] & 0xFF);
+        return pageSize == 1 ? 65536 : pageSize;
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    private static long write(Path file, byte[] chunk, Deflater deflater) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        deflater.reset();
+        try (OutputStream out = new DeflaterOutputStream(Files.newOutputStream(temp), deflater)) {
+            out.write(chunk);
+        }
+        long size = Files.size(temp);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return size;
+    }
+
+    /**
+     * Reads a chunk back, checking its content still matches its hash.
+     */
+    private byte[] read(String hash) throws IOException {
+        byte[] chunk;
+        try (InputStream in = new InflaterInputStream(Files.newInputStream(chunkPath(hash)))) {
+            chunk = in.readAllBytes();
+        }
+        if (!hash.equals(hash(chunk))) {
+            throw new IOException("Backup chunk " + hash + " is corrupt");
+        }
+        return chunk;
+    }
+
+    private static String hash(byte[] chunk) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(chunk));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Chunks are spread over folders named by the first two characters of their hash, keeping folders small
+    private Path chunkPath(String hash) {
+        return chunks.resolve(hash.substring(0, 2)).resolve(hash + CHUNK_EXTENSION);
+    }
+
+    private Path manifestPath(String name) {
+        return manifests.resolve(name + MANIFEST_EXTENSION);
+    }
+}
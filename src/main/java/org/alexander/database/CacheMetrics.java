@@ -0,0 +1,26 @@
+package org.alexander.database;
+
+/**
+ * A point-in-time snapshot of an in-memory cache's size and hit-rate metrics.
+ * @param size the number of entries currently cached
+ * @param capacity the maximum number of entries the cache keeps
+ * @param hits lookups answered from memory
+ * @param misses lookups which had to go to the database
+ * @param evictions entries dropped to stay within the capacity
+ * @since 1.1.0
+ */
+public record CacheMetrics(
+        int size,
+        int capacity,
+        long hits,
+        long misses,
+        long evictions
+) {
+    /**
+     * @return the fraction of lookups answered from memory, 0 if there were none
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
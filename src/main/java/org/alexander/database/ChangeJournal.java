@@ -0,0 +1,328 @@
+package org.alexander.database;
+
+import org.alexander.database.tables.Tables;
+import org.alexander.database.tables.day.Day;
+import org.alexander.database.tables.food.Food;
+import org.alexander.database.tables.foodmeal.FoodMeal;
+import org.alexander.database.tables.foodsnack.FoodSnack;
+import org.alexander.database.tables.foodtypefood.FoodJunctionType;
+import org.alexander.database.tables.meal.Meal;
+import org.alexander.database.tables.snack.Snack;
+import org.alexander.database.tables.week.Week;
+import org.alexander.logging.CentralLogger;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * ChangeJournal records the rows the DAOs write to the working database since it was last saved.
+ * <p>
+ * Changes are folded per row as they are recorded, so the journal holds the net change of each row rather than
+ * every write: a row inserted and then deleted again leaves nothing behind, and a row updated many times is a single
+ * modification. The exit summary is built from the journal without reading either database file.
+ * </p>
+ * <p>
+ * The journal only sees writes made through the DAOs. Once it cannot vouch for its contents, because it outgrew its
+ * capacity or something wrote around it, it is marked unreliable and the {@link DatabaseComparer} should be used
+ * instead until the next save clears it.
+ * </p>
+ * @since 1.1.0
+ */
+public final class ChangeJournal {
+    public static final int DEFAULT_CAPACITY = 10_000;
+    private static final CentralLogger logger = CentralLogger.getInstance();
+    private static final ChangeJournal instance = new ChangeJournal(DEFAULT_CAPACITY);
+    private final int capacity;
+    private final LinkedHashMap<RowKey, Change> changes = new LinkedHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private boolean reliable = true;
+    private long version;
+
+    /**
+     * The net change of a row since the last save.
+     */
+    public enum Kind {
+        ADDED,
+        MODIFIED,
+        REMOVED
+    }
+
+    /**
+     * The net change of a single row.
+     * @param table the table of the row
+     * @param kind how the row changed
+     * @param description a short description of the row for display
+     */
+    public record Change(Tables table, Kind kind, String description) {
+        /**
+         * @return the change worded for the changes summary, e.g. {@code Added Food: Apple}
+         */
+        public String summary() {
+            String verb = switch (kind) {
+                case ADDED -> "Added ";
+                case MODIFIED -> "Changed ";
+                case REMOVED -> "Removed ";
+            };
+            return verb + label(table) + ": " + description;
+        }
+    }
+
+    /**
+     * Told about every row the DAOs write, whether or not the journal is reliable, on the writing thread and while
+     * the journal is locked, so a listener should only take note of the change.
+     * The row may not have been committed yet.
+     */
+    public interface Listener {
+        /**
+         * @param table the table written to
+         * @param key the row's primary key, a {@link CompoundKey} for the junction tables
+         * @param kind whether the row was inserted, updated or deleted
+         */
+        void rowChanged(Tables table, Object key, Kind kind);
+
+        /**
+         * Something wrote around the journal, so any row may have changed.
+         */
+        void everythingChanged();
+    }
+
+    private record RowKey(Tables table, Object key) {}
+
+    /**
+     * @param capacity the maximum number of changed rows tracked before the journal gives up and becomes unreliable
+     */
+    public ChangeJournal(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1, was " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the journal of the working database
+     */
+    public static ChangeJournal getInstance() {
+        return instance;
+    }
+
+    /**
+     * Records a change written by a DAO on the journal of the working database.
+     * <p>
+     * A DAO given a connection of its own may not be writing to the working database, so the journal cannot follow
+     * it and is marked unreliable instead.
+     * </p>
+     * @param ownConnection the connection the DAO was given, null if it writes through the {@link DatabaseManager}
+     * @param change records the change on the journal
+     */
+    public static void record(Connection ownConnection, Consumer<ChangeJournal> change) {
+        if (ownConnection == null) change.accept(instance);
+        else instance.markUnreliable("a DAO wrote through its own connection");
+    }
+
+    /**
+     * Records a row inserted into a table.
+     * @param table the table written to
+     * @param key the row's primary key, a {@link CompoundKey} for the junction tables
+     * @param description a short description of the row for display
+     */
+    public synchronized void inserted(Tables table, Object key, String description) {
+        listeners.forEach(listener -> listener.rowChanged(table, key, Kind.ADDED));
+        RowKey row = new RowKey(table, key);
+        Change previous = changes.get(row);
+        // A row deleted and inserted again may differ from the saved one
+        Kind kind = previous != null && previous.kind() == Kind.REMOVED ? Kind.MODIFIED : Kind.ADDED;
+        put(row, new Change(table, kind, description));
+    }
+
+    /**
+     * Records a row updated in a table.
+     * @param table the table written to
+     * @param key the row's primary key
+     * @param description a short description of the row, as it now is, for display
+     */
+    public synchronized void updated(Tables table, Object key, String description) {
+        listeners.forEach(listener -> listener.rowChanged(table, key, Kind.MODIFIED));
+        RowKey row = new RowKey(table, key);
+        Change previous = changes.get(row);
+        // A row added since the last save is still an addition however often it is updated
+        Kind kind = previous != null && previous.kind() == Kind.ADDED ? Kind.ADDED : Kind.MODIFIED;
+        put(row, new Change(table, kind, description));
+    }
+
+    /**
+     * Records a row deleted from a table.
+     * @param table the table written to
+     * @param key the row's primary key
+     * @param description a short description of the row for display, may be null if the journal already holds one
+     */
+    public synchronized void deleted(Tables table, Object key, String description) {
+        listeners.forEach(listener -> listener.rowChanged(table, key, Kind.REMOVED));
+        RowKey row = new RowKey(table, key);
+        Change previous = changes.get(row);
+        if (previous != null && previous.kind() == Kind.ADDED) {
+            // Never saved, so there is nothing left to report
+            changes.remove(row);
+            version++;
+            return;
+        }
+        if (description == null) {
+            description = previous != null ? previous.description() : String.valueOf(key);
+        }
+        put(row, new Change(table, Kind.REMOVED, description));
+    }
+
+    public void inserted(Tables table, Entity<?> entity) {
+        inserted(table, entity.getKey(), describe(entity));
+    }
+
+    public void updated(Tables table, Entity<?> entity) {
+        updated(table, entity.getKey(), describe(entity));
+    }
+
+    public void deleted(Tables table, Entity<?> entity) {
+        deleted(table, entity.getKey(), describe(entity));
+    }
+
+    /**
+     * Creates a user-friendly description of an entity for display.
+     * @param entity The entity to describe.
+     * @return A string description.
+     */
+    public static String describe(Object entity) {
+        return switch (entity) {
+            case Food food -> food.getName();
+            case Day day -> day.getDate().toString();
+            case Meal meal -> meal.getType() + " at " + meal.getTime() + " on " + meal.getDate();
+            case Snack snack -> "Snack at " + snack.getTime() + " on " + snack.getDate();
+            case Week week -> week.getStartDate() + " to " + week.getEndDate();
+            case FoodMeal foodMeal -> foodMeal.getFoodName() + " in meal " + foodMeal.getMealId();
+            case FoodSnack foodSnack -> foodSnack.getFoodName() + " in snack " + foodSnack.getSnackId();
+            case FoodJunctionType junction -> junction.getName() + " as " + junction.getType();
+            default -> entity.toString();
+        };
+    }
+
+    /**
+     * @param listener told about every row written from now on
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gives up on tracking changes until the next {@link #clear()}, e.g. after a write the journal could not see.
+     * @param reason why the journal can no longer be trusted, for the logs
+     */
+    public synchronized void markUnreliable(String reason) {
+        if (reliable) {
+            logger.logWarning("Change journal is no longer reliable, " + reason);
+        }
+        reliable = false;
+        changes.clear();
+        version++;
+        listeners.forEach(Listener::everythingChanged);
+    }
+
+    /**
+     * @return true if every change since the last save was recorded
+     */
+    public synchronized boolean isReliable() {
+        return reliable;
+    }
+
+    /**
+     * Forgets every change, called once the working database has been saved or replaced.
+     */
+    public synchronized void clear() {
+        changes.clear();
+        reliable = true;
+        version++;
+    }
+
+    /**
+     * @return a number which changes whenever the journal does, taken before saving to pass to {@link #saved(long)}
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Forgets every change once a save which started at the given version has finished. Changes recorded while the
+     * save was running may or may not have been saved, so the journal is then marked unreliable instead.
+     * @param version the version of the journal when the save started
+     */
+    public synchronized void saved(long version) {
+        if (this.version == version) {
+            clear();
+        } else {
+            markUnreliable("rows changed while saving");
+        }
+    }
+
+    /**
+     * @return the net change of every row, in the order the rows were first changed
+     */
+    public synchronized List<Change> getChanges() {
+        return List.copyOf(changes.values());
+    }
+
+    public synchronized List<String> getAdditions() {
+        return summaries(Kind.ADDED);
+    }
+
+    public synchronized List<String> getModifications() {
+        return summaries(Kind.MODIFIED);
+    }
+
+    public synchronized List<String> getDeletions() {
+        return summaries(Kind.REMOVED);
+    }
+
+    public synchronized boolean hasChanges() {
+        return !changes.isEmpty();
+    }
+
+    private void put(RowKey row, Change change) {
+        if (!reliable) return;
+        changes.put(row, change);
+        version++;
+        if (changes.size() > capacity) {
+            markUnreliable("more than " + capacity + " rows changed since the last save");
+        }
+    }
+
+    private List<String> summaries(Kind kind) {
+        List<String> summaries = new ArrayList<>();
+        for (Map.Entry<RowKey, Change> entry : changes.entrySet()) {
+            if (entry.getValue().kind() == kind) {
+                summaries.add(entry.getValue().summary());
+            }
+        }
+        return summaries;
+    }
+
+    private static String label(Tables table) {
+        return switch (table) {
+            case WEEK -> "Week";
+            case DAY -> "Day";
+            case MEAL -> "Meal";
+            case SNACK -> "Snack";
+            case FOOD -> "Food";
+            case FOOD_TYPE -> "Food Type";
+            case FOOD_TYPE_JUNCTION_FOOD -> "Food Type of Food";
+            case FOOD_MEAL -> "Food in Meal";
+            case FOOD_SNACK -> "Food in Snack";
+            case DAY_TOTALS -> "Day Totals";
+            case DAY_TYPE_TOTALS -> "Day Totals by Food Type";
+        };
+    }
+}
@@ -0,0 +1,421 @@
+package org.alexander.database;
+
+import org.alexander.logging.CentralLogger;
+import org.sqlite.SQLiteConfig;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ConnectionPool hands out leased connections to a single SQLite database file.
+ * <p>
+ * Reads are served from a small bounded set of reusable connections, writes go through one dedicated
+ * writer connection. A lease is confined to the thread that took it: nested calls on the same thread
+ * (e.g. a DAO calling another DAO's {@code contains()}) share the thread's current lease instead of
+ * borrowing a second connection, and a thread holding the writer reads through the writer so it sees
+ * its own changes. Closing a leased connection returns it to the pool rather than closing the file handle.
+ * </p>
+ * <p>
+ * Each connection keeps a {@link StatementCache}, so {@code prepareStatement(String)} on a leased connection reuses
+ * the statement compiled the last time the same SQL ran on that connection.
+ * </p>
+ * @since 1.1.0
+ */
+public class ConnectionPool {
+    private static final CentralLogger logger = CentralLogger.getInstance();
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+    private final String url;
+    private final int maxReaders;
+    private final long leaseTimeoutMillis;
+    private final int statementCacheSize;
+    private final SQLiteConfig config = new SQLiteConfig();
+    private final LinkedBlockingDeque<PooledConnection> idleReaders = new LinkedBlockingDeque<>();
+    private final AtomicInteger openReaders = new AtomicInteger();
+    private final ReentrantLock writerLock = new ReentrantLock(true);
+    private PooledConnection writer; // guarded by writerLock
+    private final ThreadLocal<Lease> readLease = new ThreadLocal<>();
+    private final ThreadLocal<Lease> writeLease = new ThreadLocal<>();
+    private final AtomicInteger generation = new AtomicInteger();
+    // metrics
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong waitedLeases = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+
+    /**
+     * Creates a pool for the given database url. Connections are opened lazily.
+     * @param url the jdbc url of the database
+     * @param maxReaders the maximum number of read connections kept open at once
+     * @param leaseTimeoutMillis how long a thread waits for a free connection before failing
+     */
+    public ConnectionPool(String url, int maxReaders, long leaseTimeoutMillis) {
+        this(url, maxReaders, leaseTimeoutMillis, DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a pool for the given database url. Connections are opened lazily.
+     * @param url the jdbc url of the database
+     * @param maxReaders the maximum number of read connections kept open at once
+     * @param leaseTimeoutMillis how long a thread waits for a free connection before failing
+     * @param statementCacheSize the maximum number of prepared statements cached per connection, 0 disables the cache
+     */
+    public ConnectionPool(String url, int maxReaders, long leaseTimeoutMillis, int statementCacheSize) {
+        if (maxReaders < 1) {
+            throw new IllegalArgumentException("maxReaders must be at least 1, was " + maxReaders);
+        }
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("statementCacheSize must not be negative, was " + statementCacheSize);
+        }
+        this.url = url;
+        this.maxReaders = maxReaders;
+        this.leaseTimeoutMillis = leaseTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        config.setBusyTimeout((int) leaseTimeoutMillis);
+        // inserts rely on the foreign keys to reject rows whose parent is missing, instead of checking first,
+        // and a plain delete of a row still referenced fails, the cascade deletes remove the children first
+        config.enforceForeignKeys(true);
+    }
+
+    /**
+     * Leases a connection for reading. If the calling thread already holds a lease, that lease is shared.
+     * @return a connection handle whose {@code close()} returns the connection to the pool
+     * @throws SQLException if no connection became available within the lease timeout
+     */
+    public Connection lease() throws SQLException {
+        Lease current = writeLease.get();
+        if (current == null) {
+            current = readLease.get();
+        }
+        if (current != null) {
+            return current.handle();
+        }
+        long start = System.nanoTime();
+        PooledConnection connection = takeReader();
+        recordLease(start);
+        Lease lease = new Lease(connection, false);
+        readLease.set(lease);
+        return lease.handle();
+    }
+
+    /**
+     * Leases the single writer connection, blocking while another thread holds it.
+     * If the calling thread already holds the writer, that lease is shared.
+     * @return a connection handle whose {@code close()} releases the writer
+     * @throws SQLException if the writer did not become available within the lease timeout
+     */
+    public Connection leaseWriter() throws SQLException {
+        Lease current = writeLease.get();
+        if (current != null) {
+            return current.handle();
+        }
+        long start = System.nanoTime();
+        try {
+            if (!writerLock.tryLock(leaseTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + leaseTimeoutMillis + "ms waiting for the writer connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the writer connection", e);
+        }
+        try {
+            if (writer == null || writer.physical().isClosed()) {
+                writer = open();
+            }
+        } catch (SQLException e) {
+            writerLock.unlock();
+            throw e;
+        }
+        recordLease(start);
+        Lease lease = new Lease(writer, true);
+        writeLease.set(lease);
+        return lease.handle();
+    }
+
+    /**
+     * Closes every idle connection so other processes can access the database file.
+     * Connections currently leased are closed as soon as they are returned.
+     * The pool stays usable, new leases open fresh connections.
+     */
+    public void evictIdle() {
+        generation.incrementAndGet();
+        PooledConnection idle;
+        while ((idle = idleReaders.pollFirst()) != null) {
+            closeQuietly(idle);
+            openReaders.decrementAndGet();
+        }
+        if (writerLock.tryLock()) {
+            try {
+                if (writer != null && writeLease.get() == null) {
+                    closeQuietly(writer);
+                    writer = null;
+                }
+            } finally {
+                writerLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return true if a thread holds the writer, without waiting for it
+     */
+    public boolean isWriterLeased() {
+        return writerLock.isLocked();
+    }
+
+    /**
+     * @return a snapshot of the pool size and wait-time metrics
+     */
+    public PoolMetrics getMetrics() {
+        long total = leases.get();
+        long waited = waitedLeases.get();
+        return new PoolMetrics(
+                maxReaders,
+                openReaders.get(),
+                idleReaders.size(),
+                writerLock.isLocked(),
+                total,
+                waited,
+                timeouts.get(),
+                total == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / total,
+                maxWaitNanos.get() / 1_000_000.0,
+                statementHits.sum(),
+                statementMisses.sum()
+        );
+    }
+
+    /**
+     * Wraps a connection owned by the caller so that DAOs can use it in try-with-resources
+     * without closing it. Used where a DAO is handed an explicit connection, e.g. by the DatabaseComparer.
+     * @param connection the caller-owned connection
+     * @return a handle whose {@code close()} does nothing
+     */
+    public static Connection borrowed(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> null;
+                    case "unwrap" -> connection.unwrap((Class<?>) args[0]);
+                    default -> invoke(connection, method, args);
+                });
+    }
+
+    private PooledConnection takeReader() throws SQLException {
+        while (true) {
+            PooledConnection idle = idleReaders.pollFirst();
+            if (idle != null) {
+                if (!idle.physical().isClosed()) return idle;
+                openReaders.decrementAndGet();
+                continue;
+            }
+            int open = openReaders.get();
+            if (open < maxReaders) {
+                if (openReaders.compareAndSet(open, open + 1)) {
+                    try {
+                        return open();
+                    } catch (SQLException e) {
+                        openReaders.decrementAndGet();
+                        throw e;
+                    }
+                }
+                continue;
+            }
+            try {
+                idle = idleReaders.pollFirst(leaseTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            if (idle == null) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + leaseTimeoutMillis + "ms waiting for a database connection, pool size: " + maxReaders);
+            }
+            if (!idle.physical().isClosed()) return idle;
+            openReaders.decrementAndGet();
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, config.toProperties());
+        StatementCache statements = new StatementCache(physical, statementCacheSize, statementHits, statementMisses);
+        return new PooledConnection(physical, statements, generation.get());
+    }
+
+    private void release(Lease lease) {
+        PooledConnection connection = lease.connection;
+        boolean stale = connection.generation() != generation.get();
+        if (lease.writer) {
+            writeLease.remove();
+            try {
+                resetAutoCommit(connection);
+                if (stale) {
+                    closeQuietly(connection);
+                    writer = null;
+                }
+            } finally {
+                writerLock.unlock();
+            }
+        } else {
+            readLease.remove();
+            resetAutoCommit(connection);
+            if (stale || isClosed(connection)) {
+                closeQuietly(connection);
+                openReaders.decrementAndGet();
+            } else {
+                idleReaders.offerFirst(connection);
+            }
+        }
+    }
+
+    // A connection must never go back to the pool mid-transaction, roll back whatever the last holder left open.
+    private void resetAutoCommit(PooledConnection connection) {
+        try {
+            if (!connection.physical().isClosed() && !connection.physical().getAutoCommit()) {
+                logger.logWarning("Connection returned to the pool with an open transaction, rolling back.");
+                connection.physical().rollback();
+                connection.physical().setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.logError(e);
+        }
+    }
+
+    private void recordLease(long startNanos) {
+        long waited = System.nanoTime() - startNanos;
+        leases.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulate(waited);
+        if (waited > TimeUnit.MILLISECONDS.toNanos(1)) {
+            waitedLeases.incrementAndGet();
+        }
+    }
+
+    private static boolean isClosed(PooledConnection connection) {
+        try {
+            return connection.physical().isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static void closeQuietly(PooledConnection connection) {
+        try {
+            connection.physical().close();
+        } catch (SQLException e) {
+            logger.logError("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * A physical connection together with its statement cache and the pool generation it was opened in.
+     */
+    private record PooledConnection(Connection physical, StatementCache statements, int generation) {}
+
+    /**
+     * A thread's hold on a pooled connection. Every handle given out for the lease counts towards its depth,
+     * the connection is released once the last handle is closed.
+     */
+    private final class Lease {
+        private final PooledConnection connection;
+        private final boolean writer;
+        private int depth = 0;
+
+        private Lease(PooledConnection connection, boolean writer) {
+            this.connection = connection;
+            this.writer = writer;
+        }
+
+        private Connection handle() {
+            depth++;
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+
+        private void close() {
+            if (--depth == 0) {
+                release(this);
+            }
+        }
+    }
+
+    /**
+     * Invocation handler behind a leased connection, {@code close()} hands the lease back instead of closing
+     * and {@code prepareStatement(String)} is served from the connection's statement cache.
+     */
+    private static final class Handle implements InvocationHandler {
+        private final Lease lease;
+        private boolean closed = false;
+
+        private Handle(Lease lease) {
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        lease.close();
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || lease.connection.physical().isClosed();
+                }
+                case "unwrap" -> {
+                    return lease.connection.physical().unwrap((Class<?>) args[0]);
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "prepareStatement" -> {
+                    checkOpen();
+                    if (args.length == 1) {
+                        return lease.connection.statements().prepare((String) args[0]);
+                    }
+                    return ConnectionPool.invoke(lease.connection.physical(), method, args);
+                }
+                default -> {
+                    checkOpen();
+                    return ConnectionPool.invoke(lease.connection.physical(), method, args);
+                }
+            }
+        }
+
+        private void checkOpen() throws SQLException {
+            if (closed) {
+                throw new SQLException("Connection lease has already been returned to the pool");
+            }
+        }
+    }
+}
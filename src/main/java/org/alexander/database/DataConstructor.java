@@ -15,7 +15,7 @@ class DataConstructor {
             }
             // Check Existence of tables
             for (Tables table : Tables.values()) {
-                if (QueryHelper.tableExists(table.name())) {
+                if (!QueryHelper.tableExists(table.name())) {
                     throw new SQLException("Table " + table.name() + " does not exist");
                 }
             }
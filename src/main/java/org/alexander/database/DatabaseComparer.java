@@ -1,34 +1,70 @@
 package org.alexander.database;
 
+import org.alexander.database.tables.Tables;
 import org.alexander.database.tables.day.Day;
-import org.alexander.database.tables.day.dao.DayDao;
 import org.alexander.database.tables.food.Food;
-import org.alexander.database.tables.food.dao.FoodDao;
+import org.alexander.database.tables.foodmeal.FoodMeal;
+import org.alexander.database.tables.foodsnack.FoodSnack;
+import org.alexander.database.tables.foodtypefood.FoodJunctionType;
 import org.alexander.database.tables.meal.Meal;
-import org.alexander.database.tables.meal.dao.MealDao;
+import org.alexander.database.tables.meal.MealTypes;
 import org.alexander.database.tables.snack.Snack;
-import org.alexander.database.tables.snack.dao.SnackDao;
+import org.alexander.database.tables.week.Week;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteOpenMode;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.StringJoiner;
 
 /**
  * Compares two database files to find differences in their data.
- * It identifies added and deleted entities like Meals, Snacks, Foods, and Days.
+ * It identifies added, modified and deleted rows of every table except FOOD_TYPE, which is fixed.
+ * The exit summary normally comes from the {@link ChangeJournal}, this is the fallback when the journal is unreliable.
+ * <p>
+ * By default the saved database is attached read-only to a connection on the live one and each table is diffed by
+ * {@code EXCEPT} queries inside SQLite, so only the rows which differ are read into Java. The {@link Mode#MERGE} mode
+ * instead reads each table from copies of both databases ordered by its primary key and merges the two cursors.
+ * </p>
  */
 public class DatabaseComparer {
+    // The mappers read the key columns first, then the other columns, in the order listed
+    private static final List<TableDiff> TABLES = List.of(
+            new TableDiff(Tables.FOOD, List.of("name"), List.of("serving_size_grams", "serving_size_calories"),
+                    rs -> new Food(rs.getString(1), getDouble(rs, 2), getDouble(rs, 3))),
+            new TableDiff(Tables.WEEK, List.of("week_id"), List.of("start_date", "end_date"),
+                    rs -> new Week(rs.getInt(1), rs.getDate(2).toLocalDate(), rs.getDate(3).toLocalDate())),
+            new TableDiff(Tables.DAY, List.of("date"), List.of("week_id", "body_weight"),
+                    rs -> new Day(rs.getDate(1).toLocalDate(), rs.getInt(2), getDouble(rs, 3))),
+            new TableDiff(Tables.MEAL, List.of("id"), List.of("date", "type", "time"),
+                    rs -> new Meal(rs.getInt(1), rs.getDate(2).toLocalDate(), MealTypes.valueOf(rs.getString(3)), rs.getTime(4).toLocalTime())),
+            new TableDiff(Tables.SNACK, List.of("id"), List.of("date", "time"),
+                    rs -> new Snack(rs.getInt(1), rs.getDate(2).toLocalDate(), rs.getTime(3).toLocalTime())),
+            new TableDiff(Tables.FOOD_TYPE_JUNCTION_FOOD, List.of("name", "type"), List.of(),
+                    rs -> new FoodJunctionType(rs.getString(1), rs.getString(2))),
+            new TableDiff(Tables.FOOD_MEAL, List.of("name", "meal_id"), List.of("num_servings"),
+                    rs -> new FoodMeal(rs.getString(1), rs.getInt(2), getDouble(rs, 3))),
+            new TableDiff(Tables.FOOD_SNACK, List.of("name", "snack_id"), List.of("num_servings"),
+                    rs -> new FoodSnack(rs.getString(1), rs.getInt(2), getDouble(rs, 3)))
+    );
 
     private final Path liveDbPath;
     private final Path userDbPath;
+    private final Mode mode;
     private final List<String> additions = new ArrayList<>();
+    private final List<String> modifications = new ArrayList<>();
     private final List<String> deletions = new ArrayList<>();
 
     /**
@@ -39,9 +75,69 @@ public class DatabaseComparer {
         List<T> getAll();
     }
 
+    /**
+     * How the two databases are compared.
+     */
+    public enum Mode {
+        /** Attach the saved database read-only to the live one and diff each table in SQL. */
+        ATTACH,
+        /** Copy both databases and merge each table's rows from the two copies in key order. */
+        MERGE
+    }
+
+    /**
+     * A table to compare.
+     * @param table the table compared
+     * @param keys the columns forming the primary key
+     * @param values the other columns
+     * @param mapper maps the current row, keys then values, to an entity used to describe it
+     */
+    private record TableDiff(Tables table, List<String> keys, List<String> values, RowMapper mapper) {
+        private String columns(String alias) {
+            StringJoiner joiner = new StringJoiner(", ");
+            keys.forEach(c -> joiner.add(alias + c));
+            values.forEach(c -> joiner.add(alias + c));
+            return joiner.toString();
+        }
+
+        private String orderBy(String alias) {
+            StringJoiner joiner = new StringJoiner(", ", " ORDER BY ", "");
+            keys.forEach(c -> joiner.add(alias + c));
+            return joiner.toString();
+        }
+
+        private String keysMatch(String left, String right) {
+            StringJoiner joiner = new StringJoiner(" AND ");
+            keys.forEach(c -> joiner.add(left + c + " = " + right + c));
+            return joiner.toString();
+        }
+
+        // Every row of the table, ordered by its key
+        private String orderedQuery() {
+            return "SELECT " + columns("") + " FROM " + table.name() + orderBy("");
+        }
+
+        // Rows of one schema not found unchanged in the other, with a flag set if the other holds the same key
+        private String exceptQuery(String from, String other) {
+            return "SELECT " + columns("d.") + ", EXISTS (SELECT 1 FROM " + other + "." + table.name() + " o WHERE "
+                    + keysMatch("o.", "d.") + ") FROM (SELECT " + columns("") + " FROM " + from + "." + table.name()
+                    + " EXCEPT SELECT " + columns("") + " FROM " + other + "." + table.name() + ") d" + orderBy("d.");
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowMapper {
+        Object map(ResultSet rs) throws SQLException;
+    }
+
     public DatabaseComparer(Path liveDbPath, Path userDbPath) {
+        this(liveDbPath, userDbPath, Mode.ATTACH);
+    }
+
+    public DatabaseComparer(Path liveDbPath, Path userDbPath, Mode mode) {
         this.liveDbPath = liveDbPath;
         this.userDbPath = userDbPath;
+        this.mode = mode;
     }
 
     /**
@@ -58,11 +154,18 @@ public class DatabaseComparer {
         // If the user's saved database doesn't exist, all items in the live DB are additions.
         if (!userDbPath.toFile().exists()) {
             try (Connection liveConn = DriverManager.getConnection("jdbc:sqlite:" + liveDbPath.toAbsolutePath())) {
-                findAllAdditions(liveConn);
+                for (TableDiff table : TABLES) {
+                    compareTable(table, liveConn, null);
+                }
             }
             return;
         }
 
+        if (mode == Mode.ATTACH) {
+            compareAttached();
+            return;
+        }
+
         // Use temporary copies to avoid file locking issues
         Path tempLiveDb = Files.createTempFile("live_db_copy", ".sqlite");
         Path tempUserDb = Files.createTempFile("user_db_copy", ".sqlite");
@@ -72,11 +175,9 @@ public class DatabaseComparer {
 
             try (Connection liveConn = DriverManager.getConnection("jdbc:sqlite:" + tempLiveDb.toAbsolutePath());
                  Connection userConn = DriverManager.getConnection("jdbc:sqlite:" + tempUserDb.toAbsolutePath())) {
-
-                compareEntities(new FoodDao(liveConn), new FoodDao(userConn), "Food");
-                compareEntities(new DayDao(liveConn), new DayDao(userConn), "Day");
-                compareEntities(new MealDao(liveConn), new MealDao(userConn), "Meal");
-                compareEntities(new SnackDao(liveConn), new SnackDao(userConn), "Snack");
+                for (TableDiff table : TABLES) {
+                    compareTable(table, liveConn, userConn);
+                }
             }
         } finally {
             // Clean up temporary files
@@ -86,56 +187,119 @@ public class DatabaseComparer {
     }
 
     /**
-     * Finds all entities in the live database and marks them as additions.
-     * This is used when there is no pre-existing user database to compare against.
-     * @param liveConn Connection to the live database.
+     * Attaches the saved database read-only to a connection on the live database and diffs every table in SQL.
+     * The saved database is attached by a {@code file:} URI, which SQLite only reads as a URI when the connection is
+     * opened with URI filenames enabled; otherwise it would create an empty file named after the URI.
      */
-    private void findAllAdditions(Connection liveConn) {
-        new FoodDao(liveConn).getAll().forEach(f -> additions.add("Added Food: " + f.getName()));
-        new DayDao(liveConn).getAll().forEach(d -> additions.add("Added Day: " + d.getDate()));
-        new MealDao(liveConn).getAll().forEach(m -> additions.add("Added " + m.getType() + " on " + m.getDate()));
-        new SnackDao(liveConn).getAll().forEach(s -> additions.add("Added Snack on " + s.getDate()));
+    private void compareAttached() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setOpenMode(SQLiteOpenMode.OPEN_URI);
+        try (Connection liveConn = config.createConnection("jdbc:sqlite:" + liveDbPath.toAbsolutePath())) {
+            try (PreparedStatement attach = liveConn.prepareStatement("ATTACH DATABASE ? AS saved")) {
+                attach.setString(1, userDbPath.toAbsolutePath().toUri() + "?mode=ro");
+                attach.execute();
+            }
+            for (TableDiff table : TABLES) {
+                compareTableAttached(table, liveConn);
+            }
+        }
     }
 
     /**
-     * Generic method to compare entities between two database connections using their respective DAOs.
+     * A live row not found unchanged in the saved database is a modification if the saved database holds its key and
+     * an addition otherwise. A saved row not found unchanged in the live database is a deletion if the live database
+     * no longer holds its key, otherwise it is the old version of a modification already reported.
      */
-    private <T extends Entity<?>> void compareEntities(ReadOnlyDao<T> liveDao, ReadOnlyDao<T> userDao, String entityType) {
-        List<T> liveEntities = liveDao.getAll();
-        List<T> userEntities = userDao.getAll();
-
-        List<Object> liveKeys = liveEntities.stream().map(Entity::getKey).collect(Collectors.toList());
-        List<Object> userKeys = userEntities.stream().map(Entity::getKey).collect(Collectors.toList());
-
-        // Find additions: entities present in live DB but not in user's saved DB
-        for (T entity : liveEntities) {
-            if (!userKeys.contains(entity.getKey())) {
-                additions.add("Added " + entityType + ": " + getEntityDescription(entity));
+    private void compareTableAttached(TableDiff diff, Connection conn) throws SQLException {
+        int flag = diff.keys().size() + diff.values().size() + 1;
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(diff.exceptQuery("main", "saved"))) {
+            while (rs.next()) {
+                if (rs.getBoolean(flag)) {
+                    modifications.add(summary(diff, ChangeJournal.Kind.MODIFIED, rs));
+                } else {
+                    additions.add(summary(diff, ChangeJournal.Kind.ADDED, rs));
+                }
             }
         }
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(diff.exceptQuery("saved", "main"))) {
+            while (rs.next()) {
+                if (!rs.getBoolean(flag)) {
+                    deletions.add(summary(diff, ChangeJournal.Kind.REMOVED, rs));
+                }
+            }
+        }
+    }
 
-        // Find deletions: entities present in user's saved DB but not in live DB
-        for (T entity : userEntities) {
-            if (!liveKeys.contains(entity.getKey())) {
-                deletions.add("Removed " + entityType + ": " + getEntityDescription(entity));
+    /**
+     * Merges the rows of a table from both databases in key order. A key only in the live database is an addition,
+     * a key only in the saved database a deletion, and a key in both whose other columns differ a modification.
+     * @param userConn connection to the saved database, or null if there is none and every live row is an addition
+     */
+    private void compareTable(TableDiff diff, Connection liveConn, Connection userConn) throws SQLException {
+        try (Statement liveStmt = liveConn.createStatement();
+             ResultSet live = liveStmt.executeQuery(diff.orderedQuery());
+             Statement userStmt = userConn != null ? userConn.createStatement() : null;
+             ResultSet user = userStmt != null ? userStmt.executeQuery(diff.orderedQuery()) : null) {
+            int keys = diff.keys().size();
+            int columns = keys + diff.values().size();
+            boolean hasLive = live.next();
+            boolean hasUser = user != null && user.next();
+            while (hasLive || hasUser) {
+                int order = !hasUser ? -1 : !hasLive ? 1 : compareColumns(live, user, 1, keys);
+                if (order < 0) {
+                    additions.add(summary(diff, ChangeJournal.Kind.ADDED, live));
+                    hasLive = live.next();
+                } else if (order > 0) {
+                    deletions.add(summary(diff, ChangeJournal.Kind.REMOVED, user));
+                    hasUser = user.next();
+                } else {
+                    if (compareColumns(live, user, keys + 1, columns) != 0) {
+                        modifications.add(summary(diff, ChangeJournal.Kind.MODIFIED, live));
+                    }
+                    hasLive = live.next();
+                    hasUser = user.next();
+                }
             }
         }
     }
 
+    private static String summary(TableDiff diff, ChangeJournal.Kind kind, ResultSet rs) throws SQLException {
+        return new ChangeJournal.Change(diff.table(), kind, ChangeJournal.describe(diff.mapper().map(rs))).summary();
+    }
+
+    // Compares the columns from and to (inclusive) of the current rows the way SQLite orders them
+    private static int compareColumns(ResultSet a, ResultSet b, int from, int to) throws SQLException {
+        for (int i = from; i <= to; i++) {
+            int order = compareValues(a.getObject(i), b.getObject(i));
+            if (order != 0) return order;
+        }
+        return 0;
+    }
+
     /**
-     * Creates a user-friendly description of an entity for display.
-     * @param entity The entity to describe.
-     * @return A string description.
+     * Orders two column values as SQLite does: nulls first, then numbers, then text compared byte by byte
+     * (the BINARY collation), so the merge agrees with the ORDER BY of the queries.
      */
-    private String getEntityDescription(Object entity) {
-        if (entity instanceof Food) return ((Food) entity).getName();
-        if (entity instanceof Day) return ((Day) entity).getDate().toString();
-        if (entity instanceof Meal) return ((Meal) entity).getType() + " at " + ((Meal) entity).getTime() + " on " + ((Meal) entity).getDate();
-        if (entity instanceof Snack) return "Snack at " + ((Snack) entity).getTime() + " on " + ((Snack) entity).getDate();
-        return entity.toString();
+    private static int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        if (a instanceof Number x && b instanceof Number y) {
+            boolean integral = !(x instanceof Double || x instanceof Float) && !(y instanceof Double || y instanceof Float);
+            return integral ? Long.compare(x.longValue(), y.longValue()) : Double.compare(x.doubleValue(), y.doubleValue());
+        }
+        if (a instanceof Number) return -1;
+        if (b instanceof Number) return 1;
+        return Arrays.compareUnsigned(a.toString().getBytes(StandardCharsets.UTF_8), b.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Double getDouble(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
     }
 
     public List<String> getAdditions() { return additions; }
+    public List<String> getModifications() { return modifications; }
     public List<String> getDeletions() { return deletions; }
-    public boolean hasChanges() { return !additions.isEmpty() || !deletions.isEmpty(); }
-}
\ No newline at end of file
+    public boolean hasChanges() { return !additions.isEmpty() || !modifications.isEmpty() || !deletions.isEmpty(); }
+}
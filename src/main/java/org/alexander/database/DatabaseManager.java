@@ -1,5 +1,10 @@
 package org.alexander.database;
 
+import org.alexander.database.analytics.NutritionAnalytics;
+import org.alexander.database.tables.food.dao.FoodCache;
+import org.alexander.database.tables.food.dao.FoodDao;
+import org.alexander.logging.CentralLogger;
+
 import java.nio.file.Paths;
 import java.sql.*;
 
@@ -8,64 +13,230 @@ import java.sql.*;
  * @since 1.0.0
  */
 public class DatabaseManager {
-    private static final String DATABASE_PATH = Paths.get(System.getProperty("user.home"), "FoodTracker", "database.sqlite").toString();
+    private static final PersistenceMode PERSISTENCE_MODE = PersistenceMode.configured();
+    private static final String DATABASE_PATH = Paths.get(System.getProperty("user.home"), "FoodTracker", PERSISTENCE_MODE.getDatabaseFileName()).toString();
     private static final String URL = "jdbc:sqlite:" + DATABASE_PATH;
+    private static final int READ_POOL_SIZE = 4;
+    private static final long LEASE_TIMEOUT_MILLIS = 5000;
     private static final FileManager fileManager = new FileManager();
     private static final TableConstructor tableConstructor = new TableConstructor();
     private static final DataConstructor dataConstructor = new DataConstructor();
-    private static Connection currentConnection = null;
+    private static final SchemaMigrator schemaMigrator = new SchemaMigrator();
+    private static final UndoLog undoLog = new UndoLog();
+    private static final ConnectionPool pool = new ConnectionPool(URL, READ_POOL_SIZE, LEASE_TIMEOUT_MILLIS);
+    private static final SaveScheduler saveScheduler = new SaveScheduler(DatabaseManager::save,
+            () -> !ChangeJournal.getInstance().isReliable() || ChangeJournal.getInstance().hasChanges());
 
     /**
-     * Connects to the database specified by the URL.
-     * If a connection is already open, it returns the existing one.
-     * If the connection is closed, it establishes a new one.
+     * Leases a read connection to the database from the connection pool.
+     * If the calling thread already holds a connection, the same connection is shared.
+     * Closing the returned connection returns it to the pool, so callers should use try-with-resources.
      * @return Connection object to the database.
-     * @throws SQLException if a database access error occurs or the url is null.
+     * @throws SQLException if a database access error occurs or no connection became available in time.
      */
     public static Connection connect() throws SQLException {
-        if (currentConnection == null || currentConnection.isClosed()) {
-            currentConnection = DriverManager.getConnection(URL);
+        return pool.lease();
+    }
+
+    /**
+     * Leases the single writer connection to the database, waiting while another thread holds it.
+     * Closing the returned connection releases the writer, so callers should use try-with-resources.
+     * @return Connection object to the database.
+     * @throws SQLException if a database access error occurs or the writer did not become available in time.
+     */
+    public static Connection connectForWrite() throws SQLException {
+        return pool.leaseWriter();
+    }
+
+    /**
+     * @return true if a thread holds the writer connection, so the writes it made may not be committed yet.
+     * Does not wait for the writer
+     */
+    public static boolean isWriterLeased() {
+        return pool.isWriterLeased();
+    }
+
+    /**
+     * Wraps a caller-owned connection so DAOs can use it in try-with-resources without closing it.
+     * @param connection the connection to share
+     * @return a connection whose close() does nothing
+     */
+    public static Connection borrow(Connection connection) {
+        return ConnectionPool.borrowed(connection);
+    }
+
+    /**
+     * Runs work spanning several DAO calls as a single {@link Transaction}, committed once at the end.
+     * Every DAO created without a connection takes part, as the pool shares the transaction's writer with them.
+     * Called from within a transaction, the work joins it.
+     * @param work the work, which may call {@link Transaction#setRollbackOnly(String)} to undo everything it did
+     * @return the result of the work, or null if the transaction was rolled back
+     */
+    public static <T> T inTransaction(Transaction.Work<T> work) {
+        try (Connection conn = connectForWrite()) {
+            return Transaction.run(conn, work);
+        } catch (SQLException e) {
+            CentralLogger.getInstance().logError(e);
+            return null;
         }
-        return currentConnection;
     }
 
     /**
-     * Closes the current database connection if it is open. This allows
+     * Closes the idle pooled connections. This allows
      * other processes, like the DatabaseComparer, to access the file.
+     * Connections still leased are closed as they are returned.
      */
     public static void closeConnection() {
-        if (currentConnection != null) {
-            try {
-                if (!currentConnection.isClosed()) {
-                    currentConnection.close();
-                }
-            } catch (SQLException e) {
-                System.err.println("Error closing database connection: " + e.getMessage());
-            } finally {
-                // Ensure the connection is set to null so a new one can be created.
-                currentConnection = null;
-            }
-        }
+        pool.evictIdle();
+    }
+
+    /**
+     * @return the current connection pool size and wait-time metrics.
+     */
+    public static PoolMetrics getPoolMetrics() {
+        return pool.getMetrics();
     }
 
 
+    /**
+     * @return the scheduler saving the database in the background
+     */
+    public static SaveScheduler getSaveScheduler() {
+        return saveScheduler;
+    }
+
+    /**
+     * @return how unsaved changes are kept apart from the saved database, fixed for the life of the application
+     */
+    public static PersistenceMode getPersistenceMode() {
+        return PERSISTENCE_MODE;
+    }
+
     /**
      * Initialises the FileManager to handle file operations.
      * This must be called before any database operations are performed.
      */
     public static void initialise() {
         fileManager.initialise();
+        // Loads the food catalogue into the food cache up front
+        new FoodDao().getFoodList();
+        // Anything written while setting up the working database is already in the saved file
+        ChangeJournal.getInstance().clear();
     }
 
+    /**
+     * Saves the working database, the change journal starts afresh once it has been saved.
+     */
     public static void save() {
-        fileManager.save();
+        save(SaveEngine.ProgressListener.NONE);
     }
 
     /**
-     * Creates A fresh database with the required tables.
+     * Saves the working database while it stays open, reporting the progress of the save.
+     * Saves and discards never overlap, a call waits for the one in progress to finish.
+     * @param listener receives the progress of the save
+     * @return true if the working database was saved
+     */
+    public static synchronized boolean save(SaveEngine.ProgressListener listener) {
+        ChangeJournal journal = ChangeJournal.getInstance();
+        // Holding the writer, no unit of work is part way through, so the journal version and the saved
+        // database agree on which changes were committed
+        try (Connection conn = connectForWrite()) {
+            long version = journal.getVersion();
+            boolean saved = PERSISTENCE_MODE == PersistenceMode.DIRECT_WAL ? commitUndoLog(listener) : fileManager.save(listener);
+            if (saved) {
+                journal.saved(version);
+                return true;
+            }
+            return false;
+        } catch (SQLException e) {
+            CentralLogger.getInstance().logError(e);
+            return false;
+        }
+    }
+
+    /**
+     * Discards the changes made since the last save. A working copy is simply not saved, in
+     * {@link PersistenceMode#DIRECT_WAL} mode the changes are rolled back from the {@link UndoLog}.
+     * @return true if the changes were discarded
+     */
+    public static synchronized boolean discard() {
+        if (PERSISTENCE_MODE == PersistenceMode.DIRECT_WAL) {
+            try (Connection conn = connectForWrite()) {
+                int reversed = undoLog.rollback(conn);
+                CentralLogger.getInstance().logInfo("[Debug] Discarded " + reversed + " unsaved changes.");
+            } catch (SQLException e) {
+                CentralLogger.getInstance().logError(e);
+                return false;
+            } finally {
+                // Rows changed underneath the caches
+                FoodCache.getInstance().invalidate();
+                NutritionAnalytics.getInstance().invalidate();
+            }
+        }
+        ChangeJournal.getInstance().clear();
+        return true;
+    }
+
+    /**
+     * Switches the saved database to WAL journal mode and starts recording changes to it in the {@link UndoLog}.
+     * Called once the schema is up to date, so neither creating nor migrating the database can be discarded.
+     */
+    protected static void startUndoLog() {
+        try (Connection conn = connectForWrite()) {
+            // Both pragmas return a row, which must be read and closed before the connection can commit anything else
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("PRAGMA journal_mode = WAL")) {
+                CentralLogger.getInstance().logInfo("[Debug] Journal mode: " + (rs.next() ? rs.getString(1) : "unknown"));
+            }
+            undoLog.install(conn);
+        } catch (SQLException e) {
+            CentralLogger.getInstance().logError(e);
+        } finally {
+            SchemaRegistry.invalidate();
+        }
+    }
+
+    // The changes are already in the saved database, saving forgets how to undo them and keeps a backup of the result
+    private static boolean commitUndoLog(SaveEngine.ProgressListener listener) {
+        try (Connection conn = connectForWrite()) {
+            undoLog.commit(conn);
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(PASSIVE)")) {
+                rs.next();
+            }
+            // Still holding the writer, so the backup has exactly the changes just saved
+            if (!fileManager.backup(listener)) {
+                CentralLogger.getInstance().logWarning("The changes were saved but no backup of them was kept.");
+            }
+            return true;
+        } catch (SQLException e) {
+            CentralLogger.getInstance().logError(e);
+            return false;
+        }
+    }
+
+    /**
+     * Brings an existing database up to date with the current schema by applying any pending migrations.
+     */
+    protected static void upgradeExistingData() {
+        try (Connection conn = connectForWrite()) {
+            // Changes a previous session neither saved nor discarded are dropped, as they would be with a working copy
+            undoLog.recover(conn);
+            schemaMigrator.migrate(conn);
+        } catch (SQLException e) {
+            CentralLogger.getInstance().logError(e);
+        }
+    }
+
+    /**
+     * Creates A fresh database with the required tables, at the latest schema version.
      */
     protected static void createFreshData() {
         tableConstructor.construct();
+        try (Connection conn = connectForWrite()) {
+            schemaMigrator.markLatest(conn);
+        } catch (SQLException e) {
+            CentralLogger.getInstance().logError(e);
+        }
         dataConstructor.construct();
     }
-}
\ No newline at end of file
+}
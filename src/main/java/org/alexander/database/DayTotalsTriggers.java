@@ -0,0 +1,172 @@
+package org.alexander.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DayTotalsTriggers creates the {@code DAY_TOTALS} and {@code DAY_TYPE_TOTALS} tables and the triggers keeping them
+ * in step with every write, so the calories and grams eaten on a day are read from a single row instead of summed
+ * over every meal, portion and food.
+ * <p>
+ * A portion adds its servings times the food's serving calories and grams to the day of its meal or snack, and to the
+ * day's total for each type of the food, so a food of two types counts towards both. The triggers fire on inserting,
+ * updating and deleting portions, on moving a meal or snack to another day, on editing a food's serving size and on
+ * adding or removing a food's type, so the totals stay right whichever DAO, import or undo made the change.
+ * A missing serving size counts as 0.
+ * </p>
+ * <p>
+ * The totals are running sums, {@link #rebuild(Connection)} recomputes them from scratch.
+ * </p>
+ * @since 1.1.0
+ */
+public final class DayTotalsTriggers {
+    // language=sql
+    private static final String UPSERT_TOTALS = " ON CONFLICT (date) DO UPDATE SET "
+            + "calories = calories + excluded.calories, grams = grams + excluded.grams";
+    // language=sql
+    private static final String UPSERT_TYPE_TOTALS = " ON CONFLICT (date, type) DO UPDATE SET "
+            + "calories = calories + excluded.calories, grams = grams + excluded.grams";
+    // Every portion eaten, as (date, name, servings)
+    // language=sql
+    private static final String ALL_PORTIONS = """
+            SELECT m.date, fm.name, fm.num_servings AS servings FROM FOOD_MEAL fm JOIN MEAL m ON m.id = fm.meal_id
+            UNION ALL
+            SELECT s.date, fs.name, fs.num_servings FROM FOOD_SNACK fs JOIN SNACK s ON s.id = fs.snack_id""";
+
+    private DayTotalsTriggers() {}
+
+    /**
+     * A junction table of foods and the table it joins them to.
+     */
+    private record Junction(String table, String idColumn, String parent) {
+        // The portion stored in the junction row, dated by its meal or snack
+        private String portion(String row) {
+            return "SELECT date, " + row + ".name AS name, " + row + ".num_servings AS servings FROM " + parent
+                    + " WHERE id = " + row + "." + idColumn;
+        }
+
+        // The portions of a meal or snack, dated by the given row of the parent table
+        private String portionsOf(String row) {
+            return "SELECT " + row + ".date AS date, name, num_servings AS servings FROM " + table
+                    + " WHERE " + idColumn + " = " + row + ".id";
+        }
+
+        // The portions of a food
+        private String portionsOfFood(String row) {
+            return "SELECT p.date, j.name, j.num_servings AS servings FROM " + table + " j JOIN " + parent
+                    + " p ON p.id = j." + idColumn + " WHERE j.name = " + row + ".name";
+        }
+    }
+
+    private static final List<Junction> JUNCTIONS = List.of(
+            new Junction("FOOD_MEAL", "meal_id", "MEAL"),
+            new Junction("FOOD_SNACK", "snack_id", "SNACK"));
+
+    /**
+     * @return the statements creating the totals tables and their triggers, each of which does nothing if what it
+     * creates already exists
+     */
+    public static List<String> createStatements() {
+        List<String> statements = new ArrayList<>();
+        // language=sql
+        statements.add("""
+                CREATE TABLE IF NOT EXISTS DAY_TOTALS (
+                    date DATE PRIMARY KEY NOT NULL,
+                    calories REAL NOT NULL DEFAULT 0,
+                    grams REAL NOT NULL DEFAULT 0
+                    )""");
+        // language=sql
+        statements.add("""
+                CREATE TABLE IF NOT EXISTS DAY_TYPE_TOTALS (
+                    date DATE NOT NULL,
+                    type VARCHAR(12) NOT NULL,
+                    calories REAL NOT NULL DEFAULT 0,
+                    grams REAL NOT NULL DEFAULT 0,
+                    PRIMARY KEY (date, type)
+                    )""");
+        for (Junction junction : JUNCTIONS) {
+            String table = junction.table();
+            statements.add(trigger(table + "_INSERT", "AFTER INSERT ON " + table,
+                    add(junction.portion("new"), "+", "f")));
+            statements.add(trigger(table + "_DELETE", "AFTER DELETE ON " + table,
+                    add(junction.portion("old"), "-", "f")));
+            statements.add(trigger(table + "_UPDATE", "AFTER UPDATE ON " + table,
+                    add(junction.portion("old"), "-", "f") + add(junction.portion("new"), "+", "f")));
+            String parent = junction.parent();
+            statements.add(trigger(parent + "_MOVE", "AFTER UPDATE OF date ON " + parent + " WHEN old.date IS NOT new.date",
+                    add(junction.portionsOf("old"), "-", "f") + add(junction.portionsOf("new"), "+", "f")));
+        }
+        // The food's old serving size is taken away and its new one added
+        statements.add(trigger("FOOD_SERVING", "AFTER UPDATE OF serving_size_grams, serving_size_calories ON FOOD",
+                add(portionsOfFood("new"), "-", "old") + add(portionsOfFood("new"), "+", "new")));
+        statements.add(trigger("FOOD_TYPE_INSERT", "AFTER INSERT ON FOOD_TYPE_JUNCTION_FOOD",
+                addType(portionsOfFood("new"), "+", "new")));
+        statements.add(trigger("FOOD_TYPE_DELETE", "AFTER DELETE ON FOOD_TYPE_JUNCTION_FOOD",
+                addType(portionsOfFood("old"), "-", "old")));
+        // A day can only be deleted once nothing is left in it, this drops the totals left at zero
+        statements.add(trigger("DAY_DELETE", "AFTER DELETE ON DAY",
+                "DELETE FROM DAY_TOTALS WHERE date = old.date; DELETE FROM DAY_TYPE_TOTALS WHERE date = old.date; "));
+        return statements;
+    }
+
+    /**
+     * Recomputes every total from the portions eaten, replacing the running sums.
+     * @param conn a connection to the database
+     * @throws SQLException if the totals could not be recomputed
+     */
+    public static void rebuild(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM DAY_TOTALS");
+            stmt.execute("DELETE FROM DAY_TYPE_TOTALS");
+            // language=sql
+            stmt.execute("INSERT INTO DAY_TOTALS (date, calories, grams) "
+                    + "SELECT p.date, SUM(p.servings * IFNULL(f.serving_size_calories, 0)), SUM(p.servings * IFNULL(f.serving_size_grams, 0)) "
+                    + "FROM (" + ALL_PORTIONS + ") p JOIN FOOD f ON f.name = p.name GROUP BY p.date");
+            // language=sql
+            stmt.execute("INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams) "
+                    + "SELECT p.date, t.type, SUM(p.servings * IFNULL(f.serving_size_calories, 0)), SUM(p.servings * IFNULL(f.serving_size_grams, 0)) "
+                    + "FROM (" + ALL_PORTIONS + ") p JOIN FOOD f ON f.name = p.name "
+                    + "JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name GROUP BY p.date, t.type");
+        }
+    }
+
+    // Every portion of the food in a row of FOOD or FOOD_TYPE_JUNCTION_FOOD, in meals and snacks
+    private static String portionsOfFood(String row) {
+        return JUNCTIONS.stream().map(junction -> junction.portionsOfFood(row))
+                .reduce((a, b) -> a + " UNION ALL " + b).orElseThrow();
+    }
+
+    private static String trigger(String name, String event, String body) {
+        return "CREATE TRIGGER IF NOT EXISTS DAY_TOTALS_" + name + " " + event + " BEGIN " + body + "END";
+    }
+
+    /**
+     * Adds portions to the day totals and to the day totals of each type of their food.
+     * @param portions a query of (date, name, servings)
+     * @param sign {@code +} to add the portions, {@code -} to take them away
+     * @param food {@code f} for the food's current serving size, or the {@code old} or {@code new} row of FOOD
+     */
+    private static String add(String portions, String sign, String food) {
+        String from = "FROM (" + portions + ") p" + (food.equals("f") ? " JOIN FOOD f ON f.name = p.name" : "");
+        return "INSERT INTO DAY_TOTALS (date, calories, grams) SELECT p.date, " + amounts(sign, food) + " "
+                + from + " WHERE true" + UPSERT_TOTALS + "; "
+                + "INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams) SELECT p.date, t.type, " + amounts(sign, food) + " "
+                + from + " JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name WHERE true" + UPSERT_TYPE_TOTALS + "; ";
+    }
+
+    /**
+     * Adds the portions of a food to the day totals of the type in a row of FOOD_TYPE_JUNCTION_FOOD.
+     */
+    private static String addType(String portions, String sign, String row) {
+        return "INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams) SELECT p.date, " + row + ".type, " + amounts(sign, "f") + " "
+                + "FROM (" + portions + ") p JOIN FOOD f ON f.name = p.name WHERE true" + UPSERT_TYPE_TOTALS + "; ";
+    }
+
+    private static String amounts(String sign, String food) {
+        return sign + "p.servings * IFNULL(" + food + ".serving_size_calories, 0), "
+                + sign + "p.servings * IFNULL(" + food + ".serving_size_grams, 0)";
+    }
+}
@@ -1,5 +1,6 @@
 package org.alexander.database;
 
+import org.alexander.database.tables.food.dao.FoodCache;
 import org.alexander.logging.CentralLogger;
 
 import java.io.File;
@@ -8,11 +9,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * FileManager is responsible for managing startup file operations.
@@ -30,12 +32,19 @@ public class FileManager {
         if (initialised) {
             throw new IllegalStateException("FileManager already initialised");
         }
+        PersistenceMode mode = DatabaseManager.getPersistenceMode();
         boolean isFileNew = startHandler();
-        if (isFileNew) {
+        if (isFileNew || (mode == PersistenceMode.DIRECT_WAL && isSavedFileEmpty())) {
             System.out.println("Debug: New file created, initializing fresh data...");
             DatabaseManager.createFreshData();
         } else {
-            copyToWorkingDatabase();
+            if (mode == PersistenceMode.WORKING_COPY) {
+                copyToWorkingDatabase();
+            }
+            DatabaseManager.upgradeExistingData();
+        }
+        if (mode == PersistenceMode.DIRECT_WAL) {
+            DatabaseManager.startUndoLog();
         }
         initialised = true;
     }
@@ -95,6 +104,9 @@ public class FileManager {
             }
             if (!isFolderNew) {
                 logger.logWarning("[Debug] Saved file does not exist, attempting to find backup...");
+                if (restoreLatestBackup(userHome, savedFilePath)) {
+                    return false; // Returns false since the file data is not new but restored from backup
+                }
                 File[] backupFiles = listBackupFiles(userHome);
                 if (backupFiles != null) {
                     File latestBackup = backupFiles[0];
@@ -113,7 +125,35 @@ public class FileManager {
     }
 
     /**
-     * Lists all backup files in the backup folder, sorted by last modified date descending.
+     * Restores the saved file from the newest backup in the backup store.
+     * @return true if a backup was restored
+     */
+    private boolean restoreLatestBackup(String userHome, Path savedFilePath) {
+        BackupStore backups = backupStore(userHome);
+        try {
+            List<String> names = backups.list();
+            if (names.isEmpty()) {
+                return false;
+            }
+            backups.restore(names.getFirst(), savedFilePath);
+            logger.logInfo("[Debug]: Most recent Backup restored successfully: " + names.getFirst());
+            return true;
+        } catch (IOException e) {
+            logger.logError("Error restoring backup: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isSavedFileEmpty() {
+        return Paths.get(System.getProperty("user.home"), FOLDER_NAME, SAVED_FILE_NAME).toFile().length() == 0;
+    }
+
+    private BackupStore backupStore(String userHome) {
+        return new BackupStore(Paths.get(userHome, FOLDER_NAME, "backup"));
+    }
+
+    /**
+     * Lists all full backup files written before the backup store, in the backup folder, sorted by last modified date descending.
      * @param userHome the user's home directory
      * @return an array of backup files, or null if none exist
      */
@@ -152,6 +192,9 @@ public class FileManager {
                 throw new RuntimeException("Error creating working database file, file " + workingFile.getAbsolutePath() + " already exists.");
             }
             Files.copy(savedPath, workingPath, StandardCopyOption.REPLACE_EXISTING);
+            SchemaRegistry.invalidate();
+            FoodCache.getInstance().invalidate();
+            ChangeJournal.getInstance().clear();
             logger.logInfo("[Debug] Data copied to working database successfully.");
             if (workingPath.toFile().length() == 0) {
                 System.out.println("Debug: Warning - Working database file is empty after copy.");
@@ -166,61 +209,94 @@ public class FileManager {
 
     /**
      * Saves the current working database to the saved database file.
-     * Creates a backup of the saved database before overwriting.
+     * The previous saved database is kept as a backup.
+     * @return true if the working database was saved
      */
-    public void save() {
+    public boolean save() {
+        return save(SaveEngine.ProgressListener.NONE);
+    }
+
+    /**
+     * Saves a snapshot of the current working database to the saved database file, see {@link SaveEngine}.
+     * The connections to the working database may stay open while saving.
+     * The previous saved database is kept in the {@link BackupStore}, which retains the newest backups.
+     * @param listener receives the progress of the save
+     * @return true if the working database was saved
+     */
+    public boolean save(SaveEngine.ProgressListener listener) {
         if (!initialised) {
             System.err.println("Debug: FileManager not initialised, cannot save.");
-            return;
+            return false;
         }
         String userHome = System.getProperty("user.home");
         Path workingPath = Paths.get(userHome, FOLDER_NAME, WORKING_FILE_NAME);
         Path savedPath = Paths.get(userHome, FOLDER_NAME, SAVED_FILE_NAME);
-        Path backupPath = createBackup(userHome);
+        BackupStore backups = backupStore(userHome);
         try {
-            // First backup the current saved database
-            Files.copy(savedPath, backupPath, StandardCopyOption.REPLACE_EXISTING);
-            // Then copy the working database to the saved database
-            Files.copy(workingPath, savedPath, StandardCopyOption.REPLACE_EXISTING);
+            new SaveEngine(workingPath).save(savedPath, backups, backupName(backups), listener);
             System.out.println("Debug: Working database saved successfully.");
-        } catch (IOException e) {
+        } catch (SQLException | IOException e) {
             System.err.println("Error saving working database: " + e.getMessage());
+            return false;
+        }
+        try {
+            backups.prune(BACKUP_RETENTION);
+        } catch (IOException e) {
+            logger.logError("Error pruning backups: " + e.getMessage());
         }
+        return true;
     }
 
-    private Path createBackup(String userHome) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
-        String backupName = "backup_" + LocalDateTime.now().format(formatter) + ".sqlite";
-        Path backupPath = Paths.get(userHome, FOLDER_NAME, "backup", backupName);
-        File backupFile = backupPath.toFile();
-        if (backupFile.exists()) {
-            if (!backupFile.delete()) {
-                logger.logError("Error deleting old backup file.");
-            }
+    /**
+     * Keeps a snapshot of the saved database in the {@link BackupStore}. In {@link PersistenceMode#DIRECT_WAL} mode
+     * changes are written to the saved database itself, so saving has no previous saved file to keep and takes this
+     * instead. The caller should hold the writer, so only committed changes are in the snapshot.
+     * @param listener receives the progress of the snapshot
+     * @return true if the backup was written
+     */
+    public boolean backup(SaveEngine.ProgressListener listener) {
+        if (!initialised) {
+            System.err.println("Debug: FileManager not initialised, cannot back up.");
+            return false;
         }
-        backupRetentionHandler(userHome);
+        String userHome = System.getProperty("user.home");
+        Path savedPath = Paths.get(userHome, FOLDER_NAME, SAVED_FILE_NAME);
+        Path snapshotPath = savedPath.resolveSibling(SAVED_FILE_NAME + ".backup");
+        BackupStore backups = backupStore(userHome);
         try {
-            if (!backupFile.createNewFile()) {
-                throw new RuntimeException("Error creating backup file, file " + backupFile.getAbsolutePath() + " already exists.");
+            new SaveEngine(savedPath).snapshot(snapshotPath, listener);
+            backups.backup(snapshotPath, backupName(backups));
+            System.out.println("Debug: Saved database backed up successfully.");
+        } catch (SQLException | IOException e) {
+            System.err.println("Error backing up saved database: " + e.getMessage());
+            return false;
+        } finally {
+            try {
+                Files.deleteIfExists(snapshotPath);
+            } catch (IOException e) {
+                logger.logWarning("Could not remove snapshot " + snapshotPath + ": " + e.getMessage());
             }
+        }
+        try {
+            backups.prune(BACKUP_RETENTION);
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            logger.logError("Error pruning backups: " + e.getMessage());
         }
-        return backupPath;
+        return true;
     }
 
-    private void backupRetentionHandler(String userHome) {
-        File[] backupFiles = listBackupFiles(userHome);
-        if (backupFiles != null) {
-            ArrayList<File> backupFileList = new ArrayList<>(Arrays.asList(backupFiles));
-            while (backupFileList.size() > BACKUP_RETENTION - 1) {
-                if (backupFileList.getLast().delete()) {
-                    backupFileList.removeLast(); // Remove reference to deleted file
-                    logger.logInfo("[Debug] Oldest backup file deleted successfully to maintain retention policy.");
-                } else {
-                    logger.logError("Error deleting oldest backup file.");
-                }
-            }
+    /**
+     * Names a backup by the time it was taken, to the millisecond. A name already taken gets a counter appended, so
+     * two saves close together keep two backups rather than the second replacing the first.
+     * The names still sort oldest to newest, which is how the backup store orders them.
+     */
+    private String backupName(BackupStore backups) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss-SSS");
+        String name = "backup_" + LocalDateTime.now().format(formatter);
+        String unique = name;
+        for (int i = 1; backups.contains(unique); i++) {
+            unique = name + "_" + i;
         }
+        return unique;
     }
 }
@@ -0,0 +1,67 @@
+package org.alexander.database;
+
+import org.alexander.logging.CentralLogger;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+import java.sql.SQLException;
+
+/**
+ * The outcome of a single insert, telling apart the reasons an insert can fail without probing the database first.
+ * @param status what happened to the insert
+ * @param entity the inserted entity, only present when the status is {@link Status#INSERTED}
+ * @param <T> the type of entity inserted
+ * @since 1.1.0
+ */
+public record InsertResult<T>(Status status, T entity) {
+    public enum Status {
+        /** The row was inserted. */
+        INSERTED,
+        /** A row with the same key already exists, nothing was inserted. */
+        DUPLICATE,
+        /** A row the new row references does not exist, nothing was inserted. */
+        MISSING_PARENT,
+        /** The insert failed for another reason, the cause is logged. */
+        FAILED
+    }
+
+    public static <T> InsertResult<T> inserted(T entity) {
+        return new InsertResult<>(Status.INSERTED, entity);
+    }
+
+    public static <T> InsertResult<T> duplicate() {
+        return new InsertResult<>(Status.DUPLICATE, null);
+    }
+
+    public static <T> InsertResult<T> missingParent() {
+        return new InsertResult<>(Status.MISSING_PARENT, null);
+    }
+
+    public static <T> InsertResult<T> failed() {
+        return new InsertResult<>(Status.FAILED, null);
+    }
+
+    /**
+     * Maps a failed insert to a result from the constraint that rejected it.
+     * Errors which are not constraint violations are logged.
+     * @param e the exception thrown by the insert
+     * @return a {@link Status#MISSING_PARENT}, {@link Status#DUPLICATE} or {@link Status#FAILED} result
+     */
+    public static <T> InsertResult<T> fromException(SQLException e) {
+        if (e instanceof SQLiteException sqliteException) {
+            SQLiteErrorCode code = sqliteException.getResultCode();
+            if (code == SQLiteErrorCode.SQLITE_CONSTRAINT_FOREIGNKEY) {
+                return missingParent();
+            }
+            if (code == SQLiteErrorCode.SQLITE_CONSTRAINT_PRIMARYKEY || code == SQLiteErrorCode.SQLITE_CONSTRAINT_UNIQUE) {
+                return duplicate();
+            }
+        }
+        CentralLogger.getInstance().logError(e);
+        return failed();
+    }
+
+    public boolean isInserted() {
+        return status == Status.INSERTED;
+    }
+}
@@ -0,0 +1,58 @@
+package org.alexander.database;
+
+import org.alexander.logging.CentralLogger;
+
+import java.util.Locale;
+
+/**
+ * How the application keeps unsaved changes apart from the saved database.
+ * <p>
+ * The mode is chosen at startup with the {@value #PROPERTY} system property, e.g.
+ * {@code -Dfoodtracker.persistence=direct_wal}, and defaults to {@link #WORKING_COPY}.
+ * </p>
+ * @since 1.1.0
+ */
+public enum PersistenceMode {
+    /**
+     * The saved database is copied to a working database at startup and copied back when saving,
+     * discarding changes leaves the saved database untouched.
+     */
+    WORKING_COPY("database.sqlite"),
+    /**
+     * The saved database is opened directly in WAL journal mode. Every change is recorded in an {@link UndoLog},
+     * saving forgets the log and discarding changes plays it back, so neither depends on the size of the database.
+     * As there is no previous saved file to keep as a backup, each save also takes a snapshot of the saved database
+     * into the backups, see {@link FileManager#backup}.
+     */
+    DIRECT_WAL("data.sqlite");
+
+    public static final String PROPERTY = "foodtracker.persistence";
+    private final String databaseFileName;
+
+    PersistenceMode(String databaseFileName) {
+        this.databaseFileName = databaseFileName;
+    }
+
+    /**
+     * @return the name of the file the connections open, in the FoodTracker folder
+     */
+    public String getDatabaseFileName() {
+        return databaseFileName;
+    }
+
+    /**
+     * @return the mode chosen by the {@value #PROPERTY} system property, {@link #WORKING_COPY} if unset or unknown
+     */
+    public static PersistenceMode configured() {
+        String value = System.getProperty(PROPERTY);
+        if (value == null || value.isBlank()) {
+            return WORKING_COPY;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            CentralLogger.getInstance().logWarning("Unknown persistence mode '" + value + "', using " + WORKING_COPY);
+            return WORKING_COPY;
+        }
+    }
+}
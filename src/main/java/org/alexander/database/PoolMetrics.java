@@ -0,0 +1,38 @@
+package org.alexander.database;
+
+/**
+ * A point-in-time snapshot of the {@link ConnectionPool} size and wait-time metrics.
+ * @param maxReaders the configured maximum number of read connections
+ * @param openReaders read connections currently open, leased or idle
+ * @param idleReaders read connections currently waiting in the pool
+ * @param writerLeased whether the writer connection is currently held by a thread
+ * @param totalLeases the number of connections leased since startup, nested leases on the same thread are not counted
+ * @param waitedLeases leases which had to wait more than 1ms for a connection
+ * @param timeouts lease attempts that gave up waiting
+ * @param averageWaitMillis the average time spent waiting for a lease
+ * @param maxWaitMillis the longest time spent waiting for a lease
+ * @param statementCacheHits prepared statements served from a connection's statement cache
+ * @param statementCacheMisses prepared statements which had to be compiled
+ * @since 1.1.0
+ */
+public record PoolMetrics(
+        int maxReaders,
+        int openReaders,
+        int idleReaders,
+        boolean writerLeased,
+        long totalLeases,
+        long waitedLeases,
+        long timeouts,
+        double averageWaitMillis,
+        double maxWaitMillis,
+        long statementCacheHits,
+        long statementCacheMisses
+) {
+    /**
+     * @return the fraction of prepared statements served from the statement cache, 0 if none were prepared
+     */
+    public double statementCacheHitRate() {
+        long total = statementCacheHits + statementCacheMisses;
+        return total == 0 ? 0 : (double) statementCacheHits / total;
+    }
+}
@@ -4,11 +4,13 @@ import org.alexander.logging.CentralLogger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 public class QueryHelper {
@@ -25,7 +27,7 @@ public class QueryHelper {
     public static boolean addEntity(String entity, String attribute, String table) {
         String query = "INSERT INTO " + table + " (" + attribute + ") VALUES (?)";
         try (
-                var conn = DatabaseManager.connect();
+                var conn = DatabaseManager.connectForWrite();
                 PreparedStatement stmt = conn.prepareStatement(query)
         ) {
             stmt.setString(1, entity);
@@ -47,7 +49,7 @@ public class QueryHelper {
     public static boolean addEntity(int entity, String attribute, String table) {
         String query = "INSERT INTO " + table + " (" + attribute + ") VALUES (?)";
         try (
-                var conn = DatabaseManager.connect();
+                var conn = DatabaseManager.connectForWrite();
                 PreparedStatement stmt = conn.prepareStatement(query)
         ) {
             stmt.setInt(1, entity);
@@ -68,11 +70,27 @@ public class QueryHelper {
      * @return true if the entity was deleted, false otherwise
      */
     public static <T> boolean deleteEntity(T entity, String attribute, String table) {
+        try (var conn = DatabaseManager.connectForWrite()) {
+            return deleteEntity(conn, entity, attribute, table);
+        } catch (SQLException e) {
+            System.err.println(e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * deletes an entity from a table on the given connection, given the attribute to match,
+     * so the delete can take part in a transaction open on that connection.
+     * Validation/whitelisting of table and attribute names is the responsibility of the caller.
+     * @param conn the connection to delete on, which is not closed
+     * @param entity the entity to delete
+     * @param attribute the attribute/column to match
+     * @param table the table to delete from
+     * @return true if the entity was deleted, false otherwise
+     */
+    public static <T> boolean deleteEntity(Connection conn, T entity, String attribute, String table) {
         String query = "DELETE FROM " + table + " WHERE " + attribute + " = ?";
-        try (
-                var conn = DatabaseManager.connect();
-                PreparedStatement stmt = conn.prepareStatement(query)
-        ) {
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
             if (typeSwitcher(stmt, entity, 1)) {
                 if (effectedRowsHandler(stmt.executeUpdate())) {
                     return true; // affected rows == 1
@@ -91,22 +109,52 @@ public class QueryHelper {
     }
 
     /**
-     * checks if a table exists in the database
+     * Maps the current row of a result set.
+     * @param <R> the type the row is mapped to
+     */
+    @FunctionalInterface
+    public interface RowMapper<R> {
+        R map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * deletes every row of a table matching an entity in a single statement, returning the deleted rows so the
+     * caller can journal them without reading them first.
+     * Validation/whitelisting of table, attribute and returned column names is the responsibility of the caller.
+     * Should NOT be called on user input without validation/whitelisting
+     * @param conn the write connection to delete through
+     * @param table the table to delete from
+     * @param attribute the attribute/column to match
+     * @param entity the entity to match, of a type supported by {@link #typeSwitcher(PreparedStatement, Object, int)}
+     * @param returning the columns of each deleted row handed to the mapper
+     * @param mapper maps each deleted row
+     * @return the deleted rows, empty if none matched
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the entity type is not supported
+     */
+    public static <T, R> List<R> deleteAll(Connection conn, String table, String attribute, T entity, String returning, RowMapper<R> mapper) throws SQLException {
+        String query = "DELETE FROM " + table + " WHERE " + attribute + " = ? RETURNING " + returning;
+        List<R> deleted = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            if (!typeSwitcher(stmt, entity, 1)) {
+                throw new IllegalArgumentException("Unsupported entity type: " + entity.getClass().getName());
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    deleted.add(mapper.map(rs));
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * checks if a table exists in the database, answered from the {@link SchemaRegistry} without a catalog query
      * @param tableName the name of the table to check
      * @return true if the table exists, false otherwise
      */
     public static boolean tableExists(String tableName) {
-        String query = "SELECT name AS table_name FROM sqlite_master WHERE type='table' AND name=?";
-        try (
-                Connection conn = DatabaseManager.connect();
-                java.sql.PreparedStatement stmt = conn.prepareStatement(query)
-        ) {
-            stmt.setString(1, tableName);
-            return stmt.executeQuery().next();
-        } catch (SQLException e) {
-            System.err.println(e.getMessage());
-            return false;
-        }
+        return SchemaRegistry.tableExists(tableName);
     }
     /**
      * checks if an entity exists in a table, given the attribute to match.
@@ -116,12 +164,15 @@ public class QueryHelper {
      * @param colName the attribute/column to match
      * @param tableName the table to check in
      * @return true if the entity exists, false otherwise
-     * @throws IllegalArgumentException if the table does not exist
+     * @throws IllegalArgumentException if the table or column does not exist
      */
     public static <T> boolean entityExists(T entityName, String colName, String tableName) {
         if (!tableExists(tableName)) {
             throw new IllegalArgumentException("Table " + tableName + " does not exist");
         }
+        if (!SchemaRegistry.columnExists(tableName, colName)) {
+            throw new IllegalArgumentException("Column " + colName + " does not exist in table " + tableName);
+        }
         String query = String.format("SELECT 1 FROM %s WHERE %s = ? LIMIT 1", tableName, colName);
         try (
                 Connection conn = DatabaseManager.connect();
@@ -187,12 +238,15 @@ public class QueryHelper {
      * @param attribute the attribute/column to retrieve
      * @param tableName the table to retrieve from
      * @return a list of entities, or an empty list if none found
-     * @throws IllegalArgumentException if the table does not exist
+     * @throws IllegalArgumentException if the table or column does not exist
      */
     public static List<String> getEntities(String attribute, String tableName) {
         if (!tableExists(tableName)) {
             throw new IllegalArgumentException("Table " + tableName + " does not exist");
         }
+        if (!SchemaRegistry.columnExists(tableName, attribute)) {
+            throw new IllegalArgumentException("Column " + attribute + " does not exist in table " + tableName);
+        }
         List<String> resultsList = new java.util.ArrayList<>();
         try (
                 var conn = DatabaseManager.connect();
@@ -0,0 +1,110 @@
+package org.alexander.database;
+
+import org.alexander.logging.CentralLogger;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteErrorCode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * SaveEngine writes the working database to the saved database file using SQLite's online backup API.
+ * <p>
+ * The backup reads the working database through a connection of its own, page by page, so it sees a consistent
+ * snapshot of every committed transaction even while the connection pool is open and in use. The snapshot is written
+ * to a temporary file next to the saved file, the previous saved file is kept in a {@link BackupStore}, which only
+ * writes the pages it changed, and the snapshot is then moved over it, so the saved file is never left half written.
+ * Should the process die before the move, the saved file is still the previous one, which startup can also restore
+ * from the latest backup.
+ * </p>
+ * @since 1.1.0
+ */
+public final class SaveEngine {
+    private static final CentralLogger logger = CentralLogger.getInstance();
+    private static final int PAGES_PER_STEP = 256;
+    private static final int BUSY_SLEEP_MILLIS = 100;
+    private static final int BUSY_RETRIES = 50;
+    private final Path source;
+
+    /**
+     * Receives the progress of a save, called after every step of the backup.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        ProgressListener NONE = (copied, total) -> {};
+
+        /**
+         * @param copiedPages the number of pages written so far
+         * @param totalPages the number of pages in the database
+         */
+        void progress(int copiedPages, int totalPages);
+    }
+
+    /**
+     * @param source the database to save
+     */
+    public SaveEngine(Path source) {
+        this.source = source;
+    }
+
+    /**
+     * Saves the source database over the saved file, keeping the previous saved file in a backup store.
+     * @param saved the saved database file
+     * @param backups where to keep the previous saved file
+     * @param backupName the name to keep the previous saved file by
+     * @param listener receives the progress of the snapshot
+     * @return what backing up the previous saved file wrote, null if there was no previous saved file
+     * @throws SQLException if the snapshot could not be taken
+     * @throws IOException if the previous saved file could not be backed up or the snapshot moved into place
+     */
+    public BackupStore.Backup save(Path saved, BackupStore backups, String backupName, ProgressListener listener) throws SQLException, IOException {
+        Path temp = saved.resolveSibling(saved.getFileName() + ".tmp");
+        snapshot(temp, listener);
+        BackupStore.Backup backup = null;
+        try {
+            if (Files.exists(saved) && Files.size(saved) > 0) {
+                backup = backups.backup(saved, backupName);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, saved, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return backup;
+    }
+
+    /**
+     * Writes a consistent snapshot of the source database to a new file.
+     * @param destination the file to write, replaced if it exists
+     * @param listener receives the progress of the snapshot
+     * @throws SQLException if the snapshot could not be taken, the destination is then removed
+     * @throws IOException if an old destination file could not be removed
+     */
+    public void snapshot(Path destination, ProgressListener listener) throws SQLException, IOException {
+        Files.deleteIfExists(destination);
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + source.toAbsolutePath())) {
+            int result = conn.unwrap(SQLiteConnection.class).getDatabase().backup(
+                    "main",
+                    destination.toAbsolutePath().toString(),
+                    (remaining, total) -> listener.progress(total - remaining, total),
+                    BUSY_SLEEP_MILLIS,
+                    BUSY_RETRIES,
+                    PAGES_PER_STEP);
+            if (result != SQLiteErrorCode.SQLITE_OK.code) {
+                throw new SQLException("Backup of " + source + " failed: " + SQLiteErrorCode.getErrorCode(result));
+            }
+        } catch (SQLException e) {
+            try {
+                Files.deleteIfExists(destination);
+            } catch (IOException suppressed) {
+                logger.logWarning("Could not remove incomplete snapshot " + destination + ": " + suppressed.getMessage());
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.alexander.database;
+
+import org.alexander.logging.CentralLogger;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * SaveScheduler saves the database on a background virtual thread, so saving mid-session never blocks the caller.
+ * <p>
+ * Saves run one at a time. A save requested while another is waiting to start joins it rather than queueing a second
+ * one, and a save requested while one is running is started once it finishes, so it includes every change made up to
+ * the request. {@link #requestSave()} returns a future completed with the outcome, and the progress of every save is
+ * reported to the {@link #setProgressListener(SaveEngine.ProgressListener) progress listener}, both on the save
+ * thread.
+ * </p>
+ * <p>
+ * Autosave is off unless started with {@link #startAutosave(Duration)}, since changes autosaved can no longer be
+ * discarded on exit. It can be turned on at startup with the {@value #AUTOSAVE_PROPERTY} system property, in seconds.
+ * </p>
+ * @since 1.1.0
+ */
+public final class SaveScheduler implements AutoCloseable {
+    public static final String AUTOSAVE_PROPERTY = "foodtracker.autosave";
+    private static final CentralLogger logger = CentralLogger.getInstance();
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("save-scheduler").factory());
+    private final Saver saver;
+    private final BooleanSupplier hasUnsavedChanges;
+    private volatile SaveEngine.ProgressListener listener = SaveEngine.ProgressListener.NONE;
+    private CompletableFuture<Boolean> pending;
+    private boolean running;
+    private boolean closed;
+    private ScheduledFuture<?> autosave;
+
+    /**
+     * Performs a single save.
+     */
+    @FunctionalInterface
+    public interface Saver {
+        /**
+         * @param listener receives the progress of the save
+         * @return true if the database was saved
+         */
+        boolean save(SaveEngine.ProgressListener listener);
+    }
+
+    /**
+     * @param saver performs each save
+     * @param hasUnsavedChanges tells autosave whether there is anything to save
+     */
+    public SaveScheduler(Saver saver, BooleanSupplier hasUnsavedChanges) {
+        this.saver = saver;
+        this.hasUnsavedChanges = hasUnsavedChanges;
+    }
+
+    /**
+     * @param listener receives the progress of every save from now on, on the save thread
+     */
+    public void setProgressListener(SaveEngine.ProgressListener listener) {
+        this.listener = listener == null ? SaveEngine.ProgressListener.NONE : listener;
+    }
+
+    /**
+     * Asks for the database to be saved in the background.
+     * @return a future completed with true once a save covering every change made before this call succeeded,
+     * or false if it failed or the scheduler is closed
+     */
+    public synchronized CompletableFuture<Boolean> requestSave() {
+        if (closed) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (pending == null) {
+            pending = new CompletableFuture<>();
+            if (!running) {
+                submit();
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Saves every interval while there are unsaved changes, replacing any earlier autosave schedule.
+     * @param interval the time between the end of one autosave and the start of the next
+     */
+    public synchronized void startAutosave(Duration interval) {
+        if (interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("interval must be positive, was " + interval);
+        }
+        stopAutosave();
+        long millis = interval.toMillis();
+        autosave = executor.scheduleWithFixedDelay(() -> {
+            if (hasUnsavedChanges.getAsBoolean()) {
+                requestSave();
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+        logger.logInfo("[Debug] Autosaving every " + interval.toSeconds() + " seconds.");
+    }
+
+    public synchronized void stopAutosave() {
+        if (autosave != null) {
+            autosave.cancel(false);
+            autosave = null;
+        }
+    }
+
+    /**
+     * Starts autosave if the {@value #AUTOSAVE_PROPERTY} system property holds a positive number of seconds.
+     */
+    public void startConfiguredAutosave() {
+        String value = System.getProperty(AUTOSAVE_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        try {
+            long seconds = Long.parseLong(value.trim());
+            if (seconds > 0) {
+                startAutosave(Duration.ofSeconds(seconds));
+            }
+        } catch (NumberFormatException e) {
+            logger.logWarning("Invalid autosave interval '" + value + "', autosave is off");
+        }
+    }
+
+    /**
+     * Stops autosave and waits for the save in progress, and any save waiting to start, to finish.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        stopAutosave();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CLOSE_TIMEOUT_SECONDS);
+        try {
+            while (running) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    logger.logWarning("Background save did not finish within " + CLOSE_TIMEOUT_SECONDS + " seconds");
+                    break;
+                }
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdown();
+    }
+
+    private void submit() {
+        running = true;
+        executor.execute(this::runPending);
+    }
+
+    private void runPending() {
+        CompletableFuture<Boolean> future;
+        synchronized (this) {
+            future = pending;
+            pending = null;
+        }
+        boolean saved;
+        try {
+            saved = saver.save(listener);
+        } catch (RuntimeException e) {
+            logger.logError(e);
+            saved = false;
+        }
+        future.complete(saved);
+        synchronized (this) {
+            running = false;
+            if (pending != null) {
+                submit();
+            } else {
+                notifyAll();
+            }
+        }
+    }
+}
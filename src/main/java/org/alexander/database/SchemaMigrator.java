@@ -0,0 +1,411 @@
+package org.alexander.database;
+
+import org.alexander.logging.CentralLogger;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * SchemaMigrator upgrades existing databases to the current schema one version at a time.
+ * <p>
+ * The schema version is stored in SQLite's {@code PRAGMA user_version}. Each migration step runs in its own
+ * transaction together with the version bump, so a failed step leaves the database at the previous version.
+ * Fresh databases are created by the {@link TableConstructor} with the latest schema and marked as up to date.
+ * The {@link SchemaRegistry} is invalidated after every step that ran, whether or not it succeeded.
+ * New migrations are appended to {@link #MIGRATIONS} with the next version number and must never be edited
+ * once released, the {@link TableConstructor} should be updated to match. A step therefore keeps its own copy of the
+ * SQL it runs rather than calling code which may change after the release.
+ * </p>
+ * @since 1.1.0
+ */
+public class SchemaMigrator {
+    private static final CentralLogger logger = CentralLogger.getInstance();
+
+    /**
+     * A single schema change.
+     * @param version the schema version after this step has been applied, starting at 1
+     * @param description a short description used in the logs
+     * @param step the change itself, run inside a transaction
+     */
+    public record Migration(int version, String description, Step step) {}
+
+    @FunctionalInterface
+    public interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    // Migration 2 as released, the totals tables and triggers DayTotalsTriggers created at the time followed by its
+    // rebuild of the totals, copied so later changes to the live triggers never change what the step does
+    // language=sql
+    private static final List<String> DAY_TOTALS_V2 = List.of(
+            """
+                CREATE TABLE IF NOT EXISTS DAY_TOTALS (
+                    date DATE PRIMARY KEY NOT NULL,
+                    calories REAL NOT NULL DEFAULT 0,
+                    grams REAL NOT NULL DEFAULT 0
+                    )""",
+            """
+                CREATE TABLE IF NOT EXISTS DAY_TYPE_TOTALS (
+                    date DATE NOT NULL,
+                    type VARCHAR(12) NOT NULL,
+                    calories REAL NOT NULL DEFAULT 0,
+                    grams REAL NOT NULL DEFAULT 0,
+                    PRIMARY KEY (date, type)
+                    )""",
+            """
+                CREATE TRIGGER IF NOT EXISTS DAY_TOTALS_FOOD_MEAL_INSERT AFTER INSERT ON FOOD_MEAL BEGIN
+                    INSERT INTO DAY_TOTALS (date, calories, grams)
+                        SELECT p.date, +p.servings * IFNULL(f.serving_size_calories, 0), +p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, new.name AS name, new.num_servings AS servings FROM MEAL WHERE id = new.meal_id) p
+                        JOIN FOOD f ON f.name = p.name
+                        WHERE true
+                        ON CONFLICT (date) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, t.type, +p.servings * IFNULL(f.serving_size_calories, 0), +p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, new.name AS name, new.num_servings AS servings FROM MEAL WHERE id = new.meal_id) p
+                        JOIN FOOD f ON f.name = p.name JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                END""",
+            """
+                CREATE TRIGGER IF NOT EXISTS DAY_TOTALS_FOOD_MEAL_DELETE AFTER DELETE ON FOOD_MEAL BEGIN
+                    INSERT INTO DAY_TOTALS (date, calories, grams)
+                        SELECT p.date, -p.servings * IFNULL(f.serving_size_calories, 0), -p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, old.name AS name, old.num_servings AS servings FROM MEAL WHERE id = old.meal_id) p
+                        JOIN FOOD f ON f.name = p.name
+                        WHERE true
+                        ON CONFLICT (date) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, t.type, -p.servings * IFNULL(f.serving_size_calories, 0), -p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, old.name AS name, old.num_servings AS servings FROM MEAL WHERE id = old.meal_id) p
+                        JOIN FOOD f ON f.name = p.name JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                END""",
+            """
+                CREATE TRIGGER IF NOT EXISTS DAY_TOTALS_FOOD_MEAL_UPDATE AFTER UPDATE ON FOOD_MEAL BEGIN
+                    INSERT INTO DAY_TOTALS (date, calories, grams)
+                        SELECT p.date, -p.servings * IFNULL(f.serving_size_calories, 0), -p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, old.name AS name, old.num_servings AS servings FROM MEAL WHERE id = old.meal_id) p
+                        JOIN FOOD f ON f.name = p.name
+                        WHERE true
+                        ON CONFLICT (date) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, t.type, -p.servings * IFNULL(f.serving_size_calories, 0), -p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, old.name AS name, old.num_servings AS servings FROM MEAL WHERE id = old.meal_id) p
+                        JOIN FOOD f ON f.name = p.name JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TOTALS (date, calories, grams)
+                        SELECT p.date, +p.servings * IFNULL(f.serving_size_calories, 0), +p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, new.name AS name, new.num_servings AS servings FROM MEAL WHERE id = new.meal_id) p
+                        JOIN FOOD f ON f.name = p.name
+                        WHERE true
+                        ON CONFLICT (date) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, t.type, +p.servings * IFNULL(f.serving_size_calories, 0), +p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, new.name AS name, new.num_servings AS servings FROM MEAL WHERE id = new.meal_id) p
+                        JOIN FOOD f ON f.name = p.name JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                END""",
+            """
+                CREATE TRIGGER IF NOT EXISTS DAY_TOTALS_MEAL_MOVE AFTER UPDATE OF date ON MEAL WHEN old.date IS NOT new.date BEGIN
+                    INSERT INTO DAY_TOTALS (date, calories, grams)
+                        SELECT p.date, -p.servings * IFNULL(f.serving_size_calories, 0), -p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT old.date AS date, name, num_servings AS servings FROM FOOD_MEAL WHERE meal_id = old.id) p
+                        JOIN FOOD f ON f.name = p.name
+                        WHERE true
+                        ON CONFLICT (date) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, t.type, -p.servings * IFNULL(f.serving_size_calories, 0), -p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT old.date AS date, name, num_servings AS servings FROM FOOD_MEAL WHERE meal_id = old.id) p
+                        JOIN FOOD f ON f.name = p.name JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TOTALS (date, calories, grams)
+                        SELECT p.date, +p.servings * IFNULL(f.serving_size_calories, 0), +p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT new.date AS date, name, num_servings AS servings FROM FOOD_MEAL WHERE meal_id = new.id) p
+                        JOIN FOOD f ON f.name = p.name
+                        WHERE true
+                        ON CONFLICT (date) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, t.type, +p.servings * IFNULL(f.serving_size_calories, 0), +p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT new.date AS date, name, num_servings AS servings FROM FOOD_MEAL WHERE meal_id = new.id) p
+                        JOIN FOOD f ON f.name = p.name JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                END""",
+            """
+                CREATE TRIGGER IF NOT EXISTS DAY_TOTALS_FOOD_SNACK_INSERT AFTER INSERT ON FOOD_SNACK BEGIN
+                    INSERT INTO DAY_TOTALS (date, calories, grams)
+                        SELECT p.date, +p.servings * IFNULL(f.serving_size_calories, 0), +p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, new.name AS name, new.num_servings AS servings FROM SNACK WHERE id = new.snack_id) p
+                        JOIN FOOD f ON f.name = p.name
+                        WHERE true
+                        ON CONFLICT (date) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, t.type, +p.servings * IFNULL(f.serving_size_calories, 0), +p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, new.name AS name, new.num_servings AS servings FROM SNACK WHERE id = new.snack_id) p
+                        JOIN FOOD f ON f.name = p.name JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                END""",
+            """
+                CREATE TRIGGER IF NOT EXISTS DAY_TOTALS_FOOD_SNACK_DELETE AFTER DELETE ON FOOD_SNACK BEGIN
+                    INSERT INTO DAY_TOTALS (date, calories, grams)
+                        SELECT p.date, -p.servings * IFNULL(f.serving_size_calories, 0), -p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, old.name AS name, old.num_servings AS servings FROM SNACK WHERE id = old.snack_id) p
+                        JOIN FOOD f ON f.name = p.name
+                        WHERE true
+                        ON CONFLICT (date) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, t.type, -p.servings * IFNULL(f.serving_size_calories, 0), -p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, old.name AS name, old.num_servings AS servings FROM SNACK WHERE id = old.snack_id) p
+                        JOIN FOOD f ON f.name = p.name JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                END""",
+            """
+                CREATE TRIGGER IF NOT EXISTS DAY_TOTALS_FOOD_SNACK_UPDATE AFTER UPDATE ON FOOD_SNACK BEGIN
+                    INSERT INTO DAY_TOTALS (date, calories, grams)
+                        SELECT p.date, -p.servings * IFNULL(f.serving_size_calories, 0), -p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, old.name AS name, old.num_servings AS servings FROM SNACK WHERE id = old.snack_id) p
+                        JOIN FOOD f ON f.name = p.name
+                        WHERE true
+                        ON CONFLICT (date) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, t.type, -p.servings * IFNULL(f.serving_size_calories, 0), -p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, old.name AS name, old.num_servings AS servings FROM SNACK WHERE id = old.snack_id) p
+                        JOIN FOOD f ON f.name = p.name JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TOTALS (date, calories, grams)
+                        SELECT p.date, +p.servings * IFNULL(f.serving_size_calories, 0), +p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, new.name AS name, new.num_servings AS servings FROM SNACK WHERE id = new.snack_id) p
+                        JOIN FOOD f ON f.name = p.name
+                        WHERE true
+                        ON CONFLICT (date) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, t.type, +p.servings * IFNULL(f.serving_size_calories, 0), +p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT date, new.name AS name, new.num_servings AS servings FROM SNACK WHERE id = new.snack_id) p
+                        JOIN FOOD f ON f.name = p.name JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                END""",
+            """
+                CREATE TRIGGER IF NOT EXISTS DAY_TOTALS_SNACK_MOVE AFTER UPDATE OF date ON SNACK WHEN old.date IS NOT new.date BEGIN
+                    INSERT INTO DAY_TOTALS (date, calories, grams)
+                        SELECT p.date, -p.servings * IFNULL(f.serving_size_calories, 0), -p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT old.date AS date, name, num_servings AS servings FROM FOOD_SNACK WHERE snack_id = old.id) p
+                        JOIN FOOD f ON f.name = p.name
+                        WHERE true
+                        ON CONFLICT (date) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, t.type, -p.servings * IFNULL(f.serving_size_calories, 0), -p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT old.date AS date, name, num_servings AS servings FROM FOOD_SNACK WHERE snack_id = old.id) p
+                        JOIN FOOD f ON f.name = p.name JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TOTALS (date, calories, grams)
+                        SELECT p.date, +p.servings * IFNULL(f.serving_size_calories, 0), +p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT new.date AS date, name, num_servings AS servings FROM FOOD_SNACK WHERE snack_id = new.id) p
+                        JOIN FOOD f ON f.name = p.name
+                        WHERE true
+                        ON CONFLICT (date) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, t.type, +p.servings * IFNULL(f.serving_size_calories, 0), +p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT new.date AS date, name, num_servings AS servings FROM FOOD_SNACK WHERE snack_id = new.id) p
+                        JOIN FOOD f ON f.name = p.name JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                END""",
+            """
+                CREATE TRIGGER IF NOT EXISTS DAY_TOTALS_FOOD_SERVING AFTER UPDATE OF serving_size_grams, serving_size_calories ON FOOD BEGIN
+                    INSERT INTO DAY_TOTALS (date, calories, grams)
+                        SELECT p.date, -p.servings * IFNULL(old.serving_size_calories, 0), -p.servings * IFNULL(old.serving_size_grams, 0)
+                        FROM (SELECT p.date, j.name, j.num_servings AS servings FROM FOOD_MEAL j JOIN MEAL p ON p.id = j.meal_id WHERE j.name = new.name
+                            UNION ALL SELECT p.date, j.name, j.num_servings AS servings FROM FOOD_SNACK j JOIN SNACK p ON p.id = j.snack_id WHERE j.name = new.name) p
+                        WHERE true
+                        ON CONFLICT (date) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, t.type, -p.servings * IFNULL(old.serving_size_calories, 0), -p.servings * IFNULL(old.serving_size_grams, 0)
+                        FROM (SELECT p.date, j.name, j.num_servings AS servings FROM FOOD_MEAL j JOIN MEAL p ON p.id = j.meal_id WHERE j.name = new.name
+                            UNION ALL SELECT p.date, j.name, j.num_servings AS servings FROM FOOD_SNACK j JOIN SNACK p ON p.id = j.snack_id WHERE j.name = new.name) p JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TOTALS (date, calories, grams)
+                        SELECT p.date, +p.servings * IFNULL(new.serving_size_calories, 0), +p.servings * IFNULL(new.serving_size_grams, 0)
+                        FROM (SELECT p.date, j.name, j.num_servings AS servings FROM FOOD_MEAL j JOIN MEAL p ON p.id = j.meal_id WHERE j.name = new.name
+                            UNION ALL SELECT p.date, j.name, j.num_servings AS servings FROM FOOD_SNACK j JOIN SNACK p ON p.id = j.snack_id WHERE j.name = new.name) p
+                        WHERE true
+                        ON CONFLICT (date) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, t.type, +p.servings * IFNULL(new.serving_size_calories, 0), +p.servings * IFNULL(new.serving_size_grams, 0)
+                        FROM (SELECT p.date, j.name, j.num_servings AS servings FROM FOOD_MEAL j JOIN MEAL p ON p.id = j.meal_id WHERE j.name = new.name
+                            UNION ALL SELECT p.date, j.name, j.num_servings AS servings FROM FOOD_SNACK j JOIN SNACK p ON p.id = j.snack_id WHERE j.name = new.name) p JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                END""",
+            """
+                CREATE TRIGGER IF NOT EXISTS DAY_TOTALS_FOOD_TYPE_INSERT AFTER INSERT ON FOOD_TYPE_JUNCTION_FOOD BEGIN
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, new.type, +p.servings * IFNULL(f.serving_size_calories, 0), +p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT p.date, j.name, j.num_servings AS servings FROM FOOD_MEAL j JOIN MEAL p ON p.id = j.meal_id WHERE j.name = new.name
+                            UNION ALL SELECT p.date, j.name, j.num_servings AS servings FROM FOOD_SNACK j JOIN SNACK p ON p.id = j.snack_id WHERE j.name = new.name) p
+                        JOIN FOOD f ON f.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                END""",
+            """
+                CREATE TRIGGER IF NOT EXISTS DAY_TOTALS_FOOD_TYPE_DELETE AFTER DELETE ON FOOD_TYPE_JUNCTION_FOOD BEGIN
+                    INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                        SELECT p.date, old.type, -p.servings * IFNULL(f.serving_size_calories, 0), -p.servings * IFNULL(f.serving_size_grams, 0)
+                        FROM (SELECT p.date, j.name, j.num_servings AS servings FROM FOOD_MEAL j JOIN MEAL p ON p.id = j.meal_id WHERE j.name = old.name
+                            UNION ALL SELECT p.date, j.name, j.num_servings AS servings FROM FOOD_SNACK j JOIN SNACK p ON p.id = j.snack_id WHERE j.name = old.name) p
+                        JOIN FOOD f ON f.name = p.name
+                        WHERE true
+                        ON CONFLICT (date, type) DO UPDATE SET calories = calories + excluded.calories, grams = grams + excluded.grams;
+                END""",
+            """
+                CREATE TRIGGER IF NOT EXISTS DAY_TOTALS_DAY_DELETE AFTER DELETE ON DAY BEGIN
+                    DELETE FROM DAY_TOTALS WHERE date = old.date;
+                    DELETE FROM DAY_TYPE_TOTALS WHERE date = old.date;
+                END""",
+            "DELETE FROM DAY_TOTALS",
+            "DELETE FROM DAY_TYPE_TOTALS",
+            """
+                INSERT INTO DAY_TOTALS (date, calories, grams)
+                SELECT p.date, SUM(p.servings * IFNULL(f.serving_size_calories, 0)), SUM(p.servings * IFNULL(f.serving_size_grams, 0))
+                FROM (SELECT m.date, fm.name, fm.num_servings AS servings FROM FOOD_MEAL fm JOIN MEAL m ON m.id = fm.meal_id
+                    UNION ALL
+                    SELECT s.date, fs.name, fs.num_servings FROM FOOD_SNACK fs JOIN SNACK s ON s.id = fs.snack_id) p
+                JOIN FOOD f ON f.name = p.name
+                GROUP BY p.date""",
+            """
+                INSERT INTO DAY_TYPE_TOTALS (date, type, calories, grams)
+                SELECT p.date, t.type, SUM(p.servings * IFNULL(f.serving_size_calories, 0)), SUM(p.servings * IFNULL(f.serving_size_grams, 0))
+                FROM (SELECT m.date, fm.name, fm.num_servings AS servings FROM FOOD_MEAL fm JOIN MEAL m ON m.id = fm.meal_id
+                    UNION ALL
+                    SELECT s.date, fs.name, fs.num_servings FROM FOOD_SNACK fs JOIN SNACK s ON s.id = fs.snack_id) p
+                JOIN FOOD f ON f.name = p.name JOIN FOOD_TYPE_JUNCTION_FOOD t ON t.name = p.name
+                GROUP BY p.date, t.type"""
+    );
+
+    public static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Add secondary indexes for hot lookup columns", conn -> execute(conn,
+                    "CREATE INDEX IF NOT EXISTS IDX_DAY_WEEK_ID ON DAY (week_id)",
+                    "CREATE INDEX IF NOT EXISTS IDX_MEAL_DATE ON MEAL (date)",
+                    "CREATE INDEX IF NOT EXISTS IDX_SNACK_DATE ON SNACK (date)",
+                    "CREATE INDEX IF NOT EXISTS IDX_FOOD_MEAL_MEAL_ID ON FOOD_MEAL (meal_id)",
+                    "CREATE INDEX IF NOT EXISTS IDX_FOOD_SNACK_SNACK_ID ON FOOD_SNACK (snack_id)",
+                    "CREATE INDEX IF NOT EXISTS IDX_FOOD_TYPE_JUNCTION_FOOD_TYPE ON FOOD_TYPE_JUNCTION_FOOD (type)")),
+            new Migration(2, "Add daily nutrition totals maintained by triggers", conn -> execute(conn,
+                    DAY_TOTALS_V2.toArray(String[]::new)))
+    );
+
+    private final List<Migration> migrations;
+
+    /**
+     * Creates a migrator for the application's schema.
+     */
+    public SchemaMigrator() {
+        this(MIGRATIONS);
+    }
+
+    /**
+     * Creates a migrator for the given migrations.
+     * @param migrations the migration steps, with versions increasing by one from 1
+     */
+    public SchemaMigrator(List<Migration> migrations) {
+        for (int i = 0; i < migrations.size(); i++) {
+            if (migrations.get(i).version() != i + 1) {
+                throw new IllegalArgumentException("Migration versions must increase by one from 1, found version "
+                        + migrations.get(i).version() + " at position " + i);
+            }
+        }
+        this.migrations = List.copyOf(migrations);
+    }
+
+    /**
+     * @return the version of the newest migration, which is the version of a freshly created database
+     */
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.getLast().version();
+    }
+
+    /**
+     * Applies, in order, every migration newer than the database's current version.
+     * Stops at the first step that fails, after rolling it back.
+     * @param conn a connection to the database, it must not be inside a transaction
+     * @return the schema version of the database afterwards
+     * @throws SQLException if the schema version could not be read
+     */
+    public int migrate(Connection conn) throws SQLException {
+        int version = getVersion(conn);
+        if (version > getLatestVersion()) {
+            logger.logWarning("Database schema version " + version + " is newer than this application supports ("
+                    + getLatestVersion() + "), skipping migrations.");
+            return version;
+        }
+        for (Migration migration : migrations) {
+            if (migration.version() <= version) continue;
+            long start = System.nanoTime();
+            conn.setAutoCommit(false);
+            try {
+                migration.step().apply(conn);
+                setVersion(conn, migration.version());
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                logger.logError(String.format("Schema migration to version %d (%s) failed, database left at version %d: %s",
+                        migration.version(), migration.description(), version, e.getMessage()));
+                return version;
+            } finally {
+                conn.setAutoCommit(true);
+                SchemaRegistry.invalidate();
+            }
+            version = migration.version();
+            logger.logInfo(String.format("Migrated database schema to version %d (%s) in %.1f ms",
+                    version, migration.description(), (System.nanoTime() - start) / 1_000_000.0));
+        }
+        return version;
+    }
+
+    /**
+     * Marks a freshly created database as being at the latest schema version, so no migrations are applied to it.
+     * @param conn a connection to the database
+     * @throws SQLException if the version could not be written
+     */
+    public void markLatest(Connection conn) throws SQLException {
+        setVersion(conn, getLatestVersion());
+    }
+
+    /**
+     * @param conn a connection to the database
+     * @return the database's schema version, 0 for databases created before versioning
+     * @throws SQLException if the version could not be read
+     */
+    public static int getVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void setVersion(Connection conn, int version) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA user_version = " + version);
+        }
+    }
+
+    private static void execute(Connection conn, String... statements) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.alexander.database;
+
+import org.alexander.logging.CentralLogger;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SchemaRegistry answers table and column existence questions from memory.
+ * <p>
+ * The catalog is read from {@code sqlite_master} the first time it is needed and kept until the schema changes.
+ * Anything which executes DDL, such as the {@link TableConstructor} and the {@link SchemaMigrator}, must call
+ * {@link #invalidate()} afterwards so the next lookup reloads the catalog.
+ * </p>
+ * @since 1.1.0
+ */
+public class SchemaRegistry {
+    private static final CentralLogger logger = CentralLogger.getInstance();
+    // Table name to its column names, null until loaded or after being invalidated
+    private static volatile Map<String, Set<String>> tables;
+    // Bumped by every invalidation, a catalog read before the bump is never published
+    private static long generation = 0;
+
+    /**
+     * @param tableName the name of the table to check
+     * @return true if the table exists, false otherwise
+     */
+    public static boolean tableExists(String tableName) {
+        return getTables().containsKey(tableName);
+    }
+
+    /**
+     * @param tableName the name of the table to check
+     * @param columnName the name of the column to check
+     * @return true if the table exists and has the column, false otherwise
+     */
+    public static boolean columnExists(String tableName, String columnName) {
+        Set<String> columns = getTables().get(tableName);
+        return columns != null && columns.contains(columnName);
+    }
+
+    /**
+     * Discards the cached catalog, it is reloaded on the next lookup.
+     */
+    public static synchronized void invalidate() {
+        generation++;
+        tables = null;
+    }
+
+    private static Map<String, Set<String>> getTables() {
+        Map<String, Set<String>> loaded = tables;
+        if (loaded != null) {
+            return loaded;
+        }
+        long loadedGeneration;
+        synchronized (SchemaRegistry.class) {
+            loadedGeneration = generation;
+        }
+        loaded = load();
+        if (loaded == null) {
+            // Leave the catalog unloaded so the next lookup tries again
+            return Map.of();
+        }
+        synchronized (SchemaRegistry.class) {
+            // The schema changed while it was being read, answer this lookup but let the next one reload
+            if (loadedGeneration == generation) {
+                tables = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * @return every table's column names, or null if the catalog could not be read
+     */
+    private static Map<String, Set<String>> load() {
+        Map<String, Set<String>> loaded = new HashMap<>();
+        try (
+                Connection conn = DatabaseManager.connect();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("""
+                        SELECT m.name AS table_name, p.name AS column_name
+                        FROM sqlite_master m JOIN pragma_table_info(m.name) p
+                        WHERE m.type = 'table'
+                        """)
+        ) {
+            while (rs.next()) {
+                loaded.computeIfAbsent(rs.getString("table_name"), k -> new HashSet<>()).add(rs.getString("column_name"));
+            }
+        } catch (SQLException e) {
+            logger.logError(e);
+            return null;
+        }
+        return Map.copyOf(loaded);
+    }
+}
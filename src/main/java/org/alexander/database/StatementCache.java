@@ -0,0 +1,188 @@
+package org.alexander.database;
+
+import org.alexander.logging.CentralLogger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StatementCache keeps the compiled {@link PreparedStatement}s of one pooled connection, keyed by their SQL text.
+ * <p>
+ * {@link #prepare(String)} hands out a handle to the cached statement whose {@code close()} closes any result set
+ * left open, clears the parameters and returns the statement to the cache instead of finalising it. A statement is
+ * only handed to one caller at a time, if the same SQL is prepared again while its handle is still open (e.g. by a
+ * nested DAO call) a plain uncached statement is returned. The least recently used statements are closed once the
+ * cache is full. Like the connection it belongs to, a cache is confined to the thread holding the lease.
+ * </p>
+ * @since 1.1.0
+ */
+final class StatementCache {
+    private static final CentralLogger logger = CentralLogger.getInstance();
+    private final Connection connection;
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LinkedHashMap<String, Entry> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param connection the physical connection the statements are prepared on
+     * @param capacity the maximum number of statements kept, 0 disables caching
+     * @param hits counter incremented when a cached statement is reused
+     * @param misses counter incremented when a statement has to be compiled
+     */
+    StatementCache(Connection connection, int capacity, LongAdder hits, LongAdder misses) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * @param sql the SQL text of the statement
+     * @return a handle to a cached statement, or a plain statement if the cached one is already in use
+     * @throws SQLException if the statement could not be compiled
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        Entry entry = statements.get(sql);
+        if (entry != null && !entry.inUse && !entry.statement.isClosed()) {
+            hits.increment();
+            return entry.handle();
+        }
+        misses.increment();
+        PreparedStatement statement = connection.prepareStatement(sql);
+        if (capacity == 0 || (entry != null && entry.inUse)) {
+            return statement;
+        }
+        entry = new Entry(statement);
+        statements.put(sql, entry);
+        evict();
+        return entry.handle();
+    }
+
+    /**
+     * @return the number of statements currently cached
+     */
+    int size() {
+        return statements.size();
+    }
+
+    // Closes the least recently used statements not currently handed out until the cache fits its capacity
+    private void evict() {
+        Iterator<Entry> iterator = statements.values().iterator();
+        while (statements.size() > capacity && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            if (!eldest.inUse) {
+                iterator.remove();
+                closeQuietly(eldest.statement);
+            }
+        }
+    }
+
+    private void discard(Entry entry) {
+        statements.values().remove(entry);
+        closeQuietly(entry.statement);
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.logError("Error closing cached statement: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A cached statement and whether a handle to it is currently open.
+     */
+    private final class Entry {
+        private final PreparedStatement statement;
+        private boolean inUse = false;
+
+        private Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        private PreparedStatement handle() {
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new Handle(this));
+        }
+
+        // Resets the statement for the next caller, a statement that cannot be reset is dropped from the cache
+        private void release(ResultSet resultSet) {
+            inUse = false;
+            try {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                statement.clearParameters();
+            } catch (SQLException e) {
+                logger.logWarning("Could not reset cached statement, discarding it: " + e.getMessage());
+                discard(this);
+            }
+        }
+    }
+
+    /**
+     * Invocation handler behind a cached statement, {@code close()} hands the statement back to the cache.
+     */
+    private static final class Handle implements InvocationHandler {
+        private final Entry entry;
+        private ResultSet resultSet;
+        private boolean closed = false;
+
+        private Handle(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        entry.release(resultSet);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || entry.statement.isClosed();
+                }
+                case "unwrap" -> {
+                    return entry.statement.unwrap((Class<?>) args[0]);
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    if (closed) {
+                        throw new SQLException("Statement has already been returned to the cache");
+                    }
+                    try {
+                        Object result = method.invoke(entry.statement, args);
+                        if (result instanceof ResultSet rs) {
+                            resultSet = rs;
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,19 +1,42 @@
 package org.alexander.database;
 
 import org.alexander.database.tables.Tables;
+import org.alexander.database.tables.food.dao.FoodCache;
 
 import java.sql.*;
+import java.util.List;
 
 class TableConstructor {
+    // Secondary indexes for the columns the DAOs filter and join on. The junction table primary keys lead with
+    // the food name, so lookups by meal, snack or type id cannot use them.
+    // language=sql
+    private static final List<String> INDEXES = List.of(
+            "CREATE INDEX IF NOT EXISTS IDX_DAY_WEEK_ID ON DAY (week_id)",
+            "CREATE INDEX IF NOT EXISTS IDX_MEAL_DATE ON MEAL (date)",
+            "CREATE INDEX IF NOT EXISTS IDX_SNACK_DATE ON SNACK (date)",
+            "CREATE INDEX IF NOT EXISTS IDX_FOOD_MEAL_MEAL_ID ON FOOD_MEAL (meal_id)",
+            "CREATE INDEX IF NOT EXISTS IDX_FOOD_SNACK_SNACK_ID ON FOOD_SNACK (snack_id)",
+            "CREATE INDEX IF NOT EXISTS IDX_FOOD_TYPE_JUNCTION_FOOD_TYPE ON FOOD_TYPE_JUNCTION_FOOD (type)"
+    );
+
     public void construct() {
-        try (Connection conn = DatabaseManager.connect()) {
+        try (Connection conn = DatabaseManager.connectForWrite()) {
             // Check connection
             if (conn == null) {
                 throw new SQLException("Error creating database connection, connection is null");
             }
-            // Function Execution
-            dropTables(conn);
-            createTables(conn);
+            // Function Execution, foreign keys are disabled so tables can be dropped in any order
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA foreign_keys = OFF");
+                dropTables(conn);
+                createTables(conn);
+            } finally {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("PRAGMA foreign_keys = ON");
+                }
+                SchemaRegistry.invalidate();
+                FoodCache.getInstance().invalidate();
+            }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
@@ -45,9 +68,16 @@ class TableConstructor {
             stmt.addBatch(createFoodTypeJunctionFoodTable());
             stmt.addBatch(createFoodMealTable());
             stmt.addBatch(createFoodSnackTable());
+            for (String index : INDEXES) {
+                stmt.addBatch(index);
+            }
+            for (String totals : DayTotalsTriggers.createStatements()) {
+                stmt.addBatch(totals);
+            }
             stmt.executeBatch();
         }
     }
+
     // Tables seperated into their own methods for readability and maintainability
     private String createWeekTable(){
         // language=sql
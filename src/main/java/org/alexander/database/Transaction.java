@@ -0,0 +1,214 @@
+package org.alexander.database;
+
+import org.alexander.database.tables.food.dao.FoodCache;
+import org.alexander.logging.CentralLogger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * Transaction is a unit of work spanning several DAO calls, committed once as a whole or not at all.
+ * <p>
+ * A transaction holds the writer connection for its whole length. The DAOs need not be handed it: the connection
+ * pool shares the calling thread's writer with every lease the thread takes, so any DAO created without a connection
+ * reads and writes inside the transaction. Started with {@link DatabaseManager#inTransaction(Work)}:
+ * </p>
+ * <pre>{@code
+ * DatabaseManager.inTransaction(tx -> {
+ *     if (!foodMealDao.deleteFoodMeal(foodMeal)) tx.setRollbackOnly("food was not removed");
+ *     return mealDao.deleteMeal(meal) || tx.setRollbackOnly("meal was not deleted");
+ * });
+ * }</pre>
+ * <p>
+ * The DAOs report failures by their return value rather than by throwing, so the work decides whether the
+ * transaction must be rolled back with {@link #setRollbackOnly(String)}. Work which throws is rolled back too.
+ * A transaction started inside another on the same connection joins it, a failure in either rolls back both.
+ * One started on a different connection is a transaction of its own.
+ * </p>
+ * <p>
+ * The DAOs update the {@link ChangeJournal} and the {@link FoodCache} as they write, so a rolled back transaction
+ * leaves both describing rows which are no longer there. Rolling back therefore marks the journal unreliable and
+ * invalidates the cache, both of which recover on their own.
+ * </p>
+ * @since 1.1.0
+ */
+public final class Transaction {
+    private static final CentralLogger logger = CentralLogger.getInstance();
+    private static final ThreadLocal<Transaction> current = new ThreadLocal<>();
+    private final Connection connection;
+    private boolean rollbackOnly = false;
+
+    /**
+     * The work done in a transaction.
+     * @param <T> the result of the work
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        /**
+         * @param tx the transaction the work runs in
+         * @return the result of the work
+         * @throws SQLException if a statement run on the transaction's connection fails, rolling the transaction back
+         */
+        T run(Transaction tx) throws SQLException;
+    }
+
+    private Transaction(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * @return the connection the transaction runs on, for statements run outside the DAOs.
+     * Must not be closed, committed or rolled back
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Makes the transaction roll back once its work finishes, instead of committing.
+     * @param reason why the transaction cannot commit, for the log
+     * @return false, so a failed DAO call can be turned into a rollback in a single expression
+     */
+    public boolean setRollbackOnly(String reason) {
+        if (!rollbackOnly) {
+            logger.logWarning("Rolling back transaction: " + reason);
+        }
+        rollbackOnly = true;
+        return false;
+    }
+
+    /**
+     * @return true if the transaction will be rolled back
+     */
+    public boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    /**
+     * @return true if the calling thread is in a transaction
+     */
+    public static boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Runs work in a transaction on the given writer connection, or in the calling thread's transaction if it is
+     * already in one on the same connection. A connection whose owner already has a transaction open runs the work in a savepoint of it,
+     * so the work is undone on its own if it fails and committed with the rest of the owner's transaction otherwise.
+     * @param connection the writer, or a connection handed to a DAO, which the work's statements must all run on
+     * @return the result of the work, or null if the transaction was rolled back
+     */
+    public static <T> T run(Connection connection, Work<T> work) {
+        Transaction outer = current.get();
+        if (outer != null && sameConnection(outer.connection, connection)) {
+            T result = attempt(outer, work);
+            return outer.rollbackOnly ? null : result;
+        }
+        Transaction tx = new Transaction(connection);
+        try {
+            if (!connection.getAutoCommit()) {
+                return runInSavepoint(tx, outer, work);
+            }
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            logger.logError(e);
+            return null;
+        }
+        current.set(tx);
+        T result;
+        try {
+            result = attempt(tx, work);
+        } finally {
+            restore(outer);
+        }
+        try {
+            if (!tx.rollbackOnly) {
+                connection.commit();
+                restoreAutoCommit(connection);
+                return result;
+            }
+        } catch (SQLException e) {
+            logger.logError(e);
+        }
+        rollback(connection);
+        return null;
+    }
+
+    // Pooled and borrowed connections are proxies, so they are compared by the connection they wrap
+    private static boolean sameConnection(Connection a, Connection b) {
+        try {
+            return a.unwrap(Connection.class) == b.unwrap(Connection.class);
+        } catch (SQLException e) {
+            logger.logError(e);
+            return false;
+        }
+    }
+
+    private static <T> T runInSavepoint(Transaction tx, Transaction outer, Work<T> work) throws SQLException {
+        Connection connection = tx.connection;
+        Savepoint savepoint = connection.setSavepoint();
+        current.set(tx);
+        T result;
+        try {
+            result = attempt(tx, work);
+        } finally {
+            restore(outer);
+        }
+        try {
+            if (!tx.rollbackOnly) {
+                connection.releaseSavepoint(savepoint);
+                return result;
+            }
+        } catch (SQLException e) {
+            logger.logError(e);
+        }
+        try {
+            connection.rollback(savepoint);
+        } catch (SQLException e) {
+            logger.logError(e);
+        } finally {
+            // The DAOs recorded writes which have just been undone
+            ChangeJournal.getInstance().markUnreliable("a transaction was rolled back");
+            FoodCache.getInstance().invalidate();
+        }
+        return null;
+    }
+
+    // Once work on another connection finishes, the transaction it ran inside is the current one again
+    private static void restore(Transaction outer) {
+        if (outer != null) current.set(outer);
+        else current.remove();
+    }
+
+    private static <T> T attempt(Transaction tx, Work<T> work) {
+        try {
+            return work.run(tx);
+        } catch (SQLException | RuntimeException e) {
+            logger.logError(e);
+            tx.setRollbackOnly(e.getMessage());
+            return null;
+        }
+    }
+
+    private static void rollback(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.logError(e);
+        } finally {
+            // The DAOs recorded writes which have just been undone
+            ChangeJournal.getInstance().markUnreliable("a transaction was rolled back");
+            FoodCache.getInstance().invalidate();
+            restoreAutoCommit(connection);
+        }
+    }
+
+    private static void restoreAutoCommit(Connection connection) {
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.logError(e);
+        }
+    }
+}
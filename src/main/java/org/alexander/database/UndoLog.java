@@ -0,0 +1,206 @@
+package org.alexander.database;
+
+import org.alexander.database.tables.Tables;
+import org.alexander.logging.CentralLogger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * UndoLog records how to reverse every change made to the tracked tables, so unsaved changes can be discarded
+ * without keeping a copy of the database, see {@link PersistenceMode#DIRECT_WAL}.
+ * <p>
+ * Triggers on each table append the statement undoing an insert, update or delete to the {@value #TABLE} table,
+ * keyed by rowid. {@link #rollback(Connection)} plays the statements back newest first in a single transaction,
+ * {@link #commit(Connection)} forgets them once the changes have been saved. Both cost the number of changes, not the
+ * size of the database. The log lives in the database itself, so changes left behind by a session that ended without
+ * saving or discarding are rolled back by {@link #recover(Connection)} at the next startup.
+ * </p>
+ * <p>
+ * The triggers are built from the current columns of each table, so they must be dropped before a schema migration
+ * and installed again afterwards.
+ * </p>
+ * @since 1.1.0
+ */
+public class UndoLog {
+    public static final String TABLE = "UNDO_LOG";
+    private static final CentralLogger logger = CentralLogger.getInstance();
+    private static final String[] OPERATIONS = {"insert", "update", "delete"};
+    private final List<String> tables;
+
+    /**
+     * Creates an undo log tracking every table of the application's schema. Derived tables are left out, the
+     * triggers maintaining them already follow the reversed changes.
+     */
+    public UndoLog() {
+        this(Arrays.stream(Tables.values()).filter(table -> !table.isDerived()).map(Tables::name).toList());
+    }
+
+    /**
+     * Creates an undo log tracking the given tables.
+     * @param tables the names of the tables to track
+     */
+    public UndoLog(List<String> tables) {
+        this.tables = List.copyOf(tables);
+    }
+
+    /**
+     * Creates the log table if needed and (re)creates the triggers recording changes to the tracked tables.
+     * @param conn a connection to the database
+     * @throws SQLException if the log or the triggers could not be created
+     */
+    public void install(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (seq INTEGER PRIMARY KEY AUTOINCREMENT, statement TEXT NOT NULL)");
+            dropTriggers(stmt);
+            for (String table : tables) {
+                List<String> columns = columns(conn, table);
+                if (columns.isEmpty()) {
+                    logger.logWarning("Table " + table + " does not exist, changes to it are not recorded in the undo log");
+                    continue;
+                }
+                stmt.execute(insertTrigger(table));
+                stmt.execute(updateTrigger(table, columns));
+                stmt.execute(deleteTrigger(table, columns));
+            }
+        }
+    }
+
+    /**
+     * @param conn a connection to the database
+     * @return the number of changes recorded, 0 if the log does not exist
+     * @throws SQLException if the log could not be read
+     */
+    public int size(Connection conn) throws SQLException {
+        if (!exists(conn)) return 0;
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + TABLE)) {
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * Reverses every recorded change, newest first, and empties the log. Either every change is reversed or none is.
+     * @param conn a connection to the database, it must not be inside a transaction
+     * @return the number of changes reversed
+     * @throws SQLException if the changes could not be reversed, the database is then left as it was
+     */
+    public int rollback(Connection conn) throws SQLException {
+        if (!exists(conn)) return 0;
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            // Each statement restores an earlier state, but rows may pass through states the keys would reject alone
+            stmt.execute("PRAGMA defer_foreign_keys = ON");
+            List<String> statements = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery("SELECT statement FROM " + TABLE + " ORDER BY seq DESC")) {
+                while (rs.next()) {
+                    statements.add(rs.getString(1));
+                }
+            }
+            for (String undo : statements) {
+                stmt.execute(undo);
+            }
+            // The statements played back were themselves recorded by the triggers
+            stmt.execute("DELETE FROM " + TABLE);
+            conn.commit();
+            return statements.size();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Forgets every recorded change, once they have been saved.
+     * @param conn a connection to the database
+     * @throws SQLException if the log could not be emptied
+     */
+    public void commit(Connection conn) throws SQLException {
+        if (!exists(conn)) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM " + TABLE);
+        }
+    }
+
+    /**
+     * Rolls back any changes a previous session left in the log and removes the log and its triggers.
+     * @param conn a connection to the database, it must not be inside a transaction
+     * @return the number of changes rolled back
+     * @throws SQLException if the changes could not be rolled back or the log removed
+     */
+    public int recover(Connection conn) throws SQLException {
+        int reversed = rollback(conn);
+        if (reversed > 0) {
+            logger.logWarning("Rolled back " + reversed + " unsaved changes left by a previous session");
+        }
+        try (Statement stmt = conn.createStatement()) {
+            dropTriggers(stmt);
+            stmt.execute("DROP TABLE IF EXISTS " + TABLE);
+        }
+        return reversed;
+    }
+
+    private void dropTriggers(Statement stmt) throws SQLException {
+        for (String table : tables) {
+            for (String operation : OPERATIONS) {
+                stmt.execute("DROP TRIGGER IF EXISTS " + triggerName(table, operation));
+            }
+        }
+    }
+
+    private static boolean exists(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            ps.setString(1, TABLE);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static List<String> columns(Connection conn, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT name FROM pragma_table_info(?) ORDER BY cid")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    columns.add(rs.getString(1));
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static String triggerName(String table, String operation) {
+        return "UNDO_" + table + "_" + operation.toUpperCase();
+    }
+
+    // The logged statements are built in SQL, quote() renders each old value as a literal
+    private static String insertTrigger(String table) {
+        return "CREATE TRIGGER " + triggerName(table, "insert") + " AFTER INSERT ON " + table + " BEGIN "
+                + "INSERT INTO " + TABLE + " (statement) VALUES ('DELETE FROM " + table + " WHERE rowid = ' || new.rowid); END";
+    }
+
+    private static String updateTrigger(String table, List<String> columns) {
+        StringJoiner assignments = new StringJoiner(" || ', ' || ");
+        columns.forEach(c -> assignments.add("'" + c + " = ' || quote(old." + c + ")"));
+        return "CREATE TRIGGER " + triggerName(table, "update") + " AFTER UPDATE ON " + table + " BEGIN "
+                + "INSERT INTO " + TABLE + " (statement) VALUES ('UPDATE " + table + " SET ' || " + assignments
+                + " || ' WHERE rowid = ' || old.rowid); END";
+    }
+
+    private static String deleteTrigger(String table, List<String> columns) {
+        StringJoiner values = new StringJoiner(" || ', ' || ");
+        columns.forEach(c -> values.add("quote(old." + c + ")"));
+        return "CREATE TRIGGER " + triggerName(table, "delete") + " BEFORE DELETE ON " + table + " BEGIN "
+                + "INSERT INTO " + TABLE + " (statement) VALUES ('INSERT INTO " + table + " (rowid, "
+                + String.join(", ", columns) + ") VALUES (' || old.rowid || ', ' || " + values + " || ')'); END";
+    }
+}
@@ -0,0 +1,243 @@
+package org.alexander.database.analytics;
+
+import org.alexander.database.DatabaseManager;
+import org.alexander.logging.CentralLogger;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * BodyWeightSeries is the body weight recorded over a range of days, with its rolling averages and rate of change,
+ * ready to be charted.
+ * <p>
+ * The weights are read in date order by a single query and every statistic is worked out as each row arrives, in
+ * one pass over primitive arrays: the 7 and 30 day averages slide a window over the days read so far, and the
+ * minimum, maximum and least squares trend are running sums. Days without a recorded weight are left out rather than
+ * filled in, so the averages are over the weights recorded in the last 7 or 30 calendar days.
+ * </p>
+ * @since 1.1.0
+ */
+public final class BodyWeightSeries {
+    private static final CentralLogger logger = CentralLogger.getInstance();
+    // language=sql
+    private static final String QUERY = """
+            SELECT date, body_weight FROM DAY
+            WHERE body_weight IS NOT NULL AND date BETWEEN ? AND ?
+            ORDER BY date
+            """;
+    private final int size;
+    private final int[] epochDays;
+    private final double[] weights;
+    private final double[] average7;
+    private final double[] average30;
+    private final double[] changePerWeek;
+    private final int minIndex;
+    private final int maxIndex;
+    private final double trendPerWeek;
+
+    private BodyWeightSeries(Builder builder) {
+        this.size = builder.size;
+        this.epochDays = Arrays.copyOf(builder.epochDays, size);
+        this.weights = Arrays.copyOf(builder.weights, size);
+        this.average7 = Arrays.copyOf(builder.average7, size);
+        this.average30 = Arrays.copyOf(builder.average30, size);
+        this.changePerWeek = Arrays.copyOf(builder.changePerWeek, size);
+        this.minIndex = builder.minIndex;
+        this.maxIndex = builder.maxIndex;
+        this.trendPerWeek = builder.trendPerWeek();
+    }
+
+    /**
+     * Reads the body weight recorded between two dates.
+     * @param start the first day, inclusive
+     * @param end the last day, inclusive
+     * @return the series, empty if no weight was recorded, or null if it could not be read
+     */
+    public static BodyWeightSeries load(LocalDate start, LocalDate end) {
+        Builder builder = new Builder();
+        try (Connection conn = DatabaseManager.connect(); PreparedStatement ps = conn.prepareStatement(QUERY)) {
+            ps.setDate(1, Date.valueOf(start));
+            ps.setDate(2, Date.valueOf(end));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    builder.add((int) rs.getDate("date").toLocalDate().toEpochDay(), rs.getDouble("body_weight"));
+                }
+            }
+        } catch (SQLException e) {
+            logger.logError(e);
+            return null;
+        }
+        return new BodyWeightSeries(builder);
+    }
+
+    /**
+     * Builds a series from weights already in memory.
+     * @param epochDays the day of each weight, as {@link LocalDate#toEpochDay()}, in increasing order
+     * @param weights the weights
+     * @return the series
+     * @throws IllegalArgumentException if the arrays differ in length or the days are not increasing
+     */
+    public static BodyWeightSeries of(int[] epochDays, double[] weights) {
+        if (epochDays.length != weights.length) {
+            throw new IllegalArgumentException(epochDays.length + " days were given for " + weights.length + " weights");
+        }
+        Builder builder = new Builder();
+        for (int i = 0; i < epochDays.length; i++) {
+            builder.add(epochDays[i], weights[i]);
+        }
+        return new BodyWeightSeries(builder);
+    }
+
+    /**
+     * @return the number of weights in the series
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public LocalDate getDate(int index) {
+        return LocalDate.ofEpochDay(epochDays[checkIndex(index)]);
+    }
+
+    public double getWeight(int index) {
+        return weights[checkIndex(index)];
+    }
+
+    /**
+     * @return the average of the weights recorded in the 7 days up to and including the weight's day
+     */
+    public double getAverage7(int index) {
+        return average7[checkIndex(index)];
+    }
+
+    /**
+     * @return the average of the weights recorded in the 30 days up to and including the weight's day
+     */
+    public double getAverage30(int index) {
+        return average30[checkIndex(index)];
+    }
+
+    /**
+     * @return how fast the 7 day average moved since the previous weight, per week, NaN for the first weight
+     */
+    public double getChangePerWeek(int index) {
+        return changePerWeek[checkIndex(index)];
+    }
+
+    /**
+     * @return the index of the lowest weight, -1 if the series is empty
+     */
+    public int getMinIndex() {
+        return minIndex;
+    }
+
+    /**
+     * @return the index of the highest weight, -1 if the series is empty
+     */
+    public int getMaxIndex() {
+        return maxIndex;
+    }
+
+    /**
+     * @return the slope of the least squares line through the weights, per week, NaN for fewer than two days
+     */
+    public double getTrendPerWeek() {
+        return trendPerWeek;
+    }
+
+    // Copies for charting, the series itself stays unchanged
+    public int[] getEpochDays() {
+        return epochDays.clone();
+    }
+
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    public double[] getAverages7() {
+        return average7.clone();
+    }
+
+    public double[] getAverages30() {
+        return average30.clone();
+    }
+
+    private int checkIndex(int index) {
+        return Objects.checkIndex(index, size);
+    }
+
+    /**
+     * Works out every statistic as each weight is added, the arrays growing as needed.
+     */
+    private static final class Builder {
+        private int size = 0;
+        private int[] epochDays = new int[64];
+        private double[] weights = new double[64];
+        private double[] average7 = new double[64];
+        private double[] average30 = new double[64];
+        private double[] changePerWeek = new double[64];
+        // The oldest weight still inside each window, and the sum of the weights inside it
+        private int start7 = 0;
+        private int start30 = 0;
+        private double sum7 = 0;
+        private double sum30 = 0;
+        private int minIndex = -1;
+        private int maxIndex = -1;
+        // Least squares sums, days counted from the first weight to keep them small
+        private double sumX = 0;
+        private double sumY = 0;
+        private double sumXY = 0;
+        private double sumXX = 0;
+
+        private void add(int epochDay, double weight) {
+            if (size > 0 && epochDay <= epochDays[size - 1]) {
+                throw new IllegalArgumentException("Days must increase, " + LocalDate.ofEpochDay(epochDay)
+                        + " follows " + LocalDate.ofEpochDay(epochDays[size - 1]));
+            }
+            if (size == epochDays.length) grow();
+            int i = size++;
+            epochDays[i] = epochDay;
+            weights[i] = weight;
+            sum7 += weight;
+            while (epochDays[start7] <= epochDay - 7) sum7 -= weights[start7++];
+            sum30 += weight;
+            while (epochDays[start30] <= epochDay - 30) sum30 -= weights[start30++];
+            average7[i] = sum7 / (i - start7 + 1);
+            average30[i] = sum30 / (i - start30 + 1);
+            changePerWeek[i] = i == 0 ? Double.NaN
+                    : (average7[i] - average7[i - 1]) * 7 / (epochDay - epochDays[i - 1]);
+            if (minIndex < 0 || weight < weights[minIndex]) minIndex = i;
+            if (maxIndex < 0 || weight > weights[maxIndex]) maxIndex = i;
+            double x = epochDay - epochDays[0];
+            sumX += x;
+            sumY += weight;
+            sumXY += x * weight;
+            sumXX += x * x;
+        }
+
+        private double trendPerWeek() {
+            double denominator = size * sumXX - sumX * sumX;
+            if (size < 2 || denominator == 0) return Double.NaN;
+            return (size * sumXY - sumX * sumY) / denominator * 7;
+        }
+
+        private void grow() {
+            int capacity = epochDays.length * 2;
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            average7 = Arrays.copyOf(average7, capacity);
+            average30 = Arrays.copyOf(average30, capacity);
+            changePerWeek = Arrays.copyOf(changePerWeek, capacity);
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package org.alexander.database.analytics;
+
+import org.alexander.database.CacheMetrics;
+import org.alexander.database.ChangeJournal;
+import org.alexander.database.CompoundKey;
+import org.alexander.database.DatabaseManager;
+import org.alexander.database.tables.Tables;
+import org.alexander.database.tables.daytotals.DayTotals.Amount;
+import org.alexander.database.tables.meal.MealTypes;
+import org.alexander.logging.CentralLogger;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * NutritionAnalytics sums what was eaten over weeks, months or any range of days, split by meal and by food type.
+ * <p>
+ * A range is read a week at a time, Monday to Sunday, with one query per table over every week not already in
+ * memory: the daily totals kept in {@code DAY_TOTALS} and {@code DAY_TYPE_TOTALS}, and the portions of the meals and
+ * snacks grouped by day and meal type. Weeks which have ended are cached, as past weeks rarely change, and the
+ * summaries are added up from the cached days.
+ * </p>
+ * <p>
+ * The cache follows the {@link ChangeJournal}: a write to a meal, a snack or a portion evicts the weeks the meal or
+ * snack was or is now in, a food's serving size or types changing evicts every week, as does anything writing around
+ * the journal. The meals and snacks changed are only looked up on the next read, so writes stay as cheap as they
+ * were. A write is only sure to be committed once its writer is released, so a read made while a thread holds the
+ * writer leaves the changes for a later read and bypasses the cache, rather than waiting for the writer.
+ * </p>
+ * @since 1.1.0
+ */
+public final class NutritionAnalytics implements ChangeJournal.Listener {
+    public static final int DEFAULT_CAPACITY = 520;
+    private static final CentralLogger logger = CentralLogger.getInstance();
+    private static final NutritionAnalytics instance = new NutritionAnalytics(DEFAULT_CAPACITY, Clock.systemDefaultZone());
+    // language=sql
+    private static final String TOTALS_QUERY = "SELECT date, calories, grams FROM DAY_TOTALS WHERE date BETWEEN ? AND ?";
+    // language=sql
+    private static final String TYPES_QUERY = "SELECT date, type, calories, grams FROM DAY_TYPE_TOTALS WHERE date BETWEEN ? AND ?";
+    // language=sql
+    private static final String MEALS_QUERY = """
+            SELECT m.date, m.type, TOTAL(fm.num_servings * f.serving_size_calories) AS calories,
+                   TOTAL(fm.num_servings * f.serving_size_grams) AS grams
+            FROM MEAL m
+            JOIN FOOD_MEAL fm ON fm.meal_id = m.id
+            JOIN FOOD f ON f.name = fm.name
+            WHERE m.date BETWEEN ? AND ?
+            GROUP BY m.date, m.type
+            UNION ALL
+            SELECT s.date, NULL, TOTAL(fs.num_servings * f.serving_size_calories), TOTAL(fs.num_servings * f.serving_size_grams)
+            FROM SNACK s
+            JOIN FOOD_SNACK fs ON fs.snack_id = s.id
+            JOIN FOOD f ON f.name = fs.name
+            WHERE s.date BETWEEN ? AND ?
+            GROUP BY s.date
+            """;
+    // language=sql
+    private static final String IDS_QUERY = """
+            SELECT date, id, 1 AS meal FROM MEAL WHERE date BETWEEN ? AND ?
+            UNION ALL
+            SELECT date, id, 0 FROM SNACK WHERE date BETWEEN ? AND ?
+            """;
+    private final int capacity;
+    private final Clock clock;
+    private final LinkedHashMap<LocalDate, Week> weeks = new LinkedHashMap<>(64, 0.75f, true);
+    // Written by the listener on the writing threads, read back by the next summary
+    private final Set<Integer> changedMeals = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> changedSnacks = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean everythingChanged = new AtomicBoolean(false);
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    static {
+        ChangeJournal.getInstance().addListener(instance);
+    }
+
+    /**
+     * What was eaten on a single day.
+     */
+    private static final class Day {
+        private Amount total = Amount.ZERO;
+        private final Map<MealTypes, Amount> meals = new EnumMap<>(MealTypes.class);
+        private Amount snacks = Amount.ZERO;
+        private final Map<String, Amount> types = new HashMap<>();
+    }
+
+    /**
+     * The days of a week, and the meals and snacks in it so writes to them can find the week.
+     */
+    private record Week(Map<LocalDate, Day> days, Set<Integer> mealIds, Set<Integer> snackIds) {}
+
+    private record Range(LocalDate start, LocalDate end) {}
+
+    /**
+     * Creates analytics with their own cache, which must be added as a listener to the {@link ChangeJournal} to
+     * follow writes.
+     * @param capacity the maximum number of weeks kept in memory
+     * @param clock tells which weeks have ended
+     */
+    public NutritionAnalytics(int capacity, Clock clock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1, was " + capacity);
+        }
+        this.capacity = capacity;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the analytics of the working database, following its change journal
+     */
+    public static NutritionAnalytics getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param date any day of the week
+     * @return what was eaten in the week, Monday to Sunday, or null if it could not be read
+     */
+    public NutritionSummary getWeekSummary(LocalDate date) {
+        LocalDate monday = monday(date);
+        return getSummary(monday, monday.plusDays(6));
+    }
+
+    /**
+     * @return what was eaten in the month, or null if it could not be read
+     */
+    public NutritionSummary getMonthSummary(YearMonth month) {
+        return getSummary(month.atDay(1), month.atEndOfMonth());
+    }
+
+    /**
+     * @param start the first day, inclusive
+     * @param end the last day, inclusive
+     * @return what was eaten over the range, or null if it could not be read
+     */
+    public NutritionSummary getSummary(LocalDate start, LocalDate end) {
+        List<NutritionSummary> summaries = getSummaries(List.of(new Range(start, end)));
+        return summaries == null ? null : summaries.getFirst();
+    }
+
+    /**
+     * @param start a day of the first week
+     * @param end a day of the last week
+     * @return what was eaten in each week from the one holding {@code start} to the one holding {@code end}, in
+     * order, or null if they could not be read
+     */
+    public List<NutritionSummary> getWeekSummaries(LocalDate start, LocalDate end) {
+        List<Range> ranges = new ArrayList<>();
+        for (LocalDate monday = monday(start); !monday.isAfter(end); monday = monday.plusWeeks(1)) {
+            ranges.add(new Range(monday, monday.plusDays(6)));
+        }
+        return getSummaries(ranges);
+    }
+
+    /**
+     * @return what was eaten in each month from {@code start} to {@code end}, in order, or null if they could not be
+     * read
+     */
+    public List<NutritionSummary> getMonthSummaries(YearMonth start, YearMonth end) {
+        List<Range> ranges = new ArrayList<>();
+        for (YearMonth month = start; !month.isAfter(end); month = month.plusMonths(1)) {
+            ranges.add(new Range(month.atDay(1), month.atEndOfMonth()));
+        }
+        return getSummaries(ranges);
+    }
+
+    /**
+     * Forgets every cached week, e.g. after changes were discarded.
+     */
+    public synchronized void invalidate() {
+        weeks.clear();
+    }
+
+    /**
+     * @return the number of weeks cached and how often a week was read from memory
+     */
+    public synchronized CacheMetrics getMetrics() {
+        return new CacheMetrics(weeks.size(), capacity, hits, misses, evictions);
+    }
+
+    @Override
+    public void rowChanged(Tables table, Object key, ChangeJournal.Kind kind) {
+        // The junction tables are keyed by the food's name and the meal or snack's id
+        Object id = key instanceof CompoundKey<?, ?> compound ? compound.keyTwo() : key;
+        switch (table) {
+            case MEAL, FOOD_MEAL -> {
+                if (id instanceof Integer mealId) changedMeals.add(mealId);
+                else everythingChanged.set(true);
+            }
+            case SNACK, FOOD_SNACK -> {
+                if (id instanceof Integer snackId) changedSnacks.add(snackId);
+                else everythingChanged.set(true);
+            }
+            // A new food is in no meal yet
+            case FOOD -> { if (kind != ChangeJournal.Kind.ADDED) everythingChanged.set(true); }
+            case FOOD_TYPE_JUNCTION_FOOD -> everythingChanged.set(true);
+            default -> {}
+        }
+    }
+
+    @Override
+    public void everythingChanged() {
+        everythingChanged.set(true);
+    }
+
+    private synchronized List<NutritionSummary> getSummaries(List<Range> ranges) {
+        if (ranges.isEmpty()) return List.of();
+        try (Connection conn = DatabaseManager.connect()) {
+            boolean settled = evictChanged(conn);
+            Map<LocalDate, Week> loaded = load(conn, monday(ranges.getFirst().start()), monday(ranges.getLast().end()), settled);
+            List<NutritionSummary> summaries = new ArrayList<>();
+            for (Range range : ranges) {
+                summaries.add(summarise(range.start(), range.end(), loaded));
+            }
+            return summaries;
+        } catch (SQLException e) {
+            logger.logError(e);
+            return null;
+        }
+    }
+
+    /**
+     * Evicts the weeks holding the meals and snacks written since the last read.
+     * @return false if a thread holds the writer, the changes are then kept for a later read and the cache must not
+     * be used, as a cached week may be missing a write which is not committed yet
+     */
+    private boolean evictChanged(Connection conn) throws SQLException {
+        boolean everything = everythingChanged.getAndSet(false);
+        Set<Integer> meals = drain(changedMeals);
+        Set<Integer> snacks = drain(changedSnacks);
+        // Drained before checking, so once the writer is free every write drained has been committed or rolled back
+        if (DatabaseManager.isWriterLeased()) {
+            keep(everything, meals, snacks);
+            return false;
+        }
+        if (everything) {
+            evictions += weeks.size();
+            weeks.clear();
+        }
+        if (meals.isEmpty() && snacks.isEmpty()) return true;
+        Set<LocalDate> stale = new HashSet<>();
+        // The weeks the meals and snacks were in, and the weeks they are in now
+        weeks.forEach((monday, week) -> {
+            if (!Collections.disjoint(week.mealIds(), meals) || !Collections.disjoint(week.snackIds(), snacks)) {
+                stale.add(monday);
+            }
+        });
+        try {
+            stale.addAll(mondays(conn, "MEAL", meals));
+            stale.addAll(mondays(conn, "SNACK", snacks));
+        } catch (SQLException e) {
+            keep(false, meals, snacks);
+            throw e;
+        }
+        for (LocalDate monday : stale) {
+            if (weeks.remove(monday) != null) evictions++;
+        }
+        return true;
+    }
+
+    // Puts back changes drained but not yet evicted
+    private void keep(boolean everything, Set<Integer> meals, Set<Integer> snacks) {
+        if (everything) everythingChanged.set(true);
+        changedMeals.addAll(meals);
+        changedSnacks.addAll(snacks);
+    }
+
+    private static Set<Integer> drain(Set<Integer> changed) {
+        Set<Integer> drained = new HashSet<>();
+        for (Iterator<Integer> it = changed.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+    private static Set<LocalDate> mondays(Connection conn, String table, Set<Integer> ids) throws SQLException {
+        Set<LocalDate> mondays = new HashSet<>();
+        if (ids.isEmpty()) return mondays;
+        String placeholders = ids.stream().map(id -> "?").collect(Collectors.joining(", "));
+        try (PreparedStatement ps = conn.prepareStatement("SELECT DISTINCT date FROM " + table + " WHERE id IN (" + placeholders + ")")) {
+            int i = 1;
+            for (int id : ids) ps.setInt(i++, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) mondays.add(monday(rs.getDate("date").toLocalDate()));
+            }
+        }
+        return mondays;
+    }
+
+    /**
+     * Returns the weeks from the one starting on {@code first} to the one starting on {@code last}, reading those not
+     * cached in one pass over the days from the first to the last of them. Without the cache every week is read and
+     * none is kept.
+     */
+    private Map<LocalDate, Week> load(Connection conn, LocalDate first, LocalDate last, boolean useCache) throws SQLException {
+        if (!useCache) return read(conn, first, last.plusDays(6));
+        Map<LocalDate, Week> loaded = new TreeMap<>();
+        LocalDate missingFrom = null;
+        LocalDate missingTo = null;
+        for (LocalDate monday = first; !monday.isAfter(last); monday = monday.plusWeeks(1)) {
+            Week week = weeks.get(monday);
+            if (week != null) {
+                hits++;
+                loaded.put(monday, week);
+            } else {
+                misses++;
+                if (missingFrom == null) missingFrom = monday;
+                missingTo = monday;
+            }
+        }
+        if (missingFrom == null) return loaded;
+        Map<LocalDate, Week> read = read(conn, missingFrom, missingTo.plusDays(6));
+        LocalDate today = LocalDate.now(clock);
+        for (Map.Entry<LocalDate, Week> entry : read.entrySet()) {
+            loaded.putIfAbsent(entry.getKey(), entry.getValue());
+            // The current week and those to come are still being written to
+            if (entry.getKey().plusDays(6).isBefore(today)) cache(entry.getKey(), entry.getValue());
+        }
+        return loaded;
+    }
+
+    private void cache(LocalDate monday, Week week) {
+        weeks.put(monday, week);
+        if (weeks.size() > capacity) {
+            Iterator<LocalDate> eldest = weeks.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static Map<LocalDate, Week> read(Connection conn, LocalDate start, LocalDate end) throws SQLException {
+        Map<LocalDate, Week> read = new TreeMap<>();
+        for (LocalDate monday = start; !monday.isAfter(end); monday = monday.plusWeeks(1)) {
+            Map<LocalDate, Day> days = new TreeMap<>();
+            for (int i = 0; i < 7; i++) days.put(monday.plusDays(i), new Day());
+            read.put(monday, new Week(days, new HashSet<>(), new HashSet<>()));
+        }
+        try (PreparedStatement ps = prepare(conn, TOTALS_QUERY, start, end, 1); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) day(read, rs).total = amount(rs);
+        }
+        try (PreparedStatement ps = prepare(conn, TYPES_QUERY, start, end, 1); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) day(read, rs).types.put(rs.getString("type"), amount(rs));
+        }
+        try (PreparedStatement ps = prepare(conn, MEALS_QUERY, start, end, 2); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Day day = day(read, rs);
+                String type = rs.getString("type");
+                if (type == null) day.snacks = amount(rs);
+                else day.meals.put(MealTypes.valueOf(type), amount(rs));
+            }
+        }
+        try (PreparedStatement ps = prepare(conn, IDS_QUERY, start, end, 2); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Week week = read.get(monday(rs.getDate("date").toLocalDate()));
+                (rs.getBoolean("meal") ? week.mealIds() : week.snackIds()).add(rs.getInt("id"));
+            }
+        }
+        return read;
+    }
+
+    /**
+     * @param ranges how many times the query takes the range, once for each table it reads
+     */
+    private static PreparedStatement prepare(Connection conn, String query, LocalDate start, LocalDate end, int ranges) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(query);
+        for (int i = 0; i < ranges; i++) {
+            ps.setDate(2 * i + 1, Date.valueOf(start));
+            ps.setDate(2 * i + 2, Date.valueOf(end));
+        }
+        return ps;
+    }
+
+    private static Day day(Map<LocalDate, Week> read, ResultSet rs) throws SQLException {
+        LocalDate date = rs.getDate("date").toLocalDate();
+        return read.get(monday(date)).days().get(date);
+    }
+
+    private static Amount amount(ResultSet rs) throws SQLException {
+        return new Amount(rs.getDouble("calories"), rs.getDouble("grams"));
+    }
+
+    private static NutritionSummary summarise(LocalDate start, LocalDate end, Map<LocalDate, Week> loaded) {
+        int daysLogged = 0;
+        Amount total = Amount.ZERO;
+        Amount snacks = Amount.ZERO;
+        Map<MealTypes, Amount> meals = new EnumMap<>(MealTypes.class);
+        Map<String, Amount> types = new TreeMap<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            Day day = loaded.get(monday(date)).days().get(date);
+            // Totals are running sums, a day emptied again may be left a rounding error away from zero
+            if (Math.abs(day.total.calories()) > 1e-9 || Math.abs(day.total.grams()) > 1e-9) daysLogged++;
+            total = total.plus(day.total);
+            snacks = snacks.plus(day.snacks);
+            day.meals.forEach((type, amount) -> meals.merge(type, amount, Amount::plus));
+            day.types.forEach((type, amount) -> types.merge(type, amount, Amount::plus));
+        }
+        return new NutritionSummary(start, end, daysLogged, total, Collections.unmodifiableMap(meals), snacks,
+                Collections.unmodifiableMap(types));
+    }
+
+    private static LocalDate monday(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+}
@@ -0,0 +1,50 @@
+package org.alexander.database.analytics;
+
+import org.alexander.database.tables.daytotals.DayTotals.Amount;
+import org.alexander.database.tables.meal.MealTypes;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * What was eaten over a range of days, in total and split by meal and by food type.
+ * A food of several types counts towards each of them, so the types need not add up to the total.
+ * @param start the first day of the range
+ * @param end the last day of the range
+ * @param daysLogged the days in the range on which anything with a serving size was eaten
+ * @param total the amount eaten over the range
+ * @param meals the amount eaten in each type of meal, meal types nothing was eaten in are left out
+ * @param snacks the amount eaten in snacks
+ * @param types the amount eaten of each food type by type name, types nothing was eaten of are left out
+ * @since 1.1.0
+ */
+public record NutritionSummary(
+        LocalDate start,
+        LocalDate end,
+        int daysLogged,
+        Amount total,
+        Map<MealTypes, Amount> meals,
+        Amount snacks,
+        Map<String, Amount> types
+) {
+    /**
+     * @return the average amount eaten on a logged day, days without anything logged are not counted
+     */
+    public Amount dailyAverage() {
+        return total.dividedBy(daysLogged);
+    }
+
+    /**
+     * @return the amount eaten in the type of meal, zero if nothing was
+     */
+    public Amount meal(MealTypes type) {
+        return meals.getOrDefault(type, Amount.ZERO);
+    }
+
+    /**
+     * @return the amount eaten of the food type, zero if nothing was
+     */
+    public Amount type(String type) {
+        return types.getOrDefault(type, Amount.ZERO);
+    }
+}
@@ -9,5 +9,24 @@ public enum Tables {
     FOOD_TYPE,
     FOOD_TYPE_JUNCTION_FOOD,
     FOOD_MEAL,
-    FOOD_SNACK
+    FOOD_SNACK,
+    DAY_TOTALS(true),
+    DAY_TYPE_TOTALS(true);
+
+    private final boolean derived;
+
+    Tables() {
+        this(false);
+    }
+
+    Tables(boolean derived) {
+        this.derived = derived;
+    }
+
+    /**
+     * @return true if the table is only written by triggers keeping it in step with the other tables
+     */
+    public boolean isDerived() {
+        return derived;
+    }
 }
@@ -1,9 +1,12 @@
 package org.alexander.database.tables.day.dao;
 
+import org.alexander.database.ChangeJournal;
 import org.alexander.database.DatabaseComparer;
 import org.alexander.database.DatabaseManager;
+import org.alexander.database.InsertResult;
 import org.alexander.database.QueryHelper;
 import org.alexander.database.tables.TableDao;
+import org.alexander.database.tables.Tables;
 import org.alexander.database.tables.day.Day;
 import org.alexander.database.tables.week.dao.WeekDao;
 import org.alexander.logging.CentralLogger;
@@ -24,10 +27,15 @@ public class DayDao implements DayDaoInterface, TableDao, DatabaseComparer.ReadO
     public DayDao(Connection conn) { this.conn = conn; }
 
     private Connection getConnection() throws SQLException {
-        if (conn != null && !conn.isClosed()) return conn;
+        if (conn != null) return DatabaseManager.borrow(conn);
         return DatabaseManager.connect();
     }
 
+    private Connection getWriteConnection() throws SQLException {
+        if (conn != null) return DatabaseManager.borrow(conn);
+        return DatabaseManager.connectForWrite();
+    }
+
     @Override
     public boolean contains(String entity, String attribute) {
         validateAttribute(attribute);
@@ -43,19 +51,32 @@ public class DayDao implements DayDaoInterface, TableDao, DatabaseComparer.ReadO
 
     @Override
     public Day addDay(LocalDate date, int week_id, Double bodyWeight) {
-        if (contains(date.toString(), "date")) return null;
-        if (!new WeekDao().contains(String.valueOf(week_id), "week_id")) return null;
+        return insertDay(date, week_id, bodyWeight).entity();
+    }
 
-        String query = "INSERT INTO DAY (date, week_id, body_weight) VALUES (?, ?, ?)";
-        try (Connection c = getConnection(); PreparedStatement ps = c.prepareStatement(query)) {
+    /**
+     * Inserts a day in a single statement, relying on the primary key to reject duplicates
+     * and the foreign key to reject a week which does not exist.
+     * @return the inserted day, or why it was not inserted
+     */
+    @Override
+    public InsertResult<Day> insertDay(LocalDate date, int week_id, Double bodyWeight) {
+        String query = "INSERT INTO DAY (date, week_id, body_weight) VALUES (?, ?, ?) ON CONFLICT DO NOTHING RETURNING date";
+        try (Connection c = getWriteConnection(); PreparedStatement ps = c.prepareStatement(query)) {
             ps.setDate(1, java.sql.Date.valueOf(date));
             ps.setInt(2, week_id);
             QueryHelper.checkNull(ps, 3, bodyWeight);
-            if (ps.executeUpdate() > 0) return new Day(date, week_id, bodyWeight);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Day day = new Day(date, week_id, bodyWeight);
+                    ChangeJournal.record(conn, journal -> journal.inserted(Tables.DAY, day));
+                    return InsertResult.inserted(day);
+                }
+            }
+            return InsertResult.duplicate();
         } catch (SQLException e) {
-            logger.logError(e);
+            return InsertResult.fromException(e);
         }
-        return null;
     }
 
     @Override
@@ -73,7 +94,11 @@ public class DayDao implements DayDaoInterface, TableDao, DatabaseComparer.ReadO
     @Override
     public Day addDay(Day day) { return addDay(day.getDate(), day.getWeek_id(), day.getBodyWeight()); }
     @Override
-    public boolean deleteDay(LocalDate date) { return QueryHelper.deleteEntity(date, "date", "DAY"); }
+    public boolean deleteDay(LocalDate date) {
+        boolean deleted = QueryHelper.deleteEntity(date, "date", "DAY");
+        if (deleted) ChangeJournal.record(conn, journal -> journal.deleted(Tables.DAY, date, date.toString()));
+        return deleted;
+    }
     @Override
     public boolean deleteDay(Day day) { return deleteDay(day.getDate()); }
 
@@ -120,7 +145,6 @@ public class DayDao implements DayDaoInterface, TableDao, DatabaseComparer.ReadO
 
     @Override
     public Day getDay(LocalDate date) {
-        if (!contains(date.toString(), "date")) return null;
         String query = "SELECT date, week_id, body_weight FROM DAY WHERE date = ? LIMIT 1";
         try (Connection c = getConnection(); PreparedStatement ps = c.prepareStatement(query)) {
             ps.setDate(1, java.sql.Date.valueOf(date));
@@ -139,14 +163,17 @@ public class DayDao implements DayDaoInterface, TableDao, DatabaseComparer.ReadO
 
     @Override
     public Day updateDay(LocalDate date, int week_id, Double bodyWeight) {
-        if (!contains(date.toString(), "date")) return null;
-        if (!new WeekDao().contains(String.valueOf(week_id), "week_id")) return null;
+        // a missing week is rejected by the foreign key
         String query = "UPDATE DAY SET week_id = ?, body_weight = ? WHERE date = ?";
-        try (Connection c = getConnection(); PreparedStatement ps = c.prepareStatement(query)) {
+        try (Connection c = getWriteConnection(); PreparedStatement ps = c.prepareStatement(query)) {
             ps.setInt(1, week_id);
             QueryHelper.checkNull(ps, 2, bodyWeight);
             ps.setDate(3, java.sql.Date.valueOf(date));
-            if (ps.executeUpdate() > 0) return new Day(date, week_id, bodyWeight);
+            if (ps.executeUpdate() > 0) {
+                Day day = new Day(date, week_id, bodyWeight);
+                ChangeJournal.record(conn, journal -> journal.updated(Tables.DAY, day));
+                return day;
+            }
         } catch (SQLException e) {
             logger.logError(e);
         }
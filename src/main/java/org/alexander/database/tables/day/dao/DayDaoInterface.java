@@ -1,5 +1,6 @@
 package org.alexander.database.tables.day.dao;
 
+import org.alexander.database.InsertResult;
 import org.alexander.database.tables.day.Day;
 import org.alexander.database.tables.week.Week;
 
@@ -11,7 +12,8 @@ public interface DayDaoInterface {
     Day addDay(LocalDate date, int week_id); // bodyWeight is null
     Day addDay(LocalDate date); // week_id and bodyWeight are null
     Day addDay(Day day);
-    boolean deleteDay(LocalDate date);
+    InsertResult<Day> insertDay(LocalDate date, int week_id, Double bodyWeight);
+    boolean deleteDay(LocalDate date); // false while a meal or snack is still on the day
     boolean deleteDay(Day day);
     List<Day> getDayList();
     List<Day> getDaysInWeek(int week_id);
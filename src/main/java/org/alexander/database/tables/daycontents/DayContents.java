@@ -0,0 +1,90 @@
+package org.alexander.database.tables.daycontents;
+
+import org.alexander.database.Entity;
+import org.alexander.database.tables.food.Food;
+import org.alexander.database.tables.meal.Meal;
+import org.alexander.database.tables.snack.Snack;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A read model of everything eaten on a single day: its meals and snacks, ordered by time,
+ * each with the foods it contains and their number of servings.
+ * @since 1.1.0
+ */
+public class DayContents {
+    private static final Comparator<Entry> BY_TIME = Comparator.comparing(Entry::getTime, Comparator.nullsLast(Comparator.naturalOrder()));
+    private final LocalDate date;
+    private final List<Entry> entries = new ArrayList<>();
+
+    public DayContents(LocalDate date) {
+        this.date = date;
+    }
+
+    /**
+     * A food within a meal or snack.
+     * @param food the food
+     * @param numServings the number of servings of the food
+     */
+    public record Portion(Food food, double numServings) {}
+
+    /**
+     * A meal or snack together with its portions, in the order they were added.
+     * @param mealOrSnack either a {@link Meal} or a {@link Snack}
+     * @param portions the foods in the meal or snack
+     */
+    public record Entry(Entity<Integer> mealOrSnack, List<Portion> portions) {
+        public LocalTime getTime() {
+            if (mealOrSnack instanceof Meal meal) return meal.getTime();
+            if (mealOrSnack instanceof Snack snack) return snack.getTime();
+            return null;
+        }
+
+        /**
+         * @param foodName the name of the food
+         * @return the portion of the named food, or null if the entry does not contain it
+         */
+        public Portion getPortion(String foodName) {
+            for (Portion portion : portions) {
+                if (portion.food().getName().equals(foodName)) return portion;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Adds a meal or snack with no portions. Entries are kept sorted by time, entries without a time last.
+     * @param mealOrSnack the meal or snack
+     * @return the new entry, portions can be added to it
+     */
+    public Entry add(Entity<Integer> mealOrSnack) {
+        Entry entry = new Entry(mealOrSnack, new ArrayList<>());
+        // insert after every entry at or before this time, so entries sharing a time keep their insertion order
+        int index = entries.size();
+        while (index > 0 && BY_TIME.compare(entries.get(index - 1), entry) > 0) {
+            index--;
+        }
+        entries.add(index, entry);
+        return entry;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * @return the meals and snacks of the day ordered by time
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+}
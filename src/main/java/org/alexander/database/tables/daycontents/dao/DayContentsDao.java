@@ -0,0 +1,146 @@
+package org.alexander.database.tables.daycontents.dao;
+
+import org.alexander.database.DatabaseManager;
+import org.alexander.database.tables.day.Day;
+import org.alexander.database.tables.daycontents.DayContents;
+import org.alexander.database.tables.food.Food;
+import org.alexander.database.tables.meal.Meal;
+import org.alexander.database.tables.meal.MealTypes;
+import org.alexander.database.tables.snack.Snack;
+import org.alexander.database.tables.week.Week;
+import org.alexander.logging.CentralLogger;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Loads the meals and snacks of a day, or a range of days, together with their foods, using one joined
+ * query for meals and one for snacks instead of a query per junction row.
+ * @since 1.1.0
+ */
+public class DayContentsDao implements DayContentsDaoInterface {
+    private final CentralLogger logger = CentralLogger.getInstance();
+    private final Connection conn;
+
+    public DayContentsDao() { this.conn = null; }
+    public DayContentsDao(Connection conn) { this.conn = conn; }
+
+    private Connection getConnection() throws SQLException {
+        if (conn != null) return DatabaseManager.borrow(conn);
+        return DatabaseManager.connect();
+    }
+
+    // LEFT JOINs keep meals and snacks which have no foods yet, rowid keeps foods in the order they were added
+    // language=sql
+    private static final String MEAL_QUERY = """
+            SELECT m.id, m.date, m.time, m.type, f.name, f.serving_size_grams, f.serving_size_calories, fm.num_servings
+            FROM MEAL m
+            LEFT JOIN FOOD_MEAL fm ON fm.meal_id = m.id
+            LEFT JOIN FOOD f ON f.name = fm.name
+            WHERE m.date BETWEEN ? AND ?
+            ORDER BY m.date, m.id, fm.rowid
+            """;
+    // language=sql
+    private static final String SNACK_QUERY = """
+            SELECT s.id, s.date, s.time, f.name, f.serving_size_grams, f.serving_size_calories, fs.num_servings
+            FROM SNACK s
+            LEFT JOIN FOOD_SNACK fs ON fs.snack_id = s.id
+            LEFT JOIN FOOD f ON f.name = fs.name
+            WHERE s.date BETWEEN ? AND ?
+            ORDER BY s.date, s.id, fs.rowid
+            """;
+
+    /**
+     * Loads the meals and snacks of the given date with their foods.
+     * @param date the date to load
+     * @return the contents of the day, empty if nothing was eaten, or null if the query failed
+     */
+    @Override
+    public DayContents getDayContents(LocalDate date) {
+        Map<LocalDate, DayContents> contents = getContentsBetween(date, date);
+        return contents == null ? null : contents.get(date);
+    }
+
+    @Override
+    public DayContents getDayContents(Day day) {
+        return getDayContents(day.getDate());
+    }
+
+    /**
+     * Loads the meals and snacks of every date in the given range, using the same two queries as a single day.
+     * @param start the first date, inclusive
+     * @param end the last date, inclusive
+     * @return the contents of each date in the range in date order, dates with nothing eaten map to empty contents.
+     * Returns null if the query failed.
+     */
+    @Override
+    public Map<LocalDate, DayContents> getContentsBetween(LocalDate start, LocalDate end) {
+        Map<LocalDate, DayContents> contents = new TreeMap<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            contents.put(date, new DayContents(date));
+        }
+        try (Connection c = getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement(MEAL_QUERY)) {
+                ps.setDate(1, Date.valueOf(start));
+                ps.setDate(2, Date.valueOf(end));
+                try (ResultSet rs = ps.executeQuery()) {
+                    DayContents.Entry entry = null;
+                    while (rs.next()) {
+                        int id = rs.getInt("id");
+                        if (entry == null || !entry.mealOrSnack().getKey().equals(id)) {
+                            LocalDate date = rs.getDate("date").toLocalDate();
+                            Meal meal = new Meal(id, date, MealTypes.valueOf(rs.getString("type")), getTime(rs));
+                            entry = contents.get(date).add(meal);
+                        }
+                        addPortion(entry, rs);
+                    }
+                }
+            }
+            try (PreparedStatement ps = c.prepareStatement(SNACK_QUERY)) {
+                ps.setDate(1, Date.valueOf(start));
+                ps.setDate(2, Date.valueOf(end));
+                try (ResultSet rs = ps.executeQuery()) {
+                    DayContents.Entry entry = null;
+                    while (rs.next()) {
+                        int id = rs.getInt("id");
+                        if (entry == null || !entry.mealOrSnack().getKey().equals(id)) {
+                            LocalDate date = rs.getDate("date").toLocalDate();
+                            entry = contents.get(date).add(new Snack(id, date, getTime(rs)));
+                        }
+                        addPortion(entry, rs);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.logError(e);
+            return null;
+        }
+        return contents;
+    }
+
+    @Override
+    public Map<LocalDate, DayContents> getWeekContents(Week week) {
+        return getContentsBetween(week.getStartDate(), week.getEndDate());
+    }
+
+    private static LocalTime getTime(ResultSet rs) throws SQLException {
+        Time time = rs.getTime("time");
+        return time == null ? null : time.toLocalTime();
+    }
+
+    // A null food name means the meal or snack has no foods, or the junction row references a missing food
+    private static void addPortion(DayContents.Entry entry, ResultSet rs) throws SQLException {
+        String name = rs.getString("name");
+        if (name == null) return;
+        double sg = rs.getDouble("serving_size_grams");
+        Double servingGrams = rs.wasNull() ? null : sg;
+        double sc = rs.getDouble("serving_size_calories");
+        Double servingCalories = rs.wasNull() ? null : sc;
+        double servings = rs.getDouble("num_servings");
+        if (rs.wasNull()) servings = 1.0;
+        entry.portions().add(new DayContents.Portion(new Food(name, servingGrams, servingCalories), servings));
+    }
+}
@@ -0,0 +1,15 @@
+package org.alexander.database.tables.daycontents.dao;
+
+import org.alexander.database.tables.day.Day;
+import org.alexander.database.tables.daycontents.DayContents;
+import org.alexander.database.tables.week.Week;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public interface DayContentsDaoInterface {
+    DayContents getDayContents(LocalDate date);
+    DayContents getDayContents(Day day);
+    Map<LocalDate, DayContents> getContentsBetween(LocalDate start, LocalDate end);
+    Map<LocalDate, DayContents> getWeekContents(Week week);
+}
@@ -0,0 +1,80 @@
+package org.alexander.database.tables.daytotals;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The calories and grams eaten on a single day, in total and for each food type.
+ * A food of several types counts towards each of them, so the types need not add up to the total.
+ * @since 1.1.0
+ */
+public class DayTotals {
+    private final LocalDate date;
+    private final double calories;
+    private final double grams;
+    private final Map<String, Amount> types;
+
+    /**
+     * An amount eaten.
+     * @param calories the calories eaten
+     * @param grams the grams eaten
+     */
+    public record Amount(double calories, double grams) {
+        public static final Amount ZERO = new Amount(0, 0);
+
+        public Amount plus(Amount other) {
+            return new Amount(calories + other.calories, grams + other.grams);
+        }
+
+        /**
+         * @return the amount shared evenly between {@code parts}, zero if there are none
+         */
+        public Amount dividedBy(int parts) {
+            return parts == 0 ? ZERO : new Amount(calories / parts, grams / parts);
+        }
+    }
+
+    public DayTotals(LocalDate date, double calories, double grams, Map<String, Amount> types) {
+        this.date = date;
+        this.calories = calories;
+        this.grams = grams;
+        this.types = Collections.unmodifiableMap(new TreeMap<>(types));
+    }
+
+    /**
+     * @param date the day
+     * @return the totals of a day on which nothing was eaten
+     */
+    public static DayTotals empty(LocalDate date) {
+        return new DayTotals(date, 0, 0, Map.of());
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public double getCalories() {
+        return calories;
+    }
+
+    public double getGrams() {
+        return grams;
+    }
+
+    /**
+     * @return the amount eaten of each food type by type name, types of which nothing was eaten are left out
+     */
+    public Map<String, Amount> getTypes() {
+        return types;
+    }
+
+    /**
+     * @param type the name of the food type
+     * @return the amount eaten of the food type, zero if nothing of it was eaten
+     */
+    public Amount getType(String type) {
+        return types.getOrDefault(type, Amount.ZERO);
+    }
+}
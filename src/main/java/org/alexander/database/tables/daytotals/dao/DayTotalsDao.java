@@ -0,0 +1,108 @@
+package org.alexander.database.tables.daytotals.dao;
+
+import org.alexander.database.DatabaseManager;
+import org.alexander.database.DayTotalsTriggers;
+import org.alexander.database.tables.day.Day;
+import org.alexander.database.tables.daytotals.DayTotals;
+import org.alexander.database.tables.week.Week;
+import org.alexander.logging.CentralLogger;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads the daily totals kept by {@link DayTotalsTriggers}, a day's totals being one row of {@code DAY_TOTALS}
+ * and one row of {@code DAY_TYPE_TOTALS} per food type eaten, whatever was eaten that day.
+ * @since 1.1.0
+ */
+public class DayTotalsDao implements DayTotalsDaoInterface {
+    private final CentralLogger logger = CentralLogger.getInstance();
+    private final Connection conn;
+
+    public DayTotalsDao() { this.conn = null; }
+    public DayTotalsDao(Connection conn) { this.conn = conn; }
+
+    private Connection getConnection() throws SQLException {
+        if (conn != null) return DatabaseManager.borrow(conn);
+        return DatabaseManager.connect();
+    }
+
+    /**
+     * @param date the day
+     * @return the totals of the day, zero if nothing was eaten, or null if the query failed
+     */
+    @Override
+    public DayTotals getDayTotals(LocalDate date) {
+        Map<LocalDate, DayTotals> totals = getTotalsBetween(date, date);
+        return totals == null ? null : totals.get(date);
+    }
+
+    @Override
+    public DayTotals getDayTotals(Day day) {
+        return getDayTotals(day.getDate());
+    }
+
+    /**
+     * Reads the totals of every date in the given range.
+     * @param start the first date, inclusive
+     * @param end the last date, inclusive
+     * @return the totals of each date in the range in date order, dates with nothing eaten map to zero totals.
+     * Returns null if the query failed.
+     */
+    @Override
+    public Map<LocalDate, DayTotals> getTotalsBetween(LocalDate start, LocalDate end) {
+        Map<LocalDate, double[]> days = new HashMap<>();
+        Map<LocalDate, Map<String, DayTotals.Amount>> types = new HashMap<>();
+        try (Connection c = getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement("SELECT date, calories, grams FROM DAY_TOTALS WHERE date BETWEEN ? AND ?")) {
+                ps.setDate(1, Date.valueOf(start));
+                ps.setDate(2, Date.valueOf(end));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        days.put(rs.getDate("date").toLocalDate(), new double[]{rs.getDouble("calories"), rs.getDouble("grams")});
+                    }
+                }
+            }
+            try (PreparedStatement ps = c.prepareStatement("SELECT date, type, calories, grams FROM DAY_TYPE_TOTALS WHERE date BETWEEN ? AND ?")) {
+                ps.setDate(1, Date.valueOf(start));
+                ps.setDate(2, Date.valueOf(end));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        types.computeIfAbsent(rs.getDate("date").toLocalDate(), date -> new HashMap<>())
+                                .put(rs.getString("type"), new DayTotals.Amount(rs.getDouble("calories"), rs.getDouble("grams")));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.logError(e);
+            return null;
+        }
+        Map<LocalDate, DayTotals> totals = new TreeMap<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            double[] day = days.get(date);
+            totals.put(date, day == null ? DayTotals.empty(date)
+                    : new DayTotals(date, day[0], day[1], types.getOrDefault(date, Map.of())));
+        }
+        return totals;
+    }
+
+    @Override
+    public Map<LocalDate, DayTotals> getWeekTotals(Week week) {
+        return getTotalsBetween(week.getStartDate(), week.getEndDate());
+    }
+
+    /**
+     * Recomputes every total from the meals and snacks eaten, in a single transaction.
+     * @return true if the totals were recomputed
+     */
+    @Override
+    public boolean rebuild() {
+        return Boolean.TRUE.equals(DatabaseManager.inTransaction(tx -> {
+            DayTotalsTriggers.rebuild(tx.getConnection());
+            return true;
+        }));
+    }
+}
@@ -0,0 +1,16 @@
+package org.alexander.database.tables.daytotals.dao;
+
+import org.alexander.database.tables.day.Day;
+import org.alexander.database.tables.daytotals.DayTotals;
+import org.alexander.database.tables.week.Week;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public interface DayTotalsDaoInterface {
+    DayTotals getDayTotals(LocalDate date);
+    DayTotals getDayTotals(Day day);
+    Map<LocalDate, DayTotals> getTotalsBetween(LocalDate start, LocalDate end);
+    Map<LocalDate, DayTotals> getWeekTotals(Week week);
+    boolean rebuild();
+}
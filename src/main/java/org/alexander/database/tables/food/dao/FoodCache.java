@@ -0,0 +1,220 @@
+package org.alexander.database.tables.food.dao;
+
+import org.alexander.database.CacheMetrics;
+import org.alexander.database.tables.food.Food;
+import org.alexander.database.tables.foodtype.FoodType;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FoodCache keeps the food catalogue, and each food's types, in memory.
+ * <p>
+ * The {@link FoodDao} fills it with the whole FOOD table the first time the list of foods is read, and writes
+ * through it on every add, update and delete, so lookups by name rarely reach the database. The cache is bounded,
+ * once the catalogue outgrows it the least recently used foods are evicted and lookups of those go back to the
+ * database. Cached {@link Food} and {@link FoodType} instances are shared between callers and must not be mutated.
+ * </p>
+ * <p>
+ * Reads fill the cache with what they loaded only if nothing was written in the meantime, so a slow read cannot
+ * overwrite a newer write. Anything that changes the FOOD or FOOD_TYPE_JUNCTION_FOOD tables without going through
+ * the DAOs, such as replacing the database file, must call {@link #invalidate()}.
+ * </p>
+ * @since 1.1.0
+ */
+public final class FoodCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final FoodCache instance = new FoodCache(DEFAULT_CAPACITY);
+    private final int capacity;
+    private final LinkedHashMap<String, Entry> foods = new LinkedHashMap<>(64, 0.75f, true);
+    private boolean complete = false; // every food in the table is cached
+    private long version = 0; // incremented by every write, reads only fill the cache if it is unchanged
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * @param capacity the maximum number of foods kept in memory
+     */
+    public FoodCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1, was " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the cache shared by the DAOs of the working database
+     */
+    public static FoodCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return the current version, to be passed back when filling the cache with what was read from the database
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param name the name of the food
+     * @return the cached food, or null if it is not cached
+     */
+    public synchronized Food get(String name) {
+        Entry entry = foods.get(name);
+        if (entry != null || complete) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return entry == null ? null : entry.food;
+    }
+
+    /**
+     * @return true if every food in the table is cached, so a food missing from the cache does not exist
+     */
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return a new list of every food, or null if the cache does not hold the whole table
+     */
+    public synchronized List<Food> getAll() {
+        if (!complete) {
+            misses++;
+            return null;
+        }
+        hits++;
+        List<Food> all = new ArrayList<>(foods.size());
+        foods.values().forEach(entry -> all.add(entry.food));
+        return all;
+    }
+
+    /**
+     * @param name the name of the food
+     * @return a new list of the food's types, or null if they are not cached
+     */
+    public synchronized List<FoodType> getTypes(String name) {
+        Entry entry = foods.get(name);
+        if (entry == null || entry.types == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new ArrayList<>(entry.types);
+    }
+
+    /**
+     * Replaces the cache with the whole table, read from the database.
+     * @param all every food in the table
+     * @param types every food's types, foods without an entry have none
+     * @param readVersion the version from before the table was read
+     */
+    public synchronized void fill(List<Food> all, Map<String, List<FoodType>> types, long readVersion) {
+        if (readVersion != version) return;
+        foods.clear();
+        for (Food food : all) {
+            foods.put(food.getName(), new Entry(food, List.copyOf(types.getOrDefault(food.getName(), List.of()))));
+        }
+        complete = foods.size() <= capacity;
+        evict();
+    }
+
+    /**
+     * Caches a single food read from the database.
+     * @param food the food read
+     * @param readVersion the version from before the food was read
+     */
+    public synchronized void fill(Food food, long readVersion) {
+        if (readVersion != version || foods.containsKey(food.getName())) return;
+        foods.put(food.getName(), new Entry(food, null));
+        evict();
+    }
+
+    /**
+     * Caches a food's types read from the database.
+     * @param name the name of the food
+     * @param types the food's types
+     * @param readVersion the version from before the types were read
+     */
+    public synchronized void fillTypes(String name, List<FoodType> types, long readVersion) {
+        Entry entry = foods.get(name);
+        if (readVersion != version || entry == null) return;
+        entry.types = List.copyOf(types);
+    }
+
+    /**
+     * Writes an added or updated food through to the cache, keeping its cached types.
+     * @param food the food as it now is in the database
+     */
+    public synchronized void put(Food food) {
+        version++;
+        Entry previous = foods.get(food.getName());
+        // A newly added food has no types yet
+        List<FoodType> types = previous != null ? previous.types : complete ? List.of() : null;
+        foods.put(food.getName(), new Entry(food, types));
+        evict();
+    }
+
+    /**
+     * Removes a deleted food from the cache.
+     * @param name the name of the food
+     */
+    public synchronized void remove(String name) {
+        version++;
+        foods.remove(name);
+    }
+
+    /**
+     * Forgets a food's types after they were changed, they are reloaded on the next lookup.
+     * @param name the name of the food
+     */
+    public synchronized void invalidateTypes(String name) {
+        version++;
+        Entry entry = foods.get(name);
+        if (entry != null) {
+            entry.types = null;
+        }
+    }
+
+    /**
+     * Empties the cache, it is refilled from the database on the next reads.
+     */
+    public synchronized void invalidate() {
+        version++;
+        foods.clear();
+        complete = false;
+    }
+
+    /**
+     * @return a snapshot of the cache size and hit-rate metrics
+     */
+    public synchronized CacheMetrics getMetrics() {
+        return new CacheMetrics(foods.size(), capacity, hits, misses, evictions);
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = foods.values().iterator();
+        while (foods.size() > capacity && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions++;
+            complete = false;
+        }
+    }
+
+    private static final class Entry {
+        private final Food food;
+        private List<FoodType> types; // null until loaded
+
+        private Entry(Food food, List<FoodType> types) {
+            this.food = food;
+            this.types = types;
+        }
+    }
+}
@@ -1,41 +1,84 @@
 package org.alexander.database.tables.food.dao;
 
+import org.alexander.database.CacheMetrics;
+import org.alexander.database.ChangeJournal;
 import org.alexander.database.DatabaseComparer;
+import org.alexander.database.InsertResult;
 import org.alexander.database.QueryHelper;
+import org.alexander.database.Transaction;
 import org.alexander.database.tables.TableDao;
+import org.alexander.database.tables.Tables;
 import org.alexander.database.tables.food.Food;
+import org.alexander.database.tables.foodmeal.FoodMeal;
+import org.alexander.database.tables.foodsnack.FoodSnack;
+import org.alexander.database.tables.foodtype.FoodType;
+import org.alexander.database.tables.foodtypefood.FoodJunctionType;
 import org.alexander.logging.CentralLogger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FoodDao implements FoodDaoInterface, TableDao, DatabaseComparer.ReadOnlyDao<Food> {
     private final Connection conn;
+    private final FoodCache cache = FoodCache.getInstance();
 
     public FoodDao() { this.conn = null; }
     public FoodDao(Connection conn) { this.conn = conn; }
 
     private Connection getConnection() throws SQLException {
-        if (conn != null && !conn.isClosed()) return conn;
+        if (conn != null) return org.alexander.database.DatabaseManager.borrow(conn);
         return org.alexander.database.DatabaseManager.connect();
     }
 
+    private Connection getWriteConnection() throws SQLException {
+        if (conn != null) return org.alexander.database.DatabaseManager.borrow(conn);
+        return org.alexander.database.DatabaseManager.connectForWrite();
+    }
+
+    // The cache mirrors the working database, a DAO given another connection reads around it and only invalidates it
+    private boolean usesCache() {
+        return conn == null;
+    }
+
+    private void written(Food food) {
+        if (usesCache()) cache.put(food);
+        else cache.invalidate();
+    }
+
     @Override
     public Food addFood(String name, Double serving_grams, Double serving_calories) {
-        if (contains(name, "name")) return null;
-        String query = "INSERT INTO food (name, serving_size_grams, serving_size_calories) VALUES (?, ?, ?)";
-        try (Connection c = getConnection(); PreparedStatement ps = c.prepareStatement(query)) {
+        return insertFood(name, serving_grams, serving_calories).entity();
+    }
+
+    /**
+     * Inserts a food in a single statement, relying on the primary key to reject duplicates.
+     * @return the inserted food, or why it was not inserted
+     */
+    @Override
+    public InsertResult<Food> insertFood(String name, Double serving_grams, Double serving_calories) {
+        String query = "INSERT INTO FOOD (name, serving_size_grams, serving_size_calories) VALUES (?, ?, ?) ON CONFLICT DO NOTHING RETURNING name";
+        try (Connection c = getWriteConnection(); PreparedStatement ps = c.prepareStatement(query)) {
             ps.setString(1, name);
             QueryHelper.checkNull(ps, 2, serving_grams);
             QueryHelper.checkNull(ps, 3, serving_calories);
-            if (ps.executeUpdate() > 0) return new Food(name, serving_grams, serving_calories);
+            try (var rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Food food = new Food(name, serving_grams, serving_calories);
+                    written(food);
+                    ChangeJournal.record(conn, journal -> journal.inserted(Tables.FOOD, food));
+                    return InsertResult.inserted(food);
+                }
+            }
+            return InsertResult.duplicate();
         } catch (SQLException e) {
-            CentralLogger.getInstance().logError(e);
+            return InsertResult.fromException(e);
         }
-        return null;
     }
 
     @Override
@@ -45,8 +88,19 @@ public class FoodDao implements FoodDaoInterface, TableDao, DatabaseComparer.Rea
 
     @Override
     public boolean deleteFood(String name) {
-        if (!contains(name, "name")) return false;
-        return QueryHelper.deleteEntity(name, "name", "food");
+        boolean deleted;
+        try (Connection c = getWriteConnection()) {
+            deleted = QueryHelper.deleteEntity(c, name, "name", "FOOD");
+        } catch (SQLException e) {
+            CentralLogger.getInstance().logError(e);
+            return false;
+        }
+        if (deleted) {
+            if (usesCache()) cache.remove(name);
+            else cache.invalidate();
+            ChangeJournal.record(conn, journal -> journal.deleted(Tables.FOOD, name, name));
+        }
+        return deleted;
     }
 
     @Override
@@ -54,18 +108,60 @@ public class FoodDao implements FoodDaoInterface, TableDao, DatabaseComparer.Rea
         return deleteFood(food.getName());
     }
 
+    /**
+     * Deletes a food, removing it from every meal and snack and dropping its types first,
+     * with one statement per table, in a single transaction.
+     * Every statement runs on the DAO's write connection, a DAO given its own connection runs them in a savepoint of
+     * whatever transaction the connection's owner has open.
+     * @return true if the food was deleted, false if it does not exist or the transaction was rolled back
+     */
+    @Override
+    public boolean deleteFoodCascade(String name) {
+        try (Connection c = getWriteConnection()) {
+            return Boolean.TRUE.equals(Transaction.run(c, tx -> {
+                List<FoodMeal> meals = QueryHelper.deleteAll(c, "FOOD_MEAL", "name", name, "meal_id, num_servings",
+                        rs -> new FoodMeal(name, rs.getInt("meal_id"), rs.getDouble("num_servings")));
+                meals.forEach(foodMeal -> ChangeJournal.record(conn, journal -> journal.deleted(Tables.FOOD_MEAL, foodMeal)));
+                List<FoodSnack> snacks = QueryHelper.deleteAll(c, "FOOD_SNACK", "name", name, "snack_id, num_servings",
+                        rs -> new FoodSnack(name, rs.getInt("snack_id"), rs.getDouble("num_servings")));
+                snacks.forEach(foodSnack -> ChangeJournal.record(conn, journal -> journal.deleted(Tables.FOOD_SNACK, foodSnack)));
+                List<FoodJunctionType> types = QueryHelper.deleteAll(c, "FOOD_TYPE_JUNCTION_FOOD", "name", name, "type",
+                        rs -> new FoodJunctionType(name, rs.getString("type")));
+                types.forEach(type -> ChangeJournal.record(conn, journal -> journal.deleted(Tables.FOOD_TYPE_JUNCTION_FOOD, type)));
+                // Holding the write connection, deleteFood runs on the same one
+                return deleteFood(name) || tx.setRollbackOnly("food " + name + " was not deleted");
+            }));
+        } catch (SQLException e) {
+            CentralLogger.getInstance().logError(e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean deleteFoodCascade(Food food) {
+        return deleteFoodCascade(food.getName());
+    }
+
+    /**
+     * Returns every food. The first call loads the whole catalogue, with each food's types, into the {@link FoodCache}.
+     */
     @Override
     public List<Food> getFoodList() {
+        if (usesCache()) {
+            List<Food> cached = cache.getAll();
+            if (cached != null) return cached;
+        }
+        long version = cache.getVersion();
         List<Food> foodList = new ArrayList<>();
         String query = "SELECT name, serving_size_grams, serving_size_calories FROM food";
-        try (Connection c = getConnection(); PreparedStatement ps = c.prepareStatement(query); var rs = ps.executeQuery()) {
-            while (rs.next()) {
-                String name = rs.getString("name");
-                double sg = rs.getDouble("serving_size_grams");
-                Double servingGrams = rs.wasNull() ? null : sg;
-                double sc = rs.getDouble("serving_size_calories");
-                Double servingCalories = rs.wasNull() ? null : sc;
-                foodList.add(new Food(name, servingGrams, servingCalories));
+        try (Connection c = getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement(query); var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    foodList.add(getFoodFromResultSet(rs));
+                }
+            }
+            if (usesCache()) {
+                cache.fill(foodList, getAllTypes(c), version);
             }
         } catch (SQLException e) {
             CentralLogger.getInstance().logError(e);
@@ -75,17 +171,19 @@ public class FoodDao implements FoodDaoInterface, TableDao, DatabaseComparer.Rea
 
     @Override
     public Food getFood(String name) {
-        if (!contains(name, "name")) return null;
+        if (usesCache()) {
+            Food cached = cache.get(name);
+            if (cached != null || cache.isComplete()) return cached;
+        }
+        long version = cache.getVersion();
         String query = "SELECT name, serving_size_grams, serving_size_calories FROM food WHERE name = ?";
         try (Connection c = getConnection(); PreparedStatement ps = c.prepareStatement(query)) {
             ps.setString(1, name);
             try (var rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    double sg = rs.getDouble("serving_size_grams");
-                    Double servingGrams = rs.wasNull() ? null : sg;
-                    double sc = rs.getDouble("serving_size_calories");
-                    Double servingCalories = rs.wasNull() ? null : sc;
-                    return new Food(name, servingGrams, servingCalories);
+                    Food food = getFoodFromResultSet(rs);
+                    if (usesCache()) cache.fill(food, version);
+                    return food;
                 }
             }
         } catch (SQLException e) {
@@ -94,15 +192,47 @@ public class FoodDao implements FoodDaoInterface, TableDao, DatabaseComparer.Rea
         return null;
     }
 
+    private Food getFoodFromResultSet(ResultSet rs) throws SQLException {
+        String name = rs.getString("name");
+        double sg = rs.getDouble("serving_size_grams");
+        Double servingGrams = rs.wasNull() ? null : sg;
+        double sc = rs.getDouble("serving_size_calories");
+        Double servingCalories = rs.wasNull() ? null : sc;
+        return new Food(name, servingGrams, servingCalories);
+    }
+
+    // Every food's types in one query, used to fill the cache alongside the catalogue
+    private Map<String, List<FoodType>> getAllTypes(Connection c) throws SQLException {
+        Map<String, List<FoodType>> types = new HashMap<>();
+        String query = "SELECT name, type FROM FOOD_TYPE_JUNCTION_FOOD";
+        try (PreparedStatement ps = c.prepareStatement(query); var rs = ps.executeQuery()) {
+            while (rs.next()) {
+                types.computeIfAbsent(rs.getString("name"), k -> new ArrayList<>()).add(new FoodType(rs.getString("type")));
+            }
+        }
+        return types;
+    }
+
+    /**
+     * @return a snapshot of the food cache size and hit-rate metrics
+     */
+    public static CacheMetrics getCacheMetrics() {
+        return FoodCache.getInstance().getMetrics();
+    }
+
     @Override
     public Food updateFood(String name, Double serving_grams, Double serving_calories) {
-        if (!contains(name, "name")) return null;
         String query = "UPDATE FOOD SET serving_size_grams = ?, serving_size_calories = ? WHERE name = ?";
-        try (Connection c = getConnection(); PreparedStatement ps = c.prepareStatement(query)) {
+        try (Connection c = getWriteConnection(); PreparedStatement ps = c.prepareStatement(query)) {
             QueryHelper.checkNull(ps, 1, serving_grams);
             QueryHelper.checkNull(ps, 2, serving_calories);
             ps.setString(3, name);
-            if (ps.executeUpdate() > 0) return new Food(name, serving_grams, serving_calories);
+            if (ps.executeUpdate() > 0) {
+                Food food = new Food(name, serving_grams, serving_calories);
+                written(food);
+                ChangeJournal.record(conn, journal -> journal.updated(Tables.FOOD, food));
+                return food;
+            }
         } catch (SQLException e) {
             CentralLogger.getInstance().logError(e);
         }
@@ -112,6 +242,10 @@ public class FoodDao implements FoodDaoInterface, TableDao, DatabaseComparer.Rea
     @Override
     public boolean contains(String entity, String attribute) {
         validateAttribute(attribute);
+        if (usesCache()) {
+            Food cached = cache.get(entity);
+            if (cached != null || cache.isComplete()) return cached != null;
+        }
         return QueryHelper.entityExists(entity, attribute, "FOOD");
     }
 
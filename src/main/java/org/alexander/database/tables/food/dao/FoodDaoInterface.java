@@ -1,5 +1,6 @@
 package org.alexander.database.tables.food.dao;
 
+import org.alexander.database.InsertResult;
 import org.alexander.database.tables.food.Food;
 
 import java.util.List;
@@ -7,8 +8,11 @@ import java.util.List;
 public interface FoodDaoInterface {
     Food addFood(String name, Double serving_grams, Double serving_calories); // Double can be null
     Food addFood(Food food);
-    boolean deleteFood(String name);
+    InsertResult<Food> insertFood(String name, Double serving_grams, Double serving_calories);
+    boolean deleteFood(String name); // false while a meal, snack or type still references the food, see deleteFoodCascade
     boolean deleteFood(Food food);
+    boolean deleteFoodCascade(String name);
+    boolean deleteFoodCascade(Food food);
     List<Food> getFoodList();
     Food getFood(String name);
     Food updateFood(String name, Double serving_grams, Double serving_calories); // Integer can be null
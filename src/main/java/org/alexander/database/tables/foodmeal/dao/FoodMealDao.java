@@ -1,12 +1,13 @@
 package org.alexander.database.tables.foodmeal.dao;
 
+import org.alexander.database.ChangeJournal;
+import org.alexander.database.InsertResult;
 import org.alexander.database.QueryHelper;
 import org.alexander.database.tables.TableDaoTwo;
+import org.alexander.database.tables.Tables;
 import org.alexander.database.tables.food.Food;
-import org.alexander.database.tables.food.dao.FoodDao;
 import org.alexander.database.tables.foodmeal.FoodMeal;
 import org.alexander.database.tables.meal.Meal;
-import org.alexander.database.tables.meal.dao.MealDao;
 import org.alexander.logging.CentralLogger;
 import org.jetbrains.annotations.NotNull;
 import java.sql.SQLException;
@@ -41,20 +42,30 @@ public class FoodMealDao implements FoodMealDaoInterface, TableDaoTwo {
 
     @Override
     public FoodMeal addFoodMeal(String foodName, int mealId, Double num_servings) {
-        if (paramsInvalid(foodName, mealId)) {
-            return null;
-        } else if (contains(foodName, mealId)) {
-            logger.logWarning("Junction already exists. Cannot add duplicate.");
-            return null;
+        InsertResult<FoodMeal> result = insertFoodMeal(foodName, mealId, num_servings);
+        switch (result.status()) {
+            case DUPLICATE -> logger.logWarning("Junction already exists. Cannot add duplicate.");
+            case MISSING_PARENT -> logger.logError(new IllegalArgumentException("Food or Meal does not exist. Cannot create junction."));
+            default -> {}
         }
+        return result.entity();
+    }
+
+    /**
+     * Inserts a junction in a single statement, relying on the primary key to reject duplicates
+     * and the foreign keys to reject a food or meal which does not exist.
+     * @return the inserted junction, or why it was not inserted
+     */
+    @Override
+    public InsertResult<FoodMeal> insertFoodMeal(String foodName, int mealId, Double num_servings) {
         String query;
         if (num_servings == null) {
-            query = "INSERT INTO FOOD_MEAL (name, meal_id) VALUES (?, ?)";
+            query = "INSERT INTO FOOD_MEAL (name, meal_id) VALUES (?, ?) ON CONFLICT DO NOTHING RETURNING name";
         } else {
-            query = "INSERT INTO FOOD_MEAL (name, meal_id, num_servings) VALUES (?, ?, ?)";
+            query = "INSERT INTO FOOD_MEAL (name, meal_id, num_servings) VALUES (?, ?, ?) ON CONFLICT DO NOTHING RETURNING name";
         }
         try (
-                var conn = org.alexander.database.DatabaseManager.connect();
+                var conn = org.alexander.database.DatabaseManager.connectForWrite();
                 var preparedStatement = conn.prepareStatement(query)
         ) {
             preparedStatement.setString(1, foodName);
@@ -62,15 +73,17 @@ public class FoodMealDao implements FoodMealDaoInterface, TableDaoTwo {
             if (num_servings != null) {
                 preparedStatement.setDouble(3, num_servings);
             }
-            int rowsAffected = preparedStatement.executeUpdate();
-            if (rowsAffected == 1) {
-                return new FoodMeal(foodName, mealId, num_servings);
+            try (var resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    FoodMeal foodMeal = new FoodMeal(foodName, mealId, num_servings);
+                    ChangeJournal.getInstance().inserted(Tables.FOOD_MEAL, foodMeal);
+                    return InsertResult.inserted(foodMeal);
+                }
             }
-            logger.logError(new SQLException("Error to insert FoodMeal junction rowAffected != 1, " + rowsAffected + " rows affected."));
+            return InsertResult.duplicate();
         } catch (SQLException e) {
-            logger.logError(e);
+            return InsertResult.fromException(e);
         }
-        return null;
     }
 
     @Override
@@ -90,20 +103,20 @@ public class FoodMealDao implements FoodMealDaoInterface, TableDaoTwo {
 
     @Override
     public boolean deleteFoodMeal(String foodName, int mealId) {
-        if (!contains(foodName, mealId)) {
-            logger.logWarning("Junction does not exist. Cannot delete non-existent junction.");
-            return false;
-        }
         String query = "DELETE FROM FOOD_MEAL WHERE name = ? AND meal_id = ?";
         try (
-                var conn = org.alexander.database.DatabaseManager.connect();
+                var conn = org.alexander.database.DatabaseManager.connectForWrite();
                 var preparedStatement = conn.prepareStatement(query)
         ) {
             preparedStatement.setString(1, foodName);
             preparedStatement.setInt(2, mealId);
             int rowsAffected = preparedStatement.executeUpdate();
             if (rowsAffected == 1) {
+                ChangeJournal.getInstance().deleted(Tables.FOOD_MEAL, new FoodMeal(foodName, mealId, null));
                 return true;
+            } else if (rowsAffected == 0) {
+                logger.logWarning("Junction does not exist. Cannot delete non-existent junction.");
+                return false;
             }
             logger.logError(new SQLException("Error to delete FoodMeal junction, rows affected: " + rowsAffected));
         } catch (SQLException e) {
@@ -124,10 +137,6 @@ public class FoodMealDao implements FoodMealDaoInterface, TableDaoTwo {
 
     @Override
     public FoodMeal getFoodMeal(String foodName, int mealId) {
-        if (!contains(foodName, mealId)) {
-            logger.logWarning("Junction does not exist. Cannot get non-existent junction.");
-            return null;
-        }
         String query = "SELECT name, meal_id, num_servings FROM FOOD_MEAL WHERE name = ? AND meal_id = ?";
         try (
                 var conn = org.alexander.database.DatabaseManager.connect();
@@ -139,6 +148,7 @@ public class FoodMealDao implements FoodMealDaoInterface, TableDaoTwo {
             if (resultSet.next()) {
                 return getFoodMealFromResultSet(resultSet);
             }
+            logger.logWarning("Junction does not exist. Cannot get non-existent junction.");
         } catch (SQLException e) {
             logger.logError(e);
         }
@@ -157,21 +167,20 @@ public class FoodMealDao implements FoodMealDaoInterface, TableDaoTwo {
 
     @Override
     public FoodMeal updateFoodMeal(String foodName, int mealId, Double num_servings) {
-        if (!contains(foodName, mealId)) {
-            logger.logWarning("Junction does not exist. Cannot update non-existent junction.");
-            return null;
-        }
         String query = "UPDATE FOOD_MEAL SET num_servings = ? WHERE name = ? AND meal_id = ?";
         try (
-                var conn = org.alexander.database.DatabaseManager.connect();
+                var conn = org.alexander.database.DatabaseManager.connectForWrite();
                 var preparedStatement = conn.prepareStatement(query)
         ) {
             QueryHelper.checkNull(preparedStatement, 1, num_servings);
             preparedStatement.setString(2, foodName);
             preparedStatement.setInt(3, mealId);
             if (preparedStatement.executeUpdate() > 0) {
-                return new FoodMeal(foodName, mealId, num_servings);
+                FoodMeal foodMeal = new FoodMeal(foodName, mealId, num_servings);
+                ChangeJournal.getInstance().updated(Tables.FOOD_MEAL, foodMeal);
+                return foodMeal;
             }
+            logger.logWarning("Junction does not exist. Cannot update non-existent junction.");
         } catch (SQLException e) {
             logger.logError(e);
         }
@@ -202,22 +211,4 @@ public class FoodMealDao implements FoodMealDaoInterface, TableDaoTwo {
         Double num_servings = resultSet.getObject("num_servings", Double.class);
         return new FoodMeal(foodName, mealId, num_servings);
     }
-
-    private boolean paramsInvalid(String foodName, int mealId) {
-        FoodDao foodDao = new FoodDao();
-        MealDao mealDao = new MealDao();
-        boolean foodExists = foodDao.contains(foodName, "name");
-        boolean mealExists = mealDao.contains(String.valueOf(mealId), "id");
-        if (!foodExists || !mealExists) {
-            if (!foodExists && !mealExists) {
-                logger.logError(new IllegalArgumentException("Food and Meal do not exist. Cannot create junction."));
-            } else if (!foodExists) {
-                logger.logError(new IllegalArgumentException("Food does not exist. Cannot create junction."));
-            } else {
-                logger.logError(new IllegalArgumentException("Meal does not exist. Cannot create junction."));
-            }
-            return true;
-        }
-        return false;
-    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package org.alexander.database.tables.foodmeal.dao;
 
+import org.alexander.database.InsertResult;
 import org.alexander.database.tables.food.Food;
 import org.alexander.database.tables.foodmeal.FoodMeal;
 import org.alexander.database.tables.meal.Meal;
@@ -12,6 +13,7 @@ public interface FoodMealDaoInterface {
     FoodMeal addFoodMeal(Food food, Meal meal, Double num_servings);
     FoodMeal addFoodMeal(String foodName, int mealId);
     FoodMeal addFoodMeal(Food food, Meal meal);
+    InsertResult<FoodMeal> insertFoodMeal(String foodName, int mealId, Double num_servings);
     // Delete
     boolean deleteFoodMeal(String foodName, int mealId);
     boolean deleteFoodMeal(Food food, Meal meal);
@@ -1,12 +1,13 @@
 package org.alexander.database.tables.foodsnack.dao;
+import org.alexander.database.ChangeJournal;
 import org.alexander.database.DatabaseManager;
+import org.alexander.database.InsertResult;
 import org.alexander.database.QueryHelper;
 import org.alexander.database.tables.TableDaoTwo;
+import org.alexander.database.tables.Tables;
 import org.alexander.database.tables.food.Food;
-import org.alexander.database.tables.food.dao.FoodDao;
 import org.alexander.database.tables.foodsnack.FoodSnack;
 import org.alexander.database.tables.snack.Snack;
-import org.alexander.database.tables.snack.dao.SnackDao;
 import org.alexander.logging.CentralLogger;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -45,24 +46,34 @@ public class FoodSnackDao implements FoodSnackDaoInterface, TableDaoTwo {
 
     @Override
     public FoodSnack addFoodSnack(String foodName, Integer snackId, Double num_servings) {
+        InsertResult<FoodSnack> result = insertFoodSnack(foodName, snackId, num_servings);
+        switch (result.status()) {
+            case DUPLICATE -> logger.logWarning("Junction already exists. Cannot add duplicate.");
+            case MISSING_PARENT -> logger.logError(new IllegalArgumentException("Food or Snack does not exist. Cannot create junction."));
+            default -> {}
+        }
+        return result.entity();
+    }
+
+    /**
+     * Inserts a junction in a single statement, relying on the primary key to reject duplicates
+     * and the foreign keys to reject a food or snack which does not exist.
+     * @return the inserted junction, or why it was not inserted
+     */
+    @Override
+    public InsertResult<FoodSnack> insertFoodSnack(String foodName, Integer snackId, Double num_servings) {
         if (snackId == null) {
             logger.logError(new IllegalArgumentException("Snack ID cannot be null."));
-            return null;
-        }
-        if (!existenceCheck(foodName, snackId)) {
-            return null;
-        } else if (contains(foodName, snackId)) {
-            logger.logWarning("Junction already exists. Cannot add duplicate.");
-            return null;
+            return InsertResult.failed();
         }
         String query;
         if (num_servings == null) {
-            query = "INSERT INTO FOOD_SNACK (name, snack_id) VALUES (?, ?)";
+            query = "INSERT INTO FOOD_SNACK (name, snack_id) VALUES (?, ?) ON CONFLICT DO NOTHING RETURNING name";
         } else {
-            query = "INSERT INTO FOOD_SNACK (name, snack_id, num_servings) VALUES (?, ?, ?)";
+            query = "INSERT INTO FOOD_SNACK (name, snack_id, num_servings) VALUES (?, ?, ?) ON CONFLICT DO NOTHING RETURNING name";
         }
         try (
-                var conn = DatabaseManager.connect();
+                var conn = DatabaseManager.connectForWrite();
                 var preparedStatement = conn.prepareStatement(query)
         ) {
             preparedStatement.setString(1, foodName);
@@ -70,15 +81,17 @@ public class FoodSnackDao implements FoodSnackDaoInterface, TableDaoTwo {
             if (num_servings != null) {
                 QueryHelper.checkNull(preparedStatement, 3, num_servings);
             }
-            int rowsAffected = preparedStatement.executeUpdate();
-            if (rowsAffected == 1) {
-                return new FoodSnack(foodName, snackId, num_servings);
+            try (var resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    FoodSnack foodSnack = new FoodSnack(foodName, snackId, num_servings);
+                    ChangeJournal.getInstance().inserted(Tables.FOOD_SNACK, foodSnack);
+                    return InsertResult.inserted(foodSnack);
+                }
             }
-            throw new SQLException("FoodSnackDao.addSnack: INSERTION EFFECTED MULTIPLE ROWS ON INSERT, RETURNING NULL, ROWS AFFECTED: " + rowsAffected);
+            return InsertResult.duplicate();
         } catch (SQLException e) {
-            logger.logError(e);
+            return InsertResult.fromException(e);
         }
-        return null;
     }
 
     @Override
@@ -102,18 +115,18 @@ public class FoodSnackDao implements FoodSnackDaoInterface, TableDaoTwo {
             logger.logError(new IllegalArgumentException("Snack ID cannot be null."));
             return false;
         }
-        if (!contains(foodName, snackId)) {
-            logger.logWarning("FoodSnack does not exist. Cannot delete junction.");
-            return false;
-        }
         String query = "DELETE FROM FOOD_SNACK WHERE name = ? AND snack_id = ?";
         try (
-                var conn = DatabaseManager.connect();
+                var conn = DatabaseManager.connectForWrite();
                 var preparedStatement = conn.prepareStatement(query)
         ) {
             preparedStatement.setString(1, foodName);
             preparedStatement.setInt(2, snackId);
-            return preparedStatement.executeUpdate() > 0;
+            if (preparedStatement.executeUpdate() > 0) {
+                ChangeJournal.getInstance().deleted(Tables.FOOD_SNACK, new FoodSnack(foodName, snackId, null));
+                return true;
+            }
+            logger.logWarning("FoodSnack does not exist. Cannot delete junction.");
         } catch (SQLException e) {
             logger.logError(e);
         }
@@ -136,10 +149,6 @@ public class FoodSnackDao implements FoodSnackDaoInterface, TableDaoTwo {
             logger.logError(new IllegalArgumentException("Snack ID cannot be null."));
             return null;
         }
-        if (!contains(foodName, snackId)) {
-            logger.logWarning("FoodSnack does not exist. Cannot retrieve junction.");
-            return null;
-        }
         String query = "SELECT name, snack_id, num_servings FROM FOOD_SNACK WHERE name = ? AND snack_id = ? LIMIT 1";
         try (
                 var conn = DatabaseManager.connect();
@@ -152,6 +161,7 @@ public class FoodSnackDao implements FoodSnackDaoInterface, TableDaoTwo {
                 Double num_servings = resultSet.getObject("num_servings", Double.class);
                 return new FoodSnack(foodName, snackId, num_servings);
             }
+            logger.logWarning("FoodSnack does not exist. Cannot retrieve junction.");
         } catch (SQLException e) {
             logger.logError(e);
         }
@@ -160,21 +170,20 @@ public class FoodSnackDao implements FoodSnackDaoInterface, TableDaoTwo {
 
     @Override
     public FoodSnack updateFoodSnack(String foodName, Integer snackId, Double num_servings) {
-        if (!contains(foodName, snackId)) {
-            logger.logWarning("Junction does not exist. Cannot update non-existent junction.");
-            return null;
-        }
         String query = "UPDATE FOOD_SNACK SET num_servings = ? WHERE name = ? AND snack_id = ?";
         try (
-                var conn = DatabaseManager.connect();
+                var conn = DatabaseManager.connectForWrite();
                 var preparedStatement = conn.prepareStatement(query)
         ) {
             QueryHelper.checkNull(preparedStatement, 1, num_servings);
             preparedStatement.setString(2, foodName);
             preparedStatement.setInt(3, snackId);
             if (preparedStatement.executeUpdate() > 0) {
-                return new FoodSnack(foodName, snackId, num_servings);
+                FoodSnack foodSnack = new FoodSnack(foodName, snackId, num_servings);
+                ChangeJournal.getInstance().updated(Tables.FOOD_SNACK, foodSnack);
+                return foodSnack;
             }
+            logger.logWarning("Junction does not exist. Cannot update non-existent junction.");
         } catch (SQLException e) {
             logger.logError(e);
         }
@@ -209,24 +218,6 @@ public class FoodSnackDao implements FoodSnackDaoInterface, TableDaoTwo {
         return foodSnackList;
     }
 
-    private boolean existenceCheck(String foodName, int snackId) {
-        FoodDao foodDao = new FoodDao();
-        SnackDao snackDao = new SnackDao();
-        boolean foodExists = foodDao.contains(foodName, "name");
-        boolean snackExists = snackDao.contains(snackId);
-        if (!foodExists || !snackExists) {
-            if (!foodExists && !snackExists) {
-                logger.logError(new IllegalArgumentException("Food and Snack do not exist. Cannot create junction."));
-            } else if (!foodExists) {
-                logger.logError(new IllegalArgumentException("Food does not exist. Cannot create junction."));
-            } else {
-                logger.logError(new IllegalArgumentException("Snack does not exist. Cannot create junction."));
-            }
-            return false;
-        }
-        return true;
-    }
-
     private FoodSnack getFoodSnackFromResultSet(java.sql.ResultSet rs) throws SQLException {
         String foodName = rs.getString("name");
         Integer snackId = rs.getInt("snack_id");
@@ -1,5 +1,6 @@
 package org.alexander.database.tables.foodsnack.dao;
 
+import org.alexander.database.InsertResult;
 import org.alexander.database.tables.food.Food;
 import org.alexander.database.tables.foodsnack.FoodSnack;
 import org.alexander.database.tables.snack.Snack;
@@ -12,6 +13,7 @@ public interface FoodSnackDaoInterface {
     FoodSnack addFoodSnack(String foodName, Integer snackId);
     FoodSnack addFoodSnack(Food food, Snack snack, Double num_servings);
     FoodSnack addFoodSnack(FoodSnack foodSnack);
+    InsertResult<FoodSnack> insertFoodSnack(String foodName, Integer snackId, Double num_servings);
     // Delete
     boolean deleteFoodSnack(String foodName, Integer snackId);
     boolean deleteFoodSnack(FoodSnack foodSnack);
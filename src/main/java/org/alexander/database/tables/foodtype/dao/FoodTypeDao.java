@@ -15,10 +15,8 @@ public class FoodTypeDao implements  FoodTypeDaoInterface, TableDao {
      */
     @Override
     public FoodType createFoodType(String name) {
-        if (contains(name, "name")) {
-            return null;
-        }
-       boolean queryResult = QueryHelper.addEntity(name, "name", TABLE_NAME);
+        // The primary key rejects a duplicate type, so there is no need to look it up first
+        boolean queryResult = QueryHelper.addEntity(name, "name", TABLE_NAME);
         if (!queryResult) {
             System.err.println("QueryHelper.addEntity returned false when trying to add food type: " + name);
             return null;
@@ -30,9 +28,6 @@ public class FoodTypeDao implements  FoodTypeDaoInterface, TableDao {
      */
     @Override
     public boolean deleteFoodType(String name) {
-        if (!contains(name, "name")) {
-            return false;
-        }
         return QueryHelper.deleteEntity(name, "name", TABLE_NAME);
     }
 
@@ -1,12 +1,14 @@
 package org.alexander.database.tables.foodtypefood.dao;
 
+import org.alexander.database.ChangeJournal;
 import org.alexander.database.DatabaseManager;
+import org.alexander.database.InsertResult;
 import org.alexander.database.QueryHelper;
 import org.alexander.database.tables.TableDao;
+import org.alexander.database.tables.Tables;
 import org.alexander.database.tables.food.Food;
-import org.alexander.database.tables.food.dao.FoodDao;
+import org.alexander.database.tables.food.dao.FoodCache;
 import org.alexander.database.tables.foodtype.FoodType;
-import org.alexander.database.tables.foodtype.dao.FoodTypeDao;
 import org.alexander.database.tables.foodtypefood.FoodJunctionType;
 import org.alexander.logging.CentralLogger;
 
@@ -14,6 +16,8 @@ import java.sql.*;
 import java.util.List;
 
 public class FoodJunctionTypeDao implements FoodJunctionTypeDaoInterface, TableDao {
+    private final FoodCache cache = FoodCache.getInstance();
+
     @Override
     public boolean contains(String name, String type) {
         if (name == null || type == null) {
@@ -42,57 +46,58 @@ public class FoodJunctionTypeDao implements FoodJunctionTypeDaoInterface, TableD
 
     @Override
     public FoodJunctionType addFoodTypeFood(Food food, FoodType type) {
-        if (contains(food.getName(), type.getName())) {
-            CentralLogger.getInstance().logWarning("Junction already exists. Cannot add duplicate.");
-            return null;
+        InsertResult<FoodJunctionType> result = insertFoodTypeFood(food, type);
+        switch (result.status()) {
+            case DUPLICATE -> CentralLogger.getInstance().logWarning("Junction already exists. Cannot add duplicate.");
+            case MISSING_PARENT -> throw new IllegalArgumentException("Food or FoodType does not exist. Cannot create junction.");
+            default -> {}
         }
-        checkInputsExist(food, type);
-        String query = "INSERT INTO FOOD_TYPE_JUNCTION_FOOD (name, type) VALUES (?, ?)";
+        return result.entity();
+    }
+
+    /**
+     * Inserts a junction in a single statement, relying on the primary key to reject duplicates
+     * and the foreign keys to reject a food or type which does not exist.
+     * @return the inserted junction, or why it was not inserted
+     */
+    @Override
+    public InsertResult<FoodJunctionType> insertFoodTypeFood(Food food, FoodType type) {
+        String query = "INSERT INTO FOOD_TYPE_JUNCTION_FOOD (name, type) VALUES (?, ?) ON CONFLICT DO NOTHING RETURNING name";
         try (
-                var conn = DatabaseManager.connect();
-                PreparedStatement preparedStatement = conn.prepareStatement(query);
-                ) {
+                var conn = DatabaseManager.connectForWrite();
+                PreparedStatement preparedStatement = conn.prepareStatement(query)
+        ) {
             preparedStatement.setString(1, food.getName());
             preparedStatement.setString(2, type.getName());
-            if (preparedStatement.executeUpdate() > 0) {
-                return new FoodJunctionType(food, type);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                if (rs.next()) {
+                    cache.invalidateTypes(food.getName());
+                    FoodJunctionType junction = new FoodJunctionType(food, type);
+                    ChangeJournal.getInstance().inserted(Tables.FOOD_TYPE_JUNCTION_FOOD, junction);
+                    return InsertResult.inserted(junction);
+                }
             }
+            return InsertResult.duplicate();
         } catch (SQLException e) {
-            CentralLogger.getInstance().logError(e);
-        }
-        return null;
-    }
-
-    private void checkInputsExist(Food food, FoodType type) {
-        FoodTypeDao foodTypeDao = new FoodTypeDao();
-        FoodDao foodDao = new FoodDao();
-        boolean foodExists = foodDao.contains(food.getName(), "name");
-        boolean typeExists = foodTypeDao.contains(type.getName(), "name");
-        if (!foodExists || !typeExists) {
-            if (!foodExists && !typeExists) {
-                throw new IllegalArgumentException("Food and FoodType do not exist. Cannot create junction.");
-            } else if (!foodExists) {
-                throw new IllegalArgumentException("Food does not exist. Cannot create junction.");
-            } else {
-                throw new IllegalArgumentException("FoodType does not exist. Cannot create junction.");
-            }
+            return InsertResult.fromException(e);
         }
     }
 
     @Override
     public boolean deleteFoodTypeFood(String name, String type) {
-        if (!contains(name, type)) {
-            CentralLogger.getInstance().logWarning("FoodType does not exist. Cannot delete junction.");
-            return false;
-        }
         String Query = "DELETE FROM FOOD_TYPE_JUNCTION_FOOD WHERE name = ? AND type = ?";
         try (
-                var conn = DatabaseManager.connect();
+                var conn = DatabaseManager.connectForWrite();
                 PreparedStatement preparedStatement = conn.prepareStatement(Query)
         ) {
             preparedStatement.setString(1, name);
             preparedStatement.setString(2, type);
-            return preparedStatement.executeUpdate() > 0;
+            if (preparedStatement.executeUpdate() > 0) {
+                cache.invalidateTypes(name);
+                ChangeJournal.getInstance().deleted(Tables.FOOD_TYPE_JUNCTION_FOOD, new FoodJunctionType(name, type));
+                return true;
+            }
+            CentralLogger.getInstance().logWarning("FoodType does not exist. Cannot delete junction.");
         } catch (SQLException e) {
             CentralLogger.getInstance().logError(e);
         }
@@ -106,6 +111,11 @@ public class FoodJunctionTypeDao implements FoodJunctionTypeDaoInterface, TableD
 
     @Override
     public List<FoodType> getTypes(Food food) {
+        List<FoodType> cached = cache.getTypes(food.getName());
+        if (cached != null) {
+            return cached;
+        }
+        long version = cache.getVersion();
         List<FoodType> foodTypeList = new java.util.ArrayList<>();
         String query = "SELECT type FROM FOOD_TYPE_JUNCTION_FOOD WHERE name = ?";
         try (
@@ -117,6 +127,7 @@ public class FoodJunctionTypeDao implements FoodJunctionTypeDaoInterface, TableD
             while (rs.next()) {
                 foodTypeList.add(new FoodType(rs.getString("type")));
             }
+            cache.fillTypes(food.getName(), foodTypeList, version);
         } catch (SQLException e) {
             CentralLogger.getInstance().logError(e);
         }
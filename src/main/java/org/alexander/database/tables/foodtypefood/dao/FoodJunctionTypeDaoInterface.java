@@ -1,5 +1,6 @@
 package org.alexander.database.tables.foodtypefood.dao;
 
+import org.alexander.database.InsertResult;
 import org.alexander.database.tables.food.Food;
 import org.alexander.database.tables.foodtype.FoodType;
 import org.alexander.database.tables.foodtypefood.FoodJunctionType;
@@ -7,6 +8,7 @@ import java.util.List;
 
 public interface FoodJunctionTypeDaoInterface {
     FoodJunctionType addFoodTypeFood(Food food, FoodType type);
+    InsertResult<FoodJunctionType> insertFoodTypeFood(Food food, FoodType type);
     boolean deleteFoodTypeFood(String name, String type);
     boolean deleteFoodTypeFood(Food food, FoodType type);
     List<FoodType> getTypes(Food food);
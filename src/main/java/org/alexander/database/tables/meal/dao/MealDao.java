@@ -1,10 +1,15 @@
 package org.alexander.database.tables.meal.dao;
 
+import org.alexander.database.ChangeJournal;
 import org.alexander.database.DatabaseComparer;
 import org.alexander.database.DatabaseManager;
+import org.alexander.database.InsertResult;
 import org.alexander.database.QueryHelper;
+import org.alexander.database.Transaction;
 import org.alexander.database.tables.TableDao;
+import org.alexander.database.tables.Tables;
 import org.alexander.database.tables.day.Day;
+import org.alexander.database.tables.foodmeal.FoodMeal;
 import org.alexander.database.tables.meal.Meal;
 import org.alexander.database.tables.meal.MealTypes;
 import org.alexander.database.tables.week.Week;
@@ -24,10 +29,15 @@ public class MealDao implements MealDaoInterface, TableDao, DatabaseComparer.Rea
     public MealDao(Connection conn) { this.conn = conn; }
 
     private Connection getConnection() throws SQLException {
-        if (conn != null && !conn.isClosed()) return conn;
+        if (conn != null) return DatabaseManager.borrow(conn);
         return DatabaseManager.connect();
     }
 
+    private Connection getWriteConnection() throws SQLException {
+        if (conn != null) return DatabaseManager.borrow(conn);
+        return DatabaseManager.connectForWrite();
+    }
+
     @Override
     public boolean contains(String entity, String attribute) {
         if (!attribute.equals("id")) throw new IllegalArgumentException("Can only check by 'id'.");
@@ -66,21 +76,39 @@ public class MealDao implements MealDaoInterface, TableDao, DatabaseComparer.Rea
 
     @Override
     public Meal addMeal(LocalDate date, MealTypes type, LocalTime time) {
-        if (contains(date, time, type)) return null;
-        String query = "INSERT INTO MEAL (date, time, type) VALUES (?, ?, ?)";
-        try (Connection c = getConnection(); PreparedStatement ps = c.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setDate(1, java.sql.Date.valueOf(date));
-            ps.setTime(2, java.sql.Time.valueOf(time));
-            ps.setString(3, type.name());
-            if (ps.executeUpdate() > 0) {
-                try (var rs = ps.getGeneratedKeys()) {
-                    if (rs.next()) return new Meal(rs.getInt(1), date, type, time);
+        return insertMeal(date, type, time).entity();
+    }
+
+    /**
+     * Inserts a meal in a single statement. A meal of the same type at the same date and time counts as a duplicate,
+     * and the foreign key rejects a date whose day does not exist.
+     * @return the inserted meal, or why it was not inserted
+     */
+    @Override
+    public InsertResult<Meal> insertMeal(LocalDate date, MealTypes type, LocalTime time) {
+        // language=sql
+        String query = """
+                INSERT INTO MEAL (date, time, type) SELECT ?, ?, ?
+                WHERE NOT EXISTS (SELECT 1 FROM MEAL WHERE date = ? AND time = ? AND type = ?)
+                RETURNING id
+                """;
+        try (Connection c = getWriteConnection(); PreparedStatement ps = c.prepareStatement(query)) {
+            for (int offset : new int[]{0, 3}) {
+                ps.setDate(offset + 1, java.sql.Date.valueOf(date));
+                ps.setTime(offset + 2, java.sql.Time.valueOf(time));
+                ps.setString(offset + 3, type.name());
+            }
+            try (var rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Meal meal = new Meal(rs.getInt("id"), date, type, time);
+                    ChangeJournal.record(conn, journal -> journal.inserted(Tables.MEAL, meal));
+                    return InsertResult.inserted(meal);
                 }
             }
+            return InsertResult.duplicate();
         } catch (SQLException e) {
-            logger.logError(e);
+            return InsertResult.fromException(e);
         }
-        return null;
     }
 
     @Override
@@ -89,11 +117,54 @@ public class MealDao implements MealDaoInterface, TableDao, DatabaseComparer.Rea
     public Meal addMeal(Day day, MealTypes type) { return addMeal(day, type, type.defaultTime()); }
     @Override
     public Meal addMeal(Meal meal) { return addMeal(meal.getDate(), meal.getType(), meal.getTime()); }
+    /**
+     * Deletes a meal, returning the deleted row so the journal can describe it without reading it first.
+     */
     @Override
-    public boolean deleteMeal(int id) { return QueryHelper.deleteEntity(id, "id", "MEAL"); }
+    public boolean deleteMeal(int id) {
+        String query = "DELETE FROM MEAL WHERE id = ? RETURNING id, date, time, type";
+        try (Connection c = getWriteConnection(); PreparedStatement ps = c.prepareStatement(query)) {
+            ps.setInt(1, id);
+            try (var rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Meal meal = getMealFromResultSet(rs);
+                    ChangeJournal.record(conn, journal -> journal.deleted(Tables.MEAL, meal));
+                    return true;
+                }
+            }
+            logger.logWarning("No rows or > 1 affected when trying to delete entity: " + id);
+        } catch (SQLException e) {
+            logger.logError(e);
+        }
+        return false;
+    }
     @Override
     public boolean deleteMeal(Meal meal) { return deleteMeal(meal.getId()); }
 
+    /**
+     * Deletes a meal and the foods in it, with one statement per table, in a single transaction.
+     * Every statement runs on the DAO's write connection, a DAO given its own connection runs them in a savepoint of
+     * whatever transaction the connection's owner has open.
+     * @return true if the meal was deleted, false if it does not exist or the transaction was rolled back
+     */
+    @Override
+    public boolean deleteMealCascade(int id) {
+        try (Connection c = getWriteConnection()) {
+            return Boolean.TRUE.equals(Transaction.run(c, tx -> {
+                List<FoodMeal> foods = QueryHelper.deleteAll(c, "FOOD_MEAL", "meal_id", id, "name, num_servings",
+                        rs -> new FoodMeal(rs.getString("name"), id, rs.getDouble("num_servings")));
+                foods.forEach(foodMeal -> ChangeJournal.record(conn, journal -> journal.deleted(Tables.FOOD_MEAL, foodMeal)));
+                // Holding the write connection, deleteMeal runs on the same one
+                return deleteMeal(id) || tx.setRollbackOnly("meal " + id + " was not deleted");
+            }));
+        } catch (SQLException e) {
+            logger.logError(e);
+            return false;
+        }
+    }
+    @Override
+    public boolean deleteMealCascade(Meal meal) { return deleteMealCascade(meal.getId()); }
+
     @Override
     public Meal getMeal(int id) {
         String query = "SELECT id, date, time, type FROM MEAL WHERE id = ?";
@@ -171,14 +242,18 @@ public class MealDao implements MealDaoInterface, TableDao, DatabaseComparer.Rea
 
     @Override
     public Meal updateMeal(int id, LocalDate date, LocalTime time, MealTypes type) {
-        if (!contains(String.valueOf(id), "id")) return null;
+        // a date whose day does not exist is rejected by the foreign key
         String query = "UPDATE MEAL SET date = ?, time = ?, type = ? WHERE id = ?";
-        try (Connection c = getConnection(); PreparedStatement ps = c.prepareStatement(query)) {
+        try (Connection c = getWriteConnection(); PreparedStatement ps = c.prepareStatement(query)) {
             ps.setDate(1, java.sql.Date.valueOf(date));
             ps.setTime(2, java.sql.Time.valueOf(time));
             ps.setString(3, type.name());
             ps.setInt(4, id);
-            if (ps.executeUpdate() > 0) return new Meal(id, date, type, time);
+            if (ps.executeUpdate() > 0) {
+                Meal meal = new Meal(id, date, type, time);
+                ChangeJournal.record(conn, journal -> journal.updated(Tables.MEAL, meal));
+                return meal;
+            }
         } catch (SQLException e) {
             logger.logError(e);
         }
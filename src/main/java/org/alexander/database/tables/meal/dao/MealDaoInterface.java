@@ -1,5 +1,6 @@
 package org.alexander.database.tables.meal.dao;
 
+import org.alexander.database.InsertResult;
 import org.alexander.database.tables.day.Day;
 import org.alexander.database.tables.meal.Meal;
 import org.alexander.database.tables.meal.MealTypes;
@@ -14,8 +15,11 @@ public interface MealDaoInterface {
     Meal addMeal(Day day, MealTypes type, LocalTime time);
     Meal addMeal(Day day, MealTypes type);
     Meal addMeal(Meal meal);
-    boolean deleteMeal(int id);
+    InsertResult<Meal> insertMeal(LocalDate date, MealTypes type, LocalTime time);
+    boolean deleteMeal(int id); // false while foods are still in the meal, see deleteMealCascade
     boolean deleteMeal(Meal meal);
+    boolean deleteMealCascade(int id);
+    boolean deleteMealCascade(Meal meal);
     Meal getMeal(int id);
     List<Meal> getMeals();
     List<Meal> getDayMeals(LocalDate date);
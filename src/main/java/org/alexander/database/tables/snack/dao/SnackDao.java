@@ -1,10 +1,15 @@
 package org.alexander.database.tables.snack.dao;
 
+import org.alexander.database.ChangeJournal;
 import org.alexander.database.DatabaseComparer;
 import org.alexander.database.DatabaseManager;
+import org.alexander.database.InsertResult;
 import org.alexander.database.QueryHelper;
+import org.alexander.database.Transaction;
 import org.alexander.database.tables.TableDao;
+import org.alexander.database.tables.Tables;
 import org.alexander.database.tables.day.Day;
+import org.alexander.database.tables.foodsnack.FoodSnack;
 import org.alexander.database.tables.snack.Snack;
 import org.alexander.logging.CentralLogger;
 
@@ -22,10 +27,15 @@ public class SnackDao implements SnackDaoInterface, TableDao, DatabaseComparer.R
     public SnackDao(Connection conn) { this.conn = conn; }
 
     private Connection getConnection() throws SQLException {
-        if (conn != null && !conn.isClosed()) return conn;
+        if (conn != null) return DatabaseManager.borrow(conn);
         return DatabaseManager.connect();
     }
 
+    private Connection getWriteConnection() throws SQLException {
+        if (conn != null) return DatabaseManager.borrow(conn);
+        return DatabaseManager.connectForWrite();
+    }
+
     @Override
     public boolean contains(String entity, String attribute) {
         if (!attribute.equals("id")) throw new UnsupportedOperationException("Only contains by ID is supported for Snack");
@@ -72,29 +82,63 @@ public class SnackDao implements SnackDaoInterface, TableDao, DatabaseComparer.R
 
     @Override
     public Snack addSnack(LocalDate date, LocalTime time) {
-        if (contains(date, time)) return null;
-        String query = "INSERT INTO SNACK (date, time) VALUES (?, ?)";
-        try (Connection c = getConnection(); PreparedStatement ps = c.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setDate(1, java.sql.Date.valueOf(date));
-            ps.setTime(2, java.sql.Time.valueOf(time));
-            if (ps.executeUpdate() > 0) {
-                try (var rs = ps.getGeneratedKeys()) {
-                    if (rs.next()) return new Snack(rs.getInt(1), date, time);
+        return insertSnack(date, time).entity();
+    }
+
+    /**
+     * Inserts a snack in a single statement. A snack at the same date and time counts as a duplicate,
+     * and the foreign key rejects a date whose day does not exist.
+     * @return the inserted snack, or why it was not inserted
+     */
+    @Override
+    public InsertResult<Snack> insertSnack(LocalDate date, LocalTime time) {
+        // language=sql
+        String query = """
+                INSERT INTO SNACK (date, time) SELECT ?, ?
+                WHERE NOT EXISTS (SELECT 1 FROM SNACK WHERE date = ? AND time = ?)
+                RETURNING id
+                """;
+        try (Connection c = getWriteConnection(); PreparedStatement ps = c.prepareStatement(query)) {
+            for (int offset : new int[]{0, 2}) {
+                ps.setDate(offset + 1, java.sql.Date.valueOf(date));
+                ps.setTime(offset + 2, java.sql.Time.valueOf(time));
+            }
+            try (var rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Snack snack = new Snack(rs.getInt("id"), date, time);
+                    ChangeJournal.record(conn, journal -> journal.inserted(Tables.SNACK, snack));
+                    return InsertResult.inserted(snack);
                 }
             }
+            return InsertResult.duplicate();
         } catch (SQLException e) {
-            logger.logError(e);
+            return InsertResult.fromException(e);
         }
-        return null;
     }
 
     @Override
     public Snack addSnack(Day day, LocalTime time) { return addSnack(day.getDate(), time); }
 
+    /**
+     * Deletes a snack, returning the deleted row so the journal can describe it without reading it first.
+     */
     @Override
     public boolean deleteSnack(int id) {
-        if (!contains(id)) return false;
-        return QueryHelper.deleteEntity(id, "id", "SNACK");
+        String query = "DELETE FROM SNACK WHERE id = ? RETURNING id, date, time";
+        try (Connection c = getWriteConnection(); PreparedStatement ps = c.prepareStatement(query)) {
+            ps.setInt(1, id);
+            try (var rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Snack snack = getSnackFromResultSet(rs);
+                    ChangeJournal.record(conn, journal -> journal.deleted(Tables.SNACK, snack));
+                    return true;
+                }
+            }
+            logger.logWarning("No rows or > 1 affected when trying to delete entity: " + id);
+        } catch (SQLException e) {
+            logger.logError(e);
+        }
+        return false;
     }
 
     @Override
@@ -103,6 +147,34 @@ public class SnackDao implements SnackDaoInterface, TableDao, DatabaseComparer.R
         return deleteSnack(snack.getId());
     }
 
+    /**
+     * Deletes a snack and the foods in it, with one statement per table, in a single transaction.
+     * Every statement runs on the DAO's write connection, a DAO given its own connection runs them in a savepoint of
+     * whatever transaction the connection's owner has open.
+     * @return true if the snack was deleted, false if it does not exist or the transaction was rolled back
+     */
+    @Override
+    public boolean deleteSnackCascade(int id) {
+        try (Connection c = getWriteConnection()) {
+            return Boolean.TRUE.equals(Transaction.run(c, tx -> {
+                List<FoodSnack> foods = QueryHelper.deleteAll(c, "FOOD_SNACK", "snack_id", id, "name, num_servings",
+                        rs -> new FoodSnack(rs.getString("name"), id, rs.getDouble("num_servings")));
+                foods.forEach(foodSnack -> ChangeJournal.record(conn, journal -> journal.deleted(Tables.FOOD_SNACK, foodSnack)));
+                // Holding the write connection, deleteSnack runs on the same one
+                return deleteSnack(id) || tx.setRollbackOnly("snack " + id + " was not deleted");
+            }));
+        } catch (SQLException e) {
+            logger.logError(e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean deleteSnackCascade(Snack snack) {
+        if (snack.getId() == null) return false;
+        return deleteSnackCascade(snack.getId());
+    }
+
     @Override
     public Snack getSnack(int id) {
         String query = "SELECT id, date, time FROM SNACK WHERE id = ?";
@@ -134,13 +206,17 @@ public class SnackDao implements SnackDaoInterface, TableDao, DatabaseComparer.R
 
     @Override
     public Snack updateSnack(int id, LocalDate date, LocalTime time) {
-        if (!contains(id)) return null;
+        // a date whose day does not exist is rejected by the foreign key
         String query = "UPDATE SNACK SET date = ?, time = ? WHERE id = ?";
-        try (Connection c = getConnection(); PreparedStatement ps = c.prepareStatement(query)) {
+        try (Connection c = getWriteConnection(); PreparedStatement ps = c.prepareStatement(query)) {
             ps.setDate(1, java.sql.Date.valueOf(date));
             ps.setTime(2, java.sql.Time.valueOf(time));
             ps.setInt(3, id);
-            if (ps.executeUpdate() > 0) return new Snack(id, date, time);
+            if (ps.executeUpdate() > 0) {
+                Snack snack = new Snack(id, date, time);
+                ChangeJournal.record(conn, journal -> journal.updated(Tables.SNACK, snack));
+                return snack;
+            }
         } catch (SQLException e) {
             logger.logError(e);
         }
@@ -1,5 +1,6 @@
 package org.alexander.database.tables.snack.dao;
 
+import org.alexander.database.InsertResult;
 import org.alexander.database.tables.day.Day;
 import org.alexander.database.tables.snack.Snack;
 
@@ -11,8 +12,11 @@ public interface SnackDaoInterface {
     Snack addSnack(Snack snack);
     Snack addSnack(LocalDate date, LocalTime time);
     Snack addSnack(Day day, LocalTime time);
-    boolean deleteSnack(int id);
+    InsertResult<Snack> insertSnack(LocalDate date, LocalTime time);
+    boolean deleteSnack(int id); // false while foods are still in the snack, see deleteSnackCascade
     boolean deleteSnack(Snack snack);
+    boolean deleteSnackCascade(int id);
+    boolean deleteSnackCascade(Snack snack);
     Snack getSnack(int id);
     Snack getSnack(LocalDate date, LocalTime time);
     Snack updateSnack(int id, LocalDate date, LocalTime time);
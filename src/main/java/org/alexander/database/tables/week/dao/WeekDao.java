@@ -1,8 +1,11 @@
 package org.alexander.database.tables.week.dao;
 
+import org.alexander.database.ChangeJournal;
 import org.alexander.database.DatabaseManager;
+import org.alexander.database.InsertResult;
 import org.alexander.database.QueryHelper;
 import org.alexander.database.tables.TableDao;
+import org.alexander.database.tables.Tables;
 import org.alexander.database.tables.week.Week;
 import org.alexander.logging.CentralLogger;
 
@@ -44,37 +47,44 @@ public class WeekDao implements WeekDaoInterface, TableDao {
 
     @Override
     public Week addWeek(LocalDate startDate, LocalDate endDate) {
+        InsertResult<Week> result = insertWeek(startDate, endDate);
+        if (result.status() == InsertResult.Status.DUPLICATE) {
+            CentralLogger.getInstance().logWarning(String.format("Week with start date '%s' already exists.", startDate));
+        }
+        return result.entity();
+    }
+
+    /**
+     * Inserts a week in a single statement, relying on the unique start and end dates to reject duplicates.
+     * @return the inserted week, or why it was not inserted
+     */
+    @Override
+    public InsertResult<Week> insertWeek(LocalDate startDate, LocalDate endDate) {
         // need to ensure the start day is a Monday and end day is a Sunday
         if (startDate.getDayOfWeek().getValue() != 1 || endDate.getDayOfWeek().getValue() != 7) {
             String message = String.format("Invalid week range: start date '%s' is not a Monday or end date '%s' is not a Sunday. StartDate is a '%s' and EndDate is a '%s'.", startDate, endDate, startDate.getDayOfWeek(), endDate.getDayOfWeek());
             CentralLogger.getInstance().logError(message);
-            return null;
-        }
-        if (contains(startDate.toString(), "start_date")) {
-            CentralLogger.getInstance().logWarning(String.format("Week with start date '%s' already exists.", startDate));
-            return null;
+            return InsertResult.failed();
         }
         // removed regex check since LocalDate parsing already enforces correct format
-        String query = "INSERT INTO WEEK (start_date, end_date) VALUES (?, ?)";
+        String query = "INSERT INTO WEEK (start_date, end_date) VALUES (?, ?) ON CONFLICT DO NOTHING RETURNING week_id";
         try (
-                var conn = DatabaseManager.connect();
+                var conn = DatabaseManager.connectForWrite();
                 var preparedStatement = conn.prepareStatement(query)
         ) {
             preparedStatement.setDate(1, java.sql.Date.valueOf(startDate));
             preparedStatement.setDate(2, java.sql.Date.valueOf(endDate));
-            if (preparedStatement.executeUpdate() > 0) {
-                try (var rs = preparedStatement.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        int week_id = rs.getInt(1);
-                        return new Week(week_id, startDate, endDate);
-                    }
-                    throw new SQLException("Creating week failed, no ID obtained.");
+            try (var rs = preparedStatement.executeQuery()) {
+                if (rs.next()) {
+                    Week week = new Week(rs.getInt("week_id"), startDate, endDate);
+                    ChangeJournal.getInstance().inserted(Tables.WEEK, week);
+                    return InsertResult.inserted(week);
                 }
             }
+            return InsertResult.duplicate();
         } catch (SQLException e) {
-            CentralLogger.getInstance().logError(e);
+            return InsertResult.fromException(e);
         }
-        return null;
     }
 
     @Override
@@ -102,7 +112,9 @@ public class WeekDao implements WeekDaoInterface, TableDao {
             CentralLogger.getInstance().logWarning(String.format("Week with id: '%d', does not exist.", id));
             return false;
         }
-        return QueryHelper.deleteEntity(id, "week_id", "WEEK");
+        boolean deleted = QueryHelper.deleteEntity(id, "week_id", "WEEK");
+        if (deleted) ChangeJournal.getInstance().deleted(Tables.WEEK, id, null);
+        return deleted;
     }
 
     @Override
@@ -1,5 +1,6 @@
 package org.alexander.database.tables.week.dao;
 
+import org.alexander.database.InsertResult;
 import org.alexander.database.tables.week.Week;
 
 import java.time.LocalDate;
@@ -9,7 +10,8 @@ public interface WeekDaoInterface {
     Week addWeek(LocalDate startDate, LocalDate endDate);
     Week addWeek(LocalDate startDate); // adds 6 days to get end date
     Week addWeek(Week week);
-    boolean deleteWeek(Week week);
+    InsertResult<Week> insertWeek(LocalDate startDate, LocalDate endDate);
+    boolean deleteWeek(Week week); // false while a day still belongs to the week
     boolean deleteWeek(int id);
     List<Week> getWeekList();
     Week getWeek(LocalDate startDate);
@@ -0,0 +1,135 @@
+package org.alexander.database.transfer;
+
+import org.alexander.database.DatabaseManager;
+import org.alexander.logging.CentralLogger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Exporter writes the food diary to a CSV or JSON Lines file, one food portion of a meal or snack per row.
+ * <p>
+ * The meals and snacks are joined with their foods in a single query and read through a forward-only cursor, each row
+ * written to a buffered writer as soon as it is read, so an export takes the same memory whatever the size of the
+ * diary. A meal or snack without any food has no row.
+ * </p>
+ * <p>
+ * Rows hold the fields {@code date}, {@code meal}, {@code time}, {@code food}, {@code servings},
+ * {@code serving_grams} and {@code serving_calories}, ordered by date and time, so an export can be read back by
+ * {@link Importer#importMeals(Path, Path)}, which ignores the food's serving size.
+ * </p>
+ * @since 1.1.0
+ */
+public class Exporter {
+    public static final List<String> COLUMNS = List.of("date", "meal", "time", "food", "servings", "serving_grams", "serving_calories");
+    private static final CentralLogger logger = CentralLogger.getInstance();
+    // language=sql
+    private static final String QUERY = """
+            SELECT m.date, m.type AS meal, m.time, f.name, fm.num_servings, f.serving_size_grams, f.serving_size_calories
+            FROM MEAL m
+            JOIN FOOD_MEAL fm ON fm.meal_id = m.id
+            JOIN FOOD f ON f.name = fm.name
+            WHERE m.date BETWEEN ? AND ?
+            UNION ALL
+            SELECT s.date, 'SNACK', s.time, f.name, fs.num_servings, f.serving_size_grams, f.serving_size_calories
+            FROM SNACK s
+            JOIN FOOD_SNACK fs ON fs.snack_id = s.id
+            JOIN FOOD f ON f.name = fs.name
+            WHERE s.date BETWEEN ? AND ?
+            ORDER BY 1, 3, 2, 4
+            """;
+
+    /**
+     * The outcome of an export.
+     * @param rows the number of rows written
+     * @param elapsedNanos how long the export took
+     */
+    public record Export(long rows, long elapsedNanos) {}
+
+    /**
+     * Exports the diary to a file, which is only replaced once the whole export has been written.
+     * @param target the file to write, CSV or JSON Lines as told by its extension
+     * @param from the first day exported, or null to start from the first day in the diary
+     * @param to the last day exported, or null to end at the last day in the diary
+     * @return what was exported, or null if the export failed
+     */
+    public Export export(Path target, LocalDate from, LocalDate to) {
+        long start = System.nanoTime();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            long rows;
+            try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                rows = write(out, RecordReader.Format.of(target), from, to);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Export export = new Export(rows, System.nanoTime() - start);
+            logger.logInfo(String.format("Exported %,d rows to %s in %d ms", rows, target.getFileName(), export.elapsedNanos() / 1_000_000));
+            return export;
+        } catch (IOException | SQLException e) {
+            logger.logError(e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ex) {
+                logger.logError(ex);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Streams the diary to a writer.
+     * @param out where the rows are written, neither flushed nor closed
+     * @param format the format to write
+     * @param from the first day exported, or null to start from the first day in the diary
+     * @param to the last day exported, or null to end at the last day in the diary
+     * @return the number of rows written
+     * @throws SQLException if the diary could not be read
+     * @throws IOException if a row could not be written
+     */
+    public long write(Writer out, RecordReader.Format format, LocalDate from, LocalDate to) throws SQLException, IOException {
+        RecordWriter writer = new RecordWriter(out, format, COLUMNS);
+        long rows = 0;
+        try (Connection conn = DatabaseManager.connect(); PreparedStatement ps = conn.prepareStatement(QUERY)) {
+            // Dates are stored as epoch milliseconds, an open end is bounded by the whole range
+            java.sql.Date first = from == null ? new java.sql.Date(Long.MIN_VALUE) : java.sql.Date.valueOf(from);
+            java.sql.Date last = to == null ? new java.sql.Date(Long.MAX_VALUE) : java.sql.Date.valueOf(to);
+            ps.setDate(1, first);
+            ps.setDate(2, last);
+            ps.setDate(3, first);
+            ps.setDate(4, last);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Time time = rs.getTime("time");
+                    writer.write(
+                            rs.getDate("date").toLocalDate().toString(),
+                            rs.getString("meal").toLowerCase(Locale.ROOT),
+                            time == null ? null : time.toLocalTime().toString(),
+                            rs.getString("name"),
+                            rs.getDouble("num_servings"),
+                            nullableDouble(rs, "serving_size_grams"),
+                            nullableDouble(rs, "serving_size_calories"));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static Double nullableDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+}
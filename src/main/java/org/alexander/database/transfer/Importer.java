@@ -0,0 +1,633 @@
+package org.alexander.database.transfer;
+
+import org.alexander.database.ChangeJournal;
+import org.alexander.database.DatabaseManager;
+import org.alexander.database.QueryHelper;
+import org.alexander.database.tables.food.dao.FoodCache;
+import org.alexander.database.tables.meal.MealTypes;
+import org.alexander.logging.CentralLogger;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Importer bulk loads foods and logged meals from CSV or JSON Lines files into the working database.
+ * <p>
+ * A file is parsed and validated on its own thread while the calling thread writes the rows it hands over, so
+ * reading and writing overlap. Rows are written through prepared statements batched with {@code addBatch}, and
+ * committed in large transactions through {@link DatabaseManager#inTransaction}, so an import of tens of thousands of
+ * rows costs a handful of commits instead of one per row. A row which fails validation, or which the database
+ * rejects as a duplicate, is written to the error file with the line it came from and why, and the import carries on.
+ * </p>
+ * <p>
+ * Foods are read from the fields {@code name}, {@code serving_grams}, {@code serving_calories} and {@code types},
+ * the types separated by {@code ;}. Meals are read one food portion per row, from the fields {@code date}
+ * ({@code yyyy-MM-dd}), {@code meal} (breakfast, lunch, dinner or snack), {@code time} ({@code HH:mm}, required for a
+ * snack), {@code food} and {@code servings} (1 if left out). The week, day and meal or snack of a portion are created
+ * when they do not exist yet, and the food must already exist.
+ * </p>
+ * <p>
+ * Imported rows bypass the DAOs, so the {@link ChangeJournal} is marked unreliable and the {@link FoodCache} emptied
+ * once anything was imported.
+ * </p>
+ * @since 1.1.0
+ */
+public class Importer {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_TRANSACTION_SIZE = 50_000;
+    private static final CentralLogger logger = CentralLogger.getInstance();
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int MAX_NAME_LENGTH = 250;
+    private final int batchSize;
+    private final int transactionSize;
+    private volatile ProgressListener listener = ProgressListener.NONE;
+
+    /**
+     * Receives the progress of an import after each transaction it commits, on the importing thread.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        ProgressListener NONE = (imported, rejected, rowsPerSecond) -> {};
+
+        /**
+         * @param imported the number of rows imported so far
+         * @param rejected the number of rows rejected so far
+         * @param rowsPerSecond the rows read per second so far, imported or rejected
+         */
+        void progress(long imported, long rejected, double rowsPerSecond);
+    }
+
+    /**
+     * The outcome of an import.
+     * @param imported the number of rows imported
+     * @param rejected the number of rows written to the error file
+     * @param elapsedNanos how long the import took
+     * @param failure why the import stopped before the end of the file, or null if it read the whole file.
+     * Rows committed before the failure stay imported
+     */
+    public record Report(long imported, long rejected, long elapsedNanos, String failure) {
+        /**
+         * @return true if the whole file was read
+         */
+        public boolean isComplete() {
+            return failure == null;
+        }
+
+        /**
+         * @return the rows read per second, imported or rejected
+         */
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : (imported + rejected) * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return the report worded for display, e.g. {@code Imported 9,950 rows, rejected 50, 41,200 rows/s}
+         */
+        public String summary() {
+            String summary = String.format("Imported %,d rows, rejected %,d, %,.0f rows/s", imported, rejected, rowsPerSecond());
+            return isComplete() ? summary : summary + ". Stopped early: " + failure;
+        }
+    }
+
+    public Importer() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_TRANSACTION_SIZE);
+    }
+
+    /**
+     * @param batchSize the number of rows sent to the database in one batch
+     * @param transactionSize the number of rows committed in one transaction
+     */
+    public Importer(int batchSize, int transactionSize) {
+        if (batchSize < 1 || transactionSize < batchSize) {
+            throw new IllegalArgumentException("batchSize must be at least 1 and at most transactionSize, was " + batchSize + " and " + transactionSize);
+        }
+        this.batchSize = batchSize;
+        this.transactionSize = transactionSize;
+    }
+
+    /**
+     * @param listener receives the progress of every import from now on
+     */
+    public void setProgressListener(ProgressListener listener) {
+        this.listener = listener == null ? ProgressListener.NONE : listener;
+    }
+
+    /**
+     * Imports foods, with their types. A food which already exists is rejected rather than changed.
+     * @param source the CSV or JSON Lines file, told apart by its extension
+     * @param errors the file the rejected rows are written to, only created if a row is rejected
+     * @return how the import went
+     */
+    public Report importFoods(Path source, Path errors) {
+        Map<String, String> types;
+        try {
+            types = readNames("SELECT name FROM FOOD_TYPE");
+        } catch (SQLException e) {
+            logger.logError(e);
+            return new Report(0, 0, 0, e.getMessage());
+        }
+        return run(source, errors, record -> foodRow(record, types), new FoodWriter());
+    }
+
+    /**
+     * Imports logged meals and snacks, one food portion per row. A portion of a food already in the meal is rejected.
+     * @param source the CSV or JSON Lines file, told apart by its extension
+     * @param errors the file the rejected rows are written to, only created if a row is rejected
+     * @return how the import went
+     */
+    public Report importMeals(Path source, Path errors) {
+        Set<String> foods;
+        try {
+            foods = new HashSet<>(readNames("SELECT name FROM FOOD").values());
+        } catch (SQLException e) {
+            logger.logError(e);
+            return new Report(0, 0, 0, e.getMessage());
+        }
+        return run(source, errors, record -> portionRow(record, foods), new PortionWriter());
+    }
+
+    /**
+     * Turns a parsed record into a row to write, throwing IllegalArgumentException with the reason it is invalid.
+     */
+    @FunctionalInterface
+    private interface Validator<R> {
+        R validate(RecordReader.Record record);
+    }
+
+    /**
+     * Writes a batch of rows on the transaction's connection.
+     */
+    private interface BatchWriter<R> {
+        /**
+         * @return for each row, null if it was written, otherwise why the database rejected it
+         */
+        List<String> write(Connection conn, List<R> rows) throws SQLException;
+    }
+
+    /**
+     * A record handed from the parsing thread to the writing thread, with its row if valid or why it is not.
+     * A record of null marks the end of the file.
+     */
+    private record Parsed<R>(RecordReader.Record record, R row, String error) {}
+
+    /**
+     * The counts of an import, shared by the transactions it is split into.
+     */
+    private static final class Counts {
+        private long imported;
+        private long rejected;
+        private long committed;
+        // A committed transaction wrote to the database, even one whose every row was rejected may have
+        // created the week, day, meal or snack the rows were for
+        private boolean written;
+        private boolean ended;
+    }
+
+    private <R> Report run(Path source, Path errors, Validator<R> validator, BatchWriter<R> writer) {
+        long start = System.nanoTime();
+        BlockingQueue<Parsed<R>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicReference<String> readFailure = new AtomicReference<>();
+        Thread parser = Thread.ofVirtual().name("import-parser").start(() -> parse(source, validator, queue, readFailure));
+        Counts counts = new Counts();
+        String failure = null;
+        try (ErrorFile errorFile = new ErrorFile(errors)) {
+            while (!counts.ended && failure == null) {
+                long processed = counts.imported + counts.rejected;
+                Boolean committed = DatabaseManager.inTransaction(tx -> writeTransaction(tx.getConnection(), queue, writer, errorFile, counts));
+                if (committed == null) {
+                    failure = "the database rejected a batch, see the log";
+                } else {
+                    counts.committed = counts.imported;
+                    counts.written |= counts.imported + counts.rejected > processed;
+                    double rate = (counts.imported + counts.rejected) * 1e9 / Math.max(1, System.nanoTime() - start);
+                    listener.progress(counts.imported, counts.rejected, rate);
+                }
+            }
+        } catch (IOException e) {
+            logger.logError(e);
+            failure = "the error file could not be written: " + e.getMessage();
+        } finally {
+            parser.interrupt();
+            try {
+                parser.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (counts.written) {
+                // Written around the DAOs
+                ChangeJournal.getInstance().markUnreliable("rows were bulk imported");
+                FoodCache.getInstance().invalidate();
+            }
+        }
+        if (failure == null) {
+            failure = readFailure.get();
+        }
+        Report report = new Report(counts.committed, counts.rejected, System.nanoTime() - start, failure);
+        logger.logInfo("Import of " + source.getFileName() + ": " + report.summary());
+        return report;
+    }
+
+    /**
+     * Reads, validates and queues every record of the file, then the end marker.
+     */
+    private static <R> void parse(Path source, Validator<R> validator, BlockingQueue<Parsed<R>> queue, AtomicReference<String> failure) {
+        try (RecordReader reader = new RecordReader(source, RecordReader.Format.of(source))) {
+            RecordReader.Record record;
+            while ((record = reader.next()) != null) {
+                queue.put(validate(record, validator));
+            }
+        } catch (IOException e) {
+            logger.logError(e);
+            failure.set("the file could not be read: " + e.getMessage());
+        } catch (InterruptedException e) {
+            return; // The import stopped, nothing is waiting for the end marker
+        }
+        try {
+            queue.put(new Parsed<>(null, null, null));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <R> Parsed<R> validate(RecordReader.Record record, Validator<R> validator) {
+        if (record.error() != null) {
+            return new Parsed<>(record, null, record.error());
+        }
+        try {
+            return new Parsed<>(record, validator.validate(record), null);
+        } catch (IllegalArgumentException e) {
+            return new Parsed<>(record, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes rows in batches until a transaction's worth has been written or the file has ended.
+     * @return true, so a transaction which committed is told apart from one rolled back
+     */
+    private <R> Boolean writeTransaction(Connection conn, BlockingQueue<Parsed<R>> queue, BatchWriter<R> writer,
+                                         ErrorFile errorFile, Counts counts) throws SQLException {
+        List<Parsed<R>> batch = new ArrayList<>(batchSize);
+        long written = 0;
+        while (written < transactionSize) {
+            Parsed<R> parsed;
+            try {
+                parsed = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Import interrupted", e);
+            }
+            if (parsed.record() == null) {
+                counts.ended = true;
+                break;
+            }
+            if (parsed.error() != null) {
+                reject(errorFile, counts, parsed.record(), parsed.error());
+                continue;
+            }
+            batch.add(parsed);
+            written++;
+            if (batch.size() == batchSize) {
+                flush(conn, batch, writer, errorFile, counts);
+            }
+        }
+        flush(conn, batch, writer, errorFile, counts);
+        return true;
+    }
+
+    private static <R> void flush(Connection conn, List<Parsed<R>> batch, BatchWriter<R> writer, ErrorFile errorFile, Counts counts) throws SQLException {
+        if (batch.isEmpty()) return;
+        List<R> rows = new ArrayList<>(batch.size());
+        for (Parsed<R> parsed : batch) rows.add(parsed.row());
+        List<String> outcomes = writer.write(conn, rows);
+        for (int i = 0; i < batch.size(); i++) {
+            if (outcomes.get(i) == null) {
+                counts.imported++;
+            } else {
+                reject(errorFile, counts, batch.get(i).record(), outcomes.get(i));
+            }
+        }
+        batch.clear();
+    }
+
+    private static void reject(ErrorFile errorFile, Counts counts, RecordReader.Record record, String reason) throws SQLException {
+        counts.rejected++;
+        try {
+            errorFile.write(record, reason);
+        } catch (IOException e) {
+            throw new SQLException("Could not write the error file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the values of the first column of a query, by their lower case form
+     */
+    private static Map<String, String> readNames(String query) throws SQLException {
+        Map<String, String> names = new HashMap<>();
+        try (Connection conn = DatabaseManager.connect(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                String name = rs.getString(1);
+                names.put(name.toLowerCase(Locale.ROOT), name);
+            }
+        }
+        return names;
+    }
+
+    private record FoodRow(String name, Double grams, Double calories, List<String> types) {}
+
+    private static FoodRow foodRow(RecordReader.Record record, Map<String, String> knownTypes) {
+        String name = name(record, "name");
+        List<String> types = new ArrayList<>();
+        String typeList = record.get("types");
+        if (typeList != null) {
+            for (String type : typeList.split(";")) {
+                if (type.isBlank()) continue;
+                String known = knownTypes.get(type.trim().toLowerCase(Locale.ROOT));
+                if (known == null) throw new IllegalArgumentException("unknown food type '" + type.trim() + "'");
+                if (!types.contains(known)) types.add(known);
+            }
+        }
+        return new FoodRow(name, amount(record, "serving_grams"), amount(record, "serving_calories"), types);
+    }
+
+    private static final class FoodWriter implements BatchWriter<FoodRow> {
+        @Override
+        public List<String> write(Connection conn, List<FoodRow> rows) throws SQLException {
+            List<String> outcomes = new ArrayList<>(rows.size());
+            try (PreparedStatement foods = conn.prepareStatement("INSERT INTO FOOD (name, serving_size_grams, serving_size_calories) VALUES (?, ?, ?) ON CONFLICT DO NOTHING");
+                 PreparedStatement types = conn.prepareStatement("INSERT INTO FOOD_TYPE_JUNCTION_FOOD (name, type) VALUES (?, ?) ON CONFLICT DO NOTHING")) {
+                for (FoodRow row : rows) {
+                    foods.setString(1, row.name());
+                    QueryHelper.checkNull(foods, 2, row.grams());
+                    QueryHelper.checkNull(foods, 3, row.calories());
+                    foods.addBatch();
+                }
+                int[] inserted = foods.executeBatch();
+                boolean anyTypes = false;
+                for (int i = 0; i < rows.size(); i++) {
+                    if (inserted[i] == 0) {
+                        outcomes.add("food '" + rows.get(i).name() + "' already exists");
+                        continue;
+                    }
+                    outcomes.add(null);
+                    for (String type : rows.get(i).types()) {
+                        types.setString(1, rows.get(i).name());
+                        types.setString(2, type);
+                        types.addBatch();
+                        anyTypes = true;
+                    }
+                }
+                if (anyTypes) types.executeBatch();
+            }
+            return outcomes;
+        }
+    }
+
+    /**
+     * A food portion in a meal, or in a snack if the type is null.
+     */
+    private record PortionRow(LocalDate date, MealTypes type, LocalTime time, String food, double servings) {}
+
+    /**
+     * Identifies a meal or snack the way the DAOs do, a snack having no type.
+     */
+    private record MealKey(LocalDate date, MealTypes type, LocalTime time) {}
+
+    private static PortionRow portionRow(RecordReader.Record record, Set<String> foods) {
+        LocalDate date;
+        try {
+            date = LocalDate.parse(required(record, "date"));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("date '" + record.get("date") + "' is not a yyyy-MM-dd date");
+        }
+        String meal = required(record, "meal").toUpperCase(Locale.ROOT);
+        MealTypes type = null;
+        if (!meal.equals("SNACK")) {
+            try {
+                type = MealTypes.valueOf(meal);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("meal '" + record.get("meal") + "' is not breakfast, lunch, dinner or snack");
+            }
+        }
+        LocalTime time;
+        String timeText = record.get("time");
+        if (timeText == null) {
+            if (type == null) throw new IllegalArgumentException("a snack needs a time");
+            time = type.defaultTime();
+        } else {
+            try {
+                time = LocalTime.parse(timeText);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("time '" + timeText + "' is not a HH:mm time");
+            }
+        }
+        String food = name(record, "food");
+        if (!foods.contains(food)) throw new IllegalArgumentException("food '" + food + "' does not exist");
+        Double servings = amount(record, "servings");
+        if (servings == null) servings = 1.0;
+        if (servings == 0) throw new IllegalArgumentException("servings must be more than 0");
+        return new PortionRow(date, type, time, food, servings);
+    }
+
+    /**
+     * Writes portions, creating their weeks, days, meals and snacks the first time they are needed. The ids found are
+     * remembered for the rest of the import, which stops at the first transaction rolled back.
+     */
+    private static final class PortionWriter implements BatchWriter<PortionRow> {
+        private final Map<LocalDate, Integer> weeks = new HashMap<>();
+        private final Set<LocalDate> days = new HashSet<>();
+        private final Map<MealKey, Integer> meals = new HashMap<>();
+
+        @Override
+        public List<String> write(Connection conn, List<PortionRow> rows) throws SQLException {
+            List<String> outcomes = new ArrayList<>(rows.size());
+            List<Integer> mealRows = new ArrayList<>();
+            List<Integer> snackRows = new ArrayList<>();
+            try (PreparedStatement mealFoods = conn.prepareStatement("INSERT INTO FOOD_MEAL (name, meal_id, num_servings) VALUES (?, ?, ?) ON CONFLICT DO NOTHING");
+                 PreparedStatement snackFoods = conn.prepareStatement("INSERT INTO FOOD_SNACK (name, snack_id, num_servings) VALUES (?, ?, ?) ON CONFLICT DO NOTHING")) {
+                for (int i = 0; i < rows.size(); i++) {
+                    PortionRow row = rows.get(i);
+                    outcomes.add(null);
+                    ensureDay(conn, row.date());
+                    int id = mealId(conn, new MealKey(row.date(), row.type(), row.time()));
+                    PreparedStatement portions = row.type() == null ? snackFoods : mealFoods;
+                    portions.setString(1, row.food());
+                    portions.setInt(2, id);
+                    portions.setDouble(3, row.servings());
+                    portions.addBatch();
+                    (row.type() == null ? snackRows : mealRows).add(i);
+                }
+                markDuplicates(mealFoods, mealRows, rows, outcomes);
+                markDuplicates(snackFoods, snackRows, rows, outcomes);
+            }
+            return outcomes;
+        }
+
+        private static void markDuplicates(PreparedStatement portions, List<Integer> batched, List<PortionRow> rows, List<String> outcomes) throws SQLException {
+            if (batched.isEmpty()) return;
+            int[] inserted = portions.executeBatch();
+            for (int i = 0; i < inserted.length; i++) {
+                if (inserted[i] == 0) {
+                    PortionRow row = rows.get(batched.get(i));
+                    String meal = row.type() == null ? "snack" : row.type().name().toLowerCase(Locale.ROOT);
+                    outcomes.set(batched.get(i), "food '" + row.food() + "' is already in the " + meal + " on " + row.date() + " at " + row.time());
+                }
+            }
+        }
+
+        private void ensureDay(Connection conn, LocalDate date) throws SQLException {
+            if (days.contains(date)) return;
+            int weekId = weekId(conn, date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO DAY (date, week_id) VALUES (?, ?) ON CONFLICT DO NOTHING")) {
+                ps.setDate(1, java.sql.Date.valueOf(date));
+                ps.setInt(2, weekId);
+                ps.executeUpdate();
+            }
+            days.add(date);
+        }
+
+        private int weekId(Connection conn, LocalDate monday) throws SQLException {
+            Integer cached = weeks.get(monday);
+            if (cached != null) return cached;
+            int id;
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO WEEK (start_date, end_date) VALUES (?, ?) ON CONFLICT DO NOTHING RETURNING week_id")) {
+                ps.setDate(1, java.sql.Date.valueOf(monday));
+                ps.setDate(2, java.sql.Date.valueOf(monday.plusDays(6)));
+                id = firstId(ps);
+            }
+            if (id < 0) {
+                try (PreparedStatement ps = conn.prepareStatement("SELECT week_id FROM WEEK WHERE start_date = ?")) {
+                    ps.setDate(1, java.sql.Date.valueOf(monday));
+                    id = firstId(ps);
+                }
+            }
+            if (id < 0) throw new SQLException("Could not find or create the week starting " + monday);
+            weeks.put(monday, id);
+            return id;
+        }
+
+        private int mealId(Connection conn, MealKey key) throws SQLException {
+            Integer cached = meals.get(key);
+            if (cached != null) return cached;
+            boolean snack = key.type() == null;
+            String insert = snack
+                    ? "INSERT INTO SNACK (date, time) SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM SNACK WHERE date = ? AND time = ?) RETURNING id"
+                    : "INSERT INTO MEAL (date, time, type) SELECT ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM MEAL WHERE date = ? AND time = ? AND type = ?) RETURNING id";
+            int id;
+            try (PreparedStatement ps = conn.prepareStatement(insert)) {
+                int columns = snack ? 2 : 3;
+                setMealKey(ps, 0, key);
+                setMealKey(ps, columns, key);
+                id = firstId(ps);
+            }
+            if (id < 0) {
+                String select = snack
+                        ? "SELECT id FROM SNACK WHERE date = ? AND time = ? LIMIT 1"
+                        : "SELECT id FROM MEAL WHERE date = ? AND time = ? AND type = ? LIMIT 1";
+                try (PreparedStatement ps = conn.prepareStatement(select)) {
+                    setMealKey(ps, 0, key);
+                    id = firstId(ps);
+                }
+            }
+            if (id < 0) throw new SQLException("Could not find or create the meal " + key);
+            meals.put(key, id);
+            return id;
+        }
+
+        private static void setMealKey(PreparedStatement ps, int offset, MealKey key) throws SQLException {
+            ps.setDate(offset + 1, java.sql.Date.valueOf(key.date()));
+            ps.setTime(offset + 2, java.sql.Time.valueOf(key.time()));
+            if (key.type() != null) ps.setString(offset + 3, key.type().name());
+        }
+
+        /**
+         * @return the id in the first column of the first row, or -1 if there is no row
+         */
+        private static int firstId(PreparedStatement ps) throws SQLException {
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    private static String required(RecordReader.Record record, String field) {
+        String value = record.get(field);
+        if (value == null) throw new IllegalArgumentException("missing " + field);
+        return value;
+    }
+
+    private static String name(RecordReader.Record record, String field) {
+        String name = required(record, field);
+        if (name.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException(field + " is longer than " + MAX_NAME_LENGTH + " characters");
+        }
+        return name;
+    }
+
+    /**
+     * @return a number of at least 0, or null if the field is missing
+     */
+    private static Double amount(RecordReader.Record record, String field) {
+        String value = record.get(field);
+        if (value == null) return null;
+        double amount;
+        try {
+            amount = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " '" + value + "' is not a number");
+        }
+        if (amount < 0 || Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException(field + " must be a number of at least 0, was " + value);
+        }
+        return amount;
+    }
+
+    /**
+     * The rejected rows of an import, one per line with the line they came from and why, the file created on the
+     * first rejection.
+     */
+    private static final class ErrorFile implements Closeable {
+        private final Path path;
+        private BufferedWriter writer;
+
+        private ErrorFile(Path path) {
+            this.path = path;
+        }
+
+        private void write(RecordReader.Record record, String reason) throws IOException {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            }
+            writer.write("line " + record.line() + ": " + reason + ": " + record.raw().replace("\n", "\\n"));
+            writer.newLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) writer.close();
+        }
+    }
+}
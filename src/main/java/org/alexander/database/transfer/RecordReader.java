@@ -0,0 +1,319 @@
+package org.alexander.database.transfer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * RecordReader streams flat records from a CSV or JSON Lines file, one record at a time, so a file of any size is
+ * read in constant memory.
+ * <p>
+ * A CSV file starts with a header naming its columns, quoted fields may hold commas, doubled quotes and line breaks.
+ * A JSON Lines file holds one flat object per line, whose values are strings, numbers, booleans, null or arrays of
+ * those, an array reading as its values joined with {@code ;}.
+ * Field names are matched case-insensitively, a blank or null value reads as missing.
+ * </p>
+ * <p>
+ * A record which cannot be parsed is returned with an error instead of ending the read, so the rest of the file
+ * can still be imported.
+ * </p>
+ * @since 1.1.0
+ */
+public class RecordReader implements Closeable {
+    private final BufferedReader reader;
+    private final Format format;
+    private final List<String> header;
+    private long lineNumber = 0;
+
+    /**
+     * The file formats read.
+     */
+    public enum Format {
+        CSV,
+        JSON_LINES;
+
+        /**
+         * @return the format named by the file's extension, {@code .jsonl}, {@code .ndjson} and {@code .json} being
+         * JSON Lines and anything else CSV
+         */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json") ? JSON_LINES : CSV;
+        }
+    }
+
+    /**
+     * A record read from the file.
+     * @param line the line the record starts on
+     * @param raw the text of the record
+     * @param fields the record's values by lower case field name, missing values left out
+     * @param error why the record could not be parsed, or null
+     */
+    public record Record(long line, String raw, Map<String, String> fields, String error) {
+        /**
+         * @return the value of a field, or null if it is missing
+         */
+        public String get(String field) {
+            return fields.get(field);
+        }
+    }
+
+    /**
+     * Opens a file, reading the header of a CSV file straight away.
+     * @param file the file to read
+     * @param format the format of the file
+     * @throws IOException if the file could not be opened, or a CSV file has no header
+     */
+    public RecordReader(Path file, Format format) throws IOException {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        this.format = format;
+        if (format == Format.CSV) {
+            String first = readLine();
+            if (first == null) {
+                reader.close();
+                throw new IOException(file + " has no header");
+            }
+            // A byte order mark would end up in the first column name
+            if (first.startsWith("\uFEFF")) first = first.substring(1);
+            List<String> names = new ArrayList<>();
+            for (String name : splitCsv(first, new StringBuilder(first))) {
+                names.add(name.trim().toLowerCase(Locale.ROOT));
+            }
+            this.header = names;
+        } else {
+            this.header = List.of();
+        }
+    }
+
+    /**
+     * @return the next record, or null at the end of the file
+     * @throws IOException if the file could not be read
+     */
+    public Record next() throws IOException {
+        String line;
+        do {
+            line = readLine();
+            if (line == null) return null;
+        } while (line.isBlank());
+        long start = lineNumber;
+        return format == Format.CSV ? csvRecord(start, line) : jsonRecord(start, line);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String readLine() throws IOException {
+        String line = reader.readLine();
+        if (line != null) lineNumber++;
+        return line;
+    }
+
+    private Record csvRecord(long start, String line) throws IOException {
+        StringBuilder raw = new StringBuilder(line);
+        List<String> values = splitCsv(line, raw);
+        if (values == null) {
+            return new Record(start, raw.toString(), Map.of(), "unterminated quoted field");
+        }
+        if (values.size() > header.size()) {
+            return new Record(start, raw.toString(), Map.of(), "has " + values.size() + " fields, the header names " + header.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            put(fields, header.get(i), values.get(i));
+        }
+        return new Record(start, raw.toString(), fields, null);
+    }
+
+    /**
+     * Splits a CSV record, reading further lines while a quoted field spans them.
+     * @param raw collects the text of the record
+     * @return the fields, or null if the file ended inside a quoted field
+     */
+    private List<String> splitCsv(String line, StringBuilder raw) throws IOException {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) break;
+                line = readLine();
+                if (line == null) return null;
+                raw.append('\n').append(line);
+                value.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private Record jsonRecord(long start, String line) {
+        Map<String, String> fields = new HashMap<>();
+        try {
+            new JsonObjectParser(line).parse(fields);
+        } catch (IllegalArgumentException e) {
+            return new Record(start, line, Map.of(), e.getMessage());
+        }
+        return new Record(start, line, fields, null);
+    }
+
+    private static void put(Map<String, String> fields, String name, String value) {
+        if (value != null && !value.isBlank()) {
+            fields.put(name.toLowerCase(Locale.ROOT), value.trim());
+        }
+    }
+
+    /**
+     * Parses a single flat JSON object, nested objects and arrays of arrays are rejected.
+     */
+    private static final class JsonObjectParser {
+        private final String text;
+        private int i = 0;
+
+        private JsonObjectParser(String text) {
+            this.text = text;
+        }
+
+        private void parse(Map<String, String> fields) {
+            skipWhitespace();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                i++;
+            } else {
+                while (true) {
+                    skipWhitespace();
+                    String name = string();
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    put(fields, name, value());
+                    skipWhitespace();
+                    char c = next();
+                    if (c == '}') break;
+                    if (c != ',') throw new IllegalArgumentException("expected ',' or '}' at column " + i);
+                }
+            }
+            skipWhitespace();
+            if (i != text.length()) throw new IllegalArgumentException("unexpected text after the object at column " + (i + 1));
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '[') return array();
+            return scalar();
+        }
+
+        private String array() {
+            expect('[');
+            StringBuilder joined = new StringBuilder();
+            skipWhitespace();
+            if (peek() == ']') {
+                i++;
+                return null;
+            }
+            while (true) {
+                skipWhitespace();
+                String value = scalar();
+                if (value != null) {
+                    if (!joined.isEmpty()) joined.append(';');
+                    joined.append(value);
+                }
+                skipWhitespace();
+                char c = next();
+                if (c == ']') return joined.toString();
+                if (c != ',') throw new IllegalArgumentException("expected ',' or ']' at column " + i);
+            }
+        }
+
+        private String scalar() {
+            char c = peek();
+            if (c == '"') return string();
+            if (c == '{' || c == '[') throw new IllegalArgumentException("nested values are not supported, at column " + (i + 1));
+            int start = i;
+            while (i < text.length() && ",]} \t".indexOf(text.charAt(i)) < 0) i++;
+            String literal = text.substring(start, i);
+            if (literal.isEmpty()) throw new IllegalArgumentException("missing value at column " + (start + 1));
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') return value.toString();
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case 'n' -> value.append('\n');
+                    case 't' -> value.append('\t');
+                    case 'r' -> value.append('\r');
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'u' -> {
+                        if (i + 4 > text.length()) throw new IllegalArgumentException("truncated unicode escape");
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(i, i + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("invalid unicode escape at column " + i);
+                        }
+                        i += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            }
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) throw new IllegalArgumentException("expected '" + expected + "' at column " + i);
+        }
+
+        private char next() {
+            if (i >= text.length()) throw new IllegalArgumentException("unexpected end of line");
+            return text.charAt(i++);
+        }
+
+        private char peek() {
+            if (i >= text.length()) throw new IllegalArgumentException("unexpected end of line");
+            return text.charAt(i);
+        }
+
+        private void skipWhitespace() {
+            while (i < text.length() && Character.isWhitespace(text.charAt(i))) i++;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.alexander.database.transfer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * RecordWriter writes flat records as CSV or JSON Lines, the counterpart of {@link RecordReader}, one record at a
+ * time straight to the underlying writer.
+ * <p>
+ * Values are strings, numbers or null. In CSV a null is an empty field and a field holding a comma, quote or line
+ * break is quoted. In JSON Lines a null is written as {@code null} and numbers are left unquoted.
+ * Whole numbers are written without a fraction, so {@code 2.0} servings read back as {@code 2}.
+ * </p>
+ * @since 1.1.0
+ */
+public class RecordWriter {
+    private final Writer out;
+    private final RecordReader.Format format;
+    private final List<String> columns;
+
+    /**
+     * Starts writing records, writing the header of a CSV file straight away.
+     * @param out where the records are written, neither flushed nor closed by the record writer
+     * @param format the format to write
+     * @param columns the field names, in the order their values are given
+     * @throws IOException if the header could not be written
+     */
+    public RecordWriter(Writer out, RecordReader.Format format, List<String> columns) throws IOException {
+        this.out = out;
+        this.format = format;
+        this.columns = List.copyOf(columns);
+        if (format == RecordReader.Format.CSV) {
+            for (int i = 0; i < this.columns.size(); i++) {
+                if (i > 0) out.write(',');
+                writeCsv(this.columns.get(i));
+            }
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Writes a record.
+     * @param values the value of each column, in the order the columns were given
+     * @throws IOException if the record could not be written
+     * @throws IllegalArgumentException if there is not one value per column
+     */
+    public void write(Object... values) throws IOException {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " values, got " + values.length);
+        }
+        if (format == RecordReader.Format.CSV) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) out.write(',');
+                if (values[i] != null) writeCsv(text(values[i]));
+            }
+        } else {
+            out.write('{');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) out.write(", ");
+                writeJsonString(columns.get(i));
+                out.write(": ");
+                Object value = values[i];
+                if (value == null) out.write("null");
+                else if (value instanceof Number) out.write(text(value));
+                else writeJsonString(text(value));
+            }
+            out.write('}');
+        }
+        out.write('\n');
+    }
+
+    private static String text(Object value) {
+        if (value instanceof Double number && number == Math.rint(number) && !Double.isInfinite(number) && Math.abs(number) < 1e15) {
+            return Long.toString(number.longValue());
+        }
+        return value.toString();
+    }
+
+    private void writeCsv(String value) throws IOException {
+        boolean quote = !value.isEmpty() && (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                || value.indexOf('\r') >= 0 || Character.isWhitespace(value.charAt(0))
+                || Character.isWhitespace(value.charAt(value.length() - 1)));
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private void writeJsonString(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (c < 0x20) out.write(String.format("\\u%04x", (int) c));
+                    else out.write(c);
+                }
+            }
+        }
+        out.write('"');
+    }
+}
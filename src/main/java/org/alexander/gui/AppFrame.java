@@ -1,8 +1,10 @@
 package org.alexander.gui;
 
 import org.alexander.AppState;
+import org.alexander.database.ChangeJournal;
 import org.alexander.database.DatabaseComparer;
 import org.alexander.database.DatabaseManager;
+import org.alexander.database.PersistenceMode;
 import org.alexander.gui.dialogs.ChangesSummaryDialog;
 import org.alexander.logging.CentralLogger;
 
@@ -27,8 +29,8 @@ public class AppFrame extends JFrame {
 
     /**
      * Handles the application closing sequence. It closes the database connection,
-     * compares the live and saved databases, shows a summary of changes if any exist,
-     * and prompts the user to save, discard, or cancel.
+     * summarises the changes recorded in the change journal, or compares the live and saved
+     * databases if the journal is unreliable, and prompts the user to save, discard, or cancel.
      */
     public void closeOperation() {
         // Ensure the database connection is closed to release the file lock
@@ -37,11 +39,22 @@ public class AppFrame extends JFrame {
         Path workingDbPath = Paths.get(System.getProperty("user.home"), "FoodTracker", "database.sqlite");
         Path savedDbPath = Paths.get(System.getProperty("user.home"), "FoodTracker", "data.sqlite");
 
-        try {
-            DatabaseComparer comparer = new DatabaseComparer(workingDbPath, savedDbPath);
-            comparer.compare();
+        ChangeJournal journal = ChangeJournal.getInstance();
+        if (!journal.isReliable() && DatabaseManager.getPersistenceMode() == PersistenceMode.DIRECT_WAL) {
+            // The saved database is changed in place, so there is no second file to compare against
+            confirmExit();
+            return;
+        }
 
-            ChangesSummaryDialog summaryDialog = new ChangesSummaryDialog(this, comparer.getAdditions(), comparer.getDeletions());
+        try {
+            ChangesSummaryDialog summaryDialog;
+            if (journal.isReliable()) {
+                summaryDialog = new ChangesSummaryDialog(this, journal.getAdditions(), journal.getModifications(), journal.getDeletions());
+            } else {
+                DatabaseComparer comparer = new DatabaseComparer(workingDbPath, savedDbPath);
+                comparer.compare();
+                summaryDialog = new ChangesSummaryDialog(this, comparer.getAdditions(), comparer.getModifications(), comparer.getDeletions());
+            }
             int result = summaryDialog.showDialog();
 
             if (result == JOptionPane.YES_OPTION) {
@@ -58,17 +71,24 @@ public class AppFrame extends JFrame {
         } catch (Exception ex) {
             CentralLogger.getInstance().logError("Failed to compare databases on exit: " + ex.getMessage());
             // Fallback to the original simple dialog on error
-            int confirmed = JOptionPane.showConfirmDialog(
-                    this,
-                    "Could not determine changes. Save before exit?",
-                    "Confirm Exit",
-                    JOptionPane.YES_NO_CANCEL_OPTION
-            );
-            if (confirmed != JOptionPane.CANCEL_OPTION) {
-                AppState.saveDB = (confirmed == JOptionPane.YES_OPTION);
-                dispose();
-                System.exit(0);
-            }
+            confirmExit();
+        }
+    }
+
+    /**
+     * Asks whether to save before exiting without listing the changes, used when they could not be determined.
+     */
+    private void confirmExit() {
+        int confirmed = JOptionPane.showConfirmDialog(
+                this,
+                "Could not determine changes. Save before exit?",
+                "Confirm Exit",
+                JOptionPane.YES_NO_CANCEL_OPTION
+        );
+        if (confirmed != JOptionPane.CANCEL_OPTION) {
+            AppState.saveDB = (confirmed == JOptionPane.YES_OPTION);
+            dispose();
+            System.exit(0);
         }
     }
 
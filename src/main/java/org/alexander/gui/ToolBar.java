@@ -1,16 +1,26 @@
 package org.alexander.gui;
 
+import org.alexander.database.AsyncDao;
+import org.alexander.database.DatabaseManager;
+import org.alexander.database.SaveScheduler;
+import org.alexander.database.transfer.Exporter;
+import org.alexander.database.transfer.Importer;
 import org.alexander.gui.dialogs.SelectFoodDialog;
 import org.alexander.gui.tab.WeekManager;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.nio.file.Path;
 
 public class ToolBar extends JToolBar {
     private final JButton exitButton;
+    private final JButton saveButton;
     private final JButton nextButton;
     private final JButton previousButton;
     private final JButton addDay;
     private final JButton selectFood;
+    private final JButton importButton;
+    private final JButton exportButton;
     private final WeekManager weekManager;
     private final AppFrame appFrame;
 
@@ -24,16 +34,22 @@ public class ToolBar extends JToolBar {
         this.appFrame = appFrame;
         this.weekManager = weekManager;
         exitButton = new JButton("Exit");
+        saveButton = new JButton("Save");
         nextButton = new JButton("Next Week");
         previousButton = new JButton("Previous Week");
         addDay = new JButton("Add Day");
         selectFood = new JButton("Select Food");
+        importButton = new JButton("Import");
+        exportButton = new JButton("Export");
         addListeners();
         add(exitButton);
+        add(saveButton);
         add(previousButton);
         add(nextButton);
         add(addDay);
         add(selectFood);
+        add(importButton);
+        add(exportButton);
     }
 
     /**
@@ -41,9 +57,90 @@ public class ToolBar extends JToolBar {
      */
     protected void addListeners() {
         exitButton.addActionListener(e -> appFrame.closeOperation());
+        saveButton.addActionListener(e -> save());
         previousButton.addActionListener(e -> weekManager.openPreviousWeek());
         nextButton.addActionListener(e -> weekManager.openNextWeek());
         addDay.addActionListener(e -> weekManager.getOpenTab().selectDay());
         selectFood.addActionListener(e -> new SelectFoodDialog(SwingUtilities.getWindowAncestor(appFrame)));
+        importButton.addActionListener(e -> importFile());
+        exportButton.addActionListener(e -> exportFile());
     }
-}
\ No newline at end of file
+
+    /**
+     * Saves the database in the background, showing the progress on the save button until the save has finished.
+     */
+    private void save() {
+        SaveScheduler scheduler = DatabaseManager.getSaveScheduler();
+        saveButton.setEnabled(false);
+        saveButton.setText("Saving...");
+        scheduler.setProgressListener((copied, total) -> SwingUtilities.invokeLater(
+                () -> saveButton.setText("Saving " + (total == 0 ? 0 : copied * 100 / total) + "%")));
+        scheduler.requestSave().whenComplete((saved, error) -> {
+            // Later autosaves are not shown on the button
+            scheduler.setProgressListener(null);
+            SwingUtilities.invokeLater(() -> {
+                saveButton.setText("Save");
+                saveButton.setEnabled(true);
+                if (!Boolean.TRUE.equals(saved)) {
+                    JOptionPane.showMessageDialog(appFrame, "The database could not be saved.", "Save Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+        });
+    }
+
+    /**
+     * Asks for a CSV or JSON Lines file of foods or meals and imports it on the database thread, showing the progress
+     * on the import button. Rejected rows are written next to the file, to {@code <file>.errors.txt}.
+     */
+    private void importFile() {
+        String[] kinds = {"Foods", "Meals", "Cancel"};
+        int kind = JOptionPane.showOptionDialog(appFrame, "What does the file hold?", "Import",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, kinds, kinds[0]);
+        if (kind != 0 && kind != 1) return;
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV or JSON Lines", "csv", "jsonl", "ndjson", "json"));
+        if (chooser.showOpenDialog(appFrame) != JFileChooser.APPROVE_OPTION) return;
+        Path source = chooser.getSelectedFile().toPath();
+        Path errors = source.resolveSibling(source.getFileName() + ".errors.txt");
+        Importer importer = new Importer();
+        importer.setProgressListener((imported, rejected, rowsPerSecond) -> SwingUtilities.invokeLater(
+                () -> importButton.setText(String.format("Imported %,d", imported))));
+        importButton.setEnabled(false);
+        importButton.setText("Importing...");
+        AsyncDao.supply(() -> kind == 0 ? importer.importFoods(source, errors) : importer.importMeals(source, errors), report -> {
+            importButton.setText("Import");
+            importButton.setEnabled(true);
+            if (report == null) {
+                JOptionPane.showMessageDialog(appFrame, "The file could not be imported.", "Import Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            String message = report.summary() + (report.rejected() > 0 ? "\nRejected rows were written to " + errors : "");
+            JOptionPane.showMessageDialog(appFrame, message, "Import",
+                    report.isComplete() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+            weekManager.refreshAllDayPanels();
+        });
+    }
+
+    /**
+     * Asks for a CSV or JSON Lines file and exports the whole diary to it on the database thread.
+     */
+    private void exportFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV or JSON Lines", "csv", "jsonl", "ndjson", "json"));
+        if (chooser.showSaveDialog(appFrame) != JFileChooser.APPROVE_OPTION) return;
+        Path chosen = chooser.getSelectedFile().toPath();
+        Path target = chosen.getFileName().toString().contains(".") ? chosen : chosen.resolveSibling(chosen.getFileName() + ".csv");
+        exportButton.setEnabled(false);
+        exportButton.setText("Exporting...");
+        AsyncDao.supply(() -> new Exporter().export(target, null, null), export -> {
+            exportButton.setText("Export");
+            exportButton.setEnabled(true);
+            if (export == null) {
+                JOptionPane.showMessageDialog(appFrame, "The diary could not be exported.", "Export Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            JOptionPane.showMessageDialog(appFrame, String.format("Exported %,d rows to %s", export.rows(), target), "Export",
+                    JOptionPane.INFORMATION_MESSAGE);
+        });
+    }
+}
@@ -5,20 +5,24 @@ import java.awt.*;
 import java.util.List;
 
 /**
- * A dialog that displays a summary of database changes (additions and deletions)
+ * A dialog that displays a summary of database changes (additions, modifications and deletions)
  * and prompts the user to save, discard, or cancel.
  */
 public class ChangesSummaryDialog extends JDialog {
     private int result = JOptionPane.CANCEL_OPTION; // Default to cancel
 
     public ChangesSummaryDialog(Window owner, List<String> additions, List<String> deletions) {
+        this(owner, additions, List.of(), deletions);
+    }
+
+    public ChangesSummaryDialog(Window owner, List<String> additions, List<String> modifications, List<String> deletions) {
         super(owner, "Summary of Changes", ModalityType.APPLICATION_MODAL);
-        initComponents(additions, deletions);
+        initComponents(additions, modifications, deletions);
         pack();
         setLocationRelativeTo(owner);
     }
 
-    private void initComponents(List<String> additions, List<String> deletions) {
+    private void initComponents(List<String> additions, List<String> modifications, List<String> deletions) {
         setLayout(new BorderLayout(10, 10));
         getRootPane().setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
@@ -33,6 +37,11 @@ public class ChangesSummaryDialog extends JDialog {
             additions.forEach(s -> summaryText.append(" + ").append(s).append("\n"));
             summaryText.append("\n");
         }
+        if (!modifications.isEmpty()) {
+            summaryText.append("--- Items Changed ---\n");
+            modifications.forEach(s -> summaryText.append(" ~ ").append(s).append("\n"));
+            summaryText.append("\n");
+        }
         if (!deletions.isEmpty()) {
             summaryText.append("--- Items Removed ---\n");
             deletions.forEach(s -> summaryText.append(" - ").append(s).append("\n"));
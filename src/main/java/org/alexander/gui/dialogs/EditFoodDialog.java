@@ -1,5 +1,6 @@
 package org.alexander.gui.dialogs;
 
+import org.alexander.database.AsyncDao;
 import org.alexander.database.tables.food.Food;
 import org.alexander.database.tables.foodmeal.dao.FoodMealDao;
 import org.alexander.database.tables.foodsnack.dao.FoodSnackDao;
@@ -103,19 +104,27 @@ public class EditFoodDialog extends JDialog {
      * Handles the update action, persisting the new number of servings to the database.
      */
     private void onUpdate() {
+        double newServings;
         try {
-            double newServings = Double.parseDouble(servingsField.getText());
+            newServings = Double.parseDouble(servingsField.getText());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Please enter a valid number for servings.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        AsyncDao.supply(() -> {
             if (mealOrSnack instanceof Meal meal) {
-                foodMealDao.updateFoodMeal(food.getName(), meal.getId(), newServings);
+                return foodMealDao.updateFoodMeal(food.getName(), meal.getId(), newServings) != null;
             } else if (mealOrSnack instanceof Snack snack) {
-                foodSnackDao.updateFoodSnack(food.getName(), snack.getId(), newServings);
+                return foodSnackDao.updateFoodSnack(food.getName(), snack.getId(), newServings) != null;
+            }
+            return true;
+        }, updated -> {
+            if (!Boolean.TRUE.equals(updated)) {
+                CentralLogger.getInstance().logError("Failed to update serving size of " + food.getName());
+                JOptionPane.showMessageDialog(this, "An error occurred while updating.", "Database Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
             dispose();
-        } catch (NumberFormatException e) {
-            JOptionPane.showMessageDialog(this, "Please enter a valid number for servings.", "Input Error", JOptionPane.ERROR_MESSAGE);
-        } catch (Exception e) {
-            CentralLogger.getInstance().logError("Failed to update serving size: " + e.getMessage());
-            JOptionPane.showMessageDialog(this, "An error occurred while updating.", "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package org.alexander.gui.dialogs;
 
-import org.alexander.database.tables.day.Day;
+import org.alexander.database.AsyncDao;
+import org.alexander.database.InsertResult;
 import org.alexander.database.tables.day.dao.DayDao;
 import org.alexander.database.tables.meal.Meal;
 import org.alexander.database.tables.meal.MealTypes;
@@ -18,6 +19,7 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Dialog for editing meal or snack properties.
@@ -244,7 +246,8 @@ public class EditMealSnackDialog extends JDialog {
     }
 
     /**
-     * Handles the save action, updating the meal/snack in the database.
+     * Handles the save action, updating the meal/snack in the database in the background.
+     * The dialog stays open with the error shown if the update fails.
      */
     private void onSave() {
         errorLabel.setText(" "); // Reset error message
@@ -256,94 +259,89 @@ public class EditMealSnackDialog extends JDialog {
         }
 
         setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-        
-        try {
-            if (mealOrSnack instanceof Meal meal) {
-                saveMeal(meal, selectedTime);
-            } else if (mealOrSnack instanceof Snack snack) {
-                saveSnack(snack, selectedTime);
+        LocalDate originalDate;
+        LocalDate newDate = selectedDate;
+        Supplier<String> save;
+        if (mealOrSnack instanceof Meal meal) {
+            MealTypes selectedType = (MealTypes) mealTypeComboBox.getSelectedItem();
+            originalDate = meal.getDate();
+            save = () -> saveMeal(meal, newDate, selectedTime, selectedType);
+        } else if (mealOrSnack instanceof Snack snack) {
+            originalDate = snack.getDate();
+            save = () -> saveSnack(snack, newDate, selectedTime);
+        } else {
+            return;
+        }
+        AsyncDao.supply(save, error -> {
+            setCursor(Cursor.getDefaultCursor());
+            if (error != null) {
+                errorLabel.setText(error);
+                return;
             }
+            refreshDays(originalDate.getDayOfWeek(), newDate.getDayOfWeek());
             dispose();
-        } catch (Exception ex) {
-            errorLabel.setText("Error: " + ex.getMessage());
-        } finally {
-            setCursor(Cursor.getDefaultCursor());
-        }
+        });
     }
 
     /**
-     * Saves the updated meal to the database.
+     * Saves the updated meal to the database, called on the database thread.
      *
      * @param meal         The meal to update
+     * @param date         The new date
      * @param selectedTime The new time
+     * @param selectedType The new meal type
+     * @return an error message, or null if the meal was updated
      */
-    private void saveMeal(Meal meal, LocalTime selectedTime) {
-        MealTypes selectedType = (MealTypes) mealTypeComboBox.getSelectedItem();
-        LocalDate originalDate = meal.getDate();
-        DayOfWeek originalDayOfWeek = originalDate.getDayOfWeek();
-        DayOfWeek newDayOfWeek = selectedDate.getDayOfWeek();
-        
-        // Update the meal
-        Meal updatedMeal = mealDao.updateMeal(meal.getId(), selectedDate, selectedTime, selectedType);
-        
-        if (updatedMeal == null) {
-            errorLabel.setText("Error: Could not update meal in database.");
-            return;
-        }
-        
-        // Ensure the new day exists in the database
-        if (!selectedDate.equals(originalDate)) {
-            Day newDay = dayDao.getDay(selectedDate);
-            if (newDay == null) {
-                newDay = dayDao.addDay(selectedDate, week.getId());
-                if (newDay == null) {
-                    errorLabel.setText("Error: Could not create new day.");
-                    return;
-                }
-            }
+    private String saveMeal(Meal meal, LocalDate date, LocalTime selectedTime, MealTypes selectedType) {
+        // Ensure the new day exists in the database, the meal references it so it must be added first
+        String dayError = ensureDay(meal.getDate(), date);
+        if (dayError != null) {
+            return dayError;
         }
         
-        // Refresh affected day panels
-        if (weekScrollTab != null) {
-            weekScrollTab.refreshDay(originalDayOfWeek);
-            if (!originalDayOfWeek.equals(newDayOfWeek)) {
-                weekScrollTab.refreshDay(newDayOfWeek);
-            }
-        }
+        // Update the meal
+        Meal updatedMeal = mealDao.updateMeal(meal.getId(), date, selectedTime, selectedType);
+        return updatedMeal == null ? "Error: Could not update meal in database." : null;
     }
 
     /**
-     * Saves the updated snack to the database.
+     * Saves the updated snack to the database, called on the database thread.
      *
      * @param snack        The snack to update
+     * @param date         The new date
      * @param selectedTime The new time
+     * @return an error message, or null if the snack was updated
      */
-    private void saveSnack(Snack snack, LocalTime selectedTime) {
-        LocalDate originalDate = snack.getDate();
-        DayOfWeek originalDayOfWeek = originalDate.getDayOfWeek();
-        DayOfWeek newDayOfWeek = selectedDate.getDayOfWeek();
-        
-        // Update the snack
-        Snack updatedSnack = snackDao.updateSnack(snack.getId(), selectedDate, selectedTime);
-        
-        if (updatedSnack == null) {
-            errorLabel.setText("Error: Could not update snack in database.");
-            return;
+    private String saveSnack(Snack snack, LocalDate date, LocalTime selectedTime) {
+        // Ensure the new day exists in the database, the snack references it so it must be added first
+        String dayError = ensureDay(snack.getDate(), date);
+        if (dayError != null) {
+            return dayError;
         }
         
-        // Ensure the new day exists in the database
-        if (!selectedDate.equals(originalDate)) {
-            Day newDay = dayDao.getDay(selectedDate);
-            if (newDay == null) {
-                newDay = dayDao.addDay(selectedDate, week.getId());
-                if (newDay == null) {
-                    errorLabel.setText("Error: Could not create new day.");
-                    return;
-                }
+        // Update the snack
+        Snack updatedSnack = snackDao.updateSnack(snack.getId(), date, selectedTime);
+        return updatedSnack == null ? "Error: Could not update snack in database." : null;
+    }
+
+    /**
+     * Adds the day being moved to if it does not exist yet, called on the database thread.
+     * @return an error message, or null if the day exists
+     */
+    private String ensureDay(LocalDate originalDate, LocalDate date) {
+        if (!date.equals(originalDate)) {
+            InsertResult.Status dayStatus = dayDao.insertDay(date, week.getId(), null).status();
+            if (dayStatus != InsertResult.Status.INSERTED && dayStatus != InsertResult.Status.DUPLICATE) {
+                return "Error: Could not create new day.";
             }
         }
-        
-        // Refresh affected day panels
+        return null;
+    }
+
+    /**
+     * Refreshes the day panels affected by the move.
+     */
+    private void refreshDays(DayOfWeek originalDayOfWeek, DayOfWeek newDayOfWeek) {
         if (weekScrollTab != null) {
             weekScrollTab.refreshDay(originalDayOfWeek);
             if (!originalDayOfWeek.equals(newDayOfWeek)) {
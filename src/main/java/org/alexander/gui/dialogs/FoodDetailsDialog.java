@@ -1,12 +1,13 @@
 package org.alexander.gui.dialogs;
 
+import org.alexander.database.AsyncDao;
+import org.alexander.database.DatabaseManager;
+import org.alexander.database.Transaction;
 import org.alexander.database.tables.food.Food;
 import org.alexander.database.tables.food.dao.FoodDao;
 import org.alexander.database.tables.foodtype.FoodType;
 import org.alexander.database.tables.foodtype.dao.FoodTypeDao;
 import org.alexander.database.tables.foodtypefood.dao.FoodJunctionTypeDao;
-import org.alexander.database.tables.foodmeal.dao.FoodMealDao;
-import org.alexander.database.tables.foodsnack.dao.FoodSnackDao;
 import org.alexander.gui.tab.WeekScrollTab;
 
 import javax.swing.*;
@@ -31,12 +32,13 @@ public class FoodDetailsDialog extends JDialog {
     private final JTextField servingCaloriesField;
     private final Map<FoodType, JCheckBox> foodTypeCheckboxes = new HashMap<>();
     private final JLabel errorLabel = new JLabel(" ");
+    private final JPanel selectTypePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+    private final JButton saveButton = new JButton("Save");
+    private final JButton deleteButton = new JButton("Delete");
     
     private final FoodDao foodDao = new FoodDao();
     private final FoodTypeDao foodTypeDao = new FoodTypeDao();
     private final FoodJunctionTypeDao foodJunctionTypeDao = new FoodJunctionTypeDao();
-    private final FoodMealDao foodMealDao = new FoodMealDao();
-    private final FoodSnackDao foodSnackDao = new FoodSnackDao();
 
     /**
      * Constructs a FoodDetailsDialog for viewing and editing a food item.
@@ -58,7 +60,6 @@ public class FoodDetailsDialog extends JDialog {
                 food.getServingCalories() != null ? String.valueOf(food.getServingCalories()) : "");
         
         setupUI(owner);
-        loadFoodTypes();
     }
 
     /**
@@ -98,13 +99,7 @@ public class FoodDetailsDialog extends JDialog {
         gbc.gridx = 0; gbc.gridy = 3;
         contentPanel.add(new JLabel("Food Type(s):"), gbc);
         gbc.gridx = 1; gbc.gridy = 3;
-        JPanel selectTypePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
-        
-        for (FoodType type : foodTypeDao.getFoodTypeList()) {
-            JCheckBox checkbox = new JCheckBox(type.getName());
-            foodTypeCheckboxes.put(type, checkbox);
-            selectTypePanel.add(checkbox);
-        }
+        selectTypePanel.add(new JLabel("Loading..."));
         contentPanel.add(selectTypePanel, gbc);
 
         // Error Label
@@ -115,8 +110,6 @@ public class FoodDetailsDialog extends JDialog {
 
         // Button Panel
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 10));
-        JButton saveButton = new JButton("Save");
-        JButton deleteButton = new JButton("Delete");
         JButton cancelButton = new JButton("Cancel");
 
         saveButton.addActionListener(e -> onSave());
@@ -132,20 +125,34 @@ public class FoodDetailsDialog extends JDialog {
         pack();
         setResizable(false);
         setLocationRelativeTo(owner);
+        loadFoodTypes();
         setVisible(true);
     }
 
     /**
-     * Loads the current food types for the food and checks the appropriate checkboxes.
+     * Loads every food type and the food's current types in the background, then adds a checkbox per type,
+     * checking the food's current types. Saving and deleting are enabled once the types have loaded.
      */
     private void loadFoodTypes() {
-        List<FoodType> currentTypes = foodJunctionTypeDao.getTypes(food);
-        for (FoodType type : currentTypes) {
-            JCheckBox checkbox = foodTypeCheckboxes.get(type);
-            if (checkbox != null) {
-                checkbox.setSelected(true);
+        saveButton.setEnabled(false);
+        deleteButton.setEnabled(false);
+        AsyncDao.supply(() -> List.of(foodTypeDao.getFoodTypeList(), foodJunctionTypeDao.getTypes(food)), types -> {
+            selectTypePanel.removeAll();
+            if (types == null) {
+                errorLabel.setText("Error: Could not load food types.");
+                return;
             }
-        }
+            List<FoodType> currentTypes = types.get(1);
+            for (FoodType type : types.get(0)) {
+                JCheckBox checkbox = new JCheckBox(type.getName());
+                checkbox.setSelected(currentTypes.contains(type));
+                foodTypeCheckboxes.put(type, checkbox);
+                selectTypePanel.add(checkbox);
+            }
+            saveButton.setEnabled(true);
+            deleteButton.setEnabled(true);
+            pack();
+        });
     }
 
     /**
@@ -208,35 +215,50 @@ public class FoodDetailsDialog extends JDialog {
             return;
         }
 
+        Double grams = servingGrams;
+        Double calories = servingCalories;
+        saveButton.setEnabled(false);
+        AsyncDao.supply(() -> DatabaseManager.inTransaction(tx -> saveFood(tx, grams, calories, selectedTypes)), updated -> {
+            saveButton.setEnabled(true);
+            if (!Boolean.TRUE.equals(updated)) {
+                errorLabel.setText("Error: Could not update food in the database.");
+                return;
+            }
+            // Refresh all DayPanels if WeekManager is accessible
+            refreshAllDayPanels();
+            dispose();
+        });
+    }
+
+    /**
+     * Updates the food and its types in the database, called on the database thread in a transaction.
+     * @return true if the food was updated
+     */
+    private boolean saveFood(Transaction tx, Double servingGrams, Double servingCalories, List<FoodType> selectedTypes) {
         // Update the food in the database
         Food updatedFood = foodDao.updateFood(food.getName(), servingGrams, servingCalories);
         if (updatedFood == null) {
-            errorLabel.setText("Error: Could not update food in the database.");
-            return;
+            return tx.setRollbackOnly("could not update food " + food.getName());
         }
 
         // Update food types
         // First, get current types
         List<FoodType> currentTypes = foodJunctionTypeDao.getTypes(food);
-        
+
         // Remove types that are no longer selected
         for (FoodType type : currentTypes) {
-            if (!selectedTypes.contains(type)) {
-                foodJunctionTypeDao.deleteFoodTypeFood(food.getName(), type.getName());
+            if (!selectedTypes.contains(type) && !foodJunctionTypeDao.deleteFoodTypeFood(food.getName(), type.getName())) {
+                return tx.setRollbackOnly("could not remove type " + type.getName() + " from " + food.getName());
             }
         }
-        
+
         // Add new selected types
         for (FoodType type : selectedTypes) {
-            if (!currentTypes.contains(type)) {
-                foodJunctionTypeDao.addFoodTypeFood(food, type);
+            if (!currentTypes.contains(type) && foodJunctionTypeDao.addFoodTypeFood(food, type) == null) {
+                return tx.setRollbackOnly("could not add type " + type.getName() + " to " + food.getName());
             }
         }
-
-        // Refresh all DayPanels if WeekManager is accessible
-        refreshAllDayPanels();
-        
-        dispose();
+        return true;
     }
 
     /**
@@ -258,45 +280,26 @@ public class FoodDetailsDialog extends JDialog {
 
         if (confirm == JOptionPane.YES_OPTION) {
             setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-            
-            try {
-                // Delete all FOOD_MEAL associations
-                foodMealDao.getFoodMealList().stream()
-                        .filter(fm -> fm.getFoodName().equals(food.getName()))
-                        .forEach(fm -> foodMealDao.deleteFoodMeal(fm.getFoodName(), fm.getMealId()));
-
-                // Delete all FOOD_SNACK associations
-                foodSnackDao.getFoodSnackList().stream()
-                        .filter(fs -> fs.getFoodName().equals(food.getName()))
-                        .forEach(fs -> foodSnackDao.deleteFoodSnack(fs.getFoodName(), fs.getSnackId()));
-
-                // Delete all FOOD_TYPE_JUNCTION_FOOD associations
-                List<FoodType> currentTypes = foodJunctionTypeDao.getTypes(food);
-                for (FoodType type : currentTypes) {
-                    foodJunctionTypeDao.deleteFoodTypeFood(food.getName(), type.getName());
-                }
-
-                // Finally, delete the food itself
-                boolean deleted = foodDao.deleteFood(food.getName());
-                
-                if (!deleted) {
+            deleteButton.setEnabled(false);
+            AsyncDao.supply(() -> foodDao.deleteFoodCascade(food), deleted -> {
+                setCursor(Cursor.getDefaultCursor());
+                deleteButton.setEnabled(true);
+                if (!Boolean.TRUE.equals(deleted)) {
                     errorLabel.setText("Error: Could not delete food from database.");
                     return;
                 }
 
                 // Refresh all DayPanels
                 refreshAllDayPanels();
-                
+
                 JOptionPane.showMessageDialog(
                         this,
                         "Food deleted successfully.",
                         "Success",
                         JOptionPane.INFORMATION_MESSAGE);
-                
+
                 dispose();
-            } finally {
-                setCursor(Cursor.getDefaultCursor());
-            }
+            });
         }
     }
 
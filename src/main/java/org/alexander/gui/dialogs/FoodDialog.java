@@ -1,5 +1,6 @@
 package org.alexander.gui.dialogs;
 
+import org.alexander.database.AsyncDao;
 import org.alexander.database.tables.food.Food;
 import org.alexander.database.tables.food.dao.FoodDao;
 import org.alexander.database.tables.foodtype.FoodType;
@@ -67,13 +68,7 @@ public class FoodDialog extends JDialog {
         contentPanel.add(new JLabel("Food Type(s):"), gbc);
         gbc.gridx = 1; gbc.gridy = 3;
         JPanel selectTypePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
-        FoodTypeDao foodTypeDao = new FoodTypeDao();
-        for (FoodType type : foodTypeDao.getFoodTypeList()) {
-            JCheckBox checkbox = new JCheckBox(type.getName());
-            foodCheckboxes.add(checkbox);
-            foodTypes.add(type);
-            selectTypePanel.add(checkbox);
-        }
+        selectTypePanel.add(new JLabel("Loading..."));
         contentPanel.add(selectTypePanel, gbc);
 
         // Notification Label
@@ -89,9 +84,34 @@ public class FoodDialog extends JDialog {
         addListeners();
         pack();
         setResizable(false);
+        loadFoodTypes(selectTypePanel);
         setVisible(true); // This will block until the dialog is disposed
     }
 
+    /**
+     * Loads the food types in the background and adds a checkbox per type once loaded.
+     * Adding the food is enabled once the types have loaded.
+     * @param selectTypePanel the panel holding the checkboxes
+     */
+    private void loadFoodTypes(JPanel selectTypePanel) {
+        addFoodButton.setEnabled(false);
+        AsyncDao.supply(() -> new FoodTypeDao().getFoodTypeList(), types -> {
+            selectTypePanel.removeAll();
+            if (types == null) {
+                addFoodNotification.setText("Error: Could not load food types.");
+                return;
+            }
+            for (FoodType type : types) {
+                JCheckBox checkbox = new JCheckBox(type.getName());
+                foodCheckboxes.add(checkbox);
+                foodTypes.add(type);
+                selectTypePanel.add(checkbox);
+            }
+            addFoodButton.setEnabled(true);
+            pack();
+        });
+    }
+
     /**
      * Returns the food item that was created in the dialog.
      * @return The created {@link Food} object, or null if no food was created or the dialog was cancelled.
@@ -120,11 +140,8 @@ public class FoodDialog extends JDialog {
                 addFoodNotification.setText("Food name is required.");
                 return;
             }
-            if (foodDao.contains(name, "name")) {
-                addFoodNotification.setText("Food with this name already exists.");
-                return;
-            }
-            if (getSelectedFoodTypes().isEmpty()) {
+            ArrayList<FoodType> selectedTypes = getSelectedFoodTypes();
+            if (selectedTypes.isEmpty()) {
                 addFoodNotification.setText("At least one food type must be selected.");
                 return;
             }
@@ -149,17 +166,36 @@ public class FoodDialog extends JDialog {
                 return;
             }
 
-            this.newFood = foodDao.addFood(name, servingGrams, calories);
-
-            if (this.newFood != null) {
-                FoodJunctionTypeDao foodJunctionTypeDao = new FoodJunctionTypeDao();
-                for (FoodType type : getSelectedFoodTypes()) {
-                    foodJunctionTypeDao.addFoodTypeFood(this.newFood, type);
+            Double grams = servingGrams;
+            Double foodCalories = calories;
+            addFoodButton.setEnabled(false);
+            AsyncDao.supply(() -> addFood(name, grams, foodCalories, selectedTypes), message -> {
+                addFoodButton.setEnabled(true);
+                if (message != null) {
+                    addFoodNotification.setText(message);
+                    return;
                 }
                 this.dispose(); // Close the dialog on success
-            } else {
-                addFoodNotification.setText("Error: Could not save food to the database.");
-            }
+            });
         });
     }
+
+    /**
+     * Adds the food and its types to the database, called on the database thread.
+     * @return a message saying why the food was not added, or null once it has been
+     */
+    private String addFood(String name, Double servingGrams, Double calories, ArrayList<FoodType> selectedTypes) {
+        if (foodDao.contains(name, "name")) {
+            return "Food with this name already exists.";
+        }
+        this.newFood = foodDao.addFood(name, servingGrams, calories);
+        if (this.newFood == null) {
+            return "Error: Could not save food to the database.";
+        }
+        FoodJunctionTypeDao foodJunctionTypeDao = new FoodJunctionTypeDao();
+        for (FoodType type : selectedTypes) {
+            foodJunctionTypeDao.addFoodTypeFood(this.newFood, type);
+        }
+        return null;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package org.alexander.gui.dialogs;
 
+import org.alexander.database.AsyncDao;
 import org.alexander.database.tables.day.Day;
 import org.alexander.database.tables.day.dao.DayDao;
 import org.alexander.database.tables.meal.MealTypes;
@@ -88,21 +89,33 @@ public class MealDialog extends JDialog {
     }
 
     private void onAddMeal() {
-        Day day = dayDao.getDay(this.date);
-        if (day == null) {
-            day = dayDao.addDay(this.date, week.getId());
-        }
+        LocalDate date = this.date;
+        MealTypes type = (MealTypes) dayComboBox.getSelectedItem();
+        LocalTime time = (LocalTime) timeComboBox.getSelectedItem();
+        AsyncDao.supply(() -> {
+            Day day = getOrAddDay(date);
+            if (day != null) {
+                new MealDao().addMeal(day, type, time);
+            }
+            return day;
+        }, day -> {
+            if (day == null) {
+                infoLabel.setText("Error creating day.");
+                infoLabel.setForeground(Color.RED);
+                CentralLogger.getInstance().logError("Failed to get or create a Day object for date: " + date);
+                return;
+            }
+            dispose();
+        });
+    }
 
+    // Called on the database thread
+    private Day getOrAddDay(LocalDate date) {
+        Day day = dayDao.getDay(date);
         if (day == null) {
-            infoLabel.setText("Error creating day.");
-            infoLabel.setForeground(Color.RED);
-            CentralLogger.getInstance().logError("Failed to get or create a Day object for date: " + this.date);
-            return;
+            day = dayDao.addDay(date, week.getId());
         }
-
-        MealDao mealDao = new MealDao();
-        mealDao.addMeal(day, (MealTypes) dayComboBox.getSelectedItem(), (LocalTime) timeComboBox.getSelectedItem());
-        dispose();
+        return day;
     }
 
     private void setDay(DayOfWeek dayOfWeek) {
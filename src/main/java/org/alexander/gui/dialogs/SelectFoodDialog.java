@@ -1,12 +1,15 @@
 package org.alexander.gui.dialogs;
 
+import org.alexander.database.AsyncDao;
 import org.alexander.database.tables.food.Food;
 import org.alexander.database.tables.food.dao.FoodDao;
+import org.alexander.database.tables.food.dao.FoodDaoInterface;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
@@ -18,8 +21,8 @@ public class SelectFoodDialog extends JDialog {
     private final JTextField searchField = new JTextField();
     private final DefaultListModel<Food> listModel = new DefaultListModel<>();
     private final JList<Food> foodList;
-    private final List<Food> allFoods;
-    private final FoodDao foodDao = new FoodDao();
+    private final List<Food> allFoods = new ArrayList<>();
+    private final AsyncDao<FoodDaoInterface> foodDao = new AsyncDao<>(new FoodDao());
 
     /**
      * Constructs a SelectFoodDialog for searching and selecting food items.
@@ -29,13 +32,6 @@ public class SelectFoodDialog extends JDialog {
     public SelectFoodDialog(Window owner) {
         super(owner, "Select Food", ModalityType.APPLICATION_MODAL);
         
-        // Load and sort all foods alphabetically
-        allFoods = foodDao.getFoodList();
-        allFoods.sort(Comparator.comparing(Food::getName, String.CASE_INSENSITIVE_ORDER));
-        
-        // Initialize the list with all foods
-        allFoods.forEach(listModel::addElement);
-        
         // Create the food list with custom renderer
         foodList = new JList<>(listModel);
         foodList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -54,6 +50,8 @@ public class SelectFoodDialog extends JDialog {
         
         setupUI(owner);
         pack();
+        // Load and sort all foods alphabetically, filling the list once loaded
+        refreshFoodList();
         setVisible(true);
     }
 
@@ -135,13 +133,18 @@ public class SelectFoodDialog extends JDialog {
     }
 
     /**
-     * Refreshes the food list from the database.
+     * Refreshes the food list from the database in the background.
      * Maintains the current search filter.
      */
     private void refreshFoodList() {
-        allFoods.clear();
-        allFoods.addAll(foodDao.getFoodList());
-        allFoods.sort(Comparator.comparing(Food::getName, String.CASE_INSENSITIVE_ORDER));
-        filterFoodList();
+        foodDao.query(FoodDaoInterface::getFoodList, foods -> {
+            if (foods == null) {
+                return;
+            }
+            allFoods.clear();
+            allFoods.addAll(foods);
+            allFoods.sort(Comparator.comparing(Food::getName, String.CASE_INSENSITIVE_ORDER));
+            filterFoodList();
+        });
     }
 }
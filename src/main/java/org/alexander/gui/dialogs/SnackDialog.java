@@ -1,5 +1,6 @@
 package org.alexander.gui.dialogs;
 
+import org.alexander.database.AsyncDao;
 import org.alexander.database.tables.day.Day;
 import org.alexander.database.tables.day.dao.DayDao;
 import org.alexander.database.tables.snack.dao.SnackDao;
@@ -79,21 +80,32 @@ public class SnackDialog extends JDialog {
     }
 
     private void onAddSnack() {
-        Day day = dayDao.getDay(this.date);
-        if (day == null) {
-            day = dayDao.addDay(this.date, week.getId());
-        }
+        LocalDate date = this.date;
+        LocalTime time = (LocalTime) timeComboBox.getSelectedItem();
+        AsyncDao.supply(() -> {
+            Day day = getOrAddDay(date);
+            if (day != null) {
+                new SnackDao().addSnack(day, time);
+            }
+            return day;
+        }, day -> {
+            if (day == null) {
+                infoLabel.setText("Error creating day.");
+                infoLabel.setForeground(Color.RED);
+                CentralLogger.getInstance().logError("Failed to get or create a Day object for date: " + date);
+                return;
+            }
+            dispose();
+        });
+    }
 
+    // Called on the database thread
+    private Day getOrAddDay(LocalDate date) {
+        Day day = dayDao.getDay(date);
         if (day == null) {
-            infoLabel.setText("Error creating day.");
-            infoLabel.setForeground(Color.RED);
-            CentralLogger.getInstance().logError("Failed to get or create a Day object for date: " + this.date);
-            return;
+            day = dayDao.addDay(date, week.getId());
         }
-
-        SnackDao snackDao = new SnackDao();
-        snackDao.addSnack(day, (LocalTime) timeComboBox.getSelectedItem());
-        dispose();
+        return day;
     }
 
     private void setDay(DayOfWeek dayOfWeek) {
@@ -1,12 +1,17 @@
 package org.alexander.gui.tab;
 
+import org.alexander.database.AsyncDao;
 import org.alexander.database.tables.day.Day;
+import org.alexander.database.tables.daycontents.DayContents;
+import org.alexander.database.tables.daycontents.dao.DayContentsDao;
+import org.alexander.database.tables.daycontents.dao.DayContentsDaoInterface;
 import org.alexander.database.tables.food.Food;
 import org.alexander.database.tables.food.dao.FoodDao;
-import org.alexander.database.tables.foodmeal.FoodMeal;
+import org.alexander.database.tables.food.dao.FoodDaoInterface;
 import org.alexander.database.tables.foodmeal.dao.FoodMealDao;
-import org.alexander.database.tables.foodsnack.FoodSnack;
+import org.alexander.database.tables.foodmeal.dao.FoodMealDaoInterface;
 import org.alexander.database.tables.foodsnack.dao.FoodSnackDao;
+import org.alexander.database.tables.foodsnack.dao.FoodSnackDaoInterface;
 import org.alexander.database.tables.meal.Meal;
 import org.alexander.database.tables.meal.dao.MealDao;
 import org.alexander.database.tables.snack.Snack;
@@ -18,6 +23,7 @@ import org.alexander.gui.dialogs.MealDialog;
 import org.alexander.gui.dialogs.SnackDialog;
 import org.alexander.gui.dialogs.ViewMealSnackDialog;
 import org.alexander.gui.dialogs.EditMealSnackDialog;
+import org.alexander.logging.CentralLogger;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
@@ -47,18 +53,30 @@ class DayPanel extends JPanel {
     private final TitledBorder titledBorder;
     private final Day day;
     private final Week week;
-    private final FoodMealDao foodMealDao = new FoodMealDao();
-    private final FoodSnackDao foodSnackDao = new FoodSnackDao();
-    private final FoodDao foodDao = new FoodDao();
+    private final AsyncDao<FoodMealDaoInterface> foodMealDao = new AsyncDao<>(new FoodMealDao());
+    private final AsyncDao<FoodSnackDaoInterface> foodSnackDao = new AsyncDao<>(new FoodSnackDao());
+    private final AsyncDao<FoodDaoInterface> foodDao = new AsyncDao<>(new FoodDao());
+    private final AsyncDao<DayContentsDaoInterface> dayContentsDao = new AsyncDao<>(new DayContentsDao());
     private List<Object> mealAndSnackObjects = new ArrayList<>();
+    private List<DayContents.Entry> entriesForColumns = new ArrayList<>();
     private List<List<Food>> foodsForColumns = new ArrayList<>();
 
     /**
-     * Constructs a DayPanel.
+     * Constructs a DayPanel, loading its contents from the database in the background.
      * @param day The Day object this panel represents.
      * @param week The Week object this day belongs to, used for context in dialogs.
      */
     DayPanel(Day day, Week week) {
+        this(day, week, null);
+    }
+
+    /**
+     * Constructs a DayPanel from contents which have already been loaded, e.g. as part of a week.
+     * @param day The Day object this panel represents.
+     * @param week The Week object this day belongs to, used for context in dialogs.
+     * @param contents The meals and snacks of the day, or null to load them from the database.
+     */
+    DayPanel(Day day, Week week, DayContents contents) {
         super();
         this.day = day;
         this.week = week;
@@ -66,7 +84,10 @@ class DayPanel extends JPanel {
         init();
         table = new JTable();
         initTable();
-        refreshTable();
+        refreshTable(contents != null ? contents : new DayContents(day.getDate()));
+        if (contents == null) {
+            refreshTable();
+        }
         JScrollPane scrollPane = new JScrollPane(table);
         // Use a very light gray for the scroll pane background to blend with the panel
         scrollPane.getViewport().setBackground(new Color(250, 250, 250));
@@ -179,7 +200,7 @@ class DayPanel extends JPanel {
                     removeFoodItem.addActionListener(ae -> removeFoodFromMealOrSnack(food, mealOrSnackObject));
                     popupMenu.add(removeFoodItem);
 
-                    double numServings = getNumServings(food, mealOrSnackObject);
+                    double numServings = getNumServings(food, col);
 
                     JMenuItem editDetailsItem = new JMenuItem("Details");
                     editDetailsItem.addActionListener(ae -> {
@@ -201,13 +222,26 @@ class DayPanel extends JPanel {
         popupMenu.show(e.getComponent(), e.getX(), e.getY());
     }
 
+    /**
+     * Loads the food catalogue in the background, then opens a dialog to select an existing food item to add to a
+     * meal or snack.
+     * @param mealOrSnackObject The meal or snack to add the food to.
+     */
+    private void addExistingFoodToMealOrSnack(Object mealOrSnackObject) {
+        foodDao.query(FoodDaoInterface::getFoodList, foods -> {
+            if (foods != null) {
+                showSelectExistingFoodDialog(foods, mealOrSnackObject);
+            }
+        });
+    }
+
     /**
      * Opens a dialog to select an existing food item to add to a meal or snack.
      * The search functionality is case-insensitive.
+     * @param allFoods The foods to choose from.
      * @param mealOrSnackObject The meal or snack to add the food to.
      */
-    private void addExistingFoodToMealOrSnack(Object mealOrSnackObject) {
-        List<Food> allFoods = foodDao.getFoodList();
+    private void showSelectExistingFoodDialog(List<Food> allFoods, Object mealOrSnackObject) {
         allFoods.sort(Comparator.comparing(Food::getName, String.CASE_INSENSITIVE_ORDER));
 
         JDialog dialog = new JDialog(SwingUtilities.getWindowAncestor(this), "Select Existing Food", Dialog.ModalityType.APPLICATION_MODAL);
@@ -276,11 +310,10 @@ class DayPanel extends JPanel {
      */
     private void addFoodToMealOrSnack(Food food, Object mealOrSnackObject) {
         if (mealOrSnackObject instanceof Meal meal) {
-            foodMealDao.addFoodMeal(food, meal, 1.0);
+            foodMealDao.update(dao -> dao.addFoodMeal(food, meal, 1.0), this::refreshTable);
         } else if (mealOrSnackObject instanceof Snack snack) {
-            foodSnackDao.addFoodSnack(food, snack, 1.0);
+            foodSnackDao.update(dao -> dao.addFoodSnack(food, snack, 1.0), this::refreshTable);
         }
-        refreshTable();
     }
 
     /**
@@ -295,24 +328,15 @@ class DayPanel extends JPanel {
         }
     }
     /**
-     * Retrieves the number of servings for a specific food within a meal or snack.
+     * Retrieves the number of servings for a specific food within a meal or snack column,
+     * from the contents loaded by the last refresh.
      * @param food The food item.
-     * @param mealOrSnackObject The containing meal or snack.
+     * @param col The column of the containing meal or snack.
      * @return The number of servings, or 1.0 as a default.
      */
-    private double getNumServings(Food food, Object mealOrSnackObject) {
-        if (mealOrSnackObject instanceof Meal meal) {
-            FoodMeal fm = foodMealDao.getFoodMeal(food.getName(), meal.getId());
-            if (fm != null && fm.getNumServings() != null) {
-                return fm.getNumServings();
-            }
-        } else if (mealOrSnackObject instanceof Snack snack) {
-            FoodSnack fs = foodSnackDao.getFoodSnack(food.getName(), snack.getId());
-            if (fs != null && fs.getNumServings() != null) {
-                return fs.getNumServings();
-            }
-        }
-        return 1.0; // Default to 1.0 if not found
+    private double getNumServings(Food food, int col) {
+        DayContents.Portion portion = entriesForColumns.get(col).getPortion(food.getName());
+        return portion != null ? portion.numServings() : 1.0; // Default to 1.0 if not found
     }
 
     /**
@@ -363,22 +387,21 @@ class DayPanel extends JPanel {
                 "Confirm Deletion", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            if (mealOrSnackObject instanceof Meal meal) {
-                // First delete associations in FOOD_MEAL
-                foodMealDao.getFoodMealList().stream()
-                        .filter(fm -> fm.getMealId() == meal.getId())
-                        .forEach(foodMealDao::deleteFoodMeal);
-                // Then delete the meal itself
-                new MealDao().deleteMeal(meal);
-            } else if (mealOrSnackObject instanceof Snack snack) {
-                // First delete associations in FOOD_SNACK
-                foodSnackDao.getFoodSnackList().stream()
-                        .filter(fs -> fs.getSnackId() != null && fs.getSnackId().equals(snack.getId()))
-                        .forEach(foodSnackDao::deleteFoodSnack);
-                // Then delete the snack itself
-                new SnackDao().deleteSnack(snack);
-            }
-            refreshTable();
+            // Removes the foods in it and the meal or snack itself together, one statement per table
+            AsyncDao.supply(() -> {
+                if (mealOrSnackObject instanceof Meal meal) {
+                    return new MealDao().deleteMealCascade(meal);
+                } else if (mealOrSnackObject instanceof Snack snack) {
+                    return new SnackDao().deleteSnackCascade(snack);
+                }
+                return false;
+            }, deleted -> {
+                if (!Boolean.TRUE.equals(deleted)) {
+                    CentralLogger.getInstance().logError("Failed to delete " + mealOrSnackObject);
+                    JOptionPane.showMessageDialog(this, "The item could not be deleted.", "Database Error", JOptionPane.ERROR_MESSAGE);
+                }
+                refreshTable();
+            });
         }
     }
 
@@ -389,55 +412,40 @@ class DayPanel extends JPanel {
      */
     private void removeFoodFromMealOrSnack(Food food, Object mealOrSnackObject) {
         if (mealOrSnackObject instanceof Meal meal) {
-            foodMealDao.deleteFoodMeal(food.getName(), meal.getId());
+            foodMealDao.update(dao -> dao.deleteFoodMeal(food.getName(), meal.getId()), this::refreshTable);
         } else if (mealOrSnackObject instanceof Snack snack) {
-            foodSnackDao.deleteFoodSnack(food.getName(), snack.getId());
+            foodSnackDao.update(dao -> dao.deleteFoodSnack(food.getName(), snack.getId()), this::refreshTable);
         }
-        refreshTable();
     }
 
     /**
-     * Refreshes the entire table by re-fetching data from the database,
-     * rebuilding the model, applying custom cell renderers, and resizing columns.
+     * Re-fetches the day's contents from the database in the background, then rebuilds the model,
+     * applies custom cell renderers, and resizes columns.
      */
     public void refreshTable() {
-        MealDao mealDao = new MealDao();
-        SnackDao snackDao = new SnackDao();
-
-        List<Meal> meals = mealDao.getDayMeals(day);
-        List<Snack> snacks = snackDao.getDaySnacks(day);
+        dayContentsDao.query(dao -> dao.getDayContents(day), contents -> {
+            refreshTable(contents != null ? contents : new DayContents(day.getDate()));
+            revalidate();
+            repaint();
+        });
+    }
 
+    /**
+     * Refreshes the entire table from contents which have already been loaded,
+     * rebuilding the model, applying custom cell renderers, and resizing columns.
+     * @param contents The meals and snacks of this panel's day.
+     */
+    void refreshTable(DayContents contents) {
         mealAndSnackObjects = new ArrayList<>();
-        mealAndSnackObjects.addAll(meals);
-        mealAndSnackObjects.addAll(snacks);
-
-        mealAndSnackObjects.sort(Comparator.comparing(o -> {
-            if (o instanceof Meal) return ((Meal) o).getTime();
-            if (o instanceof Snack) return ((Snack) o).getTime();
-            return null;
-        }, Comparator.nullsLast(Comparator.naturalOrder())));
-
-        int colCount = mealAndSnackObjects.size() + 1; // +1 for the "Add New" column
-        int maxFoods = 0;
+        entriesForColumns = new ArrayList<>();
         foodsForColumns = new ArrayList<>();
+        int colCount = contents.getEntries().size() + 1; // +1 for the "Add New" column
+        int maxFoods = 0;
 
-        for (Object obj : mealAndSnackObjects) {
-            List<Food> foods = new ArrayList<>();
-            if (obj instanceof Meal meal) {
-                List<FoodMeal> foodMeals = foodMealDao.getFoodMealList().stream()
-                        .filter(fm -> fm.getMealId() == meal.getId()).toList();
-                for (FoodMeal fm : foodMeals) {
-                    Food food = foodDao.getFood(fm.getFoodName());
-                    if (food != null) foods.add(food);
-                }
-            } else if (obj instanceof Snack snack) {
-                List<FoodSnack> foodSnacks = foodSnackDao.getFoodSnackList().stream()
-                        .filter(fs -> fs.getSnackId() != null && fs.getSnackId().equals(snack.getId())).toList();
-                for (FoodSnack fs : foodSnacks) {
-                    Food food = foodDao.getFood(fs.getFoodName());
-                    if (food != null) foods.add(food);
-                }
-            }
+        for (DayContents.Entry entry : contents.getEntries()) {
+            mealAndSnackObjects.add(entry.mealOrSnack());
+            entriesForColumns.add(entry);
+            List<Food> foods = entry.portions().stream().map(DayContents.Portion::food).toList();
             foodsForColumns.add(foods);
             if (foods.size() > maxFoods) {
                 maxFoods = foods.size();
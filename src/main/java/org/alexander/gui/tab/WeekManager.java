@@ -1,5 +1,6 @@
 package org.alexander.gui.tab;
 
+import org.alexander.database.AsyncDao;
 import org.alexander.database.tables.day.Day;
 import org.alexander.database.tables.week.Week;
 import org.alexander.database.tables.week.dao.WeekDao;
@@ -14,7 +15,6 @@ import java.util.HashMap;
 
 public class WeekManager {
     private static final org.alexander.logging.CentralLogger logger = org.alexander.logging.CentralLogger.getInstance();
-    private final Week week;
     private final JTabbedPane tabbedPane;
     private TableModel model;
     private WeekDao weekDao = new WeekDao();
@@ -23,25 +23,30 @@ public class WeekManager {
 
     public WeekManager(Week week, JTabbedPane tabbedPane) {
         this.tabbedPane = tabbedPane;
-        this.week = week;
-        init();
+        init(week);
     }
+
+    /**
+     * Opens the current week, which is looked up, or added, in the background.
+     * @param tabbedPane the pane holding a tab per open week
+     */
     public WeekManager(JTabbedPane tabbedPane) {
-        LocalDate closestMonday = weekDao.getClosestMonday(LocalDate.now());
-        Week week = weekDao.getWeek(closestMonday);
-        if (week == null) {
-            week = weekDao.addWeek(closestMonday);
-        }
         this.tabbedPane = tabbedPane;
-        this.week = week;
-        init();
+        LocalDate closestMonday = weekDao.getClosestMonday(LocalDate.now());
+        AsyncDao.supply(() -> getNextWeek(closestMonday), week -> {
+            if (week == null) {
+                logger.logError("WeekManager failed to get or add the current week: " + closestMonday);
+                return;
+            }
+            init(week);
+        });
     }
 
     public JTabbedPane getJTabbedPane() {
         return tabbedPane;
     }
 
-    private void init() {
+    private void init(Week week) {
         openWeek(week);
         // ok we may switch to a JOption pane with 7 nested JOption panes each with one table, the nested JOptionPanes will each represent a day of the Week.
         // Ok new plan. JOptionPane with nested JPanels (which can have a title set to BorderLayoutNorth) each with a table inside a JScrollPane.
@@ -62,17 +67,25 @@ public class WeekManager {
     public void openNextWeek() {
         Week currentTab = getTabbedPaneWeek();
         LocalDate nextWeekDate = getNextWeekDate(currentTab);
-        Week nextWeek = getNextWeek(nextWeekDate);
-        openWeek(nextWeek);
+        AsyncDao.supply(() -> getNextWeek(nextWeekDate), this::openLoadedWeek);
     }
 
     public void openPreviousWeek() {
         Week currentTab = getTabbedPaneWeek();
         LocalDate previousWeekDate = getPreviousWeekDate(currentTab);
-        Week previousWeek = getNextWeek(previousWeekDate);
-        openWeek(previousWeek);
+        AsyncDao.supply(() -> getNextWeek(previousWeekDate), this::openLoadedWeek);
     }
 
+    private void openLoadedWeek(Week week) {
+        if (week == null) {
+            logger.logError("WeekManager failed to get or add a week.");
+            GUIHandler.setCursor(tabbedPane, Cursor.getDefaultCursor());
+            return;
+        }
+        openWeek(week);
+    }
+
+    // Called on the database thread
     private Week getNextWeek(LocalDate startDate) {
         if (weekDao.contains(startDate.toString(), "start_date")) {
             return weekDao.getWeek(startDate);
@@ -101,25 +114,47 @@ public class WeekManager {
         throw new IllegalStateException("Selected tab is not a WeekScrollTab");
     }
 
+    /**
+     * Selects the tab of a week, opening a new tab if the week is not open yet. The week is added to the database
+     * in the background if it does not exist.
+     * @param week the week to show
+     */
     public void openWeek(Week week) {
-        Week workingWeek;
         if (weekTabMap.containsKey(week)) {
             tabbedPane.setSelectedComponent(weekTabMap.get(week));
+            GUIHandler.setCursor(tabbedPane, Cursor.getDefaultCursor());
             return;
-        } else if (weekDao.getWeek(week.getStartDate()) == null ) {
-            workingWeek = weekDao.addWeek(week.getStartDate());
+        }
+        AsyncDao.supply(() -> getOrAddWeek(week), workingWeek -> {
             if (workingWeek == null) {
                 logger.logError("WeekManager openWeek() failed to add week: " + week.getStartDate());
+                GUIHandler.setCursor(tabbedPane, Cursor.getDefaultCursor());
                 return;
             }
-        } else {
-            workingWeek = week;
+            addTab(workingWeek);
+        });
+    }
+
+    // Called on the database thread
+    private Week getOrAddWeek(Week week) {
+        if (weekDao.getWeek(week.getStartDate()) == null) {
+            return weekDao.addWeek(week.getStartDate());
+        }
+        return week;
+    }
+
+    private void addTab(Week workingWeek) {
+        if (weekTabMap.containsKey(workingWeek)) {
+            // Opened twice while loading
+            tabbedPane.setSelectedComponent(weekTabMap.get(workingWeek));
+            GUIHandler.setCursor(tabbedPane, Cursor.getDefaultCursor());
+            return;
         }
         WeekScrollTab weekScrollTab = new WeekScrollTab(workingWeek);
         tabbedPane.addTab(weekScrollTab.getTitle(), weekScrollTab);
         weekTabMap.put(workingWeek, weekScrollTab);
         tabbedPane.setSelectedComponent(weekScrollTab);
-        cursorDefault(week);
+        cursorDefault(workingWeek);
     }
 
     private void cursorDefault(Week week) {
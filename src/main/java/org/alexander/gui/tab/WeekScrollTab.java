@@ -1,7 +1,11 @@
 package org.alexander.gui.tab;
 
+import org.alexander.database.AsyncDao;
 import org.alexander.database.tables.day.Day;
 import org.alexander.database.tables.day.dao.DayDao;
+import org.alexander.database.tables.day.dao.DayDaoInterface;
+import org.alexander.database.tables.daycontents.DayContents;
+import org.alexander.database.tables.daycontents.dao.DayContentsDao;
 import org.alexander.database.tables.week.Week;
 import org.alexander.gui.GUIHandler;
 import org.alexander.gui.dialogs.SelectDayDialog;
@@ -11,24 +15,38 @@ import java.awt.*;
 import java.awt.event.ComponentAdapter;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class WeekScrollTab extends JScrollPane {
     private final DayDao dayDao = new DayDao();
+    private final AsyncDao<DayDaoInterface> asyncDayDao = new AsyncDao<>(dayDao);
+    private final DayContentsDao dayContentsDao = new DayContentsDao();
     private final Week week;
     private final JPanel mainPanel = new JPanel();
     private final HashMap<DayOfWeek, JPanel> dayPanelMap = new HashMap<>();
+    private boolean refreshing = false;
     private static final CentralLogger logger = CentralLogger.getInstance();
 
+    /**
+     * The days of a week which exist, with their meals and snacks, loaded together off the event dispatch thread.
+     */
+    private record LoadedWeek(List<Day> days, Map<LocalDate, DayContents> contents) {}
+
+    /**
+     * Constructs the tab for a week, its days are loaded in the background and added as they arrive.
+     * @param tabWeek the week shown
+     */
     public WeekScrollTab(Week tabWeek) {
         super();
         week = tabWeek;
         mainPanel.setLayout(new BoxLayout(mainPanel, BoxLayout.Y_AXIS));
         mainPanel.setBackground(new Color(230, 230, 230)); // Set a light gray background to host the panels
-        Arrays.stream(getDays()).toList().forEach(this::addDay);;
         setViewportView(mainPanel);
-        dayPanelMap.values().forEach(this::addResizeListener);
+        refresh();
         new Thread(() -> { // refresh deamon
             while (true) {
                 try {
@@ -42,11 +60,39 @@ public class WeekScrollTab extends JScrollPane {
         }).start();
     }
 
+    /**
+     * Reloads every day of the week with one week-wide query in the background and hands each DayPanel its day's
+     * contents. A refresh requested while one is loading is skipped.
+     */
     private void refresh() {
-        for (Day day : dayDao.getDaysInWeek(week)) {
+        if (refreshing) {
+            return;
+        }
+        refreshing = true;
+        AsyncDao.supply(() -> new LoadedWeek(getDays(), dayContentsDao.getWeekContents(week)), loaded -> {
+            refreshing = false;
+            if (loaded != null) {
+                apply(loaded);
+            }
+        });
+    }
+
+    /**
+     * Adds the days which have no DayPanel yet and refreshes the others from the loaded contents.
+     * @param loaded the days of the week and their contents
+     */
+    private void apply(LoadedWeek loaded) {
+        Map<LocalDate, DayContents> weekContents = loaded.contents();
+        for (Day day : loaded.days()) {
+            DayContents contents = weekContents == null ? null : weekContents.get(day.getDate());
             if (!dayPanelMap.containsKey(day.dayOfWeek)) {
-                addDay(day);
+                addDay(day, contents);
                 addResizeListener(dayPanelMap.get(day.dayOfWeek));
+            } else if (contents != null) {
+                DayPanel dayPanel = (DayPanel) dayPanelMap.get(day.dayOfWeek);
+                dayPanel.refreshTable(contents);
+                dayPanel.revalidate();
+                dayPanel.repaint();
             } else {
                 refreshDay(day.dayOfWeek);
             }
@@ -57,9 +103,15 @@ public class WeekScrollTab extends JScrollPane {
         DayOfWeek dayOfWeek = new SelectDayDialog(this).getSelectedDay();
         if (dayOfWeek == null) return;
         GUIHandler.setCursor(this, Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-        Day day = dayDao.addDay(week.getStartDate().plusDays(dayOfWeek.getValue() - 1), week.getId());
-        addDay(day);
-        addResizeListener(dayPanelMap.get(dayOfWeek));
+        LocalDate date = week.getStartDate().plusDays(dayOfWeek.getValue() - 1);
+        asyncDayDao.query(dao -> dao.addDay(date, week.getId()), day -> {
+            if (day == null) {
+                GUIHandler.setCursor(this, Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
+                return;
+            }
+            addDay(day, null);
+            addResizeListener(dayPanelMap.get(dayOfWeek));
+        });
     }
 
     public boolean[] getAvailableDays() {
@@ -75,13 +127,16 @@ public class WeekScrollTab extends JScrollPane {
             logger.logWarning("WeekScrollTab refreshDay() called with non-existent day: " + dayOfWeek);
             return;
         }
-        DayPanel dayPanel = (DayPanel) dayPanelMap.get(dayOfWeek);
-        dayPanel.refreshTable();
-        dayPanel.revalidate();
-        dayPanel.repaint();
+        // Reloads in the background and repaints once loaded
+        ((DayPanel) dayPanelMap.get(dayOfWeek)).refreshTable();
     }
 
-    private void addDay(Day day) {
+    /**
+     * Adds a DayPanel for the given day.
+     * @param day the day to add
+     * @param contents the day's meals and snacks if already loaded, or null for the panel to load them itself
+     */
+    private void addDay(Day day, DayContents contents) {
         if (day == null) {
             return;
         }
@@ -90,7 +145,7 @@ public class WeekScrollTab extends JScrollPane {
             return;
         }
         // Pass the week object to the DayPanel constructor
-        dayPanelMap.put(day.dayOfWeek, new DayPanel(day, week));
+        dayPanelMap.put(day.dayOfWeek, new DayPanel(day, week, contents));
         mainPanel.add(dayPanelMap.get(day.dayOfWeek));
         mainPanel.revalidate();
         mainPanel.repaint();
@@ -146,14 +201,10 @@ public class WeekScrollTab extends JScrollPane {
         return title.toString();
     }
 
-    private Day[] getDays() {
-        Day[] days = new Day[7];
-        for (int i = 0; i < 7; i++) {
-            LocalDate date = week.getStartDate().plusDays(i);
-            Day day = dayDao.getDay(date);
-            // ignore null values, since we are not creating new days.
-            days[i] = day;
-        }
+    // Days which do not exist yet are left out, since we are not creating new days. Called on the database thread.
+    private List<Day> getDays() {
+        List<Day> days = new ArrayList<>(dayDao.getDaysInWeek(week));
+        days.sort(Comparator.comparing(Day::getDate));
         return days;
     }
 }
\ No newline at end of file
@@ -6,7 +6,27 @@ import org.junit.platform.suite.api.Suite;
 @SelectClasses({
         FoodDaoTest.class,
         WeekDayDaoTest.class,
-        MealSnackTest.class
+        MealSnackTest.class,
+        ConnectionPoolTest.class,
+        DayContentsTest.class,
+        QueryPlanTest.class,
+        SchemaMigratorTest.class,
+        InsertResultTest.class,
+        SchemaRegistryTest.class,
+        FoodCacheTest.class,
+        ChangeJournalTest.class,
+        DatabaseComparerTest.class,
+        SaveEngineTest.class,
+        UndoLogTest.class,
+        BackupStoreTest.class,
+        SaveSchedulerTest.class,
+        AsyncDaoTest.class,
+        TransactionTest.class,
+        ImporterTest.class,
+        ExporterTest.class,
+        DayTotalsTest.class,
+        NutritionAnalyticsTest.class,
+        BodyWeightSeriesTest.class
 })
 
 public class AllTests {
@@ -0,0 +1,61 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.AsyncDao;
+import org.alexander.database.tables.food.Food;
+import org.alexander.database.tables.food.dao.FoodDao;
+import org.alexander.database.tables.food.dao.FoodDaoInterface;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncDaoTest {
+    AsyncDao<FoodDaoInterface> foodDao = new AsyncDao<>(new FoodDao());
+
+    @Test
+    void testCallsRunOffTheEdtAndResultsArriveOnIt() throws Exception {
+        CompletableFuture<Boolean> ranOnDatabaseThread = foodDao.query(dao -> AsyncDao.isDatabaseThread()
+                && !SwingUtilities.isEventDispatchThread());
+        assertTrue(ranOnDatabaseThread.get(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> deliveredOnEdt = new CompletableFuture<>();
+        foodDao.query(FoodDaoInterface::getFoodList,
+                foods -> deliveredOnEdt.complete(foods != null && SwingUtilities.isEventDispatchThread()));
+        assertTrue(deliveredOnEdt.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCallsRunInOrder() throws Exception {
+        CompletableFuture<Food> added = new CompletableFuture<>();
+        foodDao.update(dao -> dao.addFood("AsyncPlum", 80.0, 30.0), () -> {});
+        foodDao.query(dao -> dao.getFood("AsyncPlum"), added::complete);
+        assertNotNull(added.get(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> deleted = foodDao.query(dao -> dao.deleteFood("AsyncPlum"));
+        assertTrue(deleted.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testFailedCallDeliversNull() throws Exception {
+        CountDownLatch delivered = new CountDownLatch(1);
+        List<Object> results = new ArrayList<>();
+        AsyncDao.supply(() -> {
+            throw new IllegalStateException("query failed");
+        }, result -> {
+            results.add(result);
+            delivered.countDown();
+        });
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(1, results.size());
+        assertNull(results.getFirst());
+    }
+
+    @Test
+    void testNestedCallRunsImmediately() throws Exception {
+        CompletableFuture<Integer> nested = AsyncDao.supply(() -> AsyncDao.supply(() -> 7).getNow(-1));
+        assertEquals(7, nested.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,122 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.BackupStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class BackupStoreTest {
+    Path directory;
+    Path database;
+    BackupStore backups;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        directory = Files.createTempDirectory("backup");
+        database = directory.resolve("data.sqlite");
+        backups = new BackupStore(directory.resolve("backup"));
+        execute("CREATE TABLE FOOD (name TEXT PRIMARY KEY, serving_size_calories REAL)",
+                "WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 2000) "
+                        + "INSERT INTO FOOD SELECT 'Food ' || i, i FROM n");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void testUnchangedPagesAreNotWrittenAgain() throws IOException, SQLException {
+        BackupStore.Backup first = backups.backup(database, "backup_1");
+        assertEquals(first.chunks(), first.chunksWritten());
+        assertTrue(first.chunks() > 5);
+        execute("UPDATE FOOD SET serving_size_calories = -1 WHERE name = 'Food 1000'");
+        BackupStore.Backup second = backups.backup(database, "backup_2");
+        assertTrue(second.chunksWritten() > 0);
+        assertTrue(second.chunksWritten() <= 3, "wrote " + second.chunksWritten() + " chunks");
+        assertTrue(second.bytesWritten() < Files.size(database));
+    }
+
+    @Test
+    void testRestoreEachRetainedBackup() throws IOException, SQLException {
+        backups.backup(database, "backup_1");
+        execute("DELETE FROM FOOD WHERE name = 'Food 7'");
+        backups.backup(database, "backup_2");
+        assertEquals(List.of("backup_2", "backup_1"), backups.list());
+        Path restored = directory.resolve("restored.sqlite");
+        backups.restore("backup_1", restored);
+        assertEquals(2000, count(restored));
+        backups.restore("backup_2", restored);
+        assertEquals(1999, count(restored));
+        assertEquals(-1, Files.mismatch(database, restored));
+    }
+
+    @Test
+    void testPruneRemovesOldBackupsAndTheirChunks() throws IOException, SQLException {
+        backups.backup(database, "backup_1");
+        execute("DELETE FROM FOOD WHERE name = 'Food 7'");
+        BackupStore.Backup latest = backups.backup(database, "backup_2");
+        backups.prune(1);
+        assertEquals(List.of("backup_2"), backups.list());
+        try (Stream<Path> files = Files.walk(directory.resolve("backup").resolve("chunks"))) {
+            assertTrue(files.filter(Files::isRegularFile).count() <= latest.chunks());
+        }
+        Path restored = directory.resolve("restored.sqlite");
+        backups.restore("backup_2", restored);
+        assertEquals(1999, count(restored));
+    }
+
+    @Test
+    void testChunksAreCompressed() throws IOException {
+        BackupStore.Backup backup = backups.backup(database, "backup_1");
+        assertTrue(backup.bytesWritten() < Files.size(database) / 2, "wrote " + backup.bytesWritten() + " bytes");
+    }
+
+    @Test
+    void testCorruptChunkIsNotRestored() throws IOException {
+        backups.backup(database, "backup_1");
+        Path chunk;
+        try (Stream<Path> files = Files.walk(directory.resolve("backup").resolve("chunks"))) {
+            chunk = files.filter(Files::isRegularFile).findFirst().orElseThrow();
+        }
+        Files.write(chunk, new byte[] {1, 2, 3});
+        Path restored = directory.resolve("restored.sqlite");
+        assertThrows(IOException.class, () -> backups.restore("backup_1", restored));
+        assertFalse(Files.exists(restored));
+        assertFalse(Files.exists(directory.resolve("restored.sqlite.restore")));
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + database);
+             Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+
+    private static int count(Path file) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM FOOD")) {
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.ChangeJournal;
+import org.alexander.database.analytics.BodyWeightSeries;
+import org.alexander.database.tables.day.dao.DayDao;
+import org.alexander.database.tables.week.Week;
+import org.alexander.database.tables.week.dao.WeekDao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+public class BodyWeightSeriesTest {
+    private static final LocalDate MONDAY = LocalDate.of(2005, 1, 3);
+    private static final double DELTA = 1e-9;
+    DayDao dayDao = new DayDao();
+    Week first;
+    Week second;
+
+    @BeforeEach
+    void setUp() {
+        first = new WeekDao().addWeek(MONDAY);
+        second = new WeekDao().addWeek(MONDAY.plusWeeks(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (int i = 0; i < 14; i++) {
+            if (dayDao.getDay(MONDAY.plusDays(i)) != null) assertTrue(dayDao.deleteDay(MONDAY.plusDays(i)));
+        }
+        assertTrue(new WeekDao().deleteWeek(first));
+        assertTrue(new WeekDao().deleteWeek(second));
+        ChangeJournal.getInstance().clear();
+    }
+
+    @Test
+    void testLoadSkipsDaysWithoutWeight() {
+        assertNotNull(dayDao.addDay(MONDAY, first.getId(), 80.0));
+        assertNotNull(dayDao.addDay(MONDAY.plusDays(1), first.getId()));
+        assertNotNull(dayDao.addDay(MONDAY.plusDays(3), first.getId(), 79.0));
+        assertNotNull(dayDao.addDay(MONDAY.plusDays(10), second.getId(), 78.0));
+        BodyWeightSeries series = BodyWeightSeries.load(MONDAY, MONDAY.plusDays(13));
+        assertNotNull(series);
+        assertEquals(3, series.size());
+        assertEquals(MONDAY, series.getDate(0));
+        assertEquals(MONDAY.plusDays(3), series.getDate(1));
+        assertEquals(78.0, series.getWeight(2), DELTA);
+        // Day 10 is 7 days after day 3, so only its own weight is in the 7 day window
+        assertEquals(78.0, series.getAverage7(2), DELTA);
+        assertEquals(79.0, series.getAverage30(2), DELTA);
+        assertEquals(2, series.getMinIndex());
+        assertEquals(0, series.getMaxIndex());
+        assertTrue(Double.isNaN(series.getChangePerWeek(0)));
+        assertEquals(-7.0 / 6, series.getChangePerWeek(1), DELTA);
+        // Only the range asked for is read
+        BodyWeightSeries firstWeek = BodyWeightSeries.load(MONDAY.plusDays(1), MONDAY.plusDays(6));
+        assertEquals(1, firstWeek.size());
+        assertEquals(79.0, firstWeek.getWeight(0), DELTA);
+        assertTrue(BodyWeightSeries.load(MONDAY.plusDays(11), MONDAY.plusDays(13)).isEmpty());
+    }
+
+    @Test
+    void testRollingAveragesAndTrend() {
+        int days = 60;
+        int[] epochDays = new int[days];
+        double[] weights = new double[days];
+        long start = MONDAY.toEpochDay();
+        for (int i = 0; i < days; i++) {
+            epochDays[i] = (int) (start + i);
+            weights[i] = 90 - i * 0.1;
+        }
+        BodyWeightSeries series = BodyWeightSeries.of(epochDays, weights);
+        assertEquals(days, series.size());
+        // A straight line loses 0.7 a week and its averages lag it by half the window
+        assertEquals(-0.7, series.getTrendPerWeek(), DELTA);
+        assertEquals(weights[59] + 0.3, series.getAverage7(59), DELTA);
+        assertEquals(weights[59] + 1.45, series.getAverage30(59), DELTA);
+        assertEquals(weights[2] + 0.1, series.getAverage7(2), DELTA);
+        assertEquals(-0.7, series.getChangePerWeek(30), DELTA);
+        assertEquals(59, series.getMinIndex());
+        assertEquals(0, series.getMaxIndex());
+        assertTrue(Arrays.equals(epochDays, series.getEpochDays()));
+        series.getWeights()[0] = 0;
+        assertEquals(90.0, series.getWeight(0), DELTA);
+    }
+
+    @Test
+    void testEmptyAndInvalidSeries() {
+        BodyWeightSeries empty = BodyWeightSeries.of(new int[0], new double[0]);
+        assertTrue(empty.isEmpty());
+        assertEquals(-1, empty.getMinIndex());
+        assertTrue(Double.isNaN(empty.getTrendPerWeek()));
+        assertThrows(IndexOutOfBoundsException.class, () -> empty.getWeight(0));
+        assertTrue(Double.isNaN(BodyWeightSeries.of(new int[]{10}, new double[]{70}).getTrendPerWeek()));
+        assertThrows(IllegalArgumentException.class, () -> BodyWeightSeries.of(new int[]{2, 1}, new double[]{70, 71}));
+        assertThrows(IllegalArgumentException.class, () -> BodyWeightSeries.of(new int[]{1}, new double[]{70, 71}));
+    }
+}
@@ -0,0 +1,138 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.ChangeJournal;
+import org.alexander.database.DatabaseManager;
+import org.alexander.database.SaveEngine;
+import org.alexander.database.tables.Tables;
+import org.alexander.database.tables.food.dao.FoodDao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ChangeJournalTest {
+    FoodDao foodDao = new FoodDao();
+
+    @BeforeEach
+    void setUp() {
+        ChangeJournal.getInstance().clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (foodDao.getFood("JournalPear") != null) {
+            foodDao.deleteFood("JournalPear");
+        }
+        ChangeJournal.getInstance().clear();
+    }
+
+    @Test
+    void testNetChangePerRow() {
+        ChangeJournal journal = new ChangeJournal(10);
+        journal.inserted(Tables.FOOD, "A", "A");
+        journal.updated(Tables.FOOD, "A", "A");
+        journal.updated(Tables.FOOD, "B", "B");
+        journal.updated(Tables.FOOD, "B", "B");
+        journal.deleted(Tables.FOOD, "C", "C");
+        journal.inserted(Tables.FOOD, "C", "C");
+        assertEquals(List.of("Added Food: A"), journal.getAdditions());
+        // Updated twice is one modification, removed and added again may differ from what was saved
+        assertEquals(List.of("Changed Food: B", "Changed Food: C"), journal.getModifications());
+        assertTrue(journal.getDeletions().isEmpty());
+        // A row added and removed before a save leaves nothing to report
+        journal.deleted(Tables.FOOD, "A", null);
+        journal.deleted(Tables.FOOD, "B", null);
+        assertTrue(journal.getAdditions().isEmpty());
+        assertEquals(List.of("Removed Food: B"), journal.getDeletions());
+    }
+
+    @Test
+    void testOverflowMarksUnreliable() {
+        ChangeJournal journal = new ChangeJournal(2);
+        journal.inserted(Tables.FOOD, "A", "A");
+        journal.inserted(Tables.FOOD, "B", "B");
+        assertTrue(journal.isReliable());
+        journal.inserted(Tables.FOOD, "C", "C");
+        assertFalse(journal.isReliable());
+        assertFalse(journal.hasChanges());
+        journal.clear();
+        assertTrue(journal.isReliable());
+    }
+
+    @Test
+    void testChangesDuringSaveMarkUnreliable() {
+        ChangeJournal journal = new ChangeJournal(10);
+        journal.inserted(Tables.FOOD, "A", "A");
+        long version = journal.getVersion();
+        journal.saved(version);
+        assertTrue(journal.isReliable());
+        assertFalse(journal.hasChanges());
+        journal.inserted(Tables.FOOD, "B", "B");
+        version = journal.getVersion();
+        journal.updated(Tables.FOOD, "B", "B2");
+        journal.saved(version);
+        assertFalse(journal.isReliable());
+    }
+
+    @Test
+    void testDaoWritesAreJournalled() {
+        ChangeJournal journal = ChangeJournal.getInstance();
+        assertNotNull(foodDao.addFood("JournalPear", 150.0, 90.0));
+        assertNotNull(foodDao.updateFood("JournalPear", 150.0, 95.0));
+        assertEquals(List.of("Added Food: JournalPear"), journal.getAdditions());
+        assertTrue(foodDao.deleteFood("JournalPear"));
+        assertFalse(journal.hasChanges());
+        assertTrue(journal.isReliable());
+    }
+
+    @Test
+    void testOwnConnectionWritesMarkUnreliable() throws SQLException {
+        ChangeJournal journal = ChangeJournal.getInstance();
+        try (Connection conn = DatabaseManager.connectForWrite()) {
+            assertNotNull(new FoodDao(conn).addFood("JournalPear", 150.0, 90.0));
+        }
+        assertFalse(journal.isReliable());
+        assertFalse(journal.hasChanges());
+    }
+
+    @Test
+    void testSaveWaitsForAnOpenUnitOfWork() throws Exception {
+        ChangeJournal journal = ChangeJournal.getInstance();
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> unitOfWork = CompletableFuture.runAsync(() -> {
+            try (Connection conn = DatabaseManager.connectForWrite()) {
+                conn.setAutoCommit(false);
+                // The DAO shares this thread's writer, so the row is journalled before it is committed
+                assertNotNull(foodDao.addFood("JournalPear", 150.0, 90.0));
+                written.countDown();
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+                conn.commit();
+                conn.setAutoCommit(true);
+            } catch (SQLException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> save = CompletableFuture.supplyAsync(() -> DatabaseManager.save(SaveEngine.ProgressListener.NONE));
+        // Saving now would clear a change the saved file does not have yet
+        Thread.sleep(200);
+        assertFalse(save.isDone());
+        assertEquals(List.of("Added Food: JournalPear"), journal.getAdditions());
+        release.countDown();
+        unitOfWork.get(5, TimeUnit.SECONDS);
+        assertTrue(save.get(5, TimeUnit.SECONDS));
+        assertFalse(journal.hasChanges());
+        assertTrue(journal.isReliable());
+        // Leave the saved file as it was
+        assertTrue(foodDao.deleteFood("JournalPear"));
+        assertTrue(DatabaseManager.save(SaveEngine.ProgressListener.NONE));
+    }
+}
@@ -0,0 +1,140 @@
+package org.alexander;
+
+import org.alexander.database.ConnectionPool;
+import org.alexander.database.PoolMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqlite.SQLiteConnection;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+    @TempDir
+    Path tempDir;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ConnectionPool("jdbc:sqlite:" + tempDir.resolve("pool.sqlite"), 1, 200);
+    }
+
+    @Test
+    void testNestedLeaseSharesConnection() throws SQLException {
+        try (Connection outer = pool.lease(); Connection inner = pool.lease()) {
+            assertSame(outer.unwrap(SQLiteConnection.class), inner.unwrap(SQLiteConnection.class));
+        }
+        assertEquals(1, pool.getMetrics().totalLeases());
+    }
+
+    @Test
+    void testCloseReturnsConnectionToPool() throws SQLException {
+        SQLiteConnection physical;
+        try (Connection connection = pool.lease()) {
+            physical = connection.unwrap(SQLiteConnection.class);
+        }
+        PoolMetrics metrics = pool.getMetrics();
+        assertEquals(1, metrics.openReaders());
+        assertEquals(1, metrics.idleReaders());
+        assertFalse(physical.isClosed());
+        try (Connection connection = pool.lease()) {
+            assertSame(physical, connection.unwrap(SQLiteConnection.class));
+        }
+    }
+
+    @Test
+    void testWriterServesReadsOnSameThread() throws SQLException {
+        try (Connection writer = pool.leaseWriter(); Connection reader = pool.lease()) {
+            assertSame(writer.unwrap(SQLiteConnection.class), reader.unwrap(SQLiteConnection.class));
+            assertTrue(pool.getMetrics().writerLeased());
+        }
+        assertFalse(pool.getMetrics().writerLeased());
+    }
+
+    @Test
+    void testPoolIsBounded() throws Exception {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        try (Connection held = pool.lease()) {
+            assertNotNull(held);
+            Thread other = new Thread(() -> {
+                try (Connection connection = pool.lease()) {
+                    assertNotNull(connection);
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            other.start();
+            other.join();
+        }
+        assertInstanceOf(SQLException.class, failure.get());
+        assertEquals(1, pool.getMetrics().timeouts());
+    }
+
+    @Test
+    void testEvictIdleClosesConnections() throws SQLException {
+        SQLiteConnection physical;
+        try (Connection connection = pool.lease()) {
+            physical = connection.unwrap(SQLiteConnection.class);
+        }
+        pool.evictIdle();
+        assertTrue(physical.isClosed());
+        assertEquals(0, pool.getMetrics().openReaders());
+        try (Connection connection = pool.lease()) {
+            assertFalse(connection.isClosed());
+        }
+    }
+
+    @Test
+    void testStatementCacheReusesStatements() throws SQLException {
+        String sql = "SELECT ? + 1";
+        PreparedStatement first;
+        ResultSet leftOpen;
+        try (Connection connection = pool.lease(); PreparedStatement statement = connection.prepareStatement(sql)) {
+            first = statement.unwrap(PreparedStatement.class);
+            statement.setInt(1, 1);
+            leftOpen = statement.executeQuery();
+            assertTrue(leftOpen.next());
+            // The same SQL while the first handle is open gets its own statement
+            try (PreparedStatement nested = connection.prepareStatement(sql)) {
+                assertNotSame(first, nested.unwrap(PreparedStatement.class));
+            }
+        }
+        // Returning the statement closes the result set its caller left open
+        assertTrue(leftOpen.isClosed());
+        try (Connection connection = pool.lease(); PreparedStatement statement = connection.prepareStatement(sql)) {
+            assertSame(first, statement.unwrap(PreparedStatement.class));
+            statement.setInt(1, 2);
+            try (ResultSet rs = statement.executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals(3, rs.getInt(1));
+            }
+        }
+        PoolMetrics metrics = pool.getMetrics();
+        assertEquals(1, metrics.statementCacheHits());
+        assertEquals(2, metrics.statementCacheMisses());
+    }
+
+    @Test
+    void testStatementCacheEvictsLeastRecentlyUsed() throws SQLException {
+        ConnectionPool small = new ConnectionPool("jdbc:sqlite:" + tempDir.resolve("small.sqlite"), 1, 200, 2);
+        PreparedStatement evicted;
+        try (Connection connection = small.lease()) {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+                evicted = statement.unwrap(PreparedStatement.class);
+            }
+            connection.prepareStatement("SELECT 2").close();
+            connection.prepareStatement("SELECT 3").close();
+            assertTrue(evicted.isClosed());
+            connection.prepareStatement("SELECT 3").close();
+        }
+        assertEquals(1, small.getMetrics().statementCacheHits());
+        small.evictIdle();
+    }
+}
@@ -0,0 +1,124 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.BackupStore;
+import org.alexander.database.DatabaseComparer;
+import org.alexander.database.SaveEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class DatabaseComparerTest {
+    Path directory;
+    Path live;
+    Path saved;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        directory = Files.createTempDirectory("comparer");
+        live = directory.resolve("live.sqlite");
+        saved = directory.resolve("saved.sqlite");
+        // Two empty databases with the working schema, copied on a connection of our own as the pooled ones keep
+        // cached statements open, which VACUUM refuses to run alongside
+        Path working = Path.of(System.getProperty("user.home"), "FoodTracker", "database.sqlite");
+        execute(working, "VACUUM INTO '" + saved + "'");
+        execute(saved, "DELETE FROM FOOD_TYPE_JUNCTION_FOOD", "DELETE FROM FOOD_MEAL", "DELETE FROM FOOD_SNACK",
+                "DELETE FROM MEAL", "DELETE FROM SNACK", "DELETE FROM DAY", "DELETE FROM WEEK", "DELETE FROM FOOD");
+        Files.copy(saved, live);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(live);
+        Files.deleteIfExists(saved);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    void testAddedModifiedAndRemovedRows() throws SQLException, IOException {
+        execute(saved,
+                "INSERT INTO FOOD VALUES ('Apple', 100, 52), ('Bread', 40, 100), ('Cheese', 30, 120)",
+                "INSERT INTO FOOD_MEAL VALUES ('Bread', 1, 2)");
+        execute(live,
+                "INSERT INTO FOOD VALUES ('Apple', 100, 52), ('Bread', 40, 110), ('Date', 7, 20)",
+                "INSERT INTO FOOD_MEAL VALUES ('Bread', 1, 3), ('Date', 1, 1)");
+        // Both modes find the same differences
+        for (DatabaseComparer.Mode mode : DatabaseComparer.Mode.values()) {
+            DatabaseComparer comparer = new DatabaseComparer(live, saved, mode);
+            comparer.compare();
+            assertEquals(List.of("Added Food: Date", "Added Food in Meal: Date in meal 1"), comparer.getAdditions());
+            assertEquals(List.of("Changed Food: Bread", "Changed Food in Meal: Bread in meal 1"), comparer.getModifications());
+            assertEquals(List.of("Removed Food: Cheese"), comparer.getDeletions());
+        }
+    }
+
+    @Test
+    void testIdenticalDatabasesHaveNoChanges() throws SQLException, IOException {
+        execute(saved, "INSERT INTO FOOD VALUES ('Apple', 100, 52)");
+        execute(live, "INSERT INTO FOOD VALUES ('Apple', 100, 52)");
+        DatabaseComparer comparer = new DatabaseComparer(live, saved);
+        comparer.compare();
+        assertFalse(comparer.hasChanges());
+    }
+
+    @Test
+    void testEverythingIsAddedWithoutSavedDatabase() throws SQLException, IOException {
+        execute(live, "INSERT INTO FOOD VALUES ('Apple', 100, 52)");
+        Files.delete(saved);
+        DatabaseComparer comparer = new DatabaseComparer(live, saved);
+        comparer.compare();
+        assertEquals(List.of("Added Food: Apple"), comparer.getAdditions());
+        assertTrue(comparer.getDeletions().isEmpty());
+    }
+
+    @Test
+    void testAttachesTheFileWrittenBySaving() throws SQLException, IOException {
+        // Saved the way the application saves, into a folder whose name must be escaped in a URI
+        Path folder = Files.createDirectory(directory.resolve("saved files #1"));
+        Path savedFile = folder.resolve("data.sqlite");
+        execute(live, "INSERT INTO FOOD VALUES ('Apple', 100, 52)");
+        new SaveEngine(live).save(savedFile, new BackupStore(directory.resolve("backup")), "first", SaveEngine.ProgressListener.NONE);
+        byte[] before = Files.readAllBytes(savedFile);
+        execute(live, "UPDATE FOOD SET serving_size_calories = 60 WHERE name = 'Apple'", "INSERT INTO FOOD VALUES ('Bread', 40, 100)");
+        try {
+            DatabaseComparer comparer = new DatabaseComparer(live, savedFile, DatabaseComparer.Mode.ATTACH);
+            comparer.compare();
+            assertEquals(List.of("Added Food: Bread"), comparer.getAdditions());
+            assertEquals(List.of("Changed Food: Apple"), comparer.getModifications());
+            // Read through the URI, read-only, rather than opened as a new file named after it
+            assertTrue(Arrays.equals(before, Files.readAllBytes(savedFile)));
+            try (Stream<Path> files = Files.list(folder)) {
+                assertEquals(List.of(savedFile), files.toList());
+            }
+            try (Stream<Path> files = Files.list(Path.of("").toAbsolutePath())) {
+                assertTrue(files.noneMatch(file -> file.getFileName().toString().startsWith("file:")));
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(folder.getParent())) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    if (!file.equals(directory) && !file.equals(live) && !file.equals(saved)) Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static void execute(Path database, String... statements) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + database); Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.tables.day.Day;
+import org.alexander.database.tables.day.dao.DayDao;
+import org.alexander.database.tables.daycontents.DayContents;
+import org.alexander.database.tables.daycontents.dao.DayContentsDao;
+import org.alexander.database.tables.food.Food;
+import org.alexander.database.tables.food.dao.FoodDao;
+import org.alexander.database.tables.foodmeal.dao.FoodMealDao;
+import org.alexander.database.tables.foodsnack.dao.FoodSnackDao;
+import org.alexander.database.tables.meal.Meal;
+import org.alexander.database.tables.meal.MealTypes;
+import org.alexander.database.tables.meal.dao.MealDao;
+import org.alexander.database.tables.snack.Snack;
+import org.alexander.database.tables.snack.dao.SnackDao;
+import org.alexander.database.tables.week.Week;
+import org.alexander.database.tables.week.dao.WeekDao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+
+public class DayContentsTest {
+    WeekDao weekDao;
+    DayDao dayDao;
+    MealDao mealDao;
+    SnackDao snackDao;
+    FoodDao foodDao;
+    FoodMealDao foodMealDao;
+    FoodSnackDao foodSnackDao;
+
+    @BeforeEach
+    void setUp() {
+        weekDao = new WeekDao();
+        dayDao = new DayDao();
+        mealDao = new MealDao();
+        snackDao = new SnackDao();
+        foodDao = new FoodDao();
+        foodMealDao = new FoodMealDao();
+        foodSnackDao = new FoodSnackDao();
+    }
+
+    @AfterEach
+    void tearDown() {
+        foodMealDao.getFoodMealList().forEach(foodMealDao::deleteFoodMeal);
+        foodSnackDao.getFoodSnackList().forEach(foodSnackDao::deleteFoodSnack);
+        foodDao.deleteFood("Porridge");
+        foodDao.deleteFood("Honey");
+        MealSnackTest.clearMeals(mealDao);
+        MealSnackTest.clearSnacks(snackDao);
+        WeekDayDaoTest.clearDays(dayDao);
+        WeekDayDaoTest.clearWeeks(weekDao);
+    }
+
+    @Test
+    void testDayContents() {
+        Week week = weekDao.addWeek(weekDao.getClosestMonday(LocalDate.now()));
+        assertNotNull(week);
+        Day today = dayDao.addDay(LocalDate.now());
+        assertNotNull(today);
+        Food porridge = foodDao.addFood("Porridge", 200.0, 150.0);
+        Food honey = foodDao.addFood("Honey", 20.0, null);
+        assertNotNull(porridge);
+        assertNotNull(honey);
+        Meal lunch = mealDao.addMeal(today, MealTypes.LUNCH, LocalTime.of(12, 30));
+        Meal breakfast = mealDao.addMeal(today, MealTypes.BREAKFAST, LocalTime.of(8, 0));
+        Snack snack = snackDao.addSnack(today, LocalTime.of(10, 0));
+        assertNotNull(foodMealDao.addFoodMeal(porridge, breakfast, 1.5));
+        assertNotNull(foodMealDao.addFoodMeal(honey, breakfast, 1.0));
+        assertNotNull(foodSnackDao.addFoodSnack(honey, snack, 2.0));
+
+        DayContents contents = new DayContentsDao().getDayContents(today);
+        assertNotNull(contents);
+        assertEquals(3, contents.getEntries().size());
+        // Entries are ordered by time, and meals without foods are still included
+        DayContents.Entry first = contents.getEntries().get(0);
+        assertInstanceOf(Meal.class, first.mealOrSnack());
+        assertEquals(breakfast.getId(), first.mealOrSnack().getKey());
+        assertEquals(2, first.portions().size());
+        assertEquals("Porridge", first.portions().get(0).food().getName());
+        assertEquals(1.5, first.getPortion("Porridge").numServings(), 0.0001);
+        assertNull(first.getPortion("Honey").food().getServingCalories());
+        DayContents.Entry second = contents.getEntries().get(1);
+        assertInstanceOf(Snack.class, second.mealOrSnack());
+        assertEquals(2.0, second.getPortion("Honey").numServings(), 0.0001);
+        DayContents.Entry third = contents.getEntries().get(2);
+        assertEquals(lunch.getId(), third.mealOrSnack().getKey());
+        assertTrue(third.portions().isEmpty());
+
+        assertTrue(new DayContentsDao().getDayContents(LocalDate.now().plusDays(1)).isEmpty());
+    }
+
+    @Test
+    void testWeekContents() {
+        Week week = weekDao.addWeek(weekDao.getClosestMonday(LocalDate.now()));
+        assertNotNull(week);
+        Day monday = dayDao.addDay(week.getStartDate());
+        Day sunday = dayDao.addDay(week.getEndDate());
+        assertNotNull(monday);
+        assertNotNull(sunday);
+        Food porridge = foodDao.addFood("Porridge", 200.0, 150.0);
+        Meal breakfast = mealDao.addMeal(monday, MealTypes.BREAKFAST);
+        Snack snack = snackDao.addSnack(sunday, LocalTime.of(15, 0));
+        assertNotNull(foodMealDao.addFoodMeal(porridge, breakfast, 1.0));
+        assertNotNull(foodSnackDao.addFoodSnack(porridge, snack, 0.5));
+
+        Map<LocalDate, DayContents> contents = new DayContentsDao().getWeekContents(week);
+        assertNotNull(contents);
+        // Every date of the week is present, in order, even those with nothing eaten
+        assertEquals(7, contents.size());
+        assertEquals(week.getStartDate(), contents.keySet().iterator().next());
+        assertEquals(breakfast.getId(), contents.get(week.getStartDate()).getEntries().getFirst().mealOrSnack().getKey());
+        assertEquals(0.5, contents.get(week.getEndDate()).getEntries().getFirst().getPortion("Porridge").numServings(), 0.0001);
+        assertTrue(contents.get(week.getStartDate().plusDays(3)).isEmpty());
+    }
+}
@@ -0,0 +1,138 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.ChangeJournal;
+import org.alexander.database.tables.day.Day;
+import org.alexander.database.tables.day.dao.DayDao;
+import org.alexander.database.tables.daytotals.DayTotals;
+import org.alexander.database.tables.daytotals.dao.DayTotalsDao;
+import org.alexander.database.tables.food.Food;
+import org.alexander.database.tables.food.dao.FoodDao;
+import org.alexander.database.tables.foodmeal.dao.FoodMealDao;
+import org.alexander.database.tables.foodsnack.dao.FoodSnackDao;
+import org.alexander.database.tables.foodtype.dao.FoodTypeDao;
+import org.alexander.database.tables.foodtypefood.dao.FoodJunctionTypeDao;
+import org.alexander.database.tables.meal.Meal;
+import org.alexander.database.tables.meal.MealTypes;
+import org.alexander.database.tables.meal.dao.MealDao;
+import org.alexander.database.tables.snack.Snack;
+import org.alexander.database.tables.snack.dao.SnackDao;
+import org.alexander.database.tables.week.Week;
+import org.alexander.database.tables.week.dao.WeekDao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+
+public class DayTotalsTest {
+    private static final LocalDate MONDAY = LocalDate.of(2003, 1, 6);
+    private static final double DELTA = 1e-9;
+    FoodDao foodDao = new FoodDao();
+    DayTotalsDao totalsDao = new DayTotalsDao();
+    Week week;
+    Day monday;
+    Day tuesday;
+    Food apple;
+    Food bread;
+
+    @BeforeEach
+    void setUp() {
+        week = new WeekDao().addWeek(MONDAY);
+        monday = new DayDao().addDay(MONDAY, week.getId());
+        tuesday = new DayDao().addDay(MONDAY.plusDays(1), week.getId());
+        apple = foodDao.addFood("TotalsApple", 150.0, 80.0);
+        bread = foodDao.addFood("TotalsBread", 40.0, null);
+        FoodJunctionTypeDao typeDao = new FoodJunctionTypeDao();
+        FoodTypeDao foodTypeDao = new FoodTypeDao();
+        assertNotNull(typeDao.addFoodTypeFood(apple, foodTypeDao.getFoodType("Fiber")));
+        assertNotNull(typeDao.addFoodTypeFood(apple, foodTypeDao.getFoodType("Carbohydrate")));
+        assertNotNull(typeDao.addFoodTypeFood(bread, foodTypeDao.getFoodType("Carbohydrate")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        MealDao mealDao = new MealDao();
+        SnackDao snackDao = new SnackDao();
+        DayDao dayDao = new DayDao();
+        for (Day day : new Day[]{monday, tuesday}) {
+            for (Meal meal : mealDao.getDayMeals(day)) assertTrue(mealDao.deleteMealCascade(meal));
+            for (Snack snack : snackDao.getDaySnacks(day)) assertTrue(snackDao.deleteSnackCascade(snack));
+            assertTrue(dayDao.deleteDay(day));
+        }
+        assertTrue(new WeekDao().deleteWeek(week));
+        assertTrue(foodDao.deleteFoodCascade(apple));
+        assertTrue(foodDao.deleteFoodCascade(bread));
+        ChangeJournal.getInstance().clear();
+    }
+
+    @Test
+    void testPortionsAddUp() {
+        Meal breakfast = new MealDao().addMeal(monday, MealTypes.BREAKFAST);
+        Snack snack = new SnackDao().addSnack(monday, LocalTime.of(15, 0));
+        FoodMealDao foodMealDao = new FoodMealDao();
+        assertNotNull(foodMealDao.addFoodMeal(apple, breakfast, 2.0));
+        assertNotNull(foodMealDao.addFoodMeal(bread, breakfast, 1.5));
+        assertNotNull(new FoodSnackDao().addFoodSnack(apple, snack, 0.5));
+        DayTotals totals = totalsDao.getDayTotals(monday);
+        assertEquals(200, totals.getCalories(), DELTA);
+        assertEquals(435, totals.getGrams(), DELTA);
+        assertEquals(200, totals.getType("Fiber").calories(), DELTA);
+        assertEquals(375, totals.getType("Fiber").grams(), DELTA);
+        assertEquals(435, totals.getType("Carbohydrate").grams(), DELTA);
+        assertEquals(0, totals.getType("Protein").calories(), DELTA);
+
+        assertNotNull(foodMealDao.updateFoodMeal(apple.getName(), breakfast.getId(), 1.0));
+        assertEquals(120, totalsDao.getDayTotals(monday).getCalories(), DELTA);
+        assertTrue(foodMealDao.deleteFoodMeal(apple, breakfast));
+        assertEquals(40, totalsDao.getDayTotals(monday).getCalories(), DELTA);
+        assertTrue(new FoodSnackDao().deleteFoodSnack(apple, snack));
+        totals = totalsDao.getDayTotals(monday);
+        assertEquals(0, totals.getCalories(), DELTA);
+        assertEquals(60, totals.getGrams(), DELTA);
+        assertEquals(0, totals.getType("Fiber").grams(), DELTA);
+    }
+
+    @Test
+    void testEditsToFoodsAndMealsAreFollowed() {
+        Meal lunch = new MealDao().addMeal(monday, MealTypes.LUNCH);
+        assertNotNull(new FoodMealDao().addFoodMeal(apple, lunch, 2.0));
+        assertNotNull(new FoodMealDao().addFoodMeal(bread, lunch, 1.0));
+        // A new serving size changes every day the food was eaten on
+        assertNotNull(foodDao.updateFood(bread.getName(), 50.0, 120.0));
+        assertEquals(280, totalsDao.getDayTotals(monday).getCalories(), DELTA);
+        assertEquals(280, totalsDao.getDayTotals(monday).getType("Carbohydrate").calories(), DELTA);
+        // Removing a type of the food removes it from that type's totals only
+        assertTrue(new FoodJunctionTypeDao().deleteFoodTypeFood(apple.getName(), "Carbohydrate"));
+        DayTotals totals = totalsDao.getDayTotals(monday);
+        assertEquals(280, totals.getCalories(), DELTA);
+        assertEquals(120, totals.getType("Carbohydrate").calories(), DELTA);
+        assertEquals(160, totals.getType("Fiber").calories(), DELTA);
+        // Moving the meal moves its totals
+        assertNotNull(new MealDao().updateMeal(lunch.getId(), tuesday.getDate(), lunch.getTime(), MealTypes.LUNCH));
+        Map<LocalDate, DayTotals> weekTotals = totalsDao.getWeekTotals(week);
+        assertEquals(7, weekTotals.size());
+        assertEquals(0, weekTotals.get(MONDAY).getCalories(), DELTA);
+        assertEquals(280, weekTotals.get(MONDAY.plusDays(1)).getCalories(), DELTA);
+        assertEquals(350, weekTotals.get(MONDAY.plusDays(1)).getGrams(), DELTA);
+        // The running sums match totals computed from scratch
+        assertTrue(totalsDao.rebuild());
+        assertEquals(weekTotals.get(MONDAY.plusDays(1)).getCalories(), totalsDao.getDayTotals(tuesday).getCalories(), DELTA);
+        assertEquals(weekTotals.get(MONDAY.plusDays(1)).getTypes(), totalsDao.getDayTotals(tuesday).getTypes());
+        assertEquals(0, totalsDao.getDayTotals(monday).getCalories(), DELTA);
+    }
+
+    @Test
+    void testDeletedDayHasNoTotals() {
+        Snack snack = new SnackDao().addSnack(tuesday, LocalTime.of(10, 0));
+        assertNotNull(new FoodSnackDao().addFoodSnack(apple, snack, 1.0));
+        assertEquals(80, totalsDao.getDayTotals(tuesday).getCalories(), DELTA);
+        assertTrue(new SnackDao().deleteSnackCascade(snack));
+        assertTrue(new DayDao().deleteDay(tuesday));
+        assertTrue(totalsDao.getDayTotals(tuesday).getTypes().isEmpty());
+        tuesday = new DayDao().addDay(MONDAY.plusDays(1), week.getId());
+        assertEquals(0, totalsDao.getDayTotals(tuesday).getGrams(), DELTA);
+    }
+}
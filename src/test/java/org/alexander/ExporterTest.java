@@ -0,0 +1,128 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.ChangeJournal;
+import org.alexander.database.tables.day.Day;
+import org.alexander.database.tables.day.dao.DayDao;
+import org.alexander.database.tables.food.dao.FoodCache;
+import org.alexander.database.tables.food.dao.FoodDao;
+import org.alexander.database.tables.meal.Meal;
+import org.alexander.database.tables.meal.dao.MealDao;
+import org.alexander.database.tables.snack.Snack;
+import org.alexander.database.tables.snack.dao.SnackDao;
+import org.alexander.database.tables.week.Week;
+import org.alexander.database.tables.week.dao.WeekDao;
+import org.alexander.database.transfer.Exporter;
+import org.alexander.database.transfer.Importer;
+import org.alexander.database.transfer.RecordReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ExporterTest {
+    private static final LocalDate MONDAY = LocalDate.of(2002, 1, 7);
+    Path directory;
+    FoodDao foodDao = new FoodDao();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("export");
+        Path foods = write("foods.csv",
+                "name,serving_grams,serving_calories",
+                "ExportApple,150,80",
+                "\"ExportBread, white\",40,");
+        assertEquals(2, new Importer().importFoods(foods, directory.resolve("foods.errors.txt")).imported());
+        Path meals = write("meals.csv",
+                "date,meal,time,food,servings",
+                "2002-01-07,breakfast,,ExportApple,2",
+                "2002-01-07,breakfast,,\"ExportBread, white\",1.5",
+                "2002-01-08,snack,15:30,ExportApple,1",
+                "2002-01-09,dinner,,ExportApple,1");
+        assertEquals(4, new Importer().importMeals(meals, directory.resolve("meals.errors.txt")).imported());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException, SQLException {
+        clearWeek();
+        for (String name : List.of("ExportApple", "ExportBread, white")) {
+            if (foodDao.getFood(name) != null) assertTrue(foodDao.deleteFoodCascade(name));
+        }
+        FoodCache.getInstance().invalidate();
+        ChangeJournal.getInstance().clear();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void testWriteCsvInDateRange() throws IOException, SQLException {
+        StringWriter out = new StringWriter();
+        long rows = new Exporter().write(out, RecordReader.Format.CSV, MONDAY, MONDAY.plusDays(1));
+        assertEquals(3, rows);
+        assertEquals(List.of(
+                "date,meal,time,food,servings,serving_grams,serving_calories",
+                "2002-01-07,breakfast,09:00,ExportApple,2,150,80",
+                "2002-01-07,breakfast,09:00,\"ExportBread, white\",1.5,40,",
+                "2002-01-08,snack,15:30,ExportApple,1,150,80"), out.toString().lines().toList());
+    }
+
+    @Test
+    void testWriteJsonLinesFromDate() throws IOException, SQLException {
+        StringWriter out = new StringWriter();
+        long rows = new Exporter().write(out, RecordReader.Format.JSON_LINES, MONDAY.plusDays(2), null);
+        assertEquals(1, rows);
+        assertEquals("{\"date\": \"2002-01-09\", \"meal\": \"dinner\", \"time\": \"18:00\", \"food\": \"ExportApple\", "
+                + "\"servings\": 1, \"serving_grams\": 150, \"serving_calories\": 80}", out.toString().strip());
+    }
+
+    @Test
+    void testExportReimports() throws IOException, SQLException {
+        Path target = directory.resolve("diary.jsonl");
+        Exporter.Export export = new Exporter().export(target, MONDAY, MONDAY.plusDays(6));
+        assertNotNull(export);
+        assertEquals(4, export.rows());
+        assertFalse(Files.exists(directory.resolve("diary.jsonl.tmp")));
+        clearWeek();
+        assertTrue(new MealDao().getDayMeals(MONDAY).isEmpty());
+        Importer.Report report = new Importer().importMeals(target, directory.resolve("diary.errors.txt"));
+        assertTrue(report.isComplete(), report.summary());
+        assertEquals(4, report.imported());
+        assertEquals(0, report.rejected());
+        StringWriter out = new StringWriter();
+        assertEquals(4, new Exporter().write(out, RecordReader.Format.JSON_LINES, MONDAY, MONDAY.plusDays(6)));
+        assertEquals(Files.readString(target), out.toString());
+    }
+
+    private void clearWeek() throws SQLException {
+        MealDao mealDao = new MealDao();
+        SnackDao snackDao = new SnackDao();
+        DayDao dayDao = new DayDao();
+        for (int i = 0; i < 7; i++) {
+            LocalDate date = MONDAY.plusDays(i);
+            for (Meal meal : mealDao.getDayMeals(date)) assertTrue(mealDao.deleteMealCascade(meal));
+            Day day = dayDao.getDay(date);
+            if (day == null) continue;
+            for (Snack snack : snackDao.getDaySnacks(day)) assertTrue(snackDao.deleteSnackCascade(snack));
+            assertTrue(dayDao.deleteDay(day));
+        }
+        WeekDao weekDao = new WeekDao();
+        Week week = weekDao.getWeek(MONDAY);
+        if (week != null) assertTrue(weekDao.deleteWeek(week));
+    }
+
+    private Path write(String name, String... lines) throws IOException {
+        return Files.write(directory.resolve(name), List.of(lines));
+    }
+}
@@ -0,0 +1,79 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.CacheMetrics;
+import org.alexander.database.tables.food.Food;
+import org.alexander.database.tables.food.dao.FoodCache;
+import org.alexander.database.tables.food.dao.FoodDao;
+import org.alexander.database.tables.foodtype.FoodType;
+import org.alexander.database.tables.foodtypefood.dao.FoodJunctionTypeDao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class FoodCacheTest {
+    FoodDao foodDao = new FoodDao();
+    FoodJunctionTypeDao foodJunctionTypeDao = new FoodJunctionTypeDao();
+
+    @AfterEach
+    void tearDown() {
+        if (foodDao.getFood("CacheKiwi") != null) {
+            foodJunctionTypeDao.deleteFoodTypeFood("CacheKiwi", "Fiber");
+            foodDao.deleteFood("CacheKiwi");
+        }
+    }
+
+    @Test
+    void testWriteThrough() {
+        foodDao.getFoodList();
+        assertTrue(FoodCache.getInstance().isComplete());
+        Food kiwi = foodDao.addFood("CacheKiwi", 70.0, 40.0);
+        long misses = FoodDao.getCacheMetrics().misses();
+        assertSame(kiwi, foodDao.getFood("CacheKiwi"));
+        assertTrue(foodDao.getFoodList().contains(kiwi));
+        assertNotNull(foodDao.updateFood("CacheKiwi", 70.0, 45.0));
+        assertEquals(45.0, foodDao.getFood("CacheKiwi").getServingCalories());
+        // Types are cached with the food and reloaded after they change
+        assertTrue(foodJunctionTypeDao.getTypes(kiwi).isEmpty());
+        assertNotNull(foodJunctionTypeDao.addFoodTypeFood(kiwi, new FoodType("Fiber")));
+        assertEquals("Fiber", foodJunctionTypeDao.getTypes(kiwi).getFirst().getName());
+        assertEquals(misses + 1, FoodDao.getCacheMetrics().misses());
+        assertTrue(foodJunctionTypeDao.deleteFoodTypeFood(kiwi, new FoodType("Fiber")));
+        assertTrue(foodDao.deleteFood(kiwi));
+        assertNull(foodDao.getFood("CacheKiwi"));
+        assertFalse(foodDao.contains("CacheKiwi", "name"));
+    }
+
+    @Test
+    void testBoundedLeastRecentlyUsed() {
+        FoodCache cache = new FoodCache(2);
+        cache.fill(List.of(new Food("A", null, null), new Food("B", null, null)), Map.of(), cache.getVersion());
+        assertTrue(cache.isComplete());
+        assertNotNull(cache.get("A"));
+        cache.put(new Food("C", null, null));
+        // B was the least recently used, so it made way for C and the cache no longer holds the whole table
+        assertFalse(cache.isComplete());
+        assertNull(cache.get("B"));
+        assertNotNull(cache.get("A"));
+        assertNull(cache.getAll());
+        CacheMetrics metrics = cache.getMetrics();
+        assertEquals(2, metrics.size());
+        assertEquals(1, metrics.evictions());
+        assertEquals(2, metrics.hits());
+        assertEquals(2, metrics.misses());
+        assertEquals(0.5, metrics.hitRate());
+    }
+
+    @Test
+    void testStaleReadIsNotCached() {
+        FoodCache cache = new FoodCache(4);
+        long version = cache.getVersion();
+        cache.put(new Food("A", 1.0, null));
+        // A read which started before the write must not replace it
+        cache.fill(new Food("A", 2.0, null), version);
+        cache.fill(List.of(), Map.of(), version);
+        assertEquals(1.0, cache.get("A").getServingGrams());
+    }
+}
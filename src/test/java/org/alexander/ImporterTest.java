@@ -0,0 +1,187 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.ChangeJournal;
+import org.alexander.database.DatabaseManager;
+import org.alexander.database.tables.day.Day;
+import org.alexander.database.tables.day.dao.DayDao;
+import org.alexander.database.tables.food.dao.FoodCache;
+import org.alexander.database.tables.food.dao.FoodDao;
+import org.alexander.database.tables.foodtypefood.dao.FoodJunctionTypeDao;
+import org.alexander.database.tables.meal.Meal;
+import org.alexander.database.tables.meal.dao.MealDao;
+import org.alexander.database.tables.snack.Snack;
+import org.alexander.database.tables.snack.dao.SnackDao;
+import org.alexander.database.tables.week.Week;
+import org.alexander.database.tables.week.dao.WeekDao;
+import org.alexander.database.transfer.Importer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ImporterTest {
+    private static final LocalDate MONDAY = LocalDate.of(2001, 1, 1);
+    Path directory;
+    FoodDao foodDao = new FoodDao();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("import");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException, SQLException {
+        MealDao mealDao = new MealDao();
+        SnackDao snackDao = new SnackDao();
+        DayDao dayDao = new DayDao();
+        for (int i = 0; i < 7; i++) {
+            LocalDate date = MONDAY.plusDays(i);
+            for (Meal meal : mealDao.getDayMeals(date)) assertTrue(mealDao.deleteMealCascade(meal));
+            Day day = dayDao.getDay(date);
+            if (day == null) continue;
+            for (Snack snack : snackDao.getDaySnacks(day)) assertTrue(snackDao.deleteSnackCascade(snack));
+            assertTrue(dayDao.deleteDay(day));
+        }
+        WeekDao weekDao = new WeekDao();
+        Week week = weekDao.getWeek(MONDAY);
+        if (week != null) assertTrue(weekDao.deleteWeek(week));
+        for (String name : List.of("ImportApple", "ImportBread, white")) {
+            if (foodDao.getFood(name) != null) assertTrue(foodDao.deleteFoodCascade(name));
+        }
+        try (Connection conn = DatabaseManager.connectForWrite(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM FOOD WHERE name LIKE 'Bulk food %'");
+        }
+        FoodCache.getInstance().invalidate();
+        ChangeJournal.getInstance().clear();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void testImportFoodsRejectsBadRows() throws IOException {
+        Path source = write("foods.csv",
+                "name,serving_grams,serving_calories,types",
+                "ImportApple,150,80,Fiber;Carbohydrate",
+                "\"ImportBread, white\",40,100,carbohydrate",
+                "ImportBad,abc,10,",
+                "ImportOdd,10,10,Bogus",
+                "ImportApple,1,1,");
+        Path errors = directory.resolve("foods.errors.txt");
+        // Batches and transactions of two rows, so the import spans several of each
+        Importer.Report report = new Importer(2, 2).importFoods(source, errors);
+        assertTrue(report.isComplete(), report.summary());
+        assertEquals(2, report.imported());
+        assertEquals(3, report.rejected());
+        assertNotNull(foodDao.getFood("ImportBread, white"));
+        assertEquals(2, new FoodJunctionTypeDao().getTypes(foodDao.getFood("ImportApple")).size());
+        assertNull(foodDao.getFood("ImportBad"));
+        List<String> rejected = Files.readAllLines(errors);
+        assertEquals(3, rejected.size());
+        assertTrue(rejected.get(0).startsWith("line 4: serving_grams 'abc' is not a number"), rejected.get(0));
+        assertTrue(rejected.get(1).startsWith("line 5: unknown food type 'Bogus'"), rejected.get(1));
+        assertTrue(rejected.get(2).startsWith("line 6: food 'ImportApple' already exists"), rejected.get(2));
+        assertFalse(ChangeJournal.getInstance().isReliable());
+    }
+
+    @Test
+    void testTypesAreSeparatedBySemicolons() throws IOException {
+        Path source = write("types.csv",
+                "name,serving_grams,serving_calories,types",
+                "ImportApple,150,80, Fiber ; ;fiber;Carbohydrate",
+                "\"ImportBread, white\",40,100,Carbohydrate|Fiber");
+        Path errors = directory.resolve("types.errors.txt");
+        Importer.Report report = new Importer().importFoods(source, errors);
+        assertEquals(1, report.imported());
+        // Blank and repeated types are dropped, any other separator is part of the type's name
+        assertEquals(2, new FoodJunctionTypeDao().getTypes(foodDao.getFood("ImportApple")).size());
+        List<String> rejected = Files.readAllLines(errors);
+        assertEquals(1, rejected.size());
+        assertTrue(rejected.getFirst().startsWith("line 3: unknown food type 'Carbohydrate|Fiber'"), rejected.getFirst());
+    }
+
+    @Test
+    void testImportMealsCreatesWeeksDaysAndMeals() throws IOException {
+        Path foods = write("foods.jsonl",
+                "{\"name\": \"ImportApple\", \"serving_grams\": 150, \"serving_calories\": 80, \"types\": [\"Fiber\"]}",
+                "{\"name\": \"ImportBread, white\", \"serving_grams\": 40, \"serving_calories\": null}");
+        assertEquals(2, new Importer().importFoods(foods, directory.resolve("foods.errors.txt")).imported());
+        Path source = write("meals.jsonl",
+                "{\"date\": \"2001-01-01\", \"meal\": \"breakfast\", \"food\": \"ImportApple\", \"servings\": 2}",
+                "{\"date\": \"2001-01-01\", \"meal\": \"Breakfast\", \"food\": \"ImportBread, white\"}",
+                "{\"date\": \"2001-01-02\", \"meal\": \"snack\", \"time\": \"15:30\", \"food\": \"ImportApple\"}",
+                "{\"date\": \"2001-01-01\", \"meal\": \"breakfast\", \"food\": \"ImportApple\"}",
+                "{\"date\": \"2001-01-02\", \"meal\": \"snack\", \"food\": \"ImportApple\"}",
+                "{\"date\": \"2001-13-02\", \"meal\": \"lunch\", \"food\": \"ImportApple\"}",
+                "{\"date\": \"2001-01-03\", \"meal\": \"lunch\", \"food\": \"Nope\"}",
+                "not json");
+        Path errors = directory.resolve("meals.errors.txt");
+        Importer.Report report = new Importer(2, 4).importMeals(source, errors);
+        assertTrue(report.isComplete(), report.summary());
+        assertEquals(3, report.imported());
+        assertEquals(5, report.rejected());
+        assertEquals(5, Files.readAllLines(errors).size());
+        assertNotNull(new WeekDao().getWeek(MONDAY));
+        List<Meal> breakfasts = new MealDao().getDayMeals(MONDAY);
+        assertEquals(1, breakfasts.size());
+        assertEquals(LocalTime.of(9, 0), breakfasts.getFirst().getTime());
+        Day tuesday = new DayDao().getDay(MONDAY.plusDays(1));
+        assertNotNull(tuesday);
+        assertEquals(1, new SnackDao().getDaySnacks(tuesday).size());
+        assertNull(new DayDao().getDay(MONDAY.plusDays(2)));
+    }
+
+    @Test
+    void testRejectedPortionsStillMarkTheJournal() throws IOException {
+        Path foods = write("foods.jsonl", "{\"name\": \"ImportApple\", \"serving_grams\": 150, \"serving_calories\": 80}");
+        assertEquals(1, new Importer().importFoods(foods, directory.resolve("foods.errors.txt")).imported());
+        Path source = write("meals.jsonl", "{\"date\": \"2001-01-01\", \"meal\": \"breakfast\", \"food\": \"ImportApple\"}");
+        assertEquals(1, new Importer().importMeals(source, directory.resolve("first.errors.txt")).imported());
+        ChangeJournal.getInstance().clear();
+        // Nothing is imported the second time, but the transaction the duplicate was rejected in still committed
+        Importer.Report report = new Importer().importMeals(source, directory.resolve("second.errors.txt"));
+        assertEquals(0, report.imported());
+        assertEquals(1, report.rejected());
+        assertFalse(ChangeJournal.getInstance().isReliable());
+    }
+
+    @Test
+    void testImportManyFoods() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("name,serving_grams,serving_calories");
+        for (int i = 0; i < 10_000; i++) {
+            lines.add("Bulk food " + i + "," + (i % 500) + "," + (i % 900));
+        }
+        Path source = write("bulk.csv", lines.toArray(String[]::new));
+        long[] progress = new long[1];
+        Importer importer = new Importer(500, 4000);
+        importer.setProgressListener((imported, rejected, rowsPerSecond) -> progress[0]++);
+        Importer.Report report = importer.importFoods(source, directory.resolve("bulk.errors.txt"));
+        assertTrue(report.isComplete(), report.summary());
+        assertEquals(10_000, report.imported());
+        assertEquals(0, report.rejected());
+        assertTrue(report.rowsPerSecond() > 0);
+        assertEquals(3, progress[0]);
+        assertFalse(Files.exists(directory.resolve("bulk.errors.txt")));
+        assertNotNull(foodDao.getFood("Bulk food 9999"));
+    }
+
+    private Path write(String name, String... lines) throws IOException {
+        return Files.write(directory.resolve(name), List.of(lines));
+    }
+}
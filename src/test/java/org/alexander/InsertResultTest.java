@@ -0,0 +1,90 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.InsertResult;
+import org.alexander.database.InsertResult.Status;
+import org.alexander.database.tables.day.Day;
+import org.alexander.database.tables.day.dao.DayDao;
+import org.alexander.database.tables.food.Food;
+import org.alexander.database.tables.food.dao.FoodDao;
+import org.alexander.database.tables.foodmeal.FoodMeal;
+import org.alexander.database.tables.foodmeal.dao.FoodMealDao;
+import org.alexander.database.tables.meal.Meal;
+import org.alexander.database.tables.meal.MealTypes;
+import org.alexander.database.tables.meal.dao.MealDao;
+import org.alexander.database.tables.snack.dao.SnackDao;
+import org.alexander.database.tables.week.Week;
+import org.alexander.database.tables.week.dao.WeekDao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public class InsertResultTest {
+    WeekDao weekDao;
+    DayDao dayDao;
+    MealDao mealDao;
+    FoodDao foodDao;
+    FoodMealDao foodMealDao;
+
+    @BeforeEach
+    void setUp() {
+        weekDao = new WeekDao();
+        dayDao = new DayDao();
+        mealDao = new MealDao();
+        foodDao = new FoodDao();
+        foodMealDao = new FoodMealDao();
+    }
+
+    @AfterEach
+    void tearDown() {
+        foodMealDao.getFoodMealList().forEach(foodMealDao::deleteFoodMeal);
+        foodDao.deleteFood("Oats");
+        MealSnackTest.clearMeals(mealDao);
+        MealSnackTest.clearSnacks(new SnackDao());
+        WeekDayDaoTest.clearDays(dayDao);
+        WeekDayDaoTest.clearWeeks(weekDao);
+    }
+
+    @Test
+    void testDuplicatesAreReported() {
+        LocalDate monday = LocalDate.of(2025, 3, 3);
+        InsertResult<Week> week = weekDao.insertWeek(monday, monday.plusDays(6));
+        assertEquals(Status.INSERTED, week.status());
+        assertEquals(Status.DUPLICATE, weekDao.insertWeek(monday, monday.plusDays(6)).status());
+
+        InsertResult<Day> day = dayDao.insertDay(monday, week.entity().getId(), 70.0);
+        assertTrue(day.isInserted());
+        assertEquals(Status.DUPLICATE, dayDao.insertDay(monday, week.entity().getId(), 70.0).status());
+
+        InsertResult<Meal> meal = mealDao.insertMeal(monday, MealTypes.LUNCH, LocalTime.NOON);
+        assertTrue(meal.isInserted());
+        assertEquals(Status.DUPLICATE, mealDao.insertMeal(monday, MealTypes.LUNCH, LocalTime.NOON).status());
+        assertNull(mealDao.addMeal(monday, MealTypes.LUNCH, LocalTime.NOON));
+
+        InsertResult<Food> food = foodDao.insertFood("Oats", 40.0, 150.0);
+        assertTrue(food.isInserted());
+        assertEquals(Status.DUPLICATE, foodDao.insertFood("Oats", 40.0, 150.0).status());
+
+        InsertResult<FoodMeal> foodMeal = foodMealDao.insertFoodMeal("Oats", meal.entity().getId(), 2.0);
+        assertTrue(foodMeal.isInserted());
+        assertEquals(2.0, foodMeal.entity().getNumServings());
+        assertEquals(Status.DUPLICATE, foodMealDao.insertFoodMeal("Oats", meal.entity().getId(), 1.0).status());
+        assertEquals(2.0, foodMealDao.getFoodMeal("Oats", meal.entity().getId()).getNumServings());
+    }
+
+    @Test
+    void testMissingParentsAreReported() {
+        LocalDate monday = LocalDate.of(2025, 3, 10);
+        // No week, day or food exists yet, so the foreign keys reject each insert
+        assertEquals(Status.MISSING_PARENT, dayDao.insertDay(monday, Integer.MAX_VALUE, null).status());
+        assertEquals(Status.MISSING_PARENT, mealDao.insertMeal(monday, MealTypes.DINNER, LocalTime.of(18, 0)).status());
+        assertEquals(Status.MISSING_PARENT, foodMealDao.insertFoodMeal("Oats", Integer.MAX_VALUE, 1.0).status());
+        assertNull(foodMealDao.addFoodMeal("Oats", Integer.MAX_VALUE, 1.0));
+        assertTrue(dayDao.getDayList().isEmpty());
+        assertTrue(mealDao.getMeals().isEmpty());
+        assertTrue(foodMealDao.getFoodMealList().isEmpty());
+    }
+}
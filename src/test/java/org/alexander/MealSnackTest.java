@@ -1,6 +1,8 @@
 package org.alexander;
 import static org.junit.jupiter.api.Assertions.*;
 
+import org.alexander.database.ChangeJournal;
+import org.alexander.database.DatabaseManager;
 import org.alexander.database.tables.day.Day;
 import org.alexander.database.tables.day.dao.DayDao;
 import org.alexander.database.tables.food.dao.FoodDao;
@@ -20,6 +22,10 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
@@ -36,10 +42,11 @@ public class MealSnackTest {
 
     @AfterEach
     void tearDown() {
-        WeekDayDaoTest.clearWeeks(weekDao);
-        WeekDayDaoTest.clearDays(dayDao);
+        // Children before parents, foreign keys reject deleting a row that is still referenced
         clearMeals(new MealDao());
         clearSnacks(new SnackDao());
+        WeekDayDaoTest.clearDays(dayDao);
+        WeekDayDaoTest.clearWeeks(weekDao);
         weekDao = null;
         dayDao = null;
     }
@@ -161,6 +168,91 @@ public class MealSnackTest {
         assertTrue(weekDao.deleteWeek(week));
     }
 
+    @Test
+    void cascadeDeleteTest() {
+        var week = initWeek();
+        var today = initDay();
+        MealDao mealDao = new MealDao();
+        SnackDao snackDao = new SnackDao();
+        Meal lunch = mealDao.addMeal(today, MealTypes.LUNCH);
+        Snack snack = snackDao.addSnack(today, LocalTime.NOON);
+        assertNotNull(lunch);
+        assertNotNull(snack);
+        FoodDao foodDao = new FoodDao();
+        var pear = foodDao.addFood("CascadePear", 150.0, 90.0);
+        var plum = foodDao.addFood("CascadePlum", 80.0, 30.0);
+        assertNotNull(pear);
+        assertNotNull(plum);
+        FoodJunctionTypeDao foodJunctionTypeDao = new FoodJunctionTypeDao();
+        assertNotNull(foodJunctionTypeDao.addFoodTypeFood(pear, new FoodTypeDao().getFoodType("Fiber")));
+        FoodMealDao foodMealDao = new FoodMealDao();
+        FoodSnackDao foodSnackDao = new FoodSnackDao();
+        assertNotNull(foodMealDao.addFoodMeal(pear, lunch, 1.0));
+        assertNotNull(foodMealDao.addFoodMeal(plum, lunch, 2.0));
+        assertNotNull(foodSnackDao.addFoodSnack(pear, snack, 1.0));
+        // The food leaves every meal and snack and loses its types
+        assertTrue(foodDao.deleteFoodCascade(pear));
+        assertNull(foodDao.getFood("CascadePear"));
+        assertFalse(foodMealDao.contains("CascadePear", lunch.getId()));
+        assertFalse(foodSnackDao.contains("CascadePear", snack.getId()));
+        assertTrue(foodJunctionTypeDao.getTypes(pear).isEmpty());
+        assertTrue(foodMealDao.contains("CascadePlum", lunch.getId()));
+        // The meal takes the foods still in it along
+        assertTrue(mealDao.deleteMealCascade(lunch));
+        assertNull(mealDao.getMeal(lunch.getId()));
+        assertFalse(foodMealDao.contains("CascadePlum", lunch.getId()));
+        assertFalse(mealDao.deleteMealCascade(lunch));
+        assertTrue(snackDao.deleteSnackCascade(snack));
+        assertNull(snackDao.getSnack(snack.getId()));
+        // Cleanup
+        assertTrue(foodDao.deleteFood(plum));
+        assertTrue(dayDao.deleteDay(today));
+        assertTrue(weekDao.deleteWeek(week));
+    }
+
+    @Test
+    void cascadeOnOwnConnectionTest() throws SQLException {
+        var week = initWeek();
+        var today = initDay();
+        Meal dinner = new MealDao().addMeal(today, MealTypes.DINNER);
+        assertNotNull(dinner);
+        FoodDao foodDao = new FoodDao();
+        var fig = foodDao.addFood("CascadeFig", 50.0, 40.0);
+        assertNotNull(fig);
+        assertNotNull(new FoodMealDao().addFoodMeal(fig, dinner, 1.0));
+        try (Connection conn = DatabaseManager.connectForWrite(); Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            try {
+                MealDao ownDao = new MealDao(conn);
+                // The meal cannot be deleted, so the cascade only undoes its own statements
+                stmt.execute("CREATE TEMP TRIGGER KEEP_MEAL BEFORE DELETE ON MEAL BEGIN SELECT RAISE(ABORT, 'kept'); END");
+                assertFalse(ownDao.deleteMealCascade(dinner));
+                assertEquals(1, countFoods(stmt, dinner));
+                stmt.execute("DROP TRIGGER KEEP_MEAL");
+                assertTrue(ownDao.deleteMealCascade(dinner));
+                assertNull(ownDao.getMeal(dinner.getId()));
+                assertEquals(0, countFoods(stmt, dinner));
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        }
+        // The owner rolled back, taking the cascade with it
+        MealDao mealDao = new MealDao();
+        assertNotNull(mealDao.getMeal(dinner.getId()));
+        assertTrue(new FoodMealDao().contains("CascadeFig", dinner.getId()));
+        assertTrue(mealDao.deleteMealCascade(dinner));
+        assertTrue(foodDao.deleteFood(fig));
+        assertTrue(dayDao.deleteDay(today));
+        assertTrue(weekDao.deleteWeek(week));
+        ChangeJournal.getInstance().clear();
+    }
+
+    private static int countFoods(Statement stmt, Meal meal) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM FOOD_MEAL WHERE meal_id = " + meal.getId())) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
 
     public static void clearMeals(MealDao mealDao) {
         if (!mealDao.getMeals().isEmpty()) {
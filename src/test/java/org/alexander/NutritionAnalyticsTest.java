@@ -0,0 +1,191 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.ChangeJournal;
+import org.alexander.database.DatabaseManager;
+import org.alexander.database.analytics.NutritionAnalytics;
+import org.alexander.database.analytics.NutritionSummary;
+import org.alexander.database.tables.day.Day;
+import org.alexander.database.tables.day.dao.DayDao;
+import org.alexander.database.tables.food.Food;
+import org.alexander.database.tables.food.dao.FoodDao;
+import org.alexander.database.tables.foodmeal.dao.FoodMealDao;
+import org.alexander.database.tables.foodsnack.dao.FoodSnackDao;
+import org.alexander.database.tables.foodtype.dao.FoodTypeDao;
+import org.alexander.database.tables.foodtypefood.dao.FoodJunctionTypeDao;
+import org.alexander.database.tables.meal.Meal;
+import org.alexander.database.tables.meal.MealTypes;
+import org.alexander.database.tables.meal.dao.MealDao;
+import org.alexander.database.tables.snack.Snack;
+import org.alexander.database.tables.snack.dao.SnackDao;
+import org.alexander.database.tables.week.Week;
+import org.alexander.database.tables.week.dao.WeekDao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class NutritionAnalyticsTest {
+    private static final LocalDate FIRST_MONDAY = LocalDate.of(2004, 1, 5);
+    private static final LocalDate SECOND_MONDAY = FIRST_MONDAY.plusWeeks(1);
+    private static final double DELTA = 1e-9;
+    // The first week has ended, the second is under way
+    private final Clock clock = Clock.fixed(SECOND_MONDAY.plusDays(2).atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+    NutritionAnalytics analytics = new NutritionAnalytics(10, clock);
+    FoodDao foodDao = new FoodDao();
+    List<Week> weeks = new ArrayList<>();
+    List<Day> days = new ArrayList<>();
+    Food apple;
+    Food bread;
+    Meal breakfast;
+
+    @BeforeEach
+    void setUp() {
+        ChangeJournal.getInstance().addListener(analytics);
+        DayDao dayDao = new DayDao();
+        for (LocalDate monday : List.of(FIRST_MONDAY, SECOND_MONDAY)) {
+            Week week = new WeekDao().addWeek(monday);
+            weeks.add(week);
+            days.add(dayDao.addDay(monday, week.getId()));
+            days.add(dayDao.addDay(monday.plusDays(1), week.getId()));
+        }
+        apple = foodDao.addFood("AnalyticsApple", 150.0, 80.0);
+        bread = foodDao.addFood("AnalyticsBread", 40.0, 100.0);
+        new FoodJunctionTypeDao().addFoodTypeFood(apple, new FoodTypeDao().getFoodType("Fiber"));
+        // Monday: breakfast of two apples and a slice of bread, an apple as a snack. Tuesday: bread for lunch.
+        breakfast = new MealDao().addMeal(days.get(0), MealTypes.BREAKFAST);
+        assertNotNull(new FoodMealDao().addFoodMeal(apple, breakfast, 2.0));
+        assertNotNull(new FoodMealDao().addFoodMeal(bread, breakfast, 1.0));
+        Snack snack = new SnackDao().addSnack(days.get(0), LocalTime.of(16, 0));
+        assertNotNull(new FoodSnackDao().addFoodSnack(apple, snack, 1.0));
+        Meal lunch = new MealDao().addMeal(days.get(1), MealTypes.LUNCH);
+        assertNotNull(new FoodMealDao().addFoodMeal(bread, lunch, 2.0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ChangeJournal.getInstance().removeListener(analytics);
+        MealDao mealDao = new MealDao();
+        SnackDao snackDao = new SnackDao();
+        for (Day day : days) {
+            for (Meal meal : mealDao.getDayMeals(day)) assertTrue(mealDao.deleteMealCascade(meal));
+            for (Snack snack : snackDao.getDaySnacks(day)) assertTrue(snackDao.deleteSnackCascade(snack));
+            assertTrue(new DayDao().deleteDay(day));
+        }
+        weeks.forEach(week -> assertTrue(new WeekDao().deleteWeek(week)));
+        assertTrue(foodDao.deleteFoodCascade(apple));
+        assertTrue(foodDao.deleteFoodCascade(bread));
+        ChangeJournal.getInstance().clear();
+    }
+
+    @Test
+    void testWeekAndMonthSummaries() {
+        NutritionSummary week = analytics.getWeekSummary(FIRST_MONDAY.plusDays(3));
+        assertEquals(FIRST_MONDAY, week.start());
+        assertEquals(FIRST_MONDAY.plusDays(6), week.end());
+        assertEquals(2, week.daysLogged());
+        assertEquals(540, week.total().calories(), DELTA);
+        assertEquals(570, week.total().grams(), DELTA);
+        assertEquals(270, week.dailyAverage().calories(), DELTA);
+        assertEquals(260, week.meal(MealTypes.BREAKFAST).calories(), DELTA);
+        assertEquals(200, week.meal(MealTypes.LUNCH).calories(), DELTA);
+        assertEquals(0, week.meal(MealTypes.DINNER).calories(), DELTA);
+        assertEquals(80, week.snacks().calories(), DELTA);
+        assertEquals(240, week.type("Fiber").calories(), DELTA);
+        assertEquals(0, week.type("Protein").grams(), DELTA);
+
+        NutritionSummary empty = analytics.getWeekSummary(SECOND_MONDAY);
+        assertEquals(0, empty.daysLogged());
+        assertEquals(0, empty.dailyAverage().calories(), DELTA);
+
+        NutritionSummary january = analytics.getMonthSummary(YearMonth.of(2004, 1));
+        assertEquals(LocalDate.of(2004, 1, 31), january.end());
+        assertEquals(540, january.total().calories(), DELTA);
+        List<NutritionSummary> series = analytics.getWeekSummaries(FIRST_MONDAY, SECOND_MONDAY.plusDays(6));
+        assertEquals(2, series.size());
+        assertEquals(540, series.get(0).total().calories(), DELTA);
+        assertEquals(0, series.get(1).total().calories(), DELTA);
+    }
+
+    @Test
+    void testClosedWeeksAreCachedUntilWrittenTo() {
+        analytics.getSummary(FIRST_MONDAY, SECOND_MONDAY.plusDays(6));
+        // Only the week which has ended is kept
+        assertEquals(1, analytics.getMetrics().size());
+        analytics.getWeekSummary(FIRST_MONDAY);
+        assertEquals(1, analytics.getMetrics().hits());
+
+        // Writing to the week under way leaves the cached week alone
+        Meal dinner = new MealDao().addMeal(days.get(2), MealTypes.DINNER);
+        assertNotNull(new FoodMealDao().addFoodMeal(apple, dinner, 1.0));
+        assertEquals(80, analytics.getWeekSummary(SECOND_MONDAY).total().calories(), DELTA);
+        analytics.getWeekSummary(FIRST_MONDAY);
+        assertEquals(2, analytics.getMetrics().hits());
+        assertEquals(0, analytics.getMetrics().evictions());
+
+        // Changing a portion in the cached week evicts it
+        assertNotNull(new FoodMealDao().updateFoodMeal(apple.getName(), breakfast.getId(), 1.0));
+        assertEquals(460, analytics.getWeekSummary(FIRST_MONDAY).total().calories(), DELTA);
+        assertEquals(1, analytics.getMetrics().evictions());
+
+        // Moving the breakfast to the week under way takes it out of the cached week
+        assertNotNull(new MealDao().updateMeal(breakfast.getId(), days.get(3).getDate(), breakfast.getTime(), MealTypes.BREAKFAST));
+        assertEquals(280, analytics.getWeekSummary(FIRST_MONDAY).total().calories(), DELTA);
+        assertEquals(0, analytics.getWeekSummary(FIRST_MONDAY).meal(MealTypes.BREAKFAST).calories(), DELTA);
+        assertEquals(180, analytics.getWeekSummary(SECOND_MONDAY).meal(MealTypes.BREAKFAST).calories(), DELTA);
+    }
+
+    @Test
+    void testFoodEditsEvictEveryWeek() {
+        analytics.getWeekSummary(FIRST_MONDAY);
+        assertEquals(1, analytics.getMetrics().size());
+        // A new food is in no meal, so nothing is evicted
+        Food cheese = foodDao.addFood("AnalyticsCheese", 30.0, 120.0);
+        analytics.getWeekSummary(FIRST_MONDAY);
+        assertEquals(0, analytics.getMetrics().evictions());
+        assertTrue(foodDao.deleteFood(cheese));
+
+        assertNotNull(foodDao.updateFood(bread.getName(), 40.0, 50.0));
+        NutritionSummary week = analytics.getWeekSummary(FIRST_MONDAY);
+        assertEquals(390, week.total().calories(), DELTA);
+        assertEquals(100, week.meal(MealTypes.LUNCH).calories(), DELTA);
+
+        ChangeJournal.getInstance().markUnreliable("testing");
+        analytics.getWeekSummary(FIRST_MONDAY);
+        assertEquals(3, analytics.getMetrics().misses());
+    }
+
+    @Test
+    void testReadsDoNotWaitForTheWriter() throws Exception {
+        analytics.getWeekSummary(FIRST_MONDAY);
+        assertEquals(1, analytics.getMetrics().size());
+        try (Connection conn = DatabaseManager.connectForWrite()) {
+            conn.setAutoCommit(false);
+            try {
+                // Written by this thread, in a transaction not committed yet
+                assertNotNull(new FoodMealDao().updateFoodMeal(apple.getName(), breakfast.getId(), 1.0));
+                // Another thread reads the week as last committed, without waiting for the writer
+                NutritionSummary during = CompletableFuture.supplyAsync(() -> analytics.getWeekSummary(FIRST_MONDAY))
+                        .get(2, TimeUnit.SECONDS);
+                assertEquals(540, during.total().calories(), DELTA);
+                assertEquals(0, analytics.getMetrics().hits());
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        // The change was kept for the first read after the commit, which evicts the cached week
+        assertEquals(460, analytics.getWeekSummary(FIRST_MONDAY).total().calories(), DELTA);
+        assertEquals(1, analytics.getMetrics().evictions());
+    }
+}
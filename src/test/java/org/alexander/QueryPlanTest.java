@@ -0,0 +1,66 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.DatabaseManager;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class QueryPlanTest {
+    // The hot lookups of the DAOs, each should search an index rather than scan its table
+    private static final String[] QUERIES = {
+            "SELECT date FROM DAY WHERE week_id = 1",
+            "SELECT id FROM MEAL WHERE date = 0",
+            "SELECT id FROM MEAL WHERE date BETWEEN 0 AND 1",
+            "SELECT id FROM SNACK WHERE date = 0",
+            "SELECT name FROM FOOD_MEAL WHERE meal_id = 1",
+            "SELECT name FROM FOOD_SNACK WHERE snack_id = 1",
+            "SELECT name FROM FOOD_TYPE_JUNCTION_FOOD WHERE type = 'Fiber'"
+    };
+
+    @Test
+    void testHotLookupsUseIndexes() throws SQLException {
+        try (Connection conn = DatabaseManager.connect()) {
+            for (String query : QUERIES) {
+                String plan = explain(conn, query);
+                assertTrue(plan.contains("USING INDEX") || plan.contains("USING COVERING INDEX"), query + " -> " + plan);
+            }
+        }
+    }
+
+    @Test
+    void testIndexesChangeQueryPlans() throws SQLException {
+        List<String> tables = new ArrayList<>();
+        List<String> indexes = new ArrayList<>();
+        try (Connection conn = DatabaseManager.connect(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT type, sql FROM sqlite_master WHERE sql IS NOT NULL AND name NOT LIKE 'sqlite_%'")) {
+            while (rs.next()) {
+                (rs.getString("type").equals("index") ? indexes : tables).add(rs.getString("sql"));
+            }
+        }
+        assertFalse(indexes.isEmpty());
+        // Rebuild the schema in memory without the secondary indexes, then add them
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:"); Statement stmt = conn.createStatement()) {
+            for (String table : tables) stmt.execute(table);
+            for (String query : QUERIES) {
+                String plan = explain(conn, query);
+                assertTrue(plan.contains("SCAN"), "before: " + query + " -> " + plan);
+            }
+            for (String index : indexes) stmt.execute(index);
+            for (String query : QUERIES) {
+                String plan = explain(conn, query);
+                assertFalse(plan.contains("SCAN"), "after: " + query + " -> " + plan);
+            }
+        }
+    }
+
+    private static String explain(Connection conn, String query) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + query)) {
+            while (rs.next()) plan.append(rs.getString("detail")).append('\n');
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.BackupStore;
+import org.alexander.database.SaveEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class SaveEngineTest {
+    Path directory;
+    Path working;
+    Connection open;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        directory = Files.createTempDirectory("save");
+        working = directory.resolve("database.sqlite");
+        open = DriverManager.getConnection("jdbc:sqlite:" + working);
+        try (Statement stmt = open.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("CREATE TABLE FOOD (name TEXT PRIMARY KEY, serving_size_calories REAL)");
+            stmt.execute("INSERT INTO FOOD VALUES ('Apple', 52)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException, IOException {
+        open.close();
+        // Deepest first, the backup store keeps its files in folders
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void testSnapshotWhileConnectionIsOpen() throws SQLException, IOException {
+        Path snapshot = directory.resolve("snapshot.sqlite");
+        int[] last = new int[2];
+        new SaveEngine(working).snapshot(snapshot, (copied, total) -> {
+            last[0] = copied;
+            last[1] = total;
+        });
+        assertTrue(last[1] > 0);
+        assertEquals(last[1], last[0]);
+        assertEquals(1, count(snapshot));
+    }
+
+    @Test
+    void testSaveKeepsPreviousFileAsBackup() throws SQLException, IOException {
+        Path saved = directory.resolve("data.sqlite");
+        BackupStore backups = new BackupStore(directory.resolve("backup"));
+        SaveEngine engine = new SaveEngine(working);
+        assertNull(engine.save(saved, backups, "first", SaveEngine.ProgressListener.NONE));
+        assertFalse(backups.contains("first"));
+        try (Statement stmt = open.createStatement()) {
+            stmt.execute("INSERT INTO FOOD VALUES ('Bread', 100)");
+        }
+        assertNotNull(engine.save(saved, backups, "second", SaveEngine.ProgressListener.NONE));
+        assertTrue(backups.contains("second"));
+        assertEquals(2, count(saved));
+        Path restored = directory.resolve("restored.sqlite");
+        backups.restore("second", restored);
+        assertEquals(1, count(restored));
+        assertFalse(Files.exists(directory.resolve("data.sqlite.tmp")));
+    }
+
+    private static int count(Path database) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + database);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM FOOD")) {
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.SaveScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SaveSchedulerTest {
+    AtomicInteger saves = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    SaveScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    void testRequestsDuringSaveAreCoalesced() throws Exception {
+        scheduler = new SaveScheduler(listener -> {
+            started.countDown();
+            await(release);
+            listener.progress(1, 1);
+            saves.incrementAndGet();
+            return true;
+        }, () -> true);
+        CompletableFuture<Boolean> first = scheduler.requestSave();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = scheduler.requestSave();
+        CompletableFuture<Boolean> third = scheduler.requestSave();
+        assertSame(second, third);
+        assertNotSame(first, second);
+        release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, saves.get());
+    }
+
+    @Test
+    void testFailedSaveCompletesWithFalse() throws Exception {
+        scheduler = new SaveScheduler(listener -> {
+            throw new IllegalStateException("disk full");
+        }, () -> true);
+        assertFalse(scheduler.requestSave().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testProgressIsReported() throws Exception {
+        scheduler = new SaveScheduler(listener -> {
+            listener.progress(3, 4);
+            return true;
+        }, () -> true);
+        int[] progress = new int[2];
+        scheduler.setProgressListener((copied, total) -> {
+            progress[0] = copied;
+            progress[1] = total;
+        });
+        assertTrue(scheduler.requestSave().get(5, TimeUnit.SECONDS));
+        assertEquals(3, progress[0]);
+        assertEquals(4, progress[1]);
+    }
+
+    @Test
+    void testAutosaveOnlyWithUnsavedChanges() throws Exception {
+        AtomicBoolean changed = new AtomicBoolean(false);
+        CountDownLatch saved = new CountDownLatch(1);
+        scheduler = new SaveScheduler(listener -> {
+            saves.incrementAndGet();
+            changed.set(false);
+            saved.countDown();
+            return true;
+        }, changed::get);
+        scheduler.startAutosave(Duration.ofMillis(20));
+        Thread.sleep(100);
+        assertEquals(0, saves.get());
+        changed.set(true);
+        assertTrue(saved.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, saves.get());
+    }
+
+    @Test
+    void testCloseWaitsForSaveInProgress() throws Exception {
+        scheduler = new SaveScheduler(listener -> {
+            started.countDown();
+            await(release);
+            saves.incrementAndGet();
+            return true;
+        }, () -> true);
+        scheduler.requestSave();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread releaser = Thread.ofVirtual().start(() -> {
+            sleep(50);
+            release.countDown();
+        });
+        scheduler.close();
+        assertEquals(1, saves.get());
+        assertFalse(scheduler.requestSave().get(5, TimeUnit.SECONDS));
+        releaser.join();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.DatabaseManager;
+import org.alexander.database.SchemaMigrator;
+import org.alexander.database.SchemaMigrator.Migration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.List;
+
+public class SchemaMigratorTest {
+    @TempDir
+    Path tempDir;
+
+    private Connection open() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + tempDir.resolve("migrate.sqlite"));
+    }
+
+    @Test
+    void testMigrationsApplyInOrder() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator(List.of(
+                new Migration(1, "create", conn -> conn.createStatement().execute("CREATE TABLE T (a INTEGER)")),
+                new Migration(2, "alter", conn -> conn.createStatement().execute("ALTER TABLE T ADD COLUMN b INTEGER"))
+        ));
+        try (Connection conn = open()) {
+            assertEquals(0, SchemaMigrator.getVersion(conn));
+            assertEquals(2, migrator.migrate(conn));
+            assertEquals(2, SchemaMigrator.getVersion(conn));
+            conn.createStatement().execute("INSERT INTO T (a, b) VALUES (1, 2)");
+            // Already up to date, so nothing is applied again
+            assertEquals(2, migrator.migrate(conn));
+            assertTrue(conn.getAutoCommit());
+        }
+    }
+
+    @Test
+    void testFailedMigrationRollsBack() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator(List.of(
+                new Migration(1, "create", conn -> conn.createStatement().execute("CREATE TABLE T (a INTEGER)")),
+                new Migration(2, "broken", conn -> {
+                    conn.createStatement().execute("CREATE TABLE U (a INTEGER)");
+                    conn.createStatement().execute("ALTER TABLE MISSING ADD COLUMN b INTEGER");
+                })
+        ));
+        try (Connection conn = open()) {
+            assertEquals(1, migrator.migrate(conn));
+            assertEquals(1, SchemaMigrator.getVersion(conn));
+            try (ResultSet rs = conn.createStatement().executeQuery("SELECT 1 FROM sqlite_master WHERE name = 'U'")) {
+                assertFalse(rs.next());
+            }
+        }
+    }
+
+    @Test
+    void testVersionsMustBeSequential() {
+        assertThrows(IllegalArgumentException.class, () -> new SchemaMigrator(List.of(
+                new Migration(2, "skipped", conn -> {})
+        )));
+    }
+
+    @Test
+    void testTotalsMigrationBackfillsExistingMeals() throws SQLException {
+        try (Connection conn = open(); Statement stmt = conn.createStatement()) {
+            for (String sql : List.of(
+                    "CREATE TABLE DAY (date DATE PRIMARY KEY, week_id INTEGER, body_weight REAL)",
+                    "CREATE TABLE MEAL (id INTEGER PRIMARY KEY, date DATE NOT NULL, type VARCHAR(9), time TIME)",
+                    "CREATE TABLE SNACK (id INTEGER PRIMARY KEY, date DATE NOT NULL, time TIME)",
+                    "CREATE TABLE FOOD (name VARCHAR(250) PRIMARY KEY, serving_size_grams REAL, serving_size_calories REAL)",
+                    "CREATE TABLE FOOD_TYPE_JUNCTION_FOOD (name VARCHAR(250), type VARCHAR(12), PRIMARY KEY (name, type))",
+                    "CREATE TABLE FOOD_MEAL (name VARCHAR(250), meal_id INTEGER, num_servings REAL, PRIMARY KEY (name, meal_id))",
+                    "CREATE TABLE FOOD_SNACK (name VARCHAR(250), snack_id INTEGER, num_servings REAL, PRIMARY KEY (name, snack_id))",
+                    "INSERT INTO FOOD VALUES ('Apple', 150, 80), ('Bread', 40, NULL)",
+                    "INSERT INTO FOOD_TYPE_JUNCTION_FOOD VALUES ('Apple', 'Fiber')",
+                    "INSERT INTO MEAL VALUES (1, 1000, 'BREAKFAST', NULL)",
+                    "INSERT INTO SNACK VALUES (1, 1000, NULL)",
+                    "INSERT INTO FOOD_MEAL VALUES ('Apple', 1, 2), ('Bread', 1, 1)",
+                    "INSERT INTO FOOD_SNACK VALUES ('Apple', 1, 0.5)",
+                    "PRAGMA user_version = 1")) {
+                stmt.execute(sql);
+            }
+            assertEquals(2, new SchemaMigrator().migrate(conn));
+            try (ResultSet rs = stmt.executeQuery("SELECT date, calories, grams FROM DAY_TOTALS")) {
+                assertTrue(rs.next());
+                assertEquals(1000, rs.getLong("date"));
+                assertEquals(200, rs.getDouble("calories"), 1e-9);
+                assertEquals(415, rs.getDouble("grams"), 1e-9);
+                assertFalse(rs.next());
+            }
+            // The triggers keep the backfilled totals up to date
+            stmt.execute("DELETE FROM FOOD_SNACK");
+            try (ResultSet rs = stmt.executeQuery("SELECT d.calories, t.calories FROM DAY_TOTALS d JOIN DAY_TYPE_TOTALS t ON t.date = d.date")) {
+                assertTrue(rs.next());
+                assertEquals(160, rs.getDouble(1), 1e-9);
+                assertEquals(160, rs.getDouble(2), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void testDatabaseIsAtLatestVersion() throws SQLException {
+        try (Connection conn = DatabaseManager.connect()) {
+            assertEquals(new SchemaMigrator().getLatestVersion(), SchemaMigrator.getVersion(conn));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.DatabaseManager;
+import org.alexander.database.QueryHelper;
+import org.alexander.database.SchemaRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public class SchemaRegistryTest {
+    @Test
+    void testTablesAndColumns() {
+        assertTrue(SchemaRegistry.tableExists("FOOD"));
+        assertTrue(SchemaRegistry.columnExists("FOOD", "serving_size_calories"));
+        assertFalse(SchemaRegistry.columnExists("FOOD", "calories"));
+        assertFalse(SchemaRegistry.tableExists("MISSING"));
+        assertThrows(IllegalArgumentException.class, () -> QueryHelper.entityExists("Apple", "calories", "FOOD"));
+    }
+
+    @Test
+    void testInvalidateReloadsCatalog() throws SQLException {
+        assertFalse(SchemaRegistry.tableExists("SCRATCH"));
+        try (Connection conn = DatabaseManager.connectForWrite(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE SCRATCH (a INTEGER)");
+            // Cached until invalidated
+            assertFalse(SchemaRegistry.tableExists("SCRATCH"));
+            SchemaRegistry.invalidate();
+            assertTrue(SchemaRegistry.columnExists("SCRATCH", "a"));
+            stmt.execute("DROP TABLE SCRATCH");
+        } finally {
+            SchemaRegistry.invalidate();
+        }
+        assertFalse(SchemaRegistry.tableExists("SCRATCH"));
+    }
+}
@@ -0,0 +1,127 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.ChangeJournal;
+import org.alexander.database.DatabaseManager;
+import org.alexander.database.Transaction;
+import org.alexander.database.tables.food.dao.FoodDao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+public class TransactionTest {
+    private static final List<String> FOODS = List.of("TxApple", "TxBanana", "TxCherry");
+    FoodDao foodDao = new FoodDao();
+
+    @BeforeEach
+    void setUp() {
+        ChangeJournal.getInstance().clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String name : FOODS) {
+            if (foodDao.getFood(name) != null) {
+                foodDao.deleteFood(name);
+            }
+        }
+        ChangeJournal.getInstance().clear();
+    }
+
+    @Test
+    void testCommitsEveryCall() {
+        Boolean committed = DatabaseManager.inTransaction(tx -> {
+            assertTrue(Transaction.isActive());
+            for (String name : FOODS) {
+                if (foodDao.addFood(name, 100.0, 50.0) == null) return tx.setRollbackOnly("could not add " + name);
+            }
+            // Reads inside the transaction see its own writes
+            return new FoodDao(tx.getConnection()).getFood("TxCherry") != null;
+        });
+        assertEquals(Boolean.TRUE, committed);
+        assertFalse(Transaction.isActive());
+        assertFalse(DatabaseManager.getPoolMetrics().writerLeased());
+        for (String name : FOODS) {
+            assertNotNull(foodDao.getFood(name));
+        }
+    }
+
+    @Test
+    void testRollbackOnlyUndoesEveryCall() {
+        Boolean committed = DatabaseManager.inTransaction(tx -> {
+            assertNotNull(foodDao.addFood("TxApple", 100.0, 50.0));
+            assertNotNull(foodDao.addFood("TxBanana", 120.0, 90.0));
+            return tx.setRollbackOnly("test");
+        });
+        assertNull(committed);
+        assertRolledBack();
+    }
+
+    @Test
+    void testExceptionRollsBack() {
+        Boolean committed = DatabaseManager.inTransaction(tx -> {
+            assertNotNull(foodDao.addFood("TxApple", 100.0, 50.0));
+            throw new IllegalStateException("failed half way");
+        });
+        assertNull(committed);
+        assertRolledBack();
+    }
+
+    @Test
+    void testNestedFailureRollsBackOuter() {
+        Boolean committed = DatabaseManager.inTransaction(tx -> {
+            assertNotNull(foodDao.addFood("TxApple", 100.0, 50.0));
+            Boolean inner = DatabaseManager.inTransaction(nested -> {
+                assertNotNull(foodDao.addFood("TxBanana", 120.0, 90.0));
+                return nested.setRollbackOnly("inner failed");
+            });
+            assertNull(inner);
+            assertTrue(tx.isRollbackOnly());
+            return true;
+        });
+        assertNull(committed);
+        assertRolledBack();
+    }
+
+    @Test
+    void testWorkOnAnotherConnectionDoesNotJoin() throws SQLException {
+        try (Connection other = DriverManager.getConnection("jdbc:sqlite::memory:"); Statement stmt = other.createStatement()) {
+            stmt.execute("CREATE TABLE SCRATCH (a INTEGER)");
+            Boolean committed = DatabaseManager.inTransaction(tx -> {
+                assertNotNull(foodDao.addFood("TxApple", 100.0, 50.0));
+                Boolean inner = Transaction.run(other, nested -> {
+                    try (Statement insert = nested.getConnection().createStatement()) {
+                        insert.execute("INSERT INTO SCRATCH VALUES (1)");
+                    }
+                    return nested.setRollbackOnly("inner failed");
+                });
+                assertNull(inner);
+                // Only the work on the other connection is undone, the outer transaction carries on
+                assertFalse(tx.isRollbackOnly());
+                assertNotNull(foodDao.addFood("TxBanana", 120.0, 90.0));
+                return true;
+            });
+            assertEquals(Boolean.TRUE, committed);
+            assertNotNull(foodDao.getFood("TxApple"));
+            assertNotNull(foodDao.getFood("TxBanana"));
+            try (ResultSet rs = stmt.executeQuery("SELECT count(*) FROM SCRATCH")) {
+                assertEquals(0, rs.getInt(1));
+            }
+        }
+    }
+
+    private void assertRolledBack() {
+        assertFalse(DatabaseManager.getPoolMetrics().writerLeased());
+        // Neither the cache nor the journal may still hold the rows rolled back
+        assertNull(foodDao.getFood("TxApple"));
+        assertNull(foodDao.getFood("TxBanana"));
+        assertFalse(ChangeJournal.getInstance().isReliable());
+    }
+}
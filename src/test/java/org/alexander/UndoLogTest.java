@@ -0,0 +1,96 @@
+package org.alexander;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.alexander.database.UndoLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+public class UndoLogTest {
+    UndoLog undoLog = new UndoLog(List.of("FOOD", "FOOD_MEAL"));
+    Path database;
+    Connection conn;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        database = Files.createTempFile("undo", ".sqlite");
+        conn = DriverManager.getConnection("jdbc:sqlite:" + database);
+        execute("PRAGMA foreign_keys = ON",
+                "CREATE TABLE FOOD (name TEXT PRIMARY KEY, serving_size_calories REAL)",
+                "CREATE TABLE FOOD_MEAL (name TEXT NOT NULL REFERENCES FOOD(name), meal_id INTEGER NOT NULL, num_servings REAL, PRIMARY KEY (name, meal_id))",
+                "INSERT INTO FOOD VALUES ('Apple', 52.5), ('Bread', 100)",
+                "INSERT INTO FOOD_MEAL VALUES ('Bread', 1, 2)");
+        undoLog.install(conn);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException, IOException {
+        conn.close();
+        Files.deleteIfExists(database);
+    }
+
+    @Test
+    void testRollbackRestoresSavedState() throws SQLException {
+        List<String> before = snapshot();
+        execute("INSERT INTO FOOD VALUES ('Cheese', 400)",
+                "INSERT INTO FOOD_MEAL VALUES ('Cheese', 1, 1)",
+                "UPDATE FOOD SET serving_size_calories = 60 WHERE name = 'Apple'",
+                "DELETE FROM FOOD_MEAL WHERE name = 'Bread'",
+                "DELETE FROM FOOD WHERE name = 'Bread'");
+        assertEquals(5, undoLog.size(conn));
+        assertEquals(5, undoLog.rollback(conn));
+        assertEquals(before, snapshot());
+        assertEquals(0, undoLog.size(conn));
+    }
+
+    @Test
+    void testCommitKeepsChanges() throws SQLException {
+        execute("DELETE FROM FOOD WHERE name = 'Apple'");
+        undoLog.commit(conn);
+        List<String> saved = snapshot();
+        assertEquals(0, undoLog.rollback(conn));
+        assertEquals(saved, snapshot());
+    }
+
+    @Test
+    void testRecoverRollsBackAndRemovesLog() throws SQLException {
+        List<String> before = snapshot();
+        execute("UPDATE FOOD_MEAL SET num_servings = 3");
+        assertEquals(1, undoLog.recover(conn));
+        assertEquals(before, snapshot());
+        // No longer recording
+        execute("DELETE FROM FOOD_MEAL");
+        assertEquals(0, undoLog.size(conn));
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+
+    private List<String> snapshot() throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT rowid || ':' || name || ':' || quote(serving_size_calories) FROM FOOD "
+                     + "UNION ALL SELECT name || ':' || meal_id || ':' || quote(num_servings) FROM FOOD_MEAL ORDER BY 1")) {
+            while (rs.next()) {
+                rows.add(rs.getString(1));
+            }
+        }
+        return rows;
+    }
+}
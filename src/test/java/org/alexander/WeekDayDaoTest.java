@@ -65,8 +65,9 @@ public class WeekDayDaoTest {
 
     @Test
     void testDay() {
-        clearWeeks(weekDao);
+        // Days reference their week, so they are cleared first
         clearDays(new DayDao());
+        clearWeeks(weekDao);
         // Week
         week = weekDao.addWeek(weekDao.getClosestMonday(LocalDate.now()));
         assertNotNull(week);